@@ -1,19 +1,62 @@
 package org.smic;
 
 import com.itextpdf.text.DocumentException;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
+import javax.xml.validation.Schema;
 import javax.xml.xpath.XPathExpressionException;
+import org.apache.commons.io.IOUtils;
+import org.smic.audit.SmicAuditLog;
+import org.smic.audit.SmicConversionResult;
+import org.smic.cache.SmicConversionCache;
+import org.smic.concurrency.SmicAdmissionController;
+import org.smic.concurrency.SmicDeadline;
 import org.smic.exceptions.*;
+import org.smic.index.SmicMissiveIndex;
+import org.smic.layout.SmicOutputLayout;
+import org.smic.missive.SmicMissiveHeader;
+import org.smic.missive.SmicMissiveHeaderReader;
+import org.smic.monitoring.SmicStageRecorder;
+import org.smic.storage.SmicLocalStorage;
+import org.smic.storage.SmicStorage;
+import org.smic.transformation.SmicConversionContext;
 import org.smic.transformation.SmicPdf;
 import org.smic.transformation.SmicXml;
 import org.smic.utils.ConfigReader;
+import org.smic.utils.SmicChannelInputStream;
+import org.smic.utils.SmicChannelOutputStream;
+import org.smic.utils.SmicDigestUtils;
 import org.smic.utils.SmicDirectoryUtils;
+import org.smic.utils.SmicFileUtils;
+import org.smic.utils.SmicFormatSniffer;
+import org.smic.utils.SmicOutputWriter;
+import org.smic.utils.SmicPdfReader;
+import org.smic.utils.SmicSchemaValidator;
+import org.smic.workspace.SmicWorkspace;
+import org.smic.workspace.SmicWorkspaceManager;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 /**
@@ -25,11 +68,26 @@ import org.xml.sax.SAXException;
  */
 public class Smic {
 
+    private static final long DEFAULT_CACHE_MEMORY = 64;
+    private static final long DEFAULT_SPILL_THRESHOLD = 32;
+    private static final long DEFAULT_WORKSPACE_MEMORY_RESERVE = 256;
+
+    private SmicAdmissionController admissionController;
+    private SmicAuditLog auditLog;
+    private SmicConversionCache cache;
+    private SmicConversionContext conversionContext;
+    private long conversionTimeout;
     private boolean hasConfiguration;
     private boolean hasValidConfiguration;
+    private SmicFormatSniffer formatSniffer;
+    private SmicMissiveHeaderReader headerReader;
+    private SmicMissiveIndex index;
+    private SmicStorage inputStorage;
     private String outputFolder;
+    private SmicStorage outputStorage;
     private HashMap<String, String> smicConfig;
     private String tempFolder;
+    private SmicWorkspaceManager workspaceManager;
 
     /**
      * Smic class default constructor
@@ -44,12 +102,60 @@ public class Smic {
     public Smic(String configFilename, String outputFolder, String tempFolder) throws
             ConfigurationFileNotFoundException, IOException, InvalidConfigurationException {
 
+        // Read and write files on the local file system
+        this(configFilename, null, null, outputFolder, tempFolder);
+    }
+
+    /**
+     * Smic class constructor reading the files to convert from a storage and writing the resulting files to another
+     * 
+     * @param configFilename SMIC module configuration file path and name
+     * @param inputStorage Storage from which the files to convert are read
+     * @param outputStorage Storage to which the resulting files are written, at the root of the storage
+     * @param tempFolder Folder where temporary files will be written when required
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    public Smic(String configFilename, SmicStorage inputStorage, SmicStorage outputStorage, String tempFolder) throws
+            ConfigurationFileNotFoundException, IOException, InvalidConfigurationException {
+
+        // Resulting files are named relative to the root of the output storage
+        this(configFilename, inputStorage, outputStorage, "", tempFolder);
+    }
+
+    /**
+     * Smic class constructor
+     * 
+     * @param configFilename SMIC module configuration file path and name
+     * @param inputStorage Storage from which the files to convert are read, or null for the local file system
+     * @param outputStorage Storage to which the resulting files are written, or null for the local file system
+     * @param outputFolder Folder of the output storage where resulting files will be written
+     * @param tempFolder Folder where temporary files will be written when required
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    private Smic(String configFilename, SmicStorage inputStorage, SmicStorage outputStorage, String outputFolder,
+            String tempFolder) throws ConfigurationFileNotFoundException, IOException, InvalidConfigurationException {
+
         // Initialise class attributes
+        this.admissionController = null;
+        this.auditLog = null;
+        this.cache = null;
+        this.conversionContext = new SmicConversionContext();
+        this.conversionTimeout = 0;
+        this.formatSniffer = null;
         this.hasConfiguration = false;
         this.hasValidConfiguration = false;
+        this.headerReader = new SmicMissiveHeaderReader();
+        this.index = null;
+        this.inputStorage = inputStorage;
         this.outputFolder = outputFolder;
+        this.outputStorage = outputStorage;
         this.smicConfig = new HashMap<>();
         this.tempFolder = tempFolder;
+        this.workspaceManager = null;
 
         try {
 
@@ -62,6 +168,45 @@ public class Smic {
             // Parse the configuration file
             this.smicConfig = configReader.parse();
 
+            // Set up the admission of concurrent conversions against the configured heap budget
+            this.configureAdmission();
+
+            // Local file system, whose resulting files are written by a writer which optionally commits them durably
+            // in groups, unless other storages have been given
+            if (this.outputStorage == null) {
+                this.outputStorage = new SmicLocalStorage(new SmicOutputWriter(
+                        this.getBooleanProperty("output.fsync", false),
+                        this.getLongProperty("output.fsync.delay", SmicOutputWriter.DEFAULT_GROUP_COMMIT_DELAY)));
+                this.inputStorage = this.outputStorage;
+            }
+
+            // Size in megabytes above which conversions stream through scratch files instead of memory, storage of
+            // the resulting files, layout of the output folder, schema of the missive XML documents and compact mode
+            // of the resulting PDF and XML files
+            this.conversionContext = new SmicConversionContext(
+                    this.getLongProperty("spill.threshold", DEFAULT_SPILL_THRESHOLD) * 1024 * 1024,
+                    this.outputStorage, this.getOutputLayout(), this.getSchema(),
+                    this.getBooleanProperty("output.compact", false), this.getBooleanProperty("output.gzip", false));
+
+            // Set up the cache of conversion results
+            this.configureCache();
+
+            // Set up the index of converted missives
+            this.configureIndex();
+
+            // Set up the audit log of the conversions
+            this.configureAudit();
+
+            // Time in milliseconds within which conversions given no deadline by the caller must complete
+            this.conversionTimeout = this.getLongProperty("conversion.timeout", 0);
+
+            // Detection of the format of the files to convert from the XMP tag of the missive and from the root
+            // element of the document XPath, such as Missive for sem:Missive/sem:sepamail_missive_001
+            String rootElement = this.getProperty("document.xpath", "").split("/")[0];
+
+            this.formatSniffer = new SmicFormatSniffer(smicConfig.get("xmp.missive"),
+                    rootElement.substring(rootElement.indexOf(':') + 1));
+
             // Configuration file is valid
             this.hasValidConfiguration = true;
 
@@ -69,6 +214,12 @@ public class Smic {
             SmicDirectoryUtils.createFolderIfNotExist(this.outputFolder);
             SmicDirectoryUtils.createFolderIfNotExist(this.tempFolder);
 
+            // Private scratch folders of the conversions, preferably held in memory backed storage, after sweeping the
+            // scratch folders left by processes which have ended
+            this.workspaceManager = new SmicWorkspaceManager(this.tempFolder,
+                    this.getProperty("workspace.memory.folder", SmicWorkspaceManager.DEFAULT_MEMORY_FOLDER),
+                    this.getLongProperty("workspace.memory.reserve", DEFAULT_WORKSPACE_MEMORY_RESERVE) * 1024 * 1024);
+
         } catch (ConfigurationFileNotFoundException ex) {
 
             // Configuration file was not found
@@ -107,24 +258,72 @@ public class Smic {
      * @throws XPathExpressionException
      * @throws ContainerNodeNotFoundException
      * @throws InvalidNamespaceDefinitionException
+     * @throws ConversionRejectedException
      */
     public String smicPdf2Xml(String pdfFilename) throws ConfigurationFileNotFoundException,
             InvalidConfigurationException, FileNotFoundException, IOException, ParserConfigurationException,
             SAXException, MissiveXmlNotFoundException, UnsupportedEncodingException,
             InvalidDocumentObjectTemplateException, TransformerConfigurationException, TransformerException,
             XmlDocumentNotGeneratedException, XPathExpressionException, ContainerNodeNotFoundException,
-            InvalidNamespaceDefinitionException {
+            InvalidNamespaceDefinitionException, ConversionRejectedException {
 
         // Check if we have a valid configuration
         if (this.validateConfiguration()) {
 
-            // XML to PDF conversion class instance
-            SmicPdf smicPdf = new SmicPdf(pdfFilename, this.outputFolder, this.tempFolder,
-                    smicConfig.get("xmp.missive"), smicConfig.get("document.type"), smicConfig.get("document.mime"),
-                    smicConfig.get("document.locale"), smicConfig.get("document.template"));
+            // Conversions given no deadline by the caller complete within the configured time
+            if (this.conversionTimeout > 0 && SmicDeadline.current() == null) {
+                return this.smicPdf2Xml(pdfFilename, new SmicDeadline(this.conversionTimeout));
+            }
+
+            // Look for the result of an earlier conversion of the same PDF document, whose name gives the output name
+            String cacheKey = this.getCacheKey(SmicStageRecorder.PDF_TO_XML, pdfFilename,
+                    smicConfig.get("document.type"), SmicFileUtils.getFilename(pdfFilename));
+            String cachedFilename = this.fetchCachedResult(cacheKey);
+
+            if (cachedFilename != null) {
+                this.auditCachedResult(SmicStageRecorder.PDF_TO_XML, pdfFilename, cachedFilename);
+                return cachedFilename;
+            }
+
+            // Admit the conversion within the heap budget
+            int permits = this.admit(SmicStageRecorder.PDF_TO_XML, pdfFilename);
+
+            // Private scratch folder of the conversion, removed whatever the outcome of the conversion
+            try (SmicWorkspace workspace = this.workspaceManager.create(SmicStageRecorder.PDF_TO_XML,
+                    this.inputStorage.size(pdfFilename))) {
+
+                // The deadline may have passed while waiting for the heap budget
+                SmicDeadline.checkCurrent();
+
+                // Local file holding the PDF document
+                String localPdfFilename = this.getLocalInput(pdfFilename, workspace);
 
-            // Convert the PDF document to missive XML and get the path and name of the resulting XML file
-            return smicPdf.convert(smicConfig.get("document.namespace"), smicConfig.get("document.xpath"));
+                // XML to PDF conversion class instance
+                SmicPdf smicPdf = new SmicPdf(localPdfFilename, this.outputFolder, workspace.getFolder(),
+                        smicConfig.get("xmp.missive"), smicConfig.get("document.type"),
+                        smicConfig.get("document.mime"), smicConfig.get("document.locale"),
+                        smicConfig.get("document.template"), this.conversionContext);
+
+                // Convert the PDF document to missive XML and get the path and name of the resulting XML file
+                String xmlFilename = smicPdf.convert(smicConfig.get("document.namespace"),
+                        smicConfig.get("document.xpath"));
+
+                // Record the conversion in the index of converted missives, the PDF document having been digested as
+                // it was read, and in the audit log
+                this.indexConversion(pdfFilename, localPdfFilename, smicPdf.getResult().getInputDigest(),
+                        smicPdf.getMissiveXml(), xmlFilename);
+                this.auditConversion(pdfFilename, smicPdf.getResult());
+
+                // Keep the result for later conversions of the same PDF document
+                this.storeCachedResult(cacheKey, xmlFilename);
+
+                return xmlFilename;
+
+            } finally {
+
+                // Give back the heap budget held by the conversion
+                this.release(permits);
+            }
         }
         
         return null;
@@ -151,24 +350,72 @@ public class Smic {
      * @throws XPathExpressionException
      * @throws ContainerNodeNotFoundException
      * @throws InvalidNamespaceDefinitionException
+     * @throws ConversionRejectedException
      */
     public String smicPdf2Xml(String pdfFilename, String documentType) throws ConfigurationFileNotFoundException,
             InvalidConfigurationException, FileNotFoundException, IOException, ParserConfigurationException,
             SAXException, MissiveXmlNotFoundException, UnsupportedEncodingException,
             InvalidDocumentObjectTemplateException, TransformerConfigurationException, TransformerException,
             XmlDocumentNotGeneratedException, XPathExpressionException, ContainerNodeNotFoundException,
-            InvalidNamespaceDefinitionException {
+            InvalidNamespaceDefinitionException, ConversionRejectedException {
 
         // Check if we have a valid configuration
         if (this.validateConfiguration()) {
 
-            // XML to PDF conversion class instance
-            SmicPdf smicPdf = new SmicPdf(pdfFilename, this.outputFolder, this.tempFolder,
-                    smicConfig.get("xmp.missive"), documentType, smicConfig.get("document.mime"), 
-                    smicConfig.get("document.locale"), smicConfig.get("document.template"));
+            // Conversions given no deadline by the caller complete within the configured time
+            if (this.conversionTimeout > 0 && SmicDeadline.current() == null) {
+                return this.smicPdf2Xml(pdfFilename, documentType, new SmicDeadline(this.conversionTimeout));
+            }
+
+            // Look for the result of an earlier conversion of the same PDF document, whose name gives the output name
+            String cacheKey = this.getCacheKey(SmicStageRecorder.PDF_TO_XML, pdfFilename, documentType,
+                    SmicFileUtils.getFilename(pdfFilename));
+            String cachedFilename = this.fetchCachedResult(cacheKey);
+
+            if (cachedFilename != null) {
+                this.auditCachedResult(SmicStageRecorder.PDF_TO_XML, pdfFilename, cachedFilename);
+                return cachedFilename;
+            }
 
-            // Convert the PDF document to missive XML and get the path and name of the resulting XML file
-            return smicPdf.convert(smicConfig.get("document.namespace"), smicConfig.get("document.xpath"));
+            // Admit the conversion within the heap budget
+            int permits = this.admit(SmicStageRecorder.PDF_TO_XML, pdfFilename);
+
+            // Private scratch folder of the conversion, removed whatever the outcome of the conversion
+            try (SmicWorkspace workspace = this.workspaceManager.create(SmicStageRecorder.PDF_TO_XML,
+                    this.inputStorage.size(pdfFilename))) {
+
+                // The deadline may have passed while waiting for the heap budget
+                SmicDeadline.checkCurrent();
+
+                // Local file holding the PDF document
+                String localPdfFilename = this.getLocalInput(pdfFilename, workspace);
+
+                // XML to PDF conversion class instance
+                SmicPdf smicPdf = new SmicPdf(localPdfFilename, this.outputFolder, workspace.getFolder(),
+                        smicConfig.get("xmp.missive"), documentType, smicConfig.get("document.mime"), 
+                        smicConfig.get("document.locale"), smicConfig.get("document.template"),
+                        this.conversionContext);
+
+                // Convert the PDF document to missive XML and get the path and name of the resulting XML file
+                String xmlFilename = smicPdf.convert(smicConfig.get("document.namespace"),
+                        smicConfig.get("document.xpath"));
+
+                // Record the conversion in the index of converted missives, the PDF document having been digested as
+                // it was read, and in the audit log
+                this.indexConversion(pdfFilename, localPdfFilename, smicPdf.getResult().getInputDigest(),
+                        smicPdf.getMissiveXml(), xmlFilename);
+                this.auditConversion(pdfFilename, smicPdf.getResult());
+
+                // Keep the result for later conversions of the same PDF document
+                this.storeCachedResult(cacheKey, xmlFilename);
+
+                return xmlFilename;
+
+            } finally {
+
+                // Give back the heap budget held by the conversion
+                this.release(permits);
+            }
         }
         
         return null;
@@ -191,25 +438,1324 @@ public class Smic {
      * @throws TransformerException
      * @throws InvalidPdfPageNumberException
      * @throws DocumentException
+     * @throws ConversionRejectedException
      */
     public String smicXml2Pdf(String xmlFilename) throws ConfigurationFileNotFoundException,
             InvalidConfigurationException, FileNotFoundException, ParserConfigurationException, IOException,
             SAXException, DocumentObjectNotFoundException, PdfDocumentNotGeneratedException, 
-            TransformerConfigurationException, TransformerException, InvalidPdfPageNumberException, DocumentException {
+            TransformerConfigurationException, TransformerException, InvalidPdfPageNumberException, DocumentException,
+            ConversionRejectedException {
 
         // Check if we have a valid configuration
         if (this.validateConfiguration()) {
 
-            // XML to PDF conversion class instance
-            SmicXml smicXml = new SmicXml(xmlFilename, this.outputFolder, this.tempFolder);
+            // Conversions given no deadline by the caller complete within the configured time
+            if (this.conversionTimeout > 0 && SmicDeadline.current() == null) {
+                return this.smicXml2Pdf(xmlFilename, new SmicDeadline(this.conversionTimeout));
+            }
+
+            // Look for the result of an earlier conversion of the same missive XML document
+            String cacheKey = this.getCacheKey(SmicStageRecorder.XML_TO_PDF, xmlFilename);
+            String cachedFilename = this.fetchCachedResult(cacheKey);
+
+            if (cachedFilename != null) {
+                this.auditCachedResult(SmicStageRecorder.XML_TO_PDF, xmlFilename, cachedFilename);
+                return cachedFilename;
+            }
+
+            // Admit the conversion within the heap budget
+            int permits = this.admit(SmicStageRecorder.XML_TO_PDF, xmlFilename);
+
+            // Private scratch folder of the conversion, removed whatever the outcome of the conversion
+            try (SmicWorkspace workspace = this.workspaceManager.create(SmicStageRecorder.XML_TO_PDF,
+                    this.inputStorage.size(xmlFilename))) {
+
+                // The deadline may have passed while waiting for the heap budget
+                SmicDeadline.checkCurrent();
+
+                // Local file holding the missive XML document
+                String localXmlFilename = this.getLocalInput(xmlFilename, workspace);
 
-            // Convert the missive XML document to PDF and get the path and name of the resulting PDF file
-            return smicXml.convert(smicConfig.get("pdf.generator"));
+                // XML to PDF conversion class instance
+                SmicXml smicXml = new SmicXml(localXmlFilename, this.outputFolder, workspace.getFolder(),
+                        this.conversionContext);
+
+                // Convert the missive XML document to PDF and get the path and name of the resulting PDF file
+                String pdfFilename = smicXml.convert(smicConfig.get("pdf.generator"));
+
+                // Record the conversion in the index of converted missives and in the audit log
+                this.indexConversion(xmlFilename, localXmlFilename, smicXml.getResult().getInputDigest(), null,
+                        pdfFilename);
+                this.auditConversion(xmlFilename, smicXml.getResult());
+
+                // Keep the result for later conversions of the same missive XML document
+                this.storeCachedResult(cacheKey, pdfFilename);
+
+                return pdfFilename;
+
+            } finally {
+
+                // Give back the heap budget held by the conversion
+                this.release(permits);
+            }
         }
 
         return null;
     }
     
+    /**
+     * Convert a PDF document to a missive XML document containing the PDF document encoded in Base64, aborting the
+     * conversion once its deadline has passed or once it has been cancelled
+     * 
+     * @param pdfFilename Path and name of PDF file that need to be converted to XML missive document
+     * @param deadline Deadline and cancellation token of the conversion, or null for the configured timeout
+     * @return Path and name of resulting XML document
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws MissiveXmlNotFoundException
+     * @throws UnsupportedEncodingException
+     * @throws InvalidDocumentObjectTemplateException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws XmlDocumentNotGeneratedException
+     * @throws XPathExpressionException
+     * @throws ContainerNodeNotFoundException
+     * @throws InvalidNamespaceDefinitionException
+     * @throws ConversionRejectedException
+     * @throws ConversionTimeoutException
+     */
+    public String smicPdf2Xml(String pdfFilename, SmicDeadline deadline) throws ConfigurationFileNotFoundException,
+            InvalidConfigurationException, FileNotFoundException, IOException, ParserConfigurationException,
+            SAXException, MissiveXmlNotFoundException, UnsupportedEncodingException,
+            InvalidDocumentObjectTemplateException, TransformerConfigurationException, TransformerException,
+            XmlDocumentNotGeneratedException, XPathExpressionException, ContainerNodeNotFoundException,
+            InvalidNamespaceDefinitionException, ConversionRejectedException {
+
+        // Attach the deadline to the thread running the conversion, which checks it as the conversion proceeds
+        SmicDeadline previousDeadline = SmicDeadline.attach(deadline);
+
+        try {
+            return this.smicPdf2Xml(pdfFilename);
+        } catch (Exception ex) {
+
+            // Report the timeout wrapped by a parser or a transformer as such
+            throwTimeout(ex);
+
+            throw ex;
+
+        } finally {
+            SmicDeadline.attach(previousDeadline);
+        }
+    }
+
+    /**
+     * Convert a PDF document to a missive XML document containing the PDF document encoded in Base64, aborting the
+     * conversion once its deadline has passed or once it has been cancelled
+     * 
+     * @param pdfFilename Path and name of PDF file that need to be converted to XML missive document
+     * @param documentType Type of document being added to the missive XML file
+     * @param deadline Deadline and cancellation token of the conversion, or null for the configured timeout
+     * @return Path and name of resulting XML document
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws MissiveXmlNotFoundException
+     * @throws UnsupportedEncodingException
+     * @throws InvalidDocumentObjectTemplateException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws XmlDocumentNotGeneratedException
+     * @throws XPathExpressionException
+     * @throws ContainerNodeNotFoundException
+     * @throws InvalidNamespaceDefinitionException
+     * @throws ConversionRejectedException
+     * @throws ConversionTimeoutException
+     */
+    public String smicPdf2Xml(String pdfFilename, String documentType, SmicDeadline deadline) throws
+            ConfigurationFileNotFoundException, InvalidConfigurationException, FileNotFoundException, IOException,
+            ParserConfigurationException, SAXException, MissiveXmlNotFoundException, UnsupportedEncodingException,
+            InvalidDocumentObjectTemplateException, TransformerConfigurationException, TransformerException,
+            XmlDocumentNotGeneratedException, XPathExpressionException, ContainerNodeNotFoundException,
+            InvalidNamespaceDefinitionException, ConversionRejectedException {
+
+        // Attach the deadline to the thread running the conversion, which checks it as the conversion proceeds
+        SmicDeadline previousDeadline = SmicDeadline.attach(deadline);
+
+        try {
+            return this.smicPdf2Xml(pdfFilename, documentType);
+        } catch (Exception ex) {
+
+            // Report the timeout wrapped by a parser or a transformer as such
+            throwTimeout(ex);
+
+            throw ex;
+
+        } finally {
+            SmicDeadline.attach(previousDeadline);
+        }
+    }
+
+    /**
+     * Convert a PDF document to a missive XML document containing several PDF documents encoded in Base64, the PDF
+     * documents being encoded in parallel and written into the missive XML document in a single pass
+     * 
+     * @param pdfFilename Path and name of PDF file carrying the missive XML document
+     * @param documentFilenames Paths and names of the PDF files added to the missive XML document, in order
+     * @return Path and name of resulting XML document
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws MissiveXmlNotFoundException
+     * @throws UnsupportedEncodingException
+     * @throws InvalidDocumentObjectTemplateException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws XmlDocumentNotGeneratedException
+     * @throws XPathExpressionException
+     * @throws ContainerNodeNotFoundException
+     * @throws InvalidNamespaceDefinitionException
+     * @throws ConversionRejectedException
+     */
+    public String smicPdf2Xml(String pdfFilename, List<String> documentFilenames) throws
+            ConfigurationFileNotFoundException, InvalidConfigurationException, FileNotFoundException, IOException,
+            ParserConfigurationException, SAXException, MissiveXmlNotFoundException, UnsupportedEncodingException,
+            InvalidDocumentObjectTemplateException, TransformerConfigurationException, TransformerException,
+            XmlDocumentNotGeneratedException, XPathExpressionException, ContainerNodeNotFoundException,
+            InvalidNamespaceDefinitionException, ConversionRejectedException {
+
+        // Check if we have a valid configuration
+        if (this.validateConfiguration()) {
+
+            // Conversions given no deadline by the caller complete within the configured time
+            if (this.conversionTimeout > 0 && SmicDeadline.current() == null) {
+                return this.smicPdf2Xml(pdfFilename, documentFilenames, new SmicDeadline(this.conversionTimeout));
+            }
+
+            // Size of the files read by the conversion, known before any part of the heap budget is held
+            long inputSize = this.inputStorage.size(pdfFilename);
+
+            for (String documentFilename : documentFilenames) {
+                inputSize += this.inputStorage.size(documentFilename);
+            }
+
+            // Admit the conversion within the heap budget for all the files it reads; the PDF documents are encoded to
+            // scratch files rather than held in memory, and the result is not cached, the cache keeping the
+            // conversions of a single file
+            int permits = this.admit(SmicStageRecorder.PDF_TO_XML, pdfFilename, inputSize);
+
+            // Private scratch folder of the conversion, removed whatever the outcome of the conversion
+            try (SmicWorkspace workspace = this.workspaceManager.create(SmicStageRecorder.PDF_TO_XML, inputSize)) {
+
+                // The deadline may have passed while waiting for the heap budget
+                SmicDeadline.checkCurrent();
+
+                // Local files holding the PDF documents
+                String localPdfFilename = this.getLocalInput(pdfFilename, workspace);
+                List<String> localDocumentFilenames = new ArrayList<>();
+
+                for (String documentFilename : documentFilenames) {
+                    localDocumentFilenames.add(this.getLocalInput(documentFilename, workspace));
+                }
+
+                // PDF to XML conversion class instance
+                SmicPdf smicPdf = new SmicPdf(localPdfFilename, this.outputFolder, workspace.getFolder(),
+                        smicConfig.get("xmp.missive"), smicConfig.get("document.type"),
+                        smicConfig.get("document.mime"), smicConfig.get("document.locale"),
+                        smicConfig.get("document.template"), this.conversionContext);
+
+                // Convert the PDF documents to missive XML and get the path and name of the resulting XML file
+                String xmlFilename = smicPdf.convert(smicConfig.get("document.namespace"),
+                        smicConfig.get("document.xpath"), localDocumentFilenames);
+
+                // Record the conversion in the index of converted missives and in the audit log
+                this.indexConversion(pdfFilename, localPdfFilename, smicPdf.getResult().getInputDigest(),
+                        smicPdf.getMissiveXml(), xmlFilename);
+                this.auditConversion(pdfFilename, smicPdf.getResult());
+
+                return xmlFilename;
+
+            } finally {
+
+                // Give back the heap budget held by the conversion
+                this.release(permits);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Convert a PDF document to a missive XML document containing several PDF documents encoded in Base64, aborting
+     * the conversion once its deadline has passed or once it has been cancelled
+     * 
+     * @param pdfFilename Path and name of PDF file carrying the missive XML document
+     * @param documentFilenames Paths and names of the PDF files added to the missive XML document, in order
+     * @param deadline Deadline and cancellation token of the conversion, or null for the configured timeout
+     * @return Path and name of resulting XML document
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws MissiveXmlNotFoundException
+     * @throws UnsupportedEncodingException
+     * @throws InvalidDocumentObjectTemplateException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws XmlDocumentNotGeneratedException
+     * @throws XPathExpressionException
+     * @throws ContainerNodeNotFoundException
+     * @throws InvalidNamespaceDefinitionException
+     * @throws ConversionRejectedException
+     * @throws ConversionTimeoutException
+     */
+    public String smicPdf2Xml(String pdfFilename, List<String> documentFilenames, SmicDeadline deadline) throws
+            ConfigurationFileNotFoundException, InvalidConfigurationException, FileNotFoundException, IOException,
+            ParserConfigurationException, SAXException, MissiveXmlNotFoundException, UnsupportedEncodingException,
+            InvalidDocumentObjectTemplateException, TransformerConfigurationException, TransformerException,
+            XmlDocumentNotGeneratedException, XPathExpressionException, ContainerNodeNotFoundException,
+            InvalidNamespaceDefinitionException, ConversionRejectedException {
+
+        // Attach the deadline to the thread running the conversion, which checks it as the conversion proceeds
+        SmicDeadline previousDeadline = SmicDeadline.attach(deadline);
+
+        try {
+            return this.smicPdf2Xml(pdfFilename, documentFilenames);
+        } catch (Exception ex) {
+
+            // Report the timeout wrapped by a parser or a transformer as such
+            throwTimeout(ex);
+
+            throw ex;
+
+        } finally {
+            SmicDeadline.attach(previousDeadline);
+        }
+    }
+
+    /**
+     * Convert a missive XML document to a PDF containing the missive XML document without the document object,
+     * aborting the conversion once its deadline has passed or once it has been cancelled
+     * 
+     * @param xmlFilename Path and name of XML file that need to be converted to PDF document
+     * @param deadline Deadline and cancellation token of the conversion, or null for the configured timeout
+     * @return Path and name of the resulting PDF document
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws ParserConfigurationException
+     * @throws IOException
+     * @throws SAXException
+     * @throws DocumentObjectNotFoundException
+     * @throws PdfDocumentNotGeneratedException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws InvalidPdfPageNumberException
+     * @throws DocumentException
+     * @throws ConversionRejectedException
+     * @throws ConversionTimeoutException
+     */
+    public String smicXml2Pdf(String xmlFilename, SmicDeadline deadline) throws ConfigurationFileNotFoundException,
+            InvalidConfigurationException, FileNotFoundException, ParserConfigurationException, IOException,
+            SAXException, DocumentObjectNotFoundException, PdfDocumentNotGeneratedException, 
+            TransformerConfigurationException, TransformerException, InvalidPdfPageNumberException, DocumentException,
+            ConversionRejectedException {
+
+        // Attach the deadline to the thread running the conversion, which checks it as the conversion proceeds
+        SmicDeadline previousDeadline = SmicDeadline.attach(deadline);
+
+        try {
+            return this.smicXml2Pdf(xmlFilename);
+        } catch (Exception ex) {
+
+            // Report the timeout wrapped by a parser or a transformer as such
+            throwTimeout(ex);
+
+            throw ex;
+
+        } finally {
+            SmicDeadline.attach(previousDeadline);
+        }
+    }
+
+    /**
+     * Convert every Document object of a missive XML document to a PDF containing the missive XML document without its
+     * document objects, the document objects being found in a single scan of the missive and converted in parallel
+     * 
+     * @param xmlFilename Path and name of XML file that need to be converted to PDF documents
+     * @return Paths and names of the resulting PDF documents, in the order of the document objects within the missive
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws ParserConfigurationException
+     * @throws IOException
+     * @throws SAXException
+     * @throws DocumentObjectNotFoundException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws InvalidPdfPageNumberException
+     * @throws DocumentException
+     * @throws ConversionRejectedException
+     */
+    public List<String> smicXml2PdfAll(String xmlFilename) throws ConfigurationFileNotFoundException,
+            InvalidConfigurationException, FileNotFoundException, ParserConfigurationException, IOException,
+            SAXException, DocumentObjectNotFoundException, TransformerConfigurationException, TransformerException,
+            InvalidPdfPageNumberException, DocumentException, ConversionRejectedException {
+
+        // Check if we have a valid configuration
+        if (this.validateConfiguration()) {
+
+            // Conversions given no deadline by the caller complete within the configured time
+            if (this.conversionTimeout > 0 && SmicDeadline.current() == null) {
+                return this.smicXml2PdfAll(xmlFilename, new SmicDeadline(this.conversionTimeout));
+            }
+
+            // Admit the conversion within the heap budget; its results are not cached, the cache keeping a single
+            // result per conversion
+            int permits = this.admit(SmicStageRecorder.XML_TO_PDF, xmlFilename);
+
+            // Private scratch folder of the conversion, removed whatever the outcome of the conversion
+            try (SmicWorkspace workspace = this.workspaceManager.create(SmicStageRecorder.XML_TO_PDF,
+                    this.inputStorage.size(xmlFilename))) {
+
+                // The deadline may have passed while waiting for the heap budget
+                SmicDeadline.checkCurrent();
+
+                // Local file holding the missive XML document
+                String localXmlFilename = this.getLocalInput(xmlFilename, workspace);
+
+                // XML to PDF conversion class instance
+                SmicXml smicXml = new SmicXml(localXmlFilename, this.outputFolder, workspace.getFolder(),
+                        this.conversionContext);
+
+                // Convert every Document object of the missive XML document to PDF
+                List<String> pdfFilenames = smicXml.convertAll(smicConfig.get("pdf.generator"));
+
+                // Record the conversion in the index of converted missives and in the audit log
+                this.indexConversion(xmlFilename, localXmlFilename, smicXml.getResult().getInputDigest(), null,
+                        pdfFilenames.toArray(new String[pdfFilenames.size()]));
+                this.auditConversion(xmlFilename, smicXml.getResult());
+
+                return pdfFilenames;
+
+            } finally {
+
+                // Give back the heap budget held by the conversion
+                this.release(permits);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Convert every Document object of a missive XML document to a PDF containing the missive XML document without its
+     * document objects, aborting the conversion once its deadline has passed or once it has been cancelled
+     * 
+     * @param xmlFilename Path and name of XML file that need to be converted to PDF documents
+     * @param deadline Deadline and cancellation token of the conversion, or null for the configured timeout
+     * @return Paths and names of the resulting PDF documents, in the order of the document objects within the missive
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws ParserConfigurationException
+     * @throws IOException
+     * @throws SAXException
+     * @throws DocumentObjectNotFoundException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws InvalidPdfPageNumberException
+     * @throws DocumentException
+     * @throws ConversionRejectedException
+     * @throws ConversionTimeoutException
+     */
+    public List<String> smicXml2PdfAll(String xmlFilename, SmicDeadline deadline) throws
+            ConfigurationFileNotFoundException, InvalidConfigurationException, FileNotFoundException,
+            ParserConfigurationException, IOException, SAXException, DocumentObjectNotFoundException,
+            TransformerConfigurationException, TransformerException, InvalidPdfPageNumberException, DocumentException,
+            ConversionRejectedException {
+
+        // Attach the deadline to the thread running the conversion, which checks it as the conversion proceeds
+        SmicDeadline previousDeadline = SmicDeadline.attach(deadline);
+
+        try {
+            return this.smicXml2PdfAll(xmlFilename);
+        } catch (Exception ex) {
+
+            // Report the timeout wrapped by a parser or a transformer as such
+            throwTimeout(ex);
+
+            throw ex;
+
+        } finally {
+            SmicDeadline.attach(previousDeadline);
+        }
+    }
+
+    /**
+     * Convert a PDF document to a missive XML document or a missive XML document to a PDF document, the direction of
+     * the conversion being detected from the first bytes of the file rather than from its name. Files which are
+     * neither PDF documents carrying a missive nor missive XML documents are rejected before being parsed.
+     * 
+     * @param input Path of the file that needs to be converted, in the input storage
+     * @return Path and name of the resulting file
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws MissiveXmlNotFoundException
+     * @throws UnsupportedEncodingException
+     * @throws InvalidDocumentObjectTemplateException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws XmlDocumentNotGeneratedException
+     * @throws XPathExpressionException
+     * @throws ContainerNodeNotFoundException
+     * @throws InvalidNamespaceDefinitionException
+     * @throws DocumentObjectNotFoundException
+     * @throws PdfDocumentNotGeneratedException
+     * @throws InvalidPdfPageNumberException
+     * @throws DocumentException
+     * @throws ConversionRejectedException
+     * @throws UnsupportedInputException
+     */
+    public String convert(Path input) throws ConfigurationFileNotFoundException, InvalidConfigurationException,
+            FileNotFoundException, IOException, ParserConfigurationException, SAXException,
+            MissiveXmlNotFoundException, UnsupportedEncodingException, InvalidDocumentObjectTemplateException,
+            TransformerConfigurationException, TransformerException, XmlDocumentNotGeneratedException,
+            XPathExpressionException, ContainerNodeNotFoundException, InvalidNamespaceDefinitionException,
+            DocumentObjectNotFoundException, PdfDocumentNotGeneratedException, InvalidPdfPageNumberException,
+            DocumentException, ConversionRejectedException, UnsupportedInputException {
+
+        // Check if we have a valid configuration
+        if (!this.validateConfiguration()) {
+            return null;
+        }
+
+        String filename = input.toString();
+
+        // Format of the file, detected from its first bytes
+        String format = this.sniffFormat(filename);
+
+        if (SmicFormatSniffer.FORMAT_MISSIVE_XML.equals(format)) {
+            return this.smicXml2Pdf(filename);
+        }
+
+        if (!SmicFormatSniffer.FORMAT_PDF.equals(format)) {
+            throw new UnsupportedInputException(filename);
+        }
+
+        // Missive XML tag of the XMP metadata, looked for at the end of the PDF document
+        byte[] tail = this.readTail(filename);
+
+        // Read the metadata of the PDF documents too large to have been searched whole, whose missive XML tag may be
+        // further from their end
+        if (!this.formatSniffer.hasMissiveTag(tail, tail.length) && (this.inputStorage.size(filename) == tail.length
+                || this.getMissiveNodes(filename).getLength() == 0)) {
+            throw new MissiveXmlNotFoundException(filename);
+        }
+
+        return this.smicPdf2Xml(filename);
+    }
+
+    /**
+     * Move the resulting files found in the output folder itself to the folders given by the configured layout, so
+     * that an output folder filled before the layout was configured can be re-sharded
+     * 
+     * @return Number of files moved
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    public int reshardOutputFolder() throws ConfigurationFileNotFoundException, InvalidConfigurationException,
+            IOException {
+
+        // Number of files moved
+        int moved = 0;
+
+        // Check if we have a valid configuration
+        if (this.validateConfiguration()) {
+
+            // Only an output folder on the local file system can be re-sharded in place
+            if (this.outputStorage.getLocalFile(this.outputFolder) == null) {
+                throw new IOException("The output storage is not on the local file system and cannot be re-sharded.");
+            }
+
+            // Layout of the output folder
+            SmicOutputLayout outputLayout = this.conversionContext.getOutputLayout();
+
+            // Stream the entries of the output folder rather than listing millions of names at once
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(this.outputFolder))) {
+
+                for (Path entry : entries) {
+
+                    // Folders and outputs still being written are left in place
+                    String filename = entry.getFileName().toString();
+
+                    if (!Files.isRegularFile(entry) || filename.startsWith(".")) {
+                        continue;
+                    }
+
+                    // MsvId of the missive when the layout depends on it
+                    String missiveId = null;
+
+                    if (outputLayout.needsMissiveId()) {
+
+                        try {
+                            missiveId = this.readMissiveId(entry.toString(), outputLayout);
+                        } catch (XMLStreamException | ParserConfigurationException | SAXException ex) {
+
+                            // Files whose missive cannot be read are left in place
+                            continue;
+                        }
+                    }
+
+                    // Path given by the layout, using the time the file was written for the date layout
+                    String relativeFilename = outputLayout.resolve(filename, missiveId,
+                            Files.getLastModifiedTime(entry).toMillis());
+
+                    if (!relativeFilename.equals(filename)) {
+
+                        Path target = Paths.get(this.outputFolder, relativeFilename);
+
+                        Files.createDirectories(target.getParent());
+                        Files.move(entry, target, StandardCopyOption.ATOMIC_MOVE);
+                        moved++;
+                    }
+                }
+            }
+        }
+
+        return moved;
+    }
+
+    /**
+     * Read the header of the missive of a missive XML document or of a PDF document carrying a missive in its
+     * metadata, without converting the document. Missive XML documents are streamed until the body of their message,
+     * leaving out the encoded document, and the missive of PDF documents is read from the XMP metadata found at their
+     * end.
+     * 
+     * @param input Path of the missive XML document or of the PDF document, in the input storage
+     * @return Header of the missive
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws MissiveXmlNotFoundException
+     * @throws UnsupportedInputException
+     */
+    public SmicMissiveHeader peekMissive(Path input) throws ConfigurationFileNotFoundException,
+            InvalidConfigurationException, FileNotFoundException, IOException, XMLStreamException,
+            ParserConfigurationException, SAXException, MissiveXmlNotFoundException, UnsupportedInputException {
+
+        // Check if we have a valid configuration
+        if (!this.validateConfiguration()) {
+            return null;
+        }
+
+        String filename = input.toString();
+
+        // Format of the file, detected from its first bytes
+        String format = this.sniffFormat(filename);
+
+        if (SmicFormatSniffer.FORMAT_MISSIVE_XML.equals(format)) {
+
+            // Missive XML documents are streamed until the end of their headers
+            try (InputStream is = this.inputStorage.open(filename)) {
+                return this.headerReader.read(is);
+            }
+        }
+
+        if (!SmicFormatSniffer.FORMAT_PDF.equals(format)) {
+            throw new UnsupportedInputException(filename);
+        }
+
+        // Missive of the XMP metadata, looked for at the end of the PDF document
+        byte[] tail = this.readTail(filename);
+        String missive = this.formatSniffer.extractMissive(tail, tail.length);
+
+        // Read the metadata of the PDF documents too large to have been searched whole
+        if (missive == null && this.inputStorage.size(filename) > tail.length) {
+
+            NodeList nl = this.getMissiveNodes(filename);
+
+            if (nl.getLength() > 0) {
+                missive = nl.item(0).getTextContent();
+            }
+        }
+
+        if (missive == null) {
+            throw new MissiveXmlNotFoundException(filename);
+        }
+
+        return this.headerReader.read(new ByteArrayInputStream(missive.getBytes("UTF-8")));
+    }
+
+    /**
+     * Detect the format of a file from its first bytes
+     * 
+     * @param filename Path and name of the file in the input storage
+     * @return SmicFormatSniffer.FORMAT_PDF, SmicFormatSniffer.FORMAT_MISSIVE_XML or null for other files
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    private String sniffFormat(String filename) throws FileNotFoundException, IOException {
+
+        byte[] head = new byte[SmicFormatSniffer.HEAD_LENGTH];
+        int headLength;
+
+        try (InputStream is = this.inputStorage.open(filename)) {
+            headLength = IOUtils.read(is, head);
+        }
+
+        return this.formatSniffer.sniff(head, headLength);
+    }
+
+    /**
+     * Read the end of a PDF document, where the XMP metadata of the PDF documents produced by the SMIC module is found
+     * 
+     * @param filename Path and name of the PDF document in the input storage
+     * @return Last bytes of the PDF document, up to SmicFormatSniffer.TAIL_LENGTH bytes
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    private byte[] readTail(String filename) throws FileNotFoundException, IOException {
+
+        long size = this.inputStorage.size(filename);
+        byte[] tail = new byte[(int) Math.min(size, SmicFormatSniffer.TAIL_LENGTH)];
+
+        File localFile = this.inputStorage.getLocalFile(filename);
+
+        if (localFile != null) {
+
+            // Seek to the end of local files rather than reading them through
+            try (RandomAccessFile raf = new RandomAccessFile(localFile, "r")) {
+                raf.seek(size - tail.length);
+                raf.readFully(tail);
+            }
+
+            return tail;
+        }
+
+        try (InputStream is = this.inputStorage.open(filename)) {
+            IOUtils.skipFully(is, size - tail.length);
+            return Arrays.copyOf(tail, IOUtils.read(is, tail));
+        }
+    }
+
+    /**
+     * Get the missive XML tags of the XMP metadata of a PDF document, reading the metadata without parsing the pages
+     * 
+     * @param filename Path and name of the PDF document
+     * @return Missive XML tags found in the metadata
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    private NodeList getMissiveNodes(String filename) throws FileNotFoundException, IOException,
+            ParserConfigurationException, SAXException {
+
+        // PDF documents are read from a local file
+        File localFile = this.inputStorage.getLocalFile(filename);
+
+        if (localFile != null) {
+            return new SmicPdfReader(localFile.getPath(), true).getXmlMetadataDocument().getElementsByTagName(
+                    smicConfig.get("xmp.missive"));
+        }
+
+        try (SmicWorkspace workspace = this.workspaceManager.create(SmicStageRecorder.PDF_TO_XML,
+                this.inputStorage.size(filename))) {
+            return new SmicPdfReader(this.getLocalInput(filename, workspace), true).getXmlMetadataDocument()
+                    .getElementsByTagName(smicConfig.get("xmp.missive"));
+        }
+    }
+
+    /**
+     * Get the storage from which the files that need to be converted are read
+     * 
+     * @return Input storage
+     */
+    public SmicStorage getInputStorage() {
+        return this.inputStorage;
+    }
+
+    /**
+     * Get the cache of conversion results
+     * 
+     * @return Conversion cache or null if no cache folder has been configured
+     */
+    public SmicConversionCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Get the audit log of the conversions
+     * 
+     * @return Audit log or null if no audit log has been configured
+     */
+    public SmicAuditLog getAuditLog() {
+        return this.auditLog;
+    }
+
+    /**
+     * Get the index of converted missives
+     * 
+     * @return Index of converted missives or null if no index folder has been configured
+     */
+    public SmicMissiveIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Get the controller which admits conversions against the configured heap budget
+     * 
+     * @return Admission controller or null if no heap budget has been configured
+     */
+    public SmicAdmissionController getAdmissionController() {
+        return this.admissionController;
+    }
+
+    /**
+     * Set up the admission controller from the optional admission properties of the configuration file
+     * 
+     * @throws InvalidConfigurationException
+     */
+    private void configureAdmission() throws InvalidConfigurationException {
+
+        // Heap budget in megabytes shared by concurrent conversions
+        long budget = this.getLongProperty("admission.budget", 0);
+
+        // Check if admission control has been enabled
+        if (budget > 0) {
+
+            // Policy applied to conversions which do not fit in the budget
+            String policy = this.getProperty("admission.policy", SmicAdmissionController.POLICY_QUEUE);
+
+            if (!policy.equals(SmicAdmissionController.POLICY_QUEUE) &&
+                    !policy.equals(SmicAdmissionController.POLICY_FAIL)) {
+                throw new InvalidConfigurationException("admission.policy", policy);
+            }
+
+            this.admissionController = new SmicAdmissionController(budget * 1024 * 1024, policy,
+                    this.getLongProperty("admission.timeout", 0) * 1000,
+                    this.getDoubleProperty("admission.factor.xml2pdf",
+                    SmicAdmissionController.DEFAULT_XML_TO_PDF_FACTOR),
+                    this.getDoubleProperty("admission.factor.pdf2xml",
+                    SmicAdmissionController.DEFAULT_PDF_TO_XML_FACTOR));
+        }
+    }
+
+    /**
+     * Get the layout of the output folder from the optional output layout properties of the configuration file
+     * 
+     * @return Layout of the output folder
+     * @throws InvalidConfigurationException
+     */
+    private SmicOutputLayout getOutputLayout() throws InvalidConfigurationException {
+
+        // Name of the layout
+        String layout = this.getProperty("output.layout", SmicOutputLayout.LAYOUT_FLAT);
+
+        if (!layout.equals(SmicOutputLayout.LAYOUT_FLAT) && !layout.equals(SmicOutputLayout.LAYOUT_HASH) &&
+                !layout.equals(SmicOutputLayout.LAYOUT_DATE) && !layout.equals(SmicOutputLayout.LAYOUT_MSVID)) {
+            throw new InvalidConfigurationException("output.layout", layout);
+        }
+
+        // Number of folder levels of the hash and msvid layouts
+        long depth = this.getLongProperty("output.layout.depth", SmicOutputLayout.DEFAULT_DEPTH);
+
+        if (depth < 1 || depth > 16) {
+            throw new InvalidConfigurationException("output.layout.depth", String.valueOf(depth));
+        }
+
+        return new SmicOutputLayout(layout, (int) depth);
+    }
+
+    /**
+     * Get the schema against which missive XML documents are validated from the optional validation property of the
+     * configuration file, the schema being compiled once for the process
+     * 
+     * @return Compiled schema or null if missive XML documents are not validated
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    private Schema getSchema() throws InvalidConfigurationException, IOException {
+
+        // Path and name of the W3C XML schema file
+        String schemaFilename = this.getProperty("validation.schema", "");
+
+        // Check if validation has been enabled
+        if (schemaFilename.length() == 0) {
+            return null;
+        }
+
+        try {
+            return SmicSchemaValidator.getSchema(schemaFilename);
+        } catch (SAXException ex) {
+            throw new InvalidConfigurationException("validation.schema", schemaFilename);
+        }
+    }
+
+    /**
+     * Throw the timeout which aborted a conversion when it is the cause of the given exception
+     * 
+     * @param ex Exception which interrupted the conversion
+     * @throws ConversionTimeoutException
+     */
+    private static void throwTimeout(Exception ex) throws ConversionTimeoutException {
+
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+
+            if (cause instanceof ConversionTimeoutException) {
+                throw (ConversionTimeoutException) cause;
+            }
+        }
+    }
+
+    /**
+     * Read the MsvId of the missive of a resulting file
+     * 
+     * @param filename Path and name of a missive XML document or of a PDF document carrying a missive in its metadata
+     * @param outputLayout Layout of the output folder
+     * @return MsvId of the missive or null if it was not found
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    private String readMissiveId(String filename, SmicOutputLayout outputLayout) throws IOException,
+            XMLStreamException, ParserConfigurationException, SAXException {
+
+        // Missive XML documents, decompressed when written in compact mode, are streamed until their MsvId
+        if (!filename.toLowerCase().endsWith(".pdf")) {
+
+            try (InputStream is = filename.toLowerCase().endsWith(".gz") ? new GZIPInputStream(
+                    new SmicChannelInputStream(filename)) : new SmicChannelInputStream(filename)) {
+                return outputLayout.readMissiveId(is);
+            }
+        }
+
+        // PDF documents carry their missive in their metadata
+        NodeList nl = new SmicPdfReader(filename, true).getXmlMetadataDocument().getElementsByTagName(
+                smicConfig.get("xmp.missive"));
+
+        if (nl.getLength() == 0) {
+            return null;
+        }
+
+        return outputLayout.readMissiveId(new ByteArrayInputStream(nl.item(0).getTextContent().getBytes("UTF-8")));
+    }
+
+    /**
+     * Set up the conversion cache from the optional cache properties of the configuration file
+     * 
+     * @throws InvalidConfigurationException
+     */
+    private void configureCache() throws InvalidConfigurationException {
+
+        // Folder where conversion results are kept
+        String cacheFolder = this.getProperty("cache.folder", "");
+
+        // Check if the cache has been enabled
+        if (cacheFolder.length() > 0) {
+
+            // Configuration properties which affect conversion results, in a stable order, leaving out those which only
+            // affect how and when the results are written
+            TreeMap<String, String> conversionConfig = new TreeMap<>(this.smicConfig);
+            Iterator<String> keys = conversionConfig.keySet().iterator();
+
+            while (keys.hasNext()) {
+
+                String key = keys.next();
+
+                if (key.startsWith("admission.") || key.startsWith("audit.") || key.startsWith("cache.") ||
+                        key.startsWith("index.") || key.startsWith("spill.") || key.startsWith("workspace.") ||
+                        key.startsWith("output.fsync") || key.equals("conversion.timeout")) {
+                    keys.remove();
+                }
+            }
+
+            this.cache = new SmicConversionCache(cacheFolder,
+                    this.getLongProperty("cache.memory", DEFAULT_CACHE_MEMORY) * 1024 * 1024,
+                    conversionConfig.toString());
+        }
+    }
+
+    /**
+     * Set up the index of converted missives from the optional index properties of the configuration file
+     * 
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    private void configureIndex() throws InvalidConfigurationException, IOException {
+
+        // Folder where the index is kept
+        String indexFolder = this.getProperty("index.folder", "");
+
+        // Check if the index has been enabled
+        if (indexFolder.length() > 0) {
+
+            long segmentRecords = this.getLongProperty("index.segment.records",
+                    SmicMissiveIndex.DEFAULT_SEGMENT_RECORDS);
+            long mergeSegments = this.getLongProperty("index.merge.segments", SmicMissiveIndex.DEFAULT_MERGE_SEGMENTS);
+
+            if (segmentRecords < 1 || segmentRecords > Integer.MAX_VALUE) {
+                throw new InvalidConfigurationException("index.segment.records", String.valueOf(segmentRecords));
+            }
+
+            if (mergeSegments < 2 || mergeSegments > Integer.MAX_VALUE) {
+                throw new InvalidConfigurationException("index.merge.segments", String.valueOf(mergeSegments));
+            }
+
+            this.index = SmicMissiveIndex.open(indexFolder, (int) segmentRecords, (int) mergeSegments);
+        }
+    }
+
+    /**
+     * Record a conversion in the index of converted missives, from the header of the converted missive and the digest
+     * of the converted file, once the resulting file has been written
+     * 
+     * @param filename Path and name of the converted file in the input storage
+     * @param localFilename Path and name of the local file holding the converted file
+     * @param inputDigest Hexadecimal SHA-256 digest of the converted file computed during the conversion, or null if
+     * the converted file has to be read to be digested
+     * @param missive Missive XML document found in the metadata of the converted PDF document, or null if the
+     * converted file is a missive XML document
+     * @param outputFilenames Paths and names of the resulting files, each one recorded under the converted file
+     * @throws IOException
+     */
+    private void indexConversion(String filename, String localFilename, String inputDigest, String missive,
+            String... outputFilenames) throws IOException {
+
+        // Check if the index has been enabled and the conversion produced a result
+        if (this.index == null || outputFilenames == null || outputFilenames.length == 0 ||
+                outputFilenames[0] == null) {
+            return;
+        }
+
+        // The resulting file has been written, so its record is not abandoned once the deadline of the conversion
+        // has passed
+        SmicDeadline deadline = SmicDeadline.attach(null);
+
+        try {
+
+            // Header of the missive, read from the missive of the metadata of the converted PDF document or from the
+            // start of the converted missive XML document, a missive whose header cannot be read being recorded under
+            // its digest and date
+            SmicMissiveHeader header;
+
+            try (InputStream is = missive != null ? new ByteArrayInputStream(missive.getBytes("UTF-8")) :
+                    new SmicChannelInputStream(localFilename)) {
+                header = this.headerReader.read(is);
+            } catch (XMLStreamException ex) {
+                header = null;
+            }
+
+            // The converted file is read at most once whatever the number of resulting files, and only when the
+            // conversion has not read it whole
+            if (inputDigest == null) {
+                inputDigest = SmicDigestUtils.digest(localFilename);
+            }
+
+            for (String outputFilename : outputFilenames) {
+                this.index.add(header != null ? header : new SmicMissiveHeader(), inputDigest, filename,
+                        outputFilename);
+            }
+
+        } finally {
+            SmicDeadline.attach(deadline);
+        }
+    }
+
+    /**
+     * Set up the audit log of the conversions from the optional audit properties of the configuration file
+     * 
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    private void configureAudit() throws InvalidConfigurationException, IOException {
+
+        // File where the audit trail is appended
+        String auditFilename = this.getProperty("audit.log", "");
+
+        // Check if the audit log has been enabled
+        if (auditFilename.length() > 0) {
+
+            long syncInterval = this.getLongProperty("audit.sync.interval", SmicAuditLog.DEFAULT_SYNC_INTERVAL);
+
+            if (syncInterval < 0) {
+                throw new InvalidConfigurationException("audit.sync.interval", String.valueOf(syncInterval));
+            }
+
+            this.auditLog = SmicAuditLog.open(auditFilename, syncInterval);
+        }
+    }
+
+    /**
+     * Record the PDF documents and the resulting files of a conversion in the audit log, with the digests computed
+     * during the conversion
+     * 
+     * @param filename Path and name of the converted file in the input storage
+     * @param result Result of the conversion
+     * @throws IOException
+     */
+    private void auditConversion(String filename, SmicConversionResult result) throws IOException {
+
+        // Check if the audit log has been enabled and the conversion produced a result
+        if (this.auditLog != null && result != null) {
+            this.auditLog.record(filename, result);
+        }
+    }
+
+    /**
+     * Record a result written from the conversion cache in the audit log
+     * 
+     * @param direction Direction of the conversion
+     * @param filename Path and name of the converted file in the input storage
+     * @param outputFilename Path and name of the cached result
+     * @throws IOException
+     */
+    private void auditCachedResult(String direction, String filename, String outputFilename) throws IOException {
+
+        // Check if the audit log has been enabled
+        if (this.auditLog != null) {
+            this.auditLog.recordCached(direction, filename, outputFilename);
+        }
+    }
+
+    /**
+     * Compute the cache key of a conversion
+     * 
+     * @param direction Direction of the conversion
+     * @param filename Path and name of the file that needs to be converted
+     * @param parameters Other values which affect the result of the conversion
+     * @return Cache key or null if the cache has not been enabled
+     * @throws IOException
+     */
+    private String getCacheKey(String direction, String filename, String... parameters) throws IOException {
+
+        // Check if the cache has been enabled
+        if (this.cache == null) {
+            return null;
+        }
+
+        return this.cache.computeKey(direction, this.inputStorage, filename, parameters);
+    }
+
+    /**
+     * Write the cached result of a conversion to the output folder
+     * 
+     * @param cacheKey Cache key of the conversion
+     * @return Path and name of the cached result or null if the conversion has not been cached
+     * @throws IOException
+     */
+    private String fetchCachedResult(String cacheKey) throws IOException {
+
+        // Check if the cache has been enabled
+        if (cacheKey == null) {
+            return null;
+        }
+
+        return this.cache.fetch(cacheKey, this.outputStorage, this.outputFolder);
+    }
+
+    /**
+     * Keep the result of a conversion in the cache
+     * 
+     * @param cacheKey Cache key of the conversion
+     * @param outputFilename Path and name of the result of the conversion
+     * @throws IOException
+     */
+    private void storeCachedResult(String cacheKey, String outputFilename) throws IOException {
+
+        // Check if the cache has been enabled and the conversion produced a result
+        if (cacheKey != null && outputFilename != null) {
+            this.cache.store(cacheKey, this.outputStorage, this.outputFolder, outputFilename);
+        }
+    }
+
+    /**
+     * Admit a conversion within the configured heap budget
+     * 
+     * @param direction Direction of the conversion
+     * @param filename Path and name of the file that needs to be converted
+     * @return Number of permits held by the conversion
+     * @throws ConversionRejectedException
+     * @throws IOException
+     */
+    private int admit(String direction, String filename) throws ConversionRejectedException, IOException {
+
+        // Check if admission control has been enabled
+        if (this.admissionController == null) {
+            return 0;
+        }
+
+        return this.admissionController.admit(direction, filename, this.inputStorage.size(filename));
+    }
+
+    /**
+     * Admit a conversion reading several files within the configured heap budget
+     * 
+     * @param direction Direction of the conversion
+     * @param filename Path and name of the file that needs to be converted
+     * @param inputSize Size in bytes of all the files read by the conversion
+     * @return Number of permits held by the conversion
+     * @throws ConversionRejectedException
+     */
+    private int admit(String direction, String filename, long inputSize) throws ConversionRejectedException {
+
+        // Check if admission control has been enabled
+        if (this.admissionController == null) {
+            return 0;
+        }
+
+        return this.admissionController.admit(direction, filename, inputSize);
+    }
+
+    /**
+     * Get a local file holding a file of the input storage, copying it to the scratch folder of the conversion when
+     * the input storage does not keep its files on the local file system
+     * 
+     * @param filename Name of the file in the input storage
+     * @param workspace Scratch folder of the conversion
+     * @return Path and name of the local file
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    private String getLocalInput(String filename, SmicWorkspace workspace) throws IOException {
+
+        // Files of the local file system are read in place
+        File localFile = this.inputStorage.getLocalFile(filename);
+
+        if (localFile != null) {
+            return localFile.getPath();
+        }
+
+        // Copy the file under its own name, which gives the name of the resulting file
+        String localFilename = workspace.getFolder() + System.getProperty("file.separator") +
+                SmicFileUtils.getFilename(filename);
+
+        // Copy through a channel stream, which checks the deadline of the conversion at each chunk
+        try (InputStream is = this.inputStorage.open(filename);
+                OutputStream os = new SmicChannelOutputStream(localFilename)) {
+            IOUtils.copyLarge(is, os);
+        }
+
+        return localFilename;
+    }
+
+    /**
+     * Give back the heap budget held by a conversion
+     * 
+     * @param permits Number of permits held by the conversion
+     */
+    private void release(int permits) {
+
+        // Check if the conversion held part of the budget
+        if (permits > 0) {
+            this.admissionController.release(permits);
+        }
+    }
+
+    /**
+     * Get the value of an optional configuration property
+     * 
+     * @param key Name of the property
+     * @param defaultValue Value used when the property has not been defined
+     * @return Value of the property
+     */
+    private String getProperty(String key, String defaultValue) {
+
+        // Check if the property has been defined
+        if (this.smicConfig.containsKey(key)) {
+            return this.smicConfig.get(key).trim();
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Get the value of an optional numeric configuration property
+     * 
+     * @param key Name of the property
+     * @param defaultValue Value used when the property has not been defined
+     * @return Value of the property
+     * @throws InvalidConfigurationException
+     */
+    private long getLongProperty(String key, long defaultValue) throws InvalidConfigurationException {
+
+        // Check if the property has been defined
+        if (!this.smicConfig.containsKey(key)) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(this.smicConfig.get(key).trim());
+        } catch (NumberFormatException ex) {
+            throw new InvalidConfigurationException(key, this.smicConfig.get(key));
+        }
+    }
+
+    /**
+     * Get the value of an optional boolean configuration property
+     * 
+     * @param key Name of the property
+     * @param defaultValue Value used when the property has not been defined
+     * @return Value of the property
+     * @throws InvalidConfigurationException
+     */
+    private boolean getBooleanProperty(String key, boolean defaultValue) throws InvalidConfigurationException {
+
+        // Value of the property
+        String value = this.getProperty(key, String.valueOf(defaultValue));
+
+        // Only true and false are accepted
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new InvalidConfigurationException(key, value);
+        }
+
+        return Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Get the value of an optional decimal configuration property
+     * 
+     * @param key Name of the property
+     * @param defaultValue Value used when the property has not been defined
+     * @return Value of the property
+     * @throws InvalidConfigurationException
+     */
+    private double getDoubleProperty(String key, double defaultValue) throws InvalidConfigurationException {
+
+        // Check if the property has been defined
+        if (!this.smicConfig.containsKey(key)) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(this.smicConfig.get(key).trim());
+        } catch (NumberFormatException ex) {
+            throw new InvalidConfigurationException(key, this.smicConfig.get(key));
+        }
+    }
+
     /**
      * Check if the SMIC configuration file was successfully read and parsed
      * 
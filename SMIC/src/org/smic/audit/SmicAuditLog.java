@@ -0,0 +1,216 @@
+package org.smic.audit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * The SmicAuditLog class keeps an append-only audit trail of the conversions, one line per PDF document carried across
+ * by a conversion and one line per file it wrote, giving the date and time of the conversion, its direction, the kind
+ * of the line, the SHA-256 digest of the content, the name of the converted file and the name of the document or of
+ * the resulting file. The digests are those of the conversion result, computed while the data was streamed. The log is
+ * synchronised to disk periodically rather than after every line.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicAuditLog implements Closeable {
+
+    /**
+     * Kind of the lines giving a PDF document embedded in or extracted from a missive
+     */
+    public static final String KIND_DOCUMENT = "document";
+
+    /**
+     * Kind of the lines giving a file written by a conversion
+     */
+    public static final String KIND_OUTPUT = "output";
+
+    /**
+     * Kind of the lines giving a result written from the conversion cache, whose content is not digested again
+     */
+    public static final String KIND_CACHED = "cached";
+
+    /**
+     * Default time in milliseconds between two synchronisations of the log to disk
+     */
+    public static final long DEFAULT_SYNC_INTERVAL = 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Logs opened by this process, by canonical path of their file
+    private static final HashMap<String, SmicAuditLog> LOGS = new HashMap<>();
+
+    private FileChannel channel;
+    private String logFilename;
+    private long lastSync;
+    private long syncInterval;
+
+    /**
+     * SmicAuditLog class constructor
+     *
+     * @param logFilename Path and name of the log, created if it does not exist
+     * @param syncInterval Time in milliseconds between two synchronisations of the log to disk
+     * @throws IOException
+     */
+    private SmicAuditLog(String logFilename, long syncInterval) throws IOException {
+
+        // Initialise class attributes
+        this.channel = FileChannel.open(Paths.get(logFilename), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.logFilename = logFilename;
+        this.lastSync = System.currentTimeMillis();
+        this.syncInterval = syncInterval;
+    }
+
+    /**
+     * Open the given log for appending, the log being shared by the callers of the same process
+     *
+     * @param logFilename Path and name of the log, created if it does not exist
+     * @param syncInterval Time in milliseconds between two synchronisations of the log to disk
+     * @return Audit log
+     * @throws IOException
+     */
+    public static SmicAuditLog open(String logFilename, long syncInterval) throws IOException {
+
+        synchronized (LOGS) {
+
+            String canonicalFilename = new File(logFilename).getCanonicalPath();
+            SmicAuditLog log = LOGS.get(canonicalFilename);
+
+            if (log == null) {
+                log = new SmicAuditLog(canonicalFilename, syncInterval);
+                LOGS.put(canonicalFilename, log);
+            }
+
+            return log;
+        }
+    }
+
+    /**
+     * Record the PDF documents and the resulting files of a conversion
+     *
+     * @param inputName Path and name of the converted file
+     * @param result Result of the conversion
+     * @throws IOException
+     */
+    public synchronized void record(String inputName, SmicConversionResult result) throws IOException {
+
+        String convertedAt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+        StringBuilder lines = new StringBuilder();
+
+        // PDF documents carried across, then the files written
+        for (int i = 0; i < result.getDocumentNames().size(); i++) {
+            appendLine(lines, convertedAt, result.getDirection(), KIND_DOCUMENT, result.getDocumentDigests().get(i),
+                    inputName, result.getDocumentNames().get(i));
+        }
+
+        for (int i = 0; i < result.getOutputNames().size(); i++) {
+            appendLine(lines, convertedAt, result.getDirection(), KIND_OUTPUT, result.getOutputDigests().get(i),
+                    inputName, result.getOutputNames().get(i));
+        }
+
+        this.write(lines.toString());
+    }
+
+    /**
+     * Record a result written from the conversion cache
+     *
+     * @param direction Direction of the conversion
+     * @param inputName Path and name of the converted file
+     * @param outputName Path and name of the resulting file
+     * @throws IOException
+     */
+    public synchronized void recordCached(String direction, String inputName, String outputName) throws IOException {
+
+        StringBuilder line = new StringBuilder();
+
+        appendLine(line, new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date()), direction, KIND_CACHED,
+                "", inputName, outputName);
+
+        this.write(line.toString());
+    }
+
+    /**
+     * Synchronise the log to disk and close it
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        // Later callers of the process open the log again
+        synchronized (LOGS) {
+            LOGS.remove(this.logFilename);
+        }
+
+        synchronized (this) {
+
+            // Check if the log has already been closed
+            if (!this.channel.isOpen()) {
+                return;
+            }
+
+            try {
+                this.channel.force(false);
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Append lines to the log, synchronising it to disk once the interval has elapsed
+     *
+     * @param lines Complete lines
+     * @throws IOException
+     */
+    private void write(String lines) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(UTF_8));
+
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now - this.lastSync >= this.syncInterval) {
+            this.channel.force(false);
+            this.lastSync = now;
+        }
+    }
+
+    /**
+     * Append a line of the log
+     *
+     * @param lines Lines being built
+     * @param fields Fields of the line
+     */
+    private static void appendLine(StringBuilder lines, String... fields) {
+
+        for (int i = 0; i < fields.length; i++) {
+            lines.append(i > 0 ? "\t" : "").append(clean(fields[i]));
+        }
+
+        lines.append('\n');
+    }
+
+    /**
+     * Replace the separators of the log found in a field
+     *
+     * @param field Field of a line
+     * @return Field without tabs or line breaks
+     */
+    private static String clean(String field) {
+        return field.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,100 @@
+package org.smic.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SmicConversionResult class gives the files written by a conversion and the PDF documents it carried across, each
+ * one with the SHA-256 digest of its content, along with the digest of the converted file. The digests are computed
+ * while the converted file is read, while the PDF documents are encoded or decoded and while the resulting files are
+ * written, so that none of them has to be read again to be audited or indexed. Instances are immutable.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public final class SmicConversionResult {
+
+    private final String direction;
+    private final List<String> documentDigests;
+    private final List<String> documentNames;
+    private final String inputDigest;
+    private final List<String> outputDigests;
+    private final List<String> outputNames;
+
+    /**
+     * SmicConversionResult class constructor
+     *
+     * @param direction Direction of the conversion
+     * @param inputDigest Hexadecimal SHA-256 digest of the converted file, or null if it was not read whole
+     * @param outputNames Paths and names of the resulting files
+     * @param outputDigests Hexadecimal SHA-256 digests of the resulting files, in the order of their names
+     * @param documentNames Names of the PDF documents embedded in or extracted from the missive
+     * @param documentDigests Hexadecimal SHA-256 digests of the PDF documents, in the order of their names
+     */
+    public SmicConversionResult(String direction, String inputDigest, List<String> outputNames,
+            List<String> outputDigests, List<String> documentNames, List<String> documentDigests) {
+
+        // Initialise class attributes
+        this.direction = direction;
+        this.documentDigests = Collections.unmodifiableList(new ArrayList<>(documentDigests));
+        this.documentNames = Collections.unmodifiableList(new ArrayList<>(documentNames));
+        this.inputDigest = inputDigest;
+        this.outputDigests = Collections.unmodifiableList(new ArrayList<>(outputDigests));
+        this.outputNames = Collections.unmodifiableList(new ArrayList<>(outputNames));
+    }
+
+    /**
+     * Get the direction of the conversion
+     *
+     * @return Direction of the conversion, such as pdf2xml or xml2pdf
+     */
+    public String getDirection() {
+        return this.direction;
+    }
+
+    /**
+     * Get the digest of the converted file
+     *
+     * @return Hexadecimal SHA-256 digest of the converted file, or null if the conversion did not read it whole
+     */
+    public String getInputDigest() {
+        return this.inputDigest;
+    }
+
+    /**
+     * Get the files written by the conversion
+     *
+     * @return Paths and names of the resulting files
+     */
+    public List<String> getOutputNames() {
+        return this.outputNames;
+    }
+
+    /**
+     * Get the digests of the files written by the conversion
+     *
+     * @return Hexadecimal SHA-256 digests of the resulting files, in the order of their names
+     */
+    public List<String> getOutputDigests() {
+        return this.outputDigests;
+    }
+
+    /**
+     * Get the PDF documents carried across by the conversion
+     *
+     * @return Names of the PDF documents embedded in or extracted from the missive, in the order of the missive
+     */
+    public List<String> getDocumentNames() {
+        return this.documentNames;
+    }
+
+    /**
+     * Get the digests of the PDF documents carried across by the conversion
+     *
+     * @return Hexadecimal SHA-256 digests of the PDF documents, in the order of their names
+     */
+    public List<String> getDocumentDigests() {
+        return this.documentDigests;
+    }
+}
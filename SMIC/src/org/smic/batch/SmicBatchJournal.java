@@ -0,0 +1,229 @@
+package org.smic.batch;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import org.smic.utils.SmicDigestUtils;
+
+/**
+ * The SmicBatchJournal class keeps an append-only record of the inputs converted by a batch, one line per input giving
+ * its status, the SHA-256 digest of its content, its name and the name of its result. The journal is synchronised to
+ * disk periodically rather than after every line, so that a crash loses at most the inputs converted since the last
+ * synchronisation, which are then converted again. An input is committed once a successful conversion of the same
+ * content has been recorded under its name.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicBatchJournal implements Closeable {
+
+    /**
+     * Status of an input which was converted
+     */
+    public static final String STATUS_OK = "ok";
+
+    /**
+     * Status of an input which could not be converted
+     */
+    public static final String STATUS_FAILED = "failed";
+
+    /**
+     * Status of an input whose conversion did not complete within its deadline
+     */
+    public static final String STATUS_TIMEOUT = "timeout";
+
+    /**
+     * Default time in milliseconds between two synchronisations of the journal to disk
+     */
+    public static final long DEFAULT_SYNC_INTERVAL = 1000;
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private FileChannel channel;
+    private HashMap<String, String> committedInputs;
+    private long lastSync;
+    private long syncInterval;
+
+    /**
+     * SmicBatchJournal class constructor, reading the inputs committed by earlier runs
+     *
+     * @param journalFilename Path and name of the journal, created if it does not exist
+     * @param syncInterval Time in milliseconds between two synchronisations of the journal to disk
+     * @throws IOException
+     */
+    public SmicBatchJournal(String journalFilename, long syncInterval) throws IOException {
+
+        // Initialise class attributes
+        this.channel = FileChannel.open(Paths.get(journalFilename), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.committedInputs = new HashMap<>();
+        this.lastSync = System.currentTimeMillis();
+        this.syncInterval = syncInterval;
+
+        try {
+
+            // Read the inputs committed by earlier runs
+            long length = this.readCommittedInputs();
+
+            // Drop a line left incomplete by a crash, then append after the last complete line
+            this.channel.truncate(length);
+            this.channel.position(length);
+
+        } catch (IOException ex) {
+            this.channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Compute the SHA-256 digest of the content of a file
+     *
+     * @param filename Path and name of the file
+     * @return Hexadecimal SHA-256 digest
+     * @throws IOException
+     */
+    public static String digest(String filename) throws IOException {
+        return SmicDigestUtils.digest(filename);
+    }
+
+    /**
+     * Check if an input has already been converted
+     *
+     * @param inputName Name of the input
+     * @param inputDigest SHA-256 digest of the content of the input
+     * @return Whether a successful conversion of the same content has been recorded under the name of the input
+     */
+    public synchronized boolean isCommitted(String inputName, String inputDigest) {
+        return inputDigest.equals(this.committedInputs.get(clean(inputName)));
+    }
+
+    /**
+     * Get the number of inputs committed
+     *
+     * @return Number of committed inputs
+     */
+    public synchronized int getCommittedCount() {
+        return this.committedInputs.size();
+    }
+
+    /**
+     * Record the outcome of the conversion of an input
+     *
+     * @param status Status of the conversion, ok or failed
+     * @param inputDigest SHA-256 digest of the content of the input
+     * @param inputName Name of the input
+     * @param outputName Name of the result, or an empty string if the input could not be converted
+     * @throws IOException
+     */
+    public synchronized void append(String status, String inputDigest, String inputName, String outputName) throws
+            IOException {
+
+        // One line per input, whose fields may not contain the separators
+        String line = status + '\t' + inputDigest + '\t' + clean(inputName) + '\t' + clean(outputName) + '\n';
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(UTF_8));
+
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+
+        // Synchronise the journal to disk once the interval has elapsed
+        long now = System.currentTimeMillis();
+
+        if (now - this.lastSync >= this.syncInterval) {
+            this.channel.force(false);
+            this.lastSync = now;
+        }
+
+        // Later runs skip the input
+        if (STATUS_OK.equals(status)) {
+            this.committedInputs.put(clean(inputName), inputDigest);
+        } else {
+            this.committedInputs.remove(clean(inputName));
+        }
+    }
+
+    /**
+     * Synchronise the journal to disk and close it
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+
+        // Check if the journal has already been closed
+        if (!this.channel.isOpen()) {
+            return;
+        }
+
+        try {
+            this.channel.force(false);
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Read the lines of the journal, keeping the last outcome recorded for each input
+     *
+     * @return Length in bytes of the complete lines of the journal
+     * @throws IOException
+     */
+    private long readCommittedInputs() throws IOException {
+
+        long length = 0;
+
+        // Lines are split on their line feed byte, which never occurs within an encoded character, and are read
+        // without closing the channel which the journal keeps for appending
+        InputStream is = new BufferedInputStream(Channels.newInputStream(this.channel), BUFFER_SIZE);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+
+        while ((b = is.read()) != -1) {
+
+            // Accumulate the bytes of the current line
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+
+            // Complete line
+            length += line.size() + 1;
+
+            String[] fields = new String(line.toByteArray(), UTF_8).split("\t", -1);
+            line.reset();
+
+            // Lines which are not records are ignored
+            if (fields.length != 4) {
+                continue;
+            }
+
+            if (STATUS_OK.equals(fields[0])) {
+                this.committedInputs.put(fields[2], fields[1]);
+            } else {
+                this.committedInputs.remove(fields[2]);
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Replace the separators of the journal found in a name
+     *
+     * @param name Name of an input or of a result
+     * @return Name without tabs or line breaks
+     */
+    private static String clean(String name) {
+        return name.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
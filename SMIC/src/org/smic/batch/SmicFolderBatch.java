@@ -0,0 +1,240 @@
+package org.smic.batch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.smic.Smic;
+import org.smic.exceptions.ConfigurationFileNotFoundException;
+import org.smic.exceptions.ConversionTimeoutException;
+import org.smic.exceptions.InvalidConfigurationException;
+
+/**
+ * The SmicFolderBatch class converts the missive XML documents and PDF documents of a folder into the output folder,
+ * recording every converted input in a journal. A batch which is run again with the same journal, for instance after
+ * a crash, skips the inputs whose conversion has already been committed and only converts the others. Results are
+ * recorded once written, so that with durable outputs (output.fsync) an input found in the journal always has its
+ * result in the output folder.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicFolderBatch {
+
+    private static final int FILES_PER_THREAD = 2;
+
+    private AtomicInteger converted;
+    private Map<String, String> failures;
+    private AtomicInteger resumed;
+    private AtomicInteger skipped;
+    private Smic smic;
+    private int threads;
+    private AtomicInteger timeouts;
+
+    /**
+     * SmicFolderBatch class constructor
+     *
+     * @param configFilename SMIC module configuration file path and name
+     * @param outputFolder Folder where resulting files will be written
+     * @param tempFolder Folder where temporary files will be written when required
+     * @param threads Number of files converted in parallel
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    public SmicFolderBatch(String configFilename, String outputFolder, String tempFolder, int threads) throws
+            ConfigurationFileNotFoundException, InvalidConfigurationException, IOException {
+
+        // Initialise class attributes
+        this.converted = new AtomicInteger();
+        this.failures = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+        this.resumed = new AtomicInteger();
+        this.skipped = new AtomicInteger();
+        this.smic = new Smic(configFilename, outputFolder, tempFolder);
+        this.threads = Math.max(1, threads);
+        this.timeouts = new AtomicInteger();
+    }
+
+    /**
+     * Convert the files of a folder which have not already been converted according to the journal. Files whose name
+     * ends with .xml are converted to PDF documents and files whose name ends with .pdf are converted to missive XML
+     * documents; other files are skipped. A file which cannot be converted does not stop the batch and is reported by
+     * the failures of the batch.
+     *
+     * @param inputFolder Folder holding the files that need to be converted
+     * @param journalFilename Path and name of the journal of the batch, created if it does not exist
+     * @throws InterruptedIOException
+     * @throws IOException
+     */
+    public void convert(String inputFolder, String journalFilename) throws IOException {
+
+        // Conversions of the files, and files listed ahead of the conversions
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        final Semaphore pendingFiles = new Semaphore(this.threads * FILES_PER_THREAD);
+
+        // Stream the entries of the input folder rather than listing every name at once
+        try (final SmicBatchJournal journal = new SmicBatchJournal(journalFilename,
+                SmicBatchJournal.DEFAULT_SYNC_INTERVAL);
+                DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(inputFolder))) {
+
+            for (final Path entry : entries) {
+
+                // Direction of the conversion given by the extension of the file
+                String filename = entry.getFileName().toString().toLowerCase();
+                final boolean pdf = filename.endsWith(".pdf");
+
+                if (!Files.isRegularFile(entry) || (!pdf && !filename.endsWith(".xml"))) {
+                    this.skipped.incrementAndGet();
+                    continue;
+                }
+
+                // Wait for a conversion to complete when enough files are already pending
+                pendingFiles.acquire();
+
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        try {
+                            convertFile(journal, entry, pdf);
+                        } finally {
+                            pendingFiles.release();
+                        }
+                    }
+                });
+            }
+
+            // Wait for the conversions of the last files before closing the journal
+            executor.shutdown();
+
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting
+            }
+
+        } catch (InterruptedException ex) {
+
+            // Give up the batch, keeping the interrupted status of the thread
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("The conversion of the folder has been interrupted.");
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the number of files converted successfully
+     *
+     * @return Number of converted files
+     */
+    public int getConverted() {
+        return this.converted.get();
+    }
+
+    /**
+     * Get the number of files skipped because the journal shows that they have already been converted
+     *
+     * @return Number of resumed files
+     */
+    public int getResumed() {
+        return this.resumed.get();
+    }
+
+    /**
+     * Get the number of files which were neither missive XML documents nor PDF documents
+     *
+     * @return Number of skipped files
+     */
+    public int getSkipped() {
+        return this.skipped.get();
+    }
+
+    /**
+     * Get the number of files whose conversion did not complete within the configured timeout, which are also reported
+     * by the failures of the batch
+     *
+     * @return Number of timed out files
+     */
+    public int getTimeouts() {
+        return this.timeouts.get();
+    }
+
+    /**
+     * Get the files which could not be converted
+     *
+     * @return Error message of each file which could not be converted, by file name
+     */
+    public Map<String, String> getFailures() {
+
+        synchronized (this.failures) {
+            return new LinkedHashMap<>(this.failures);
+        }
+    }
+
+    /**
+     * Convert a file unless the journal shows that it has already been converted, and record the outcome
+     *
+     * @param journal Journal of the batch
+     * @param file File that needs to be converted
+     * @param pdf Whether the file is a PDF document rather than a missive XML document
+     */
+    private void convertFile(SmicBatchJournal journal, Path file, boolean pdf) {
+
+        // Files are recorded by name, relative to the input folder
+        String inputName = file.getFileName().toString();
+        String inputDigest = null;
+
+        try {
+
+            // Skip the files whose content has already been converted
+            inputDigest = SmicBatchJournal.digest(file.toString());
+
+            if (journal.isCommitted(inputName, inputDigest)) {
+                this.resumed.incrementAndGet();
+                return;
+            }
+
+            // Convert the file and record its result
+            String outputName = pdf ? this.smic.smicPdf2Xml(file.toString()) : this.smic.smicXml2Pdf(file.toString());
+
+            journal.append(SmicBatchJournal.STATUS_OK, inputDigest, inputName, outputName);
+
+            this.converted.incrementAndGet();
+
+        } catch (Exception ex) {
+
+            // Report the file and carry on with the others
+            this.failures.put(inputName, ex.getMessage() != null ? ex.getMessage() : ex.getClass().getName());
+
+            // Conversions which did not complete within their deadline are told apart from the other failures
+            boolean timeout = ex instanceof ConversionTimeoutException;
+
+            if (timeout) {
+                this.timeouts.incrementAndGet();
+            }
+
+            // Record the failure so that the file is converted again by the next run
+            if (inputDigest != null) {
+
+                try {
+                    journal.append(timeout ? SmicBatchJournal.STATUS_TIMEOUT : SmicBatchJournal.STATUS_FAILED,
+                            inputDigest, inputName, "");
+                } catch (IOException journalEx) {
+                    // The failure has already been reported
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package org.smic.batch;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SmicLeaseManager class lets several workers, in one or several processes sharing a folder over a local or a
+ * network file system, claim the files of an input folder without converting any of them twice. A worker claims a
+ * file by creating its lease file, which fails if another worker holds it, and keeps the lease alive by renewing its
+ * modification time. A lease which has not been renewed within its time to live belongs to a worker which has died
+ * and is taken over by moving it aside. The workers take over the lease of a file one at a time, each one creating a
+ * takeover file first and checking again that the lease has expired, as another worker may have taken it over and
+ * created a fresh lease in the meantime. The lease moved aside must still be expired and hold the worker seen holding
+ * it, a fresh lease moved aside by mistake being given back to its worker. Once converted, the lease of a file is
+ * renamed to a marker which keeps every worker from claiming the file again.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicLeaseManager {
+
+    private static final String LEASE_EXTENSION = ".lease";
+    private static final String TAKEOVER_EXTENSION = ".takeover";
+    private static final String DONE_EXTENSION = ".done";
+    private static final String FAILED_EXTENSION = ".failed";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private Set<String> heldLeases;
+    private Path leaseFolder;
+    private long leaseTtl;
+    private AtomicInteger reclaimedLeases;
+    private String workerId;
+
+    /**
+     * SmicLeaseManager class constructor
+     *
+     * @param leaseFolder Folder shared by the workers where the leases are kept, created if it does not exist
+     * @param workerId Identifier of the worker, unique among the workers sharing the lease folder
+     * @param leaseTtl Time in milliseconds after which a lease which has not been renewed may be taken over
+     * @throws IOException
+     */
+    public SmicLeaseManager(String leaseFolder, String workerId, long leaseTtl) throws IOException {
+
+        // Initialise class attributes
+        this.heldLeases = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        this.leaseFolder = Paths.get(leaseFolder);
+        this.leaseTtl = leaseTtl;
+        this.reclaimedLeases = new AtomicInteger();
+        this.workerId = workerId;
+
+        // Create the lease folder if it does not exist
+        Files.createDirectories(this.leaseFolder);
+    }
+
+    /**
+     * Check if a file has already been converted, successfully or not, by any worker
+     *
+     * @param name Name of the file
+     * @return Whether the file is finished
+     */
+    public boolean isFinished(String name) {
+        return Files.exists(this.leaseFolder.resolve(name + DONE_EXTENSION)) ||
+                Files.exists(this.leaseFolder.resolve(name + FAILED_EXTENSION));
+    }
+
+    /**
+     * Claim a file for the worker
+     *
+     * @param name Name of the file
+     * @return Whether the worker now holds the lease of the file
+     * @throws IOException
+     */
+    public boolean claim(String name) throws IOException {
+
+        Path lease = this.leaseFolder.resolve(name + LEASE_EXTENSION);
+
+        // Create the lease, which only succeeds for one worker
+        if (this.createLease(lease)) {
+
+            // The file may have been finished between the check of the caller and the creation of the lease
+            if (this.isFinished(name)) {
+                Files.deleteIfExists(lease);
+                return false;
+            }
+
+            this.heldLeases.add(name);
+
+            return true;
+        }
+
+        // Leave the leases which are still renewed to their worker, and take over an expired lease only if no other
+        // worker is taking it over
+        Path takeover = this.leaseFolder.resolve(name + LEASE_EXTENSION + TAKEOVER_EXTENSION);
+
+        try {
+
+            if (!this.isExpired(lease)) {
+                return false;
+            }
+
+            if (!this.createLease(takeover)) {
+
+                // A worker which died while taking over the lease leaves its takeover file behind
+                if (this.isExpired(takeover)) {
+                    Files.deleteIfExists(takeover);
+                }
+
+                return false;
+            }
+
+        } catch (NoSuchFileException ex) {
+
+            // The lease has been released or taken over by another worker
+            return false;
+        }
+
+        try {
+
+            // The lease may have been taken over and renewed by another worker since it was found expired
+            String owner = this.readOwner(lease);
+
+            if (!this.isExpired(lease)) {
+                return false;
+            }
+
+            // Take over the expired lease by moving it aside, the lease moved aside being a fresh lease of another
+            // worker if a takeover file expired while its worker was still taking the lease over
+            Path expiredLease = this.leaseFolder.resolve(name + LEASE_EXTENSION + "." + this.workerId + ".expired");
+
+            Files.move(lease, expiredLease, StandardCopyOption.ATOMIC_MOVE);
+
+            if (!this.isExpired(expiredLease) || !owner.equals(this.readOwner(expiredLease))) {
+
+                // Give the fresh lease back to its worker
+                this.restoreLease(lease, expiredLease);
+
+                return false;
+            }
+
+            Files.deleteIfExists(expiredLease);
+
+        } catch (NoSuchFileException ex) {
+
+            // The lease has been released or taken over by another worker
+            return false;
+
+        } finally {
+
+            // Let other workers take over the lease of the file again
+            Files.deleteIfExists(takeover);
+        }
+
+        // Claim the file again, another worker possibly getting there first
+        if (!this.createLease(lease)) {
+            return false;
+        }
+
+        if (this.isFinished(name)) {
+            Files.deleteIfExists(lease);
+            return false;
+        }
+
+        this.heldLeases.add(name);
+        this.reclaimedLeases.incrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * Renew the leases held by the worker so that other workers do not take them over
+     */
+    public void renew() {
+
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+
+        for (String name : this.heldLeases) {
+
+            try {
+
+                // Only leases which still belong to the worker are renewed
+                Path lease = this.leaseFolder.resolve(name + LEASE_EXTENSION);
+
+                if (this.isOwnLease(lease)) {
+                    Files.setLastModifiedTime(lease, now);
+                }
+
+            } catch (IOException ex) {
+                // The lease will be renewed at the next heartbeat or taken over by another worker
+            }
+        }
+    }
+
+    /**
+     * Mark a file claimed by the worker as finished and give up its lease
+     *
+     * @param name Name of the file
+     * @param success Whether the file was converted successfully
+     * @throws IOException
+     */
+    public void complete(String name, boolean success) throws IOException {
+
+        // Stop renewing the lease
+        this.heldLeases.remove(name);
+
+        // A lease taken over by another worker is left to that worker
+        Path lease = this.leaseFolder.resolve(name + LEASE_EXTENSION);
+
+        if (this.isOwnLease(lease)) {
+            Files.move(lease, this.leaseFolder.resolve(name + (success ? DONE_EXTENSION : FAILED_EXTENSION)),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Get the number of expired leases of other workers taken over by the worker
+     *
+     * @return Number of reclaimed leases
+     */
+    public int getReclaimedLeases() {
+        return this.reclaimedLeases.get();
+    }
+
+    /**
+     * Create a lease holding the identifier of the worker
+     *
+     * @param lease Path of the lease
+     * @return Whether the lease was created by the worker
+     * @throws IOException
+     */
+    private boolean createLease(Path lease) throws IOException {
+
+        try {
+            Files.write(lease, (this.workerId + '\n').getBytes(UTF_8), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE);
+            return true;
+        } catch (FileAlreadyExistsException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Check if a lease has not been renewed within its time to live
+     *
+     * @param lease Path of the lease
+     * @return Whether the lease has expired
+     * @throws IOException
+     */
+    private boolean isExpired(Path lease) throws IOException {
+        return System.currentTimeMillis() - Files.getLastModifiedTime(lease).toMillis() >= this.leaseTtl;
+    }
+
+    /**
+     * Read the identifier of the worker holding a lease
+     *
+     * @param lease Path of the lease
+     * @return Content of the lease
+     * @throws IOException
+     */
+    private String readOwner(Path lease) throws IOException {
+        return new String(Files.readAllBytes(lease), UTF_8);
+    }
+
+    /**
+     * Give back a fresh lease moved aside while taking over the expired lease it replaced
+     *
+     * @param lease Path of the lease
+     * @param movedLease Path where the lease has been moved aside
+     * @throws IOException
+     */
+    private void restoreLease(Path lease, Path movedLease) throws IOException {
+
+        try {
+
+            // Link the lease back under its name, which keeps the very file its worker may still be writing and fails
+            // if a worker has claimed the file in the meantime
+            try {
+                Files.createLink(lease, movedLease);
+            } catch (UnsupportedOperationException ex) {
+
+                // File systems without hard links get a copy, which fails as well if the lease exists
+                Files.copy(movedLease, lease, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+
+        } catch (FileAlreadyExistsException ex) {
+            // The worker which claimed the file in the meantime holds it from now on
+        } finally {
+            Files.deleteIfExists(movedLease);
+        }
+    }
+
+    /**
+     * Check if a lease belongs to the worker
+     *
+     * @param lease Path of the lease
+     * @return Whether the lease exists and holds the identifier of the worker
+     * @throws IOException
+     */
+    private boolean isOwnLease(Path lease) throws IOException {
+
+        try {
+            return this.readOwner(lease).equals(this.workerId + '\n');
+        } catch (NoSuchFileException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.smic.batch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.smic.Smic;
+import org.smic.exceptions.ConfigurationFileNotFoundException;
+import org.smic.exceptions.InvalidConfigurationException;
+
+/**
+ * The SmicWorker class converts its share of the missive XML documents and PDF documents of an input folder shared
+ * by several workers, running in the same process, in other processes or on other nodes sharing the folder. Files are
+ * claimed through leases kept in the .smic-leases folder of the input folder, so that each file is converted by a
+ * single worker, and the files of a worker which dies are taken over by the others once its leases expire. A worker
+ * only claims a file when one of its threads is free, leaving the other files to the workers which have capacity.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicWorker {
+
+    /**
+     * Name of the folder of the input folder where the leases are kept
+     */
+    public static final String LEASE_FOLDER = ".smic-leases";
+
+    /**
+     * Default time in milliseconds after which the leases of a worker which has stopped renewing them are taken over
+     */
+    public static final long DEFAULT_LEASE_TTL = 60000;
+
+    private static final long POLL_INTERVAL = 1000;
+
+    private AtomicInteger converted;
+    private Map<String, String> failures;
+    private long leaseTtl;
+    private int reclaimed;
+    private Smic smic;
+    private int threads;
+    private String workerId;
+
+    /**
+     * SmicWorker class constructor
+     *
+     * @param configFilename SMIC module configuration file path and name
+     * @param outputFolder Folder where resulting files will be written
+     * @param tempFolder Folder where temporary files will be written when required
+     * @param threads Number of files converted in parallel by the worker
+     * @param leaseTtl Time in milliseconds after which the leases of a worker which has died are taken over
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    public SmicWorker(String configFilename, String outputFolder, String tempFolder, int threads, long leaseTtl) throws
+            ConfigurationFileNotFoundException, InvalidConfigurationException, IOException {
+
+        // Initialise class attributes
+        this.converted = new AtomicInteger();
+        this.failures = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+        this.leaseTtl = leaseTtl;
+        this.reclaimed = 0;
+        this.smic = new Smic(configFilename, outputFolder, tempFolder);
+        this.threads = Math.max(1, threads);
+
+        // Process identifier and host name, which tell apart the workers of every node, followed by the identity of the
+        // worker within its process
+        this.workerId = ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "_") + "-" +
+                Integer.toHexString(System.identityHashCode(this));
+    }
+
+    /**
+     * Get the identifier of the worker
+     *
+     * @return Worker identifier
+     */
+    public String getWorkerId() {
+        return this.workerId;
+    }
+
+    /**
+     * Convert the files of the input folder until every file has been converted, by this worker or by others. Files
+     * whose name ends with .xml are converted to PDF documents and files whose name ends with .pdf are converted to
+     * missive XML documents; other files are ignored. A file which cannot be converted is not claimed again and is
+     * reported by the failures of the worker.
+     *
+     * @param inputFolder Folder holding the files that need to be converted, shared by the workers
+     * @throws InterruptedIOException
+     * @throws IOException
+     */
+    public void run(String inputFolder) throws IOException {
+
+        final SmicLeaseManager leases = new SmicLeaseManager(inputFolder + System.getProperty("file.separator") +
+                LEASE_FOLDER, this.workerId, this.leaseTtl);
+
+        // Conversions of the claimed files, one claim per free thread
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        final Semaphore freeThreads = new Semaphore(this.threads);
+
+        // Heartbeat renewing the leases well within their time to live
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+        long renewInterval = Math.max(1, this.leaseTtl / 3);
+
+        heartbeat.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                leases.renew();
+            }
+        }, renewInterval, renewInterval, TimeUnit.MILLISECONDS);
+
+        try {
+
+            boolean unfinished = true;
+
+            while (unfinished) {
+
+                unfinished = false;
+                boolean claimed = false;
+
+                // Stream the entries of the input folder rather than listing every name at once
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(inputFolder))) {
+
+                    for (final Path entry : entries) {
+
+                        // Direction of the conversion given by the extension of the file
+                        final String name = entry.getFileName().toString();
+                        final boolean pdf = name.toLowerCase().endsWith(".pdf");
+
+                        if (!Files.isRegularFile(entry) || (!pdf && !name.toLowerCase().endsWith(".xml")) ||
+                                leases.isFinished(name)) {
+                            continue;
+                        }
+
+                        // Files converted by other workers or by this one are checked again at the next pass
+                        unfinished = true;
+
+                        // Claim the file once a thread is free to convert it
+                        freeThreads.acquire();
+
+                        if (!leases.claim(name)) {
+                            freeThreads.release();
+                            continue;
+                        }
+
+                        claimed = true;
+
+                        executor.execute(new Runnable() {
+
+                            @Override
+                            public void run() {
+
+                                try {
+                                    convertFile(leases, entry, pdf);
+                                } finally {
+                                    freeThreads.release();
+                                }
+                            }
+                        });
+                    }
+                }
+
+                // Wait for the conversions in progress, here or in other workers, before looking at the files again
+                if (unfinished && !claimed) {
+                    Thread.sleep(POLL_INTERVAL);
+                }
+            }
+
+            // Wait for the conversions of the last files
+            executor.shutdown();
+
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting
+            }
+
+        } catch (InterruptedException ex) {
+
+            // Give up the conversions, keeping the interrupted status of the thread
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("The worker has been interrupted.");
+
+        } finally {
+
+            executor.shutdownNow();
+            heartbeat.shutdownNow();
+
+            this.reclaimed += leases.getReclaimedLeases();
+        }
+    }
+
+    /**
+     * Get the number of files converted successfully by the worker
+     *
+     * @return Number of converted files
+     */
+    public int getConverted() {
+        return this.converted.get();
+    }
+
+    /**
+     * Get the number of files claimed by the worker after the worker converting them died
+     *
+     * @return Number of reclaimed files
+     */
+    public int getReclaimed() {
+        return this.reclaimed;
+    }
+
+    /**
+     * Get the files which could not be converted by the worker
+     *
+     * @return Error message of each file which could not be converted, by file name
+     */
+    public Map<String, String> getFailures() {
+
+        synchronized (this.failures) {
+            return new LinkedHashMap<>(this.failures);
+        }
+    }
+
+    /**
+     * Convert a claimed file and mark it as finished
+     *
+     * @param leases Leases of the input folder
+     * @param file File that needs to be converted
+     * @param pdf Whether the file is a PDF document rather than a missive XML document
+     */
+    private void convertFile(SmicLeaseManager leases, Path file, boolean pdf) {
+
+        String name = file.getFileName().toString();
+        boolean success = false;
+
+        try {
+
+            // Convert the file
+            if (pdf) {
+                this.smic.smicPdf2Xml(file.toString());
+            } else {
+                this.smic.smicXml2Pdf(file.toString());
+            }
+
+            success = true;
+            this.converted.incrementAndGet();
+
+        } catch (Exception ex) {
+
+            // Report the file and carry on with the others
+            this.failures.put(name, ex.getMessage() != null ? ex.getMessage() : ex.getClass().getName());
+        }
+
+        // Keep every worker from claiming the file again
+        try {
+            leases.complete(name, success);
+        } catch (IOException ex) {
+            this.failures.put(name, ex.getMessage());
+        }
+    }
+}
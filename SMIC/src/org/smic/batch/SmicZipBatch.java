@@ -0,0 +1,313 @@
+package org.smic.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.smic.Smic;
+import org.smic.exceptions.ConfigurationFileNotFoundException;
+import org.smic.exceptions.InvalidConfigurationException;
+import org.smic.storage.SmicMemoryStorage;
+import org.smic.storage.SmicStorage;
+import org.smic.storage.SmicStorageOutput;
+
+/**
+ * The SmicZipBatch class converts the missive XML documents and PDF documents delivered as the entries of a ZIP
+ * archive. Entries are read one after the other from the input stream and converted in parallel, and each resulting
+ * file is written to the output ZIP archive as soon as its conversion completes, so that neither archive is ever
+ * extracted to disk. Only a bounded number of entries and results are held in memory at any time.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicZipBatch {
+
+    private static final int ENTRIES_PER_THREAD = 2;
+
+    private AtomicInteger converted;
+    private Map<String, String> failures;
+    private SmicMemoryStorage inputStorage;
+    private ThreadLocal<SmicMemoryStorage> outputStorage;
+    private AtomicInteger skipped;
+    private Smic smic;
+    private int threads;
+
+    /**
+     * SmicZipBatch class constructor
+     *
+     * @param configFilename SMIC module configuration file path and name
+     * @param tempFolder Folder where temporary files will be written when required
+     * @param threads Number of entries converted in parallel
+     * @throws ConfigurationFileNotFoundException
+     * @throws InvalidConfigurationException
+     * @throws IOException
+     */
+    public SmicZipBatch(String configFilename, String tempFolder, int threads) throws
+            ConfigurationFileNotFoundException, InvalidConfigurationException, IOException {
+
+        // Initialise class attributes
+        this.converted = new AtomicInteger();
+        this.failures = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+        this.inputStorage = new SmicMemoryStorage();
+        this.outputStorage = new ThreadLocal<SmicMemoryStorage>() {
+
+            @Override
+            protected SmicMemoryStorage initialValue() {
+                return new SmicMemoryStorage();
+            }
+        };
+        this.skipped = new AtomicInteger();
+        this.threads = Math.max(1, threads);
+
+        // Entries and results only go through memory, the results of each thread being kept apart so that entries
+        // converted at the same time into results of the same name do not overwrite each other
+        this.smic = new Smic(configFilename, this.inputStorage, new ThreadOutputStorage(), tempFolder);
+    }
+
+    /**
+     * Convert the entries of a ZIP archive and write the resulting files to another ZIP archive. Entries whose name
+     * ends with .xml are converted to PDF documents and entries whose name ends with .pdf are converted to missive
+     * XML documents; other entries are skipped. Each resulting file is written in the folder of its entry. An entry
+     * which cannot be converted does not stop the batch and is reported by the failures of the batch. Neither stream
+     * is closed.
+     *
+     * @param zipInput Stream of the ZIP archive holding the files that need to be converted
+     * @param zipOutput Stream to which the ZIP archive of the resulting files is written
+     * @throws InterruptedIOException
+     * @throws IOException
+     */
+    public void convert(InputStream zipInput, OutputStream zipOutput) throws IOException {
+
+        ZipInputStream zis = new ZipInputStream(zipInput);
+        final ZipOutputStream zos = new ZipOutputStream(zipOutput);
+
+        // Conversions of the entries, and entries read ahead of the conversions within the memory bound
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        final Semaphore pendingEntries = new Semaphore(this.threads * ENTRIES_PER_THREAD);
+
+        try {
+
+            ZipEntry entry;
+            int sequence = 0;
+
+            while ((entry = zis.getNextEntry()) != null) {
+
+                // Direction of the conversion given by the extension of the entry
+                final String entryName = entry.getName();
+                final boolean pdf = entryName.toLowerCase().endsWith(".pdf");
+
+                if (entry.isDirectory() || (!pdf && !entryName.toLowerCase().endsWith(".xml"))) {
+                    this.skipped.incrementAndGet();
+                    continue;
+                }
+
+                // Wait for a conversion to complete when enough entries are already held in memory
+                pendingEntries.acquire();
+
+                // Read the entry under a name of its own, keeping its filename which gives the name of the result
+                final String inputName = (sequence++) + "/" + entryName.substring(entryName.lastIndexOf('/') + 1);
+
+                try {
+                    this.inputStorage.put(inputName, IOUtils.toByteArray(zis));
+                } catch (IOException ex) {
+                    pendingEntries.release();
+                    throw ex;
+                }
+
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+
+                        try {
+                            convertEntry(entryName, inputName, pdf, zos);
+                        } finally {
+                            pendingEntries.release();
+                        }
+                    }
+                });
+            }
+
+            // Wait for the conversions of the last entries
+            executor.shutdown();
+
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting
+            }
+
+            // Write the central directory of the output archive
+            zos.finish();
+
+        } catch (InterruptedException ex) {
+
+            // Give up the batch, keeping the interrupted status of the thread
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("The conversion of the ZIP archive has been interrupted.");
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the number of entries converted successfully
+     *
+     * @return Number of converted entries
+     */
+    public int getConverted() {
+        return this.converted.get();
+    }
+
+    /**
+     * Get the number of entries which were neither missive XML documents nor PDF documents
+     *
+     * @return Number of skipped entries
+     */
+    public int getSkipped() {
+        return this.skipped.get();
+    }
+
+    /**
+     * Get the entries which could not be converted
+     *
+     * @return Error message of each entry which could not be converted, by entry name
+     */
+    public Map<String, String> getFailures() {
+
+        synchronized (this.failures) {
+            return new LinkedHashMap<>(this.failures);
+        }
+    }
+
+    /**
+     * Convert an entry and write the resulting file to the output archive
+     *
+     * @param entryName Name of the entry in the input archive
+     * @param inputName Name of the entry in the input storage
+     * @param pdf Whether the entry is a PDF document rather than a missive XML document
+     * @param zos Output archive
+     */
+    private void convertEntry(String entryName, String inputName, boolean pdf, ZipOutputStream zos) {
+
+        String resultName = null;
+
+        try {
+
+            // Convert the entry
+            resultName = pdf ? this.smic.smicPdf2Xml(inputName) : this.smic.smicXml2Pdf(inputName);
+
+            // Write the resulting file to the output archive in the folder of the entry, one entry at a time
+            byte[] result = this.outputStorage.get().get(resultName);
+
+            synchronized (zos) {
+                zos.putNextEntry(new ZipEntry(entryName.substring(0, entryName.lastIndexOf('/') + 1) + resultName));
+                zos.write(result);
+                zos.closeEntry();
+            }
+
+            this.converted.incrementAndGet();
+
+        } catch (Exception ex) {
+
+            // Report the entry and carry on with the others
+            this.failures.put(entryName, ex.getMessage() != null ? ex.getMessage() : ex.getClass().getName());
+
+        } finally {
+
+            // Release the memory held by the entry and its result
+            this.inputStorage.delete(inputName);
+
+            if (resultName != null) {
+                this.outputStorage.get().delete(resultName);
+            }
+        }
+    }
+
+    /**
+     * The ThreadOutputStorage class holds the resulting files in the memory storage of the thread converting them
+     */
+    private class ThreadOutputStorage implements SmicStorage {
+
+        /**
+         * Open a resulting file of the current thread for reading
+         *
+         * @param name Name of the file
+         * @return Input stream over the content of the file
+         * @throws IOException
+         */
+        @Override
+        public InputStream open(String name) throws IOException {
+            return outputStorage.get().open(name);
+        }
+
+        /**
+         * Create a resulting file of the current thread
+         *
+         * @param name Name of the file
+         * @return Output which must be committed to make the file visible
+         */
+        @Override
+        public SmicStorageOutput create(String name) {
+            return outputStorage.get().create(name);
+        }
+
+        /**
+         * Delete a resulting file of the current thread
+         *
+         * @param name Name of the file
+         * @return Whether the file existed
+         */
+        @Override
+        public boolean delete(String name) {
+            return outputStorage.get().delete(name);
+        }
+
+        /**
+         * Check if a resulting file of the current thread exists
+         *
+         * @param name Name of the file
+         * @return Whether the file exists
+         */
+        @Override
+        public boolean exists(String name) {
+            return outputStorage.get().exists(name);
+        }
+
+        /**
+         * Get the size of a resulting file of the current thread
+         *
+         * @param name Name of the file
+         * @return Size of the file in bytes
+         * @throws IOException
+         */
+        @Override
+        public long size(String name) throws IOException {
+            return outputStorage.get().size(name);
+        }
+
+        /**
+         * Resulting files held in memory have no local file
+         *
+         * @param name Name of the file
+         * @return Always null
+         */
+        @Override
+        public File getLocalFile(String name) {
+            return null;
+        }
+    }
+}
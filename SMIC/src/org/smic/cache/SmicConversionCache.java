@@ -0,0 +1,353 @@
+package org.smic.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.smic.storage.SmicStorage;
+import org.smic.storage.SmicStorageOutput;
+import org.smic.utils.SmicDirectoryUtils;
+import org.smic.utils.SmicFileUtils;
+
+/**
+ * The SmicConversionCache class keeps the results of conversions so that a missive or a PDF document which is sent
+ * again is not converted a second time. Results are addressed by a hash of the converted file content, the conversion
+ * direction and a fingerprint of the configuration in use. Recently used results are held in memory within a byte
+ * budget and every result is also kept on disk in its own folder of the cache folder.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicConversionCache {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private String cacheFolder;
+    private String configurationFingerprint;
+    private AtomicLong diskHits;
+    private long memoryBudget;
+    private LinkedHashMap<String, CachedResult> memoryEntries;
+    private AtomicLong memoryHits;
+    private long memorySize;
+    private AtomicLong misses;
+
+    /**
+     * SmicConversionCache class constructor
+     *
+     * @param cacheFolder Folder where conversion results are kept on disk
+     * @param memoryBudget Maximum number of bytes of conversion results held in memory
+     * @param configurationFingerprint Text identifying the configuration properties which affect conversion results
+     */
+    public SmicConversionCache(String cacheFolder, long memoryBudget, String configurationFingerprint) {
+
+        // Initialise class attributes
+        this.cacheFolder = cacheFolder;
+        this.configurationFingerprint = configurationFingerprint;
+        this.diskHits = new AtomicLong();
+        this.memoryBudget = memoryBudget;
+        this.memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+        this.memoryHits = new AtomicLong();
+        this.memorySize = 0;
+        this.misses = new AtomicLong();
+
+        // Create the cache folder if it does not exist
+        SmicDirectoryUtils.createFolderIfNotExist(cacheFolder);
+    }
+
+    /**
+     * Compute the key of the conversion of the given file
+     *
+     * @param direction Direction of the conversion
+     * @param storage Storage holding the file that needs to be converted
+     * @param filename Name of the file that needs to be converted
+     * @param parameters Other values which affect the result of the conversion
+     * @return Hexadecimal SHA-256 digest identifying the conversion
+     * @throws IOException
+     */
+    public String computeKey(String direction, SmicStorage storage, String filename, String... parameters) throws
+            IOException {
+
+        MessageDigest digest = newDigest();
+
+        // Conversion direction, configuration and parameters, each followed by a separator
+        digest.update((direction + '\n' + this.configurationFingerprint + '\n').getBytes("UTF-8"));
+
+        for (String parameter : parameters) {
+            digest.update((String.valueOf(parameter) + '\n').getBytes("UTF-8"));
+        }
+
+        // Content of the file that needs to be converted
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream is = storage.open(filename)) {
+
+            int read;
+
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        // Hexadecimal form of the digest
+        StringBuilder key = new StringBuilder();
+
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b & 0xff));
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Write the cached result of a conversion to the given output folder
+     *
+     * @param key Key of the conversion
+     * @param storage Storage where the result will be written
+     * @param outputFolder Folder of the storage where the result will be written
+     * @return Name of the written result or null if the conversion has not been cached
+     * @throws IOException
+     */
+    public String fetch(String key, SmicStorage storage, String outputFolder) throws IOException {
+
+        // Look for the result in memory
+        CachedResult result;
+
+        synchronized (this.memoryEntries) {
+            result = this.memoryEntries.get(key);
+        }
+
+        if (result != null) {
+
+            this.memoryHits.incrementAndGet();
+
+            // Write the result held in memory
+            String outputFilename = SmicFileUtils.getPath(outputFolder, result.filename);
+
+            try (SmicStorageOutput os = storage.create(outputFilename)) {
+                os.write(result.content);
+                os.commit();
+            }
+
+            return outputFilename;
+        }
+
+        // Look for the result on disk, kept at the same path as in the output folder
+        File entryFolder = new File(this.cacheFolder, key);
+        Collection<File> entryFiles = entryFolder.isDirectory() ? FileUtils.listFiles(entryFolder, null, true) :
+                Collections.<File>emptyList();
+
+        if (entryFiles.size() != 1) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+
+        this.diskHits.incrementAndGet();
+
+        // Copy the result kept on disk
+        File entryFile = entryFiles.iterator().next();
+        String relativeFilename = entryFolder.toPath().relativize(entryFile.toPath()).toString();
+
+        String outputFilename = SmicFileUtils.getPath(outputFolder, relativeFilename);
+
+        // Results within the budget are read once, to be written and kept in memory for the next request
+        byte[] content = entryFile.length() <= this.memoryBudget ? FileUtils.readFileToByteArray(entryFile) : null;
+
+        try (SmicStorageOutput os = storage.create(outputFilename)) {
+
+            if (content != null) {
+                os.write(content);
+            } else {
+                FileUtils.copyFile(entryFile, os);
+            }
+
+            os.commit();
+        }
+
+        if (content != null) {
+            this.remember(key, relativeFilename, content);
+        }
+
+        return outputFilename;
+    }
+
+    /**
+     * Keep the result of a conversion in the cache
+     *
+     * @param key Key of the conversion
+     * @param storage Storage where the result was written
+     * @param outputFolder Folder of the storage where the result was written
+     * @param outputFilename Name of the result of the conversion, within the output folder
+     * @throws IOException
+     */
+    public void store(String key, SmicStorage storage, String outputFolder, String outputFilename) throws
+            IOException {
+
+        File entryFolder = new File(this.cacheFolder, key);
+
+        // Path of the result in the output folder, which depends on the layout of the output folder
+        String relativeFilename = outputFolder.length() == 0 ? outputFilename :
+                outputFilename.substring(outputFolder.length() + 1);
+
+        // Results larger than the whole budget are not held in memory, and another conversion of the same file may
+        // already have been kept on disk
+        boolean keepInMemory = storage.size(outputFilename) <= this.memoryBudget;
+        boolean keepOnDisk = !entryFolder.exists();
+
+        if (!keepInMemory && !keepOnDisk) {
+            return;
+        }
+
+        // Results held in memory are read once, the same content being written to disk
+        byte[] content = null;
+
+        if (keepInMemory) {
+
+            try (InputStream is = storage.open(outputFilename)) {
+                content = IOUtils.toByteArray(is);
+            }
+        }
+
+        if (keepOnDisk) {
+
+            // Copy the result in a folder of its own, renamed once complete so that readers never see a partial entry
+            File pendingFolder = new File(this.cacheFolder, key + "." + Thread.currentThread().getId() + ".tmp");
+            File pendingFile = new File(pendingFolder, relativeFilename);
+
+            if (content != null) {
+                FileUtils.writeByteArrayToFile(pendingFile, content);
+            } else {
+
+                try (InputStream is = storage.open(outputFilename)) {
+                    FileUtils.copyInputStreamToFile(is, pendingFile);
+                }
+            }
+
+            if (!pendingFolder.renameTo(entryFolder)) {
+                FileUtils.deleteDirectory(pendingFolder);
+            }
+        }
+
+        // Keep the result in memory
+        if (content != null) {
+            this.remember(key, relativeFilename, content);
+        }
+    }
+
+    /**
+     * Get the number of conversions whose result was found in memory
+     *
+     * @return Number of memory hits
+     */
+    public long getMemoryHits() {
+        return this.memoryHits.get();
+    }
+
+    /**
+     * Get the number of conversions whose result was found on disk
+     *
+     * @return Number of disk hits
+     */
+    public long getDiskHits() {
+        return this.diskHits.get();
+    }
+
+    /**
+     * Get the number of conversions whose result was not found in the cache
+     *
+     * @return Number of misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Get the number of bytes of conversion results held in memory
+     *
+     * @return Number of bytes held in memory
+     */
+    public long getMemorySize() {
+
+        synchronized (this.memoryEntries) {
+            return this.memorySize;
+        }
+    }
+
+    /**
+     * Hold the result of a conversion in memory, evicting the least recently used results to stay within budget
+     *
+     * @param key Key of the conversion
+     * @param relativeFilename Path of the result relative to the output folder
+     * @param content Content of the result of the conversion
+     */
+    private void remember(String key, String relativeFilename, byte[] content) {
+
+        CachedResult result = new CachedResult(relativeFilename, content);
+
+        synchronized (this.memoryEntries) {
+
+            // Replace any previous result of the same conversion
+            CachedResult previous = this.memoryEntries.put(key, result);
+
+            if (previous != null) {
+                this.memorySize -= previous.content.length;
+            }
+
+            this.memorySize += result.content.length;
+
+            // Evict the least recently used results
+            Iterator<Map.Entry<String, CachedResult>> entries = this.memoryEntries.entrySet().iterator();
+
+            while (this.memorySize > this.memoryBudget && entries.hasNext()) {
+                this.memorySize -= entries.next().getValue().content.length;
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Create a SHA-256 message digest
+     *
+     * @return SHA-256 message digest
+     */
+    private static MessageDigest newDigest() {
+
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * The CachedResult class holds the result of a conversion in memory
+     */
+    private static class CachedResult {
+
+        private byte[] content;
+        private String filename;
+
+        /**
+         * CachedResult class constructor
+         *
+         * @param filename Path of the result file relative to the output folder
+         * @param content Content of the result file
+         */
+        private CachedResult(String filename, byte[] content) {
+
+            // Initialise class attributes
+            this.content = content;
+            this.filename = filename;
+        }
+    }
+}
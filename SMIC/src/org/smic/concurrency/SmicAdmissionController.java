@@ -0,0 +1,150 @@
+package org.smic.concurrency;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.smic.exceptions.ConversionRejectedException;
+import org.smic.monitoring.SmicStageRecorder;
+
+/**
+ * The SmicAdmissionController class admits conversions against a heap budget shared by all the conversions running
+ * concurrently. Each conversion is weighted by the heap footprint estimated from the size and the direction of its
+ * input, so that many small notices may run side by side while a large missive waits for the budget to free up.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicAdmissionController {
+
+    /**
+     * Policy under which conversions that do not fit in the budget wait for it to free up
+     */
+    public static final String POLICY_QUEUE = "queue";
+
+    /**
+     * Policy under which conversions that do not fit in the budget are rejected immediately
+     */
+    public static final String POLICY_FAIL = "fail";
+
+    /**
+     * Default number of heap bytes used per byte of input by an XML to PDF conversion
+     */
+    public static final double DEFAULT_XML_TO_PDF_FACTOR = 12;
+
+    /**
+     * Default number of heap bytes used per byte of input by a PDF to XML conversion
+     */
+    public static final double DEFAULT_PDF_TO_XML_FACTOR = 20;
+
+    private static final long PERMIT_SIZE = 1024;
+    private static final long BASE_FOOTPRINT = 4L * 1024 * 1024;
+
+    private int budgetPermits;
+    private boolean failFast;
+    private double pdf2XmlFactor;
+    private Semaphore permits;
+    private long timeoutMillis;
+    private double xml2PdfFactor;
+
+    /**
+     * SmicAdmissionController class constructor
+     * 
+     * @param budget Heap budget in bytes shared by concurrent conversions
+     * @param policy Policy applied to conversions that do not fit in the budget, queue or fail
+     * @param timeoutMillis Maximum time in milliseconds a queued conversion waits for the budget, 0 to wait forever
+     * @param xml2PdfFactor Number of heap bytes used per byte of input by an XML to PDF conversion
+     * @param pdf2XmlFactor Number of heap bytes used per byte of input by a PDF to XML conversion
+     */
+    public SmicAdmissionController(long budget, String policy, long timeoutMillis, double xml2PdfFactor,
+            double pdf2XmlFactor) {
+
+        // Initialise class attributes
+        this.budgetPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, budget / PERMIT_SIZE));
+        this.failFast = POLICY_FAIL.equals(policy);
+        this.pdf2XmlFactor = pdf2XmlFactor;
+        this.timeoutMillis = timeoutMillis;
+        this.xml2PdfFactor = xml2PdfFactor;
+
+        // Fair semaphore so that queued conversions are admitted in arrival order
+        this.permits = new Semaphore(this.budgetPermits, true);
+    }
+
+    /**
+     * Estimate the heap footprint of a conversion
+     * 
+     * @param direction Direction of the conversion
+     * @param inputSize Size in bytes of the file being converted
+     * @return Estimated heap footprint in bytes
+     */
+    public long estimateFootprint(String direction, long inputSize) {
+
+        // Heap bytes used per byte of input for the direction of the conversion
+        double factor = SmicStageRecorder.XML_TO_PDF.equals(direction) ? this.xml2PdfFactor : this.pdf2XmlFactor;
+
+        return BASE_FOOTPRINT + (long) (inputSize * factor);
+    }
+
+    /**
+     * Admit a conversion within the heap budget, waiting for the budget to free up if the policy allows it
+     * 
+     * @param direction Direction of the conversion
+     * @param filename Path and name of the file being converted
+     * @param inputSize Size in bytes of the file being converted
+     * @return Number of permits held by the conversion, which must be given back with release
+     * @throws ConversionRejectedException
+     */
+    public int admit(String direction, String filename, long inputSize) throws ConversionRejectedException {
+
+        // Estimated footprint of the conversion
+        long footprint = this.estimateFootprint(direction, inputSize);
+
+        // Number of permits needed, capped to the whole budget so that an oversized conversion can still run alone
+        int needed = (int) Math.min(this.budgetPermits, (footprint + PERMIT_SIZE - 1) / PERMIT_SIZE);
+
+        try {
+
+            // Try to acquire the permits according to the configured policy
+            boolean admitted;
+
+            if (this.failFast) {
+                admitted = this.permits.tryAcquire(needed);
+            } else if (this.timeoutMillis > 0) {
+                admitted = this.permits.tryAcquire(needed, this.timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                this.permits.acquire(needed);
+                admitted = true;
+            }
+
+            // Check if the conversion was admitted
+            if (!admitted) {
+                throw new ConversionRejectedException(filename, footprint);
+            }
+
+        } catch (InterruptedException ex) {
+
+            // Keep the interrupt status for the caller and reject the conversion
+            Thread.currentThread().interrupt();
+
+            throw new ConversionRejectedException(filename, footprint);
+        }
+
+        return needed;
+    }
+
+    /**
+     * Give back the permits held by a conversion which has completed
+     * 
+     * @param heldPermits Number of permits returned by admit
+     */
+    public void release(int heldPermits) {
+        this.permits.release(heldPermits);
+    }
+
+    /**
+     * Get the part of the heap budget which is not held by running conversions
+     * 
+     * @return Available heap budget in bytes
+     */
+    public long getAvailableBudget() {
+        return this.permits.availablePermits() * PERMIT_SIZE;
+    }
+}
@@ -0,0 +1,128 @@
+package org.smic.concurrency;
+
+import org.smic.exceptions.ConversionTimeoutException;
+
+/**
+ * The SmicDeadline class is the deadline and cancellation token of a conversion. The token is attached to the thread
+ * running the conversion, which checks it between the stages of the conversion and as the streams of the conversion
+ * read or write each chunk, so that the Base 64 and copy loops stop at the next chunk once the deadline has passed or
+ * the token has been cancelled from another thread.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicDeadline {
+
+    private static final ThreadLocal<SmicDeadline> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean cancelled;
+    private long deadline;
+    private long timeoutMillis;
+
+    /**
+     * SmicDeadline class constructor for a token which only expires when it is cancelled
+     */
+    public SmicDeadline() {
+
+        // Initialise class attributes
+        this.cancelled = false;
+        this.deadline = Long.MAX_VALUE;
+        this.timeoutMillis = 0;
+    }
+
+    /**
+     * SmicDeadline class constructor for a token which expires once the given time has elapsed
+     * 
+     * @param timeoutMillis Time in milliseconds, from now, within which the conversion must complete
+     */
+    public SmicDeadline(long timeoutMillis) {
+
+        // Initialise class attributes
+        this.cancelled = false;
+        this.deadline = System.nanoTime() + timeoutMillis * 1000000;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Cancel the conversion holding the token, which stops at its next check
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Check if the token has been cancelled
+     * 
+     * @return Whether the token has been cancelled
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Check if the deadline has passed
+     * 
+     * @return Whether the deadline has passed
+     */
+    public boolean isExpired() {
+        return this.timeoutMillis > 0 && System.nanoTime() - this.deadline >= 0;
+    }
+
+    /**
+     * Abort the conversion if the token has been cancelled or if its deadline has passed
+     * 
+     * @throws ConversionTimeoutException
+     */
+    public void check() throws ConversionTimeoutException {
+
+        if (this.cancelled) {
+            throw new ConversionTimeoutException();
+        }
+
+        if (this.isExpired()) {
+            throw new ConversionTimeoutException(this.timeoutMillis);
+        }
+    }
+
+    /**
+     * Attach a token to the current thread
+     * 
+     * @param deadline Token of the conversion run by the current thread, or null to detach the current token
+     * @return Token previously attached to the current thread, to be attached again once the conversion completes
+     */
+    public static SmicDeadline attach(SmicDeadline deadline) {
+
+        SmicDeadline previous = CURRENT.get();
+
+        if (deadline != null) {
+            CURRENT.set(deadline);
+        } else {
+            CURRENT.remove();
+        }
+
+        return previous;
+    }
+
+    /**
+     * Get the token attached to the current thread
+     * 
+     * @return Token of the conversion run by the current thread or null if the conversion has no deadline
+     */
+    public static SmicDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Abort the conversion run by the current thread if its token has been cancelled or if its deadline has passed
+     * 
+     * @throws ConversionTimeoutException
+     */
+    public static void checkCurrent() throws ConversionTimeoutException {
+
+        SmicDeadline deadline = CURRENT.get();
+
+        if (deadline != null) {
+            deadline.check();
+        }
+    }
+}
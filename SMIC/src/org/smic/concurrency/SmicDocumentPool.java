@@ -0,0 +1,67 @@
+package org.smic.concurrency;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SmicDocumentPool class runs the work done in parallel for the PDF documents of a missive, such as their encoding
+ * or their decoding and assembly, on threads shared by all the conversions of the process. The number of threads is
+ * bounded by the number of processors however many conversions run concurrently, the work of the conversions queuing
+ * for the threads. Idle threads end after a minute and the threads never keep the process alive.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicDocumentPool {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    /**
+     * Submit the work done for a PDF document
+     *
+     * @param <T> Type of the result of the work
+     * @param task Work done for the PDF document
+     * @return Future giving the result of the work
+     */
+    public static <T> Future<T> submit(Callable<T> task) {
+        return EXECUTOR.submit(task);
+    }
+
+    /**
+     * Create the executor shared by all the conversions
+     *
+     * @return Executor with a thread per processor
+     */
+    private static ThreadPoolExecutor createExecutor() {
+
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        // Daemon threads named after the pool, since the pool is never shut down
+        final AtomicInteger threadNumber = new AtomicInteger();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "smic-document-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        // Let the threads end while no conversion needs them
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+}
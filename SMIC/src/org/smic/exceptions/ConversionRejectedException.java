@@ -0,0 +1,24 @@
+package org.smic.exceptions;
+
+/**
+ * The ConversionRejectedException is the exception thrown when a conversion could not be admitted within the heap budget
+ * configured for concurrent conversions.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class ConversionRejectedException extends Exception {
+
+    /**
+     * ConversionRejectedException constructor
+     * 
+     * @param filename Path and name of the file whose conversion was rejected
+     * @param footprint Estimated heap footprint of the conversion in bytes
+     */
+    public ConversionRejectedException(String filename, long footprint) {
+
+        // Initialise parent class
+        super("The conversion of " + filename + ", estimated at " + footprint +
+                " bytes of heap, could not be admitted within the configured budget.");
+    }
+}
@@ -0,0 +1,34 @@
+package org.smic.exceptions;
+
+import java.io.InterruptedIOException;
+
+/**
+ * The ConversionTimeoutException is the exception thrown when a conversion is aborted because its deadline has passed
+ * or because it has been cancelled. It is an input/output exception so that it can be raised from within the streams
+ * and the copy loops of a conversion, and is told apart from the other failures by its type.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class ConversionTimeoutException extends InterruptedIOException {
+
+    /**
+     * ConversionTimeoutException constructor for a cancelled conversion
+     */
+    public ConversionTimeoutException() {
+
+        // Initialise parent class
+        super("The conversion has been cancelled.");
+    }
+
+    /**
+     * ConversionTimeoutException constructor for a conversion whose deadline has passed
+     * 
+     * @param timeoutMillis Time in milliseconds the conversion was given to complete
+     */
+    public ConversionTimeoutException(long timeoutMillis) {
+
+        // Initialise parent class
+        super("The conversion did not complete within its deadline of " + timeoutMillis + " ms.");
+    }
+}
@@ -0,0 +1,54 @@
+package org.smic.exceptions;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * The InvalidMissiveException is the exception thrown when a missive XML document that has to be converted is not valid
+ * against the configured schema. It is reported as a parsing error of the missive XML document.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class InvalidMissiveException extends SAXException {
+
+    // Maximum length of the reported validation error, which quotes the invalid value
+    private static final int MAX_DETAIL_LENGTH = 500;
+
+    /**
+     * InvalidMissiveException constructor
+     *
+     * @param source Source missive XML document file path and name
+     * @param cause Validation error raised by the schema
+     */
+    public InvalidMissiveException(String source, SAXParseException cause) {
+
+        // Initialise parent class
+        super("The specified missive XML source at " + source + " is not valid against the configured schema" +
+                location(cause) + ": " + detail(cause), cause);
+    }
+
+    /**
+     * Get the location of a validation error in the missive XML document
+     *
+     * @param cause Validation error raised by the schema
+     * @return Line and column of the error, or an empty string if the document was validated from memory
+     */
+    private static String location(SAXParseException cause) {
+        return cause.getLineNumber() < 0 ? "" : " (line " + cause.getLineNumber() + ", column " +
+                cause.getColumnNumber() + ")";
+    }
+
+    /**
+     * Get the description of a validation error, shortened when it quotes a long value such as the encoded document
+     *
+     * @param cause Validation error raised by the schema
+     * @return Description of the error
+     */
+    private static String detail(SAXParseException cause) {
+
+        String message = String.valueOf(cause.getMessage());
+
+        return message.length() <= MAX_DETAIL_LENGTH ? message : message.substring(0, MAX_DETAIL_LENGTH) + "...";
+    }
+}
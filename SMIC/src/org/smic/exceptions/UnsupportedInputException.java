@@ -0,0 +1,22 @@
+package org.smic.exceptions;
+
+/**
+ * The UnsupportedInputException is the exception thrown when a file whose format is detected from its first bytes is
+ * neither a PDF document nor a missive XML document
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class UnsupportedInputException extends Exception {
+
+    /**
+     * UnsupportedInputException constructor
+     * 
+     * @param source Source file path and name
+     */
+    public UnsupportedInputException(String source) {
+
+        // Initialise parent class
+        super("The specified source at " + source + " is neither a PDF document nor a missive XML document.");
+    }
+}
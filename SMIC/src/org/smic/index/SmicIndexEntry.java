@@ -0,0 +1,156 @@
+package org.smic.index;
+
+/**
+ * The SmicIndexEntry class is the record kept by the index of converted missives for a conversion, giving the header
+ * fields of the missive, the SHA-256 digest of the converted file and the name of the resulting file. Instances are
+ * immutable.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public final class SmicIndexEntry {
+
+    private final String convertedAt;
+    private final String date;
+    private final String inputDigest;
+    private final String inputName;
+    private final String messageId;
+    private final String missiveId;
+    private final String outputName;
+    private final String receiverBic;
+    private final String receiverIban;
+    private final String senderBic;
+    private final String senderIban;
+
+    /**
+     * SmicIndexEntry class constructor
+     *
+     * @param convertedAt Date and time of the conversion
+     * @param date Date of the missive, the day on which it was sent or else the day on which it was converted
+     * @param inputDigest Hexadecimal SHA-256 digest of the converted file
+     * @param inputName Path and name of the converted file
+     * @param outputName Path and name of the resulting file
+     * @param missiveId Identifier of the missive (MsvId)
+     * @param messageId Identifier of the message carried by the missive (MsgId)
+     * @param senderBic BIC of the sender of the missive
+     * @param senderIban IBAN of the sender of the missive
+     * @param receiverBic BIC of the receiver of the missive
+     * @param receiverIban IBAN of the receiver of the missive
+     */
+    public SmicIndexEntry(String convertedAt, String date, String inputDigest, String inputName, String outputName,
+            String missiveId, String messageId, String senderBic, String senderIban, String receiverBic,
+            String receiverIban) {
+
+        // Initialise class attributes
+        this.convertedAt = convertedAt;
+        this.date = date;
+        this.inputDigest = inputDigest;
+        this.inputName = inputName;
+        this.messageId = messageId;
+        this.missiveId = missiveId;
+        this.outputName = outputName;
+        this.receiverBic = receiverBic;
+        this.receiverIban = receiverIban;
+        this.senderBic = senderBic;
+        this.senderIban = senderIban;
+    }
+
+    /**
+     * Get the date and time of the conversion
+     *
+     * @return Date and time of the conversion, such as 2012-01-31T20:00:05
+     */
+    public String getConvertedAt() {
+        return this.convertedAt;
+    }
+
+    /**
+     * Get the date of the missive
+     *
+     * @return Day on which the missive was sent, or else the day on which it was converted, such as 2012-01-31
+     */
+    public String getDate() {
+        return this.date;
+    }
+
+    /**
+     * Get the digest of the converted file
+     *
+     * @return Hexadecimal SHA-256 digest of the converted file
+     */
+    public String getInputDigest() {
+        return this.inputDigest;
+    }
+
+    /**
+     * Get the name of the converted file
+     *
+     * @return Path and name of the converted file
+     */
+    public String getInputName() {
+        return this.inputName;
+    }
+
+    /**
+     * Get the name of the resulting file
+     *
+     * @return Path and name of the resulting file
+     */
+    public String getOutputName() {
+        return this.outputName;
+    }
+
+    /**
+     * Get the identifier of the missive
+     *
+     * @return MsvId of the missive or an empty string if it is unknown
+     */
+    public String getMissiveId() {
+        return this.missiveId;
+    }
+
+    /**
+     * Get the identifier of the message carried by the missive
+     *
+     * @return MsgId of the message or an empty string if it is unknown
+     */
+    public String getMessageId() {
+        return this.messageId;
+    }
+
+    /**
+     * Get the BIC of the sender of the missive
+     *
+     * @return BIC of the sender or an empty string if it is unknown
+     */
+    public String getSenderBic() {
+        return this.senderBic;
+    }
+
+    /**
+     * Get the IBAN of the sender of the missive
+     *
+     * @return IBAN of the sender or an empty string if it is unknown
+     */
+    public String getSenderIban() {
+        return this.senderIban;
+    }
+
+    /**
+     * Get the BIC of the receiver of the missive
+     *
+     * @return BIC of the receiver or an empty string if it is unknown
+     */
+    public String getReceiverBic() {
+        return this.receiverBic;
+    }
+
+    /**
+     * Get the IBAN of the receiver of the missive
+     *
+     * @return IBAN of the receiver or an empty string if it is unknown
+     */
+    public String getReceiverIban() {
+        return this.receiverIban;
+    }
+}
@@ -0,0 +1,803 @@
+package org.smic.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.smic.missive.SmicMissiveHeader;
+import org.smic.utils.SmicDirectoryUtils;
+
+/**
+ * The SmicMissiveIndex class keeps a local index of the converted missives, so that the result of the conversion of a
+ * missive can be found from its MsvId, the MsgId of its message, the BIC or IBAN of its sender or receiver, its date
+ * or the digest of the converted file without reading the resulting files.
+ * <p>
+ * Each conversion is appended as one line to the records.log file of the index folder. The keys of the records are
+ * kept in memory and written, once enough records have been added, to a segment file holding one line per key, in
+ * sorted order, with the offset of the record in records.log. Segments are named after the length of records.log they
+ * cover, so that the records added after the last segment are read back into memory when the index is opened again.
+ * Lookups binary search each segment, and the newest segments are merged once there are too many of them.
+ * </p>
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicMissiveIndex implements Closeable {
+
+    /**
+     * Key of the MsvId of the missive
+     */
+    public static final String FIELD_MISSIVE_ID = "MsvId";
+
+    /**
+     * Key of the MsgId of the message carried by the missive
+     */
+    public static final String FIELD_MESSAGE_ID = "MsgId";
+
+    /**
+     * Key of the BIC of the sender of the missive
+     */
+    public static final String FIELD_SENDER_BIC = "SndBIC";
+
+    /**
+     * Key of the IBAN of the sender of the missive
+     */
+    public static final String FIELD_SENDER_IBAN = "SndIBAN";
+
+    /**
+     * Key of the BIC of the receiver of the missive
+     */
+    public static final String FIELD_RECEIVER_BIC = "RcvBIC";
+
+    /**
+     * Key of the IBAN of the receiver of the missive
+     */
+    public static final String FIELD_RECEIVER_IBAN = "RcvIBAN";
+
+    /**
+     * Key of the date of the missive, the day on which it was sent or else the day on which it was converted
+     */
+    public static final String FIELD_DATE = "Date";
+
+    /**
+     * Key of the SHA-256 digest of the converted file
+     */
+    public static final String FIELD_INPUT_DIGEST = "Digest";
+
+    /**
+     * Keys by which records can be looked up
+     */
+    public static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(FIELD_MISSIVE_ID,
+            FIELD_MESSAGE_ID, FIELD_SENDER_BIC, FIELD_SENDER_IBAN, FIELD_RECEIVER_BIC, FIELD_RECEIVER_IBAN,
+            FIELD_DATE, FIELD_INPUT_DIGEST));
+
+    /**
+     * Default number of records added before their keys are written to a segment
+     */
+    public static final int DEFAULT_SEGMENT_RECORDS = 10000;
+
+    /**
+     * Default number of segments above which the newest segments are merged
+     */
+    public static final int DEFAULT_MERGE_SEGMENTS = 8;
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final String LOCK_FILENAME = "index.lock";
+    private static final String RECORDS_FILENAME = "records.log";
+    private static final int RECORD_FIELDS = 11;
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Indexes opened for writing by this process, by canonical path of their folder
+    private static final HashMap<String, SmicMissiveIndex> WRITERS = new HashMap<>();
+
+    private String indexFolder;
+    private FileLock lock;
+    private FileChannel lockChannel;
+    private int mergeSegments;
+    private TreeSet<String> pendingKeys;
+    private int pendingRecords;
+    private FileChannel records;
+    private long recordsLength;
+    private int segmentRecords;
+    private TreeMap<Long, FileChannel> segments;
+
+    /**
+     * SmicMissiveIndex class constructor
+     *
+     * @param indexFolder Canonical path of the folder of the index
+     * @param writable Whether records are added to the index
+     * @param segmentRecords Number of records added before their keys are written to a segment
+     * @param mergeSegments Number of segments above which the newest segments are merged
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    private SmicMissiveIndex(String indexFolder, boolean writable, int segmentRecords, int mergeSegments) throws
+            IOException {
+
+        // Initialise class attributes
+        this.indexFolder = indexFolder;
+        this.lock = null;
+        this.lockChannel = null;
+        this.mergeSegments = Math.max(2, mergeSegments);
+        this.pendingKeys = new TreeSet<>();
+        this.pendingRecords = 0;
+        this.records = null;
+        this.recordsLength = 0;
+        this.segmentRecords = Math.max(1, segmentRecords);
+        this.segments = new TreeMap<>();
+
+        try {
+
+            if (writable) {
+
+                // Create the index folder if it does not exist
+                SmicDirectoryUtils.createFolderIfNotExist(indexFolder);
+
+                // A single process adds records to the index
+                this.lockChannel = FileChannel.open(this.getPath(LOCK_FILENAME), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+
+                try {
+                    this.lock = this.lockChannel.tryLock();
+                } catch (OverlappingFileLockException ex) {
+                    this.lock = null;
+                }
+
+                if (this.lock == null) {
+                    throw new IOException("The index folder, " + indexFolder + ", is used by another process.");
+                }
+
+                this.records = FileChannel.open(this.getPath(RECORDS_FILENAME), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            } else {
+
+                if (!Files.isRegularFile(this.getPath(RECORDS_FILENAME))) {
+                    throw new FileNotFoundException("The specified index folder, " + indexFolder + ", was not found.");
+                }
+
+                this.records = FileChannel.open(this.getPath(RECORDS_FILENAME), StandardOpenOption.READ);
+            }
+
+            // Segments of the index, leaving out those whose writing was interrupted
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(indexFolder))) {
+
+                for (Path entry : entries) {
+
+                    String name = entry.getFileName().toString();
+
+                    if (writable && name.endsWith(TEMP_EXTENSION)) {
+                        Files.deleteIfExists(entry);
+                    } else if (name.matches("[0-9a-f]{16}\\" + SEGMENT_EXTENSION)) {
+                        this.segments.put(Long.parseLong(name.substring(0, 16), 16), FileChannel.open(entry,
+                                StandardOpenOption.READ));
+                    }
+                }
+            }
+
+            // Read back the records added after the last segment
+            this.readPendingRecords(this.segments.isEmpty() ? 0 : this.segments.lastKey());
+
+            // Drop a record left incomplete by a crash, then append after the last complete record
+            if (writable) {
+                this.records.truncate(this.recordsLength);
+            }
+
+        } catch (IOException ex) {
+            this.closeChannels();
+            throw ex;
+        }
+    }
+
+    /**
+     * Open the index kept in the given folder for adding records, the index being shared by the callers of the same
+     * process
+     *
+     * @param indexFolder Folder of the index, created if it does not exist
+     * @param segmentRecords Number of records added before their keys are written to a segment
+     * @param mergeSegments Number of segments above which the newest segments are merged
+     * @return Index of converted missives
+     * @throws IOException
+     */
+    public static SmicMissiveIndex open(String indexFolder, int segmentRecords, int mergeSegments) throws
+            IOException {
+
+        synchronized (WRITERS) {
+
+            String canonicalFolder = new File(indexFolder).getCanonicalPath();
+            SmicMissiveIndex index = WRITERS.get(canonicalFolder);
+
+            if (index == null) {
+                index = new SmicMissiveIndex(canonicalFolder, true, segmentRecords, mergeSegments);
+                WRITERS.put(canonicalFolder, index);
+            }
+
+            return index;
+        }
+    }
+
+    /**
+     * Open the index kept in the given folder for lookups, while another process may be adding records to it. The
+     * records added after the index has been opened are not found.
+     *
+     * @param indexFolder Folder of the index
+     * @return Index of converted missives
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    public static SmicMissiveIndex openReadOnly(String indexFolder) throws IOException {
+        return new SmicMissiveIndex(new File(indexFolder).getCanonicalPath(), false, DEFAULT_SEGMENT_RECORDS,
+                DEFAULT_MERGE_SEGMENTS);
+    }
+
+    /**
+     * Add the record of a conversion to the index
+     *
+     * @param header Header of the converted missive
+     * @param inputDigest Hexadecimal SHA-256 digest of the converted file
+     * @param inputName Path and name of the converted file
+     * @param outputName Path and name of the resulting file
+     * @throws IOException
+     */
+    public synchronized void add(SmicMissiveHeader header, String inputDigest, String inputName, String outputName)
+            throws IOException {
+
+        // Check if the index has been opened for adding records
+        if (this.lock == null) {
+            throw new IllegalStateException("The index has been opened for lookups only.");
+        }
+
+        // Day on which the missive was sent, such as 2012-01-31 for 2012-01-31T20:00:00, or else today
+        Date now = new Date();
+        String date = header.getSendDateTime().matches("\\d{4}-\\d{2}-\\d{2}.*") ?
+                header.getSendDateTime().substring(0, 10) : new SimpleDateFormat("yyyy-MM-dd").format(now);
+
+        // One line per record, whose fields may not contain the separators
+        String[] fields = new String[] {new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(now), date, inputDigest,
+            inputName, outputName, header.getMissiveId(), header.getMessageId(), header.getSenderBic(),
+            header.getSenderIban(), header.getReceiverBic(), header.getReceiverIban()};
+
+        StringBuilder line = new StringBuilder();
+
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = clean(fields[i]);
+            line.append(i > 0 ? "\t" : "").append(fields[i]);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(line.append('\n').toString().getBytes(UTF_8));
+        long offset = this.recordsLength;
+
+        while (buffer.hasRemaining()) {
+            this.recordsLength += this.records.write(buffer, this.recordsLength);
+        }
+
+        // Keys of the record, written to a segment once enough records have been added
+        this.addKeys(this.parseRecord(fields), offset);
+        this.pendingRecords++;
+
+        if (this.pendingRecords >= this.segmentRecords) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Find the records of the conversions whose key has the given value
+     *
+     * @param field Key looked up, such as SmicMissiveIndex.FIELD_MISSIVE_ID
+     * @param value Value of the key
+     * @return Records found, in the order in which they were added
+     * @throws IOException
+     */
+    public synchronized List<SmicIndexEntry> find(String field, String value) throws IOException {
+
+        // Keys of a value are the lines starting with the key and the value, followed by the offset of the record
+        String prefix = field + '\t' + clean(value) + '\t';
+        TreeSet<Long> offsets = new TreeSet<>();
+
+        for (FileChannel segment : this.segments.values()) {
+            findOffsets(segment, prefix, offsets);
+        }
+
+        for (String key : this.pendingKeys.tailSet(prefix)) {
+
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+
+            offsets.add(Long.parseLong(key.substring(prefix.length()), 16));
+        }
+
+        // Records of the keys found
+        List<SmicIndexEntry> entries = new ArrayList<>();
+
+        for (long offset : offsets) {
+
+            byte[] record = readLine(this.records, offset);
+
+            if (record != null) {
+
+                String[] fields = new String(record, UTF_8).split("\t", -1);
+
+                if (fields.length == RECORD_FIELDS) {
+                    entries.add(this.parseRecord(fields));
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Get the number of segments of the index
+     *
+     * @return Number of segment files
+     */
+    public synchronized int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * Write the keys of the records added since the last segment to a new segment
+     *
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+
+        // Check if records have been added since the last segment
+        if (this.lock == null || this.pendingRecords == 0) {
+            return;
+        }
+
+        // A segment only covers records which are on disk
+        this.records.force(false);
+
+        this.writeSegment(this.recordsLength, this.pendingKeys, null);
+
+        this.pendingKeys.clear();
+        this.pendingRecords = 0;
+
+        // Merge the newest segments once there are too many of them
+        if (this.segments.size() > this.mergeSegments) {
+            this.mergeSegments();
+        }
+    }
+
+    /**
+     * Write the keys of the records added since the last segment and close the index
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        // Later callers of the process open the index again
+        if (this.lock != null) {
+
+            synchronized (WRITERS) {
+                WRITERS.remove(this.indexFolder);
+            }
+        }
+
+        synchronized (this) {
+
+            // Check if the index has already been closed
+            if (!this.records.isOpen()) {
+                return;
+            }
+
+            try {
+                this.flush();
+            } finally {
+                this.closeChannels();
+            }
+        }
+    }
+
+    /**
+     * Read the records of records.log from the given offset, keeping their keys in memory
+     *
+     * @param offset Offset of the first record that needs to be read
+     * @throws IOException
+     */
+    private void readPendingRecords(long offset) throws IOException {
+
+        // Records are read from the last segment, and the records of a lost segment from the start of the file
+        long position = offset <= this.records.size() ? offset : 0;
+
+        this.recordsLength = position;
+
+        // Lines are split on their line feed byte, which never occurs within an encoded character
+        InputStream is = new BufferedInputStream(Channels.newInputStream(this.records.position(position)), 65536);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+
+        while ((b = is.read()) != -1) {
+
+            // Accumulate the bytes of the current line
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+
+            // Complete record
+            String[] fields = new String(line.toByteArray(), UTF_8).split("\t", -1);
+
+            if (fields.length == RECORD_FIELDS) {
+                this.addKeys(this.parseRecord(fields), this.recordsLength);
+                this.pendingRecords++;
+            }
+
+            this.recordsLength += line.size() + 1;
+            line.reset();
+        }
+    }
+
+    /**
+     * Keep the keys of a record in memory
+     *
+     * @param entry Record
+     * @param offset Offset of the record in records.log
+     */
+    private void addKeys(SmicIndexEntry entry, long offset) {
+
+        String[] values = new String[] {entry.getMissiveId(), entry.getMessageId(), entry.getSenderBic(),
+            entry.getSenderIban(), entry.getReceiverBic(), entry.getReceiverIban(), entry.getDate(),
+            entry.getInputDigest()};
+
+        // Offsets are written with a fixed width so that the keys of a value sort in the order of their records
+        String suffix = String.format("%016x", offset);
+
+        for (int i = 0; i < values.length; i++) {
+
+            // Fields which the missive does not state are not looked up
+            if (values[i].length() > 0) {
+                this.pendingKeys.add(FIELDS.get(i) + '\t' + values[i] + '\t' + suffix);
+            }
+        }
+    }
+
+    /**
+     * Build a record from the fields of its line
+     *
+     * @param fields Fields of the line of the record
+     * @return Record
+     */
+    private SmicIndexEntry parseRecord(String[] fields) {
+        return new SmicIndexEntry(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6],
+                fields[7], fields[8], fields[9], fields[10]);
+    }
+
+    /**
+     * Write the segment covering records.log up to the given length, replacing the segment which may already cover
+     * that length, from sorted keys or from the keys of merged segments
+     *
+     * @param length Length of records.log covered by the segment
+     * @param keys Keys of the segment in sorted order, or null to merge segments
+     * @param cursors Cursors over the merged segments, ordered by their current key, when keys is null
+     * @throws IOException
+     */
+    private void writeSegment(long length, TreeSet<String> keys, PriorityQueue<SegmentCursor> cursors) throws
+            IOException {
+
+        Path segmentPath = this.getPath(String.format("%016x", length) + SEGMENT_EXTENSION);
+        Path tempPath = this.getPath(segmentPath.getFileName() + TEMP_EXTENSION);
+
+        // Write the segment under a temporary name, synchronised to disk before it is given its name
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            OutputStream os = new BufferedOutputStream(Channels.newOutputStream(channel), 65536);
+
+            if (keys != null) {
+
+                for (String key : keys) {
+                    os.write(key.getBytes(UTF_8));
+                    os.write('\n');
+                }
+
+            } else {
+
+                // Smallest key of the merged segments, leaving out the keys of a record found in several segments
+                String lastKey = null;
+
+                while (!cursors.isEmpty()) {
+
+                    SegmentCursor cursor = cursors.poll();
+
+                    if (!cursor.key.equals(lastKey)) {
+                        os.write(cursor.key.getBytes(UTF_8));
+                        os.write('\n');
+                        lastKey = cursor.key;
+                    }
+
+                    // Move the cursor to its next key
+                    cursor.next();
+
+                    if (cursor.key != null) {
+                        cursors.add(cursor);
+                    }
+                }
+            }
+
+            os.flush();
+            channel.force(true);
+        }
+
+        Files.move(tempPath, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Lookups read the new segment
+        FileChannel replaced = this.segments.put(length, FileChannel.open(segmentPath, StandardOpenOption.READ));
+
+        if (replaced != null) {
+            replaced.close();
+        }
+    }
+
+    /**
+     * Merge the newest segments into one, starting from the oldest segment which is not larger than the newer
+     * segments together, so that segments are merged with segments of a similar size and the keys of a record are
+     * rewritten a number of times which only grows with the logarithm of the number of records
+     *
+     * @throws IOException
+     */
+    private void mergeSegments() throws IOException {
+
+        List<Long> lengths = new ArrayList<>(this.segments.keySet());
+
+        // Oldest segment of the merge, the two newest segments being merged at least
+        int first = lengths.size() - 2;
+        long newerSize = 0;
+
+        for (int i = lengths.size() - 1; i > 0; i--) {
+
+            newerSize += this.segments.get(lengths.get(i)).size();
+
+            if (this.segments.get(lengths.get(i - 1)).size() <= newerSize) {
+                first = i - 1;
+            }
+        }
+
+        List<Long> merged = lengths.subList(first, lengths.size());
+
+        // Cursors over the merged segments, ordered by their current key
+        PriorityQueue<SegmentCursor> cursors = new PriorityQueue<>();
+
+        for (long length : merged) {
+
+            SegmentCursor cursor = new SegmentCursor(this.segments.get(length));
+
+            if (cursor.key != null) {
+                cursors.add(cursor);
+            }
+        }
+
+        // The merged segment replaces the newest segment
+        this.writeSegment(merged.get(merged.size() - 1), null, cursors);
+
+        // Remove the older segments, whose keys are now in the merged segment
+        for (long length : new ArrayList<>(merged.subList(0, merged.size() - 1))) {
+
+            this.segments.remove(length).close();
+            Files.deleteIfExists(this.getPath(String.format("%016x", length) + SEGMENT_EXTENSION));
+        }
+    }
+
+    /**
+     * Close the files of the index and release the lock held on it
+     */
+    private void closeChannels() {
+
+        List<Closeable> channels = new ArrayList<Closeable>(this.segments.values());
+        channels.add(this.records);
+        channels.add(this.lockChannel);
+
+        for (Closeable channel : channels) {
+
+            try {
+
+                if (channel != null) {
+                    channel.close();
+                }
+
+            } catch (IOException ex) {
+                // Nothing else can be done with the file
+            }
+        }
+
+        this.segments.clear();
+    }
+
+    /**
+     * Get the path of a file of the index folder
+     *
+     * @param filename Name of the file
+     * @return Path of the file
+     */
+    private Path getPath(String filename) {
+        return Paths.get(this.indexFolder, filename);
+    }
+
+    /**
+     * Find the offsets of the records whose keys start with the given prefix in a segment, binary searching the
+     * segment for the first of them
+     *
+     * @param segment Segment file
+     * @param prefix Key and value of the keys looked up, followed by a tab
+     * @param offsets Offsets of the records found
+     * @throws IOException
+     */
+    private static void findOffsets(FileChannel segment, String prefix, TreeSet<Long> offsets) throws IOException {
+
+        // Narrow the search to a block starting at a line which sorts before the prefix, or at the start of the file
+        long low = 0;
+        long high = segment.size();
+
+        while (high - low > BLOCK_SIZE) {
+
+            long middle = (low + high) >>> 1;
+
+            // First line starting at or after the middle of the range
+            byte[] skipped = readLine(segment, middle - 1);
+            long start = middle - 1 + (skipped != null ? skipped.length + 1 : 0);
+            byte[] line = start < high ? readLine(segment, start) : null;
+
+            if (line != null && new String(line, UTF_8).compareTo(prefix) < 0) {
+                low = start + line.length + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        // Read the lines from the start of the block until the keys of the prefix have been passed
+        InputStream is = new BufferedInputStream(Channels.newInputStream(segment.position(low)), BLOCK_SIZE);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+
+        while ((b = is.read()) != -1) {
+
+            // Accumulate the bytes of the current line
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+
+            String key = new String(line.toByteArray(), UTF_8);
+            line.reset();
+
+            if (key.startsWith(prefix)) {
+                offsets.add(Long.parseLong(key.substring(prefix.length()), 16));
+            } else if (key.compareTo(prefix) > 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Read the line of a file starting at the given position
+     *
+     * @param channel File
+     * @param position Position of the first byte of the line
+     * @return Bytes of the line without its line feed, or null at the end of the file
+     * @throws IOException
+     */
+    private static byte[] readLine(FileChannel channel, long position) throws IOException {
+
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+
+        while (true) {
+
+            block.clear();
+            int read = channel.read(block, position);
+
+            if (read <= 0) {
+                return line.size() > 0 ? line.toByteArray() : null;
+            }
+
+            // Look for the end of the line in the block
+            for (int i = 0; i < read; i++) {
+
+                if (block.get(i) == '\n') {
+                    line.write(block.array(), 0, i);
+                    return line.toByteArray();
+                }
+            }
+
+            line.write(block.array(), 0, read);
+            position += read;
+        }
+    }
+
+    /**
+     * Replace the separators of the index found in a value
+     *
+     * @param value Value of a field
+     * @return Value without tabs or line breaks
+     */
+    private static String clean(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * The SegmentCursor class reads the keys of a segment in order while segments are merged
+     */
+    private static class SegmentCursor implements Comparable<SegmentCursor> {
+
+        private InputStream is;
+        private String key;
+        private ByteArrayOutputStream line;
+
+        /**
+         * SegmentCursor class constructor, reading the first key of the segment
+         *
+         * @param segment Segment file
+         * @throws IOException
+         */
+        private SegmentCursor(FileChannel segment) throws IOException {
+
+            // Initialise class attributes
+            this.is = new BufferedInputStream(Channels.newInputStream(segment.position(0)), 65536);
+            this.key = null;
+            this.line = new ByteArrayOutputStream();
+
+            this.next();
+        }
+
+        /**
+         * Read the next key of the segment
+         *
+         * @throws IOException
+         */
+        private void next() throws IOException {
+
+            int b;
+
+            while ((b = this.is.read()) != -1 && b != '\n') {
+                this.line.write(b);
+            }
+
+            this.key = b != -1 ? new String(this.line.toByteArray(), UTF_8) : null;
+            this.line.reset();
+        }
+
+        /**
+         * Order the cursors by their current key
+         *
+         * @param other Other cursor
+         * @return Negative if the key of the cursor sorts first, positive otherwise
+         */
+        @Override
+        public int compareTo(SegmentCursor other) {
+            return this.key.compareTo(other.key);
+        }
+    }
+}
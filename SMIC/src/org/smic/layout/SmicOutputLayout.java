@@ -0,0 +1,257 @@
+package org.smic.layout;
+
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The SmicOutputLayout class decides in which sub-folder of the output folder each resulting file is written, so that
+ * very large output volumes are spread over many folders instead of being dropped in a single one. The flat layout
+ * keeps every file in the output folder itself; the hash layout fans files out over folders named after the first
+ * characters of an MD5 digest of their name; the date layout groups files by the day they are written; the msvid
+ * layout groups the files of each missive in a folder named after its MsvId, itself fanned out like the hash layout.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicOutputLayout {
+
+    /**
+     * Every resulting file is written in the output folder itself
+     */
+    public static final String LAYOUT_FLAT = "flat";
+
+    /**
+     * Resulting files are fanned out over folders named after a digest of their name
+     */
+    public static final String LAYOUT_HASH = "hash";
+
+    /**
+     * Resulting files are grouped by the day they are written
+     */
+    public static final String LAYOUT_DATE = "date";
+
+    /**
+     * Resulting files are grouped by the MsvId of their missive
+     */
+    public static final String LAYOUT_MSVID = "msvid";
+
+    /**
+     * Default number of folder levels of the hash and msvid layouts, each level holding at most 256 folders
+     */
+    public static final int DEFAULT_DEPTH = 2;
+
+    private static final String MISSIVE_ID_TAG = "MsvId";
+    private static final String UNKNOWN_MISSIVE_ID = "_";
+
+    private int depth;
+    private XMLInputFactory inputFactory;
+    private String layout;
+
+    /**
+     * SmicOutputLayout class constructor
+     *
+     * @param layout Name of the layout: flat, hash, date or msvid
+     * @param depth Number of folder levels of the hash and msvid layouts
+     * @throws IllegalArgumentException
+     */
+    public SmicOutputLayout(String layout, int depth) {
+
+        // Check the name of the layout
+        if (!layout.equals(LAYOUT_FLAT) && !layout.equals(LAYOUT_HASH) && !layout.equals(LAYOUT_DATE) &&
+                !layout.equals(LAYOUT_MSVID)) {
+            throw new IllegalArgumentException("Unknown output layout " + layout + ".");
+        }
+
+        // Each level uses two hexadecimal characters of the 32 characters of the digest
+        if (depth < 1 || depth > 16) {
+            throw new IllegalArgumentException("Invalid output layout depth " + depth + ".");
+        }
+
+        // Initialise class attributes
+        this.depth = depth;
+        this.layout = layout;
+
+        // Streaming parser factory which does not resolve external entities
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    }
+
+    /**
+     * Get the name of the layout
+     *
+     * @return Name of the layout
+     */
+    public String getLayout() {
+        return this.layout;
+    }
+
+    /**
+     * Check if the layout needs the MsvId of the missive to place a resulting file
+     *
+     * @return Whether the layout depends on the MsvId
+     */
+    public boolean needsMissiveId() {
+        return this.layout.equals(LAYOUT_MSVID);
+    }
+
+    /**
+     * Get the path of a resulting file relative to the output folder
+     *
+     * @param filename Name of the resulting file
+     * @param missiveId MsvId of the missive, or null if it is unknown
+     * @return Path of the resulting file relative to the output folder
+     */
+    public String resolve(String filename, String missiveId) {
+        return this.resolve(filename, missiveId, System.currentTimeMillis());
+    }
+
+    /**
+     * Get the path of a resulting file written at the given time relative to the output folder
+     *
+     * @param filename Name of the resulting file
+     * @param missiveId MsvId of the missive, or null if it is unknown
+     * @param time Time at which the file was written, in milliseconds since the epoch
+     * @return Path of the resulting file relative to the output folder
+     */
+    public String resolve(String filename, String missiveId, long time) {
+
+        // Sub-folder of the resulting file
+        String folder = this.getFolder(filename, missiveId, time);
+
+        // The flat layout writes in the output folder itself
+        if (folder.length() == 0) {
+            return filename;
+        }
+
+        return folder + System.getProperty("file.separator") + filename;
+    }
+
+    /**
+     * Get the sub-folder of the output folder in which a resulting file is written
+     *
+     * @param filename Name of the resulting file
+     * @param missiveId MsvId of the missive, or null if it is unknown
+     * @param time Time at which the file was written, in milliseconds since the epoch
+     * @return Sub-folder relative to the output folder, empty for the flat layout
+     */
+    private String getFolder(String filename, String missiveId, long time) {
+
+        String separator = System.getProperty("file.separator");
+
+        switch (this.layout) {
+
+            case LAYOUT_HASH:
+                return this.getFanOut(filename);
+
+            case LAYOUT_DATE:
+                return new SimpleDateFormat("yyyy" + separator + "MM" + separator + "dd").format(new Date(time));
+
+            case LAYOUT_MSVID:
+
+                // Keep the characters of the MsvId which are safe in a folder name
+                String folder = missiveId == null ? "" : missiveId.trim().replaceAll("[^A-Za-z0-9._-]", "_");
+
+                if (folder.length() == 0 || folder.startsWith(".")) {
+                    folder = UNKNOWN_MISSIVE_ID + folder;
+                }
+
+                return this.getFanOut(folder) + separator + folder;
+
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Get the folders over which files are fanned out for the given name
+     *
+     * @param name Name whose digest gives the folders
+     * @return Folders, one level per pair of hexadecimal characters of the digest
+     */
+    private String getFanOut(String name) {
+
+        String digest = DigestUtils.md5Hex(name);
+        StringBuilder folder = new StringBuilder();
+
+        for (int i = 0; i < this.depth; i++) {
+
+            if (i > 0) {
+                folder.append(System.getProperty("file.separator"));
+            }
+
+            folder.append(digest, i * 2, i * 2 + 2);
+        }
+
+        return folder.toString();
+    }
+
+    /**
+     * Get the MsvId of a missive XML document object
+     *
+     * @param missive Missive XML document object
+     * @return MsvId of the missive or null if the missive does not have one
+     */
+    public static String getMissiveId(Document missive) {
+
+        // Elements of the missive in document order, whatever their prefix
+        NodeList elements = missive.getElementsByTagName("*");
+
+        for (int i = 0; i < elements.getLength(); i++) {
+
+            Node element = elements.item(i);
+
+            if (isMissiveIdTag(element.getNodeName())) {
+                return element.getTextContent().trim();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Stream a missive XML document until its MsvId is found
+     *
+     * @param missive Missive XML document
+     * @return MsvId of the missive or null if the missive does not have one
+     * @throws XMLStreamException
+     */
+    public String readMissiveId(InputStream missive) throws XMLStreamException {
+
+        XMLStreamReader reader = this.inputFactory.createXMLStreamReader(missive);
+
+        try {
+
+            // Scan the elements of the missive
+            while (reader.hasNext()) {
+
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && isMissiveIdTag(reader.getLocalName())) {
+                    return reader.getElementText().trim();
+                }
+            }
+
+        } finally {
+            reader.close();
+        }
+
+        return null;
+    }
+
+    /**
+     * Check if the name of an element is the MsvId tag, whatever its prefix
+     *
+     * @param name Qualified or local name of the element
+     * @return Whether the element holds the MsvId of the missive
+     */
+    public static boolean isMissiveIdTag(String name) {
+        return name.equals(MISSIVE_ID_TAG) || name.endsWith(":" + MISSIVE_ID_TAG);
+    }
+}
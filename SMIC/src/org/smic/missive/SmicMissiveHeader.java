@@ -0,0 +1,157 @@
+package org.smic.missive;
+
+/**
+ * The SmicMissiveHeader class holds the fields of the header of a missive which decide how the missive is routed and
+ * handled, read without converting the missive. Instances are immutable.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public final class SmicMissiveHeader {
+
+    /**
+     * Priority of a missive which does not state its priority
+     */
+    public static final String PRIORITY_NORMAL = "NORMAL";
+
+    private final String messageId;
+    private final String messageType;
+    private final String missiveId;
+    private final String missiveType;
+    private final String priority;
+    private final String receiverBic;
+    private final String receiverIban;
+    private final String senderBic;
+    private final String senderIban;
+    private final String sendDateTime;
+
+    /**
+     * SmicMissiveHeader class constructor for a missive whose header is unknown
+     */
+    public SmicMissiveHeader() {
+
+        // Default values of every field
+        this(null, null, null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * SmicMissiveHeader class constructor, fields which the missive does not state being given as null
+     *
+     * @param missiveId Identifier of the missive (MsvId)
+     * @param missiveType Type of the missive (MsvTyp)
+     * @param priority Priority of the missive (MsvPri), NORMAL if the missive does not state it
+     * @param senderBic BIC of the sender of the missive (Snd/BIC)
+     * @param senderIban IBAN of the sender of the missive (Snd/IBAN)
+     * @param sendDateTime Date and time at which the missive was sent (MsvHdr/SndDtTm)
+     * @param receiverBic BIC of the receiver of the missive (Rcv/BIC)
+     * @param receiverIban IBAN of the receiver of the missive (Rcv/IBAN)
+     * @param messageId Identifier of the message carried by the missive (MsgHdr/MsgId)
+     * @param messageType Type of the message carried by the missive (MsgHdr/MsgTyp)
+     */
+    public SmicMissiveHeader(String missiveId, String missiveType, String priority, String senderBic,
+            String senderIban, String sendDateTime, String receiverBic, String receiverIban, String messageId,
+            String messageType) {
+
+        // Initialise class attributes, unknown fields being empty strings
+        this.messageId = messageId != null ? messageId : "";
+        this.messageType = messageType != null ? messageType : "";
+        this.missiveId = missiveId != null ? missiveId : "";
+        this.missiveType = missiveType != null ? missiveType : "";
+        this.priority = priority != null && priority.length() > 0 ? priority : PRIORITY_NORMAL;
+        this.receiverBic = receiverBic != null ? receiverBic : "";
+        this.receiverIban = receiverIban != null ? receiverIban : "";
+        this.senderBic = senderBic != null ? senderBic : "";
+        this.senderIban = senderIban != null ? senderIban : "";
+        this.sendDateTime = sendDateTime != null ? sendDateTime : "";
+    }
+
+    /**
+     * Get the identifier of the missive
+     *
+     * @return MsvId of the missive or an empty string if it is unknown
+     */
+    public String getMissiveId() {
+        return this.missiveId;
+    }
+
+    /**
+     * Get the type of the missive
+     *
+     * @return MsvTyp of the missive, such as Nominal, or an empty string if it is unknown
+     */
+    public String getMissiveType() {
+        return this.missiveType;
+    }
+
+    /**
+     * Get the priority of the missive
+     *
+     * @return Priority of the missive, such as NORMAL or HIGH
+     */
+    public String getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Get the BIC of the sender of the missive
+     *
+     * @return BIC of the sender or an empty string if it is unknown
+     */
+    public String getSenderBic() {
+        return this.senderBic;
+    }
+
+    /**
+     * Get the IBAN of the sender of the missive
+     *
+     * @return IBAN of the sender or an empty string if it is unknown
+     */
+    public String getSenderIban() {
+        return this.senderIban;
+    }
+
+    /**
+     * Get the date and time at which the missive was sent
+     *
+     * @return SndDtTm of the missive, such as 2012-01-31T20:00:00, or an empty string if it is unknown
+     */
+    public String getSendDateTime() {
+        return this.sendDateTime;
+    }
+
+    /**
+     * Get the BIC of the receiver of the missive
+     *
+     * @return BIC of the receiver or an empty string if it is unknown
+     */
+    public String getReceiverBic() {
+        return this.receiverBic;
+    }
+
+    /**
+     * Get the IBAN of the receiver of the missive
+     *
+     * @return IBAN of the receiver or an empty string if it is unknown
+     */
+    public String getReceiverIban() {
+        return this.receiverIban;
+    }
+
+    /**
+     * Get the identifier of the message carried by the missive
+     *
+     * @return MsgId of the message or an empty string if it is unknown
+     */
+    public String getMessageId() {
+        return this.messageId;
+    }
+
+    /**
+     * Get the type of the message carried by the missive
+     *
+     * @return MsgTyp of the message, such as activation.request@payment.activation, or an empty string if it is unknown
+     */
+    public String getMessageType() {
+        return this.messageType;
+    }
+}
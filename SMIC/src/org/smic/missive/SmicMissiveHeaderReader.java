@@ -0,0 +1,122 @@
+package org.smic.missive;
+
+import java.io.InputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The SmicMissiveHeaderReader class streams the header of a missive XML document, and the header of the message it
+ * carries, stopping at the body of the message so that the encoded document it carries is never read.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicMissiveHeaderReader {
+
+    private static final String BIC_TAG = "BIC";
+    private static final String DOCUMENT_TAG = "Document";
+    private static final String IBAN_TAG = "IBAN";
+    private static final String MESSAGE_BODY_TAG = "MsgBdy";
+    private static final String MESSAGE_ID_TAG = "MsgId";
+    private static final String MESSAGE_TYPE_TAG = "MsgTyp";
+    private static final String MISSIVE_ID_TAG = "MsvId";
+    private static final String MISSIVE_TYPE_TAG = "MsvTyp";
+    private static final String PRIORITY_TAG = "MsvPri";
+    private static final String RECEIVER_TAG = "Rcv";
+    private static final String SEND_DATE_TIME_TAG = "SndDtTm";
+    private static final String SENDER_TAG = "Snd";
+
+    private XMLInputFactory inputFactory;
+
+    /**
+     * SmicMissiveHeaderReader class constructor
+     */
+    public SmicMissiveHeaderReader() {
+
+        // Streaming parser factory which does not resolve external entities
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    }
+
+    /**
+     * Stream a missive XML document until the end of the header of its message
+     *
+     * @param missive Missive XML document
+     * @return Header of the missive
+     * @throws XMLStreamException
+     */
+    public SmicMissiveHeader read(InputStream missive) throws XMLStreamException {
+
+        XMLStreamReader reader = this.inputFactory.createXMLStreamReader(missive);
+
+        String missiveId = null;
+        String missiveType = null;
+        String priority = null;
+        String senderBic = null;
+        String senderIban = null;
+        String sendDateTime = null;
+        String receiverBic = null;
+        String receiverIban = null;
+        String messageId = null;
+        String messageType = null;
+
+        // Party of the missive whose identifiers are being read, sender or receiver
+        String party = null;
+
+        try {
+
+            // Scan the elements of the headers, whatever their prefix
+            while (reader.hasNext()) {
+
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(party)) {
+                    party = null;
+                }
+
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String name = reader.getLocalName();
+
+                // The body of the message and the Document object hold the encoded document, which is not needed
+                if (name.equals(MESSAGE_BODY_TAG) || name.equals(DOCUMENT_TAG)) {
+                    break;
+                }
+
+                if (name.equals(SENDER_TAG) || name.equals(RECEIVER_TAG)) {
+                    party = name;
+                } else if (name.equals(MISSIVE_ID_TAG) && missiveId == null) {
+                    missiveId = reader.getElementText().trim();
+                } else if (name.equals(MISSIVE_TYPE_TAG) && missiveType == null) {
+                    missiveType = reader.getElementText().trim();
+                } else if (name.equals(PRIORITY_TAG) && priority == null) {
+                    priority = reader.getElementText().trim();
+                } else if (name.equals(SEND_DATE_TIME_TAG) && sendDateTime == null) {
+                    sendDateTime = reader.getElementText().trim();
+                } else if (name.equals(MESSAGE_ID_TAG) && messageId == null) {
+                    messageId = reader.getElementText().trim();
+                } else if (name.equals(MESSAGE_TYPE_TAG) && messageType == null) {
+                    messageType = reader.getElementText().trim();
+                } else if (SENDER_TAG.equals(party) && name.equals(BIC_TAG)) {
+                    senderBic = reader.getElementText().trim();
+                } else if (SENDER_TAG.equals(party) && name.equals(IBAN_TAG)) {
+                    senderIban = reader.getElementText().trim();
+                } else if (RECEIVER_TAG.equals(party) && name.equals(BIC_TAG)) {
+                    receiverBic = reader.getElementText().trim();
+                } else if (RECEIVER_TAG.equals(party) && name.equals(IBAN_TAG)) {
+                    receiverIban = reader.getElementText().trim();
+                }
+            }
+
+        } finally {
+            reader.close();
+        }
+
+        return new SmicMissiveHeader(missiveId, missiveType, priority, senderBic, senderIban, sendDateTime,
+                receiverBic, receiverIban, messageId, messageType);
+    }
+}
@@ -0,0 +1,17 @@
+package org.smic.monitoring;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The SmicConversionEvent class is the Java Flight Recorder event emitted around a complete SMIC conversion.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+@Name("org.smic.Conversion")
+@Label("SMIC Conversion")
+@StackTrace(false)
+class SmicConversionEvent extends SmicEvent {
+}
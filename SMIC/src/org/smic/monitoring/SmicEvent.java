@@ -0,0 +1,38 @@
+package org.smic.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The SmicEvent class is the base of the Java Flight Recorder events emitted by the SMIC module. It holds the fields
+ * that are common to the whole conversion and to each of its stages.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+@Category("SMIC")
+abstract class SmicEvent extends Event {
+
+    @Label("Direction")
+    @Description("Direction of the conversion, pdf2xml or xml2pdf")
+    String direction;
+
+    @Label("Input File")
+    @Description("Name of the file being converted")
+    String filename;
+
+    @Label("Input Size")
+    @DataAmount
+    long inputSize;
+
+    @Label("Output Size")
+    @DataAmount
+    long outputSize;
+
+    @Label("Outcome")
+    @Description("success, or the name of the exception which interrupted the conversion")
+    String outcome;
+}
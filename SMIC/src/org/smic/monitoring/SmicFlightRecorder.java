@@ -0,0 +1,130 @@
+package org.smic.monitoring;
+
+/**
+ * The SmicFlightRecorder class is the stage recorder which emits Java Flight Recorder events. It is only loaded once
+ * the flight recorder API has been found in the running JVM.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+class SmicFlightRecorder extends SmicStageRecorder {
+
+    private SmicEvent event;
+    private boolean successful;
+
+    /**
+     * SmicFlightRecorder class constructor
+     * 
+     * @param event Flight recorder event that has already been started
+     */
+    private SmicFlightRecorder(SmicEvent event) {
+
+        // Initialise class attributes
+        this.event = event;
+        this.successful = false;
+    }
+
+    /**
+     * Start recording a stage of a conversion
+     * 
+     * @param direction Direction of the conversion
+     * @param stage Name of the stage
+     * @param filename Path and name of the file being converted
+     * @param disabled Recorder to return when the stage event is not enabled
+     * @return Recorder of the stage
+     */
+    static SmicStageRecorder beginStage(String direction, String stage, String filename, SmicStageRecorder disabled) {
+
+        // Stage event
+        SmicStageEvent stageEvent = new SmicStageEvent();
+
+        // Check if a recording is interested in the event
+        if (!stageEvent.isEnabled()) {
+            return disabled;
+        }
+
+        // Event values
+        stageEvent.direction = direction;
+        stageEvent.stage = stage;
+        stageEvent.filename = filename;
+
+        // Start timing the stage
+        stageEvent.begin();
+
+        return new SmicFlightRecorder(stageEvent);
+    }
+
+    /**
+     * Start recording a complete conversion
+     * 
+     * @param direction Direction of the conversion
+     * @param filename Path and name of the file being converted
+     * @param disabled Recorder to return when the conversion event is not enabled
+     * @return Recorder of the conversion
+     */
+    static SmicStageRecorder beginConversion(String direction, String filename, SmicStageRecorder disabled) {
+
+        // Conversion event
+        SmicConversionEvent conversionEvent = new SmicConversionEvent();
+
+        // Check if a recording is interested in the event
+        if (!conversionEvent.isEnabled()) {
+            return disabled;
+        }
+
+        // Event values
+        conversionEvent.direction = direction;
+        conversionEvent.filename = filename;
+
+        // Start timing the conversion
+        conversionEvent.begin();
+
+        return new SmicFlightRecorder(conversionEvent);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void setInputSize(long inputSize) {
+        this.event.inputSize = inputSize;
+    }
+
+    @Override
+    public void setOutputSize(long outputSize) {
+        this.event.outputSize = outputSize;
+    }
+
+    @Override
+    public void success() {
+        this.successful = true;
+    }
+
+    @Override
+    public void failure(Throwable ex) {
+
+        // Record the exception which interrupted the stage
+        this.successful = false;
+        this.event.outcome = ex.getClass().getSimpleName();
+    }
+
+    @Override
+    public void end() {
+
+        // Set the outcome of the stage if it has not been set by a failure
+        if (this.successful) {
+            this.event.outcome = "success";
+        } else if (this.event.outcome == null) {
+            this.event.outcome = "failure";
+        }
+
+        // Stop timing and emit the event if it passes the recording thresholds
+        this.event.end();
+
+        if (this.event.shouldCommit()) {
+            this.event.commit();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.smic.monitoring;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The SmicStageEvent class is the Java Flight Recorder event emitted around each stage of a SMIC conversion.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+@Name("org.smic.Stage")
+@Label("SMIC Conversion Stage")
+@StackTrace(false)
+class SmicStageEvent extends SmicEvent {
+
+    @Label("Stage")
+    String stage;
+}
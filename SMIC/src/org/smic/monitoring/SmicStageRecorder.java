@@ -0,0 +1,132 @@
+package org.smic.monitoring;
+
+/**
+ * The SmicStageRecorder class records the stages of a SMIC conversion as Java Flight Recorder events. When the running
+ * JVM has no flight recorder, or when no recording has enabled the SMIC events, a shared recorder which does nothing is
+ * handed out so that instrumented code costs no more than a method call.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicStageRecorder {
+
+    /**
+     * Direction of a conversion from a PDF document to a missive XML document
+     */
+    public static final String PDF_TO_XML = "pdf2xml";
+
+    /**
+     * Direction of a conversion from a missive XML document to a PDF document
+     */
+    public static final String XML_TO_PDF = "xml2pdf";
+
+    private static final boolean FLIGHT_RECORDER_AVAILABLE = isFlightRecorderAvailable();
+    private static final SmicStageRecorder DISABLED = new SmicStageRecorder();
+
+    /**
+     * SmicStageRecorder class constructor
+     */
+    protected SmicStageRecorder() {
+    }
+
+    /**
+     * Start recording a stage of a conversion
+     * 
+     * @param direction Direction of the conversion
+     * @param stage Name of the stage
+     * @param filename Path and name of the file being converted
+     * @return Recorder of the stage
+     */
+    public static SmicStageRecorder beginStage(String direction, String stage, String filename) {
+
+        // Check if events can be recorded
+        if (FLIGHT_RECORDER_AVAILABLE) {
+            return SmicFlightRecorder.beginStage(direction, stage, filename, DISABLED);
+        }
+
+        return DISABLED;
+    }
+
+    /**
+     * Start recording a complete conversion
+     * 
+     * @param direction Direction of the conversion
+     * @param filename Path and name of the file being converted
+     * @return Recorder of the conversion
+     */
+    public static SmicStageRecorder beginConversion(String direction, String filename) {
+
+        // Check if events can be recorded
+        if (FLIGHT_RECORDER_AVAILABLE) {
+            return SmicFlightRecorder.beginConversion(direction, filename, DISABLED);
+        }
+
+        return DISABLED;
+    }
+
+    /**
+     * Check whether the recorder will emit an event, so that callers can skip computing expensive sizes
+     * 
+     * @return Whether the recorder will emit an event
+     */
+    public boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Set the size of the payload consumed by the stage
+     * 
+     * @param inputSize Size in bytes or characters of the stage input
+     */
+    public void setInputSize(long inputSize) {
+    }
+
+    /**
+     * Set the size of the payload produced by the stage
+     * 
+     * @param outputSize Size in bytes or characters of the stage output
+     */
+    public void setOutputSize(long outputSize) {
+    }
+
+    /**
+     * Mark the stage as successful
+     */
+    public void success() {
+    }
+
+    /**
+     * Mark the stage as failed with the given exception
+     * 
+     * @param ex Exception which interrupted the stage
+     */
+    public void failure(Throwable ex) {
+    }
+
+    /**
+     * End the stage and emit its event. A stage which has not been marked as successful is reported as failed.
+     */
+    public void end() {
+    }
+
+    /**
+     * Check if the flight recorder API is available in the running JVM
+     * 
+     * @return Whether the flight recorder API is available
+     */
+    private static boolean isFlightRecorderAvailable() {
+
+        try {
+
+            // Try to load the flight recorder event base class
+            Class.forName("jdk.jfr.Event");
+
+            return true;
+
+        } catch (ClassNotFoundException | LinkageError ex) {
+
+            // Flight recorder is not available in this JVM
+            return false;
+        }
+    }
+}
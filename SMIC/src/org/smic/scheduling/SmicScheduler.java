@@ -0,0 +1,362 @@
+package org.smic.scheduling;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.smic.Smic;
+import org.smic.missive.SmicMissiveHeader;
+
+/**
+ * The SmicScheduler class queues conversions in front of the SMIC module and runs them on a fixed number of threads in
+ * an order driven by the header of each missive, read when the conversion is submitted. Missives of a higher priority
+ * (MsvPri) always run first. Within a priority, the senders (Snd/BIC) with waiting missives share the threads fairly,
+ * the next missive coming from the sender which has been served the fewest bytes, so that a sender submitting a bulk
+ * of missives does not hold back the others. The missives of a sender run shortest first.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicScheduler {
+
+    /**
+     * Priorities of missives known to the scheduler, from the most urgent; other priorities are handled as NORMAL
+     */
+    public static final List<String> PRIORITIES = Arrays.asList("URGENT", "HIGH", SmicMissiveHeader.PRIORITY_NORMAL,
+            "LOW");
+
+    private Level[] levels;
+    private long queued;
+    private long sequence;
+    private boolean shutdown;
+    private Smic smic;
+    private Thread[] threads;
+
+    /**
+     * SmicScheduler class constructor, starting the threads running the conversions
+     *
+     * @param smic SMIC module instance running the conversions
+     * @param threads Number of conversions running at the same time
+     */
+    public SmicScheduler(Smic smic, int threads) {
+
+        // Initialise class attributes
+        this.levels = new Level[PRIORITIES.size()];
+        this.queued = 0;
+        this.sequence = 0;
+        this.shutdown = false;
+        this.smic = smic;
+        this.threads = new Thread[Math.max(1, threads)];
+
+        for (int i = 0; i < this.levels.length; i++) {
+            this.levels[i] = new Level();
+        }
+
+        // Start the threads running the conversions
+        for (int i = 0; i < this.threads.length; i++) {
+
+            this.threads[i] = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    runJobs();
+                }
+            }, "smic-scheduler-" + i);
+
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * Queue the conversion of a missive XML document to PDF or of a PDF document to missive XML, the direction being
+     * given by the extension of the file
+     *
+     * @param filename Path and name of the file that needs to be converted
+     * @return Result of the conversion, giving the path and name of the resulting file
+     * @throws java.io.FileNotFoundException
+     * @throws IOException
+     * @throws RejectedExecutionException
+     */
+    public Future<String> submit(final String filename) throws IOException {
+
+        // Size of the file, the missives of a sender running shortest first
+        long size = this.smic.getInputStorage().size(filename);
+
+        // Priority and sender of the missive, a missive whose header cannot be read being converted, and reported as
+        // failed, with the default priority
+        SmicMissiveHeader header;
+
+        try {
+            header = this.smic.peekMissive(Paths.get(filename));
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            header = null;
+        }
+
+        if (header == null) {
+            header = new SmicMissiveHeader();
+        }
+
+        // Conversion in the direction given by the extension of the file
+        Job job = new Job(new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+
+                if (filename.toLowerCase().endsWith(".pdf")) {
+                    return smic.smicPdf2Xml(filename);
+                }
+
+                return smic.smicXml2Pdf(filename);
+            }
+        }, size);
+
+        // Queue the conversion with the missives of the same priority and sender
+        synchronized (this.levels) {
+
+            if (this.shutdown) {
+                throw new RejectedExecutionException("The scheduler has been shut down.");
+            }
+
+            job.sequence = this.sequence++;
+
+            int rank = PRIORITIES.indexOf(header.getPriority().toUpperCase());
+            Level level = this.levels[rank >= 0 ? rank : PRIORITIES.indexOf(SmicMissiveHeader.PRIORITY_NORMAL)];
+
+            SenderQueue senderQueue = level.senders.get(header.getSenderBic());
+
+            if (senderQueue == null) {
+
+                // A sender starts at the service of the level so that an idle period does not give it precedence
+                senderQueue = new SenderQueue(level.virtualTime);
+                level.senders.put(header.getSenderBic(), senderQueue);
+            }
+
+            senderQueue.jobs.add(job);
+            this.queued++;
+
+            this.levels.notify();
+        }
+
+        return job;
+    }
+
+    /**
+     * Get the number of conversions waiting for a thread
+     *
+     * @return Number of queued conversions
+     */
+    public long getQueued() {
+
+        synchronized (this.levels) {
+            return this.queued;
+        }
+    }
+
+    /**
+     * Stop accepting conversions, the conversions already queued still being run
+     */
+    public void shutdown() {
+
+        synchronized (this.levels) {
+            this.shutdown = true;
+            this.levels.notifyAll();
+        }
+    }
+
+    /**
+     * Wait for the queued conversions to complete after the scheduler has been shut down
+     *
+     * @param timeout Maximum time to wait
+     * @param unit Unit of the timeout
+     * @return Whether every thread has completed
+     * @throws InterruptedException
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        for (Thread thread : this.threads) {
+
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Run the queued conversions until the scheduler is shut down and its queue is empty
+     */
+    private void runJobs() {
+
+        while (true) {
+
+            Job job;
+
+            try {
+                job = this.takeJob();
+            } catch (InterruptedException ex) {
+                return;
+            }
+
+            if (job == null) {
+                return;
+            }
+
+            // The outcome of the conversion is given by its future
+            job.run();
+        }
+    }
+
+    /**
+     * Take the next conversion: the shortest missive of the least served sender of the highest priority
+     *
+     * @return Next conversion or null if the scheduler has been shut down and its queue is empty
+     * @throws InterruptedException
+     */
+    private Job takeJob() throws InterruptedException {
+
+        synchronized (this.levels) {
+
+            // Wait for a conversion
+            while (this.queued == 0) {
+
+                if (this.shutdown) {
+                    return null;
+                }
+
+                this.levels.wait();
+            }
+
+            // Highest priority with waiting conversions
+            for (Level level : this.levels) {
+
+                if (level.senders.isEmpty()) {
+                    continue;
+                }
+
+                // Sender which has been served the fewest bytes, the oldest missive winning ties
+                Map.Entry<String, SenderQueue> next = null;
+
+                for (Map.Entry<String, SenderQueue> sender : level.senders.entrySet()) {
+
+                    if (next == null || sender.getValue().servedBytes < next.getValue().servedBytes ||
+                            (sender.getValue().servedBytes == next.getValue().servedBytes &&
+                            sender.getValue().jobs.peek().sequence < next.getValue().jobs.peek().sequence)) {
+                        next = sender;
+                    }
+                }
+
+                SenderQueue senderQueue = next.getValue();
+                Job job = senderQueue.jobs.poll();
+
+                // Charge the sender with the size of the missive
+                level.virtualTime = senderQueue.servedBytes;
+                senderQueue.servedBytes += job.size;
+
+                if (senderQueue.jobs.isEmpty()) {
+                    level.senders.remove(next.getKey());
+                }
+
+                this.queued--;
+
+                return job;
+            }
+
+            // Not reached while conversions are queued
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * The Job class is a queued conversion
+     */
+    private static class Job extends FutureTask<String> implements Comparable<Job> {
+
+        private long sequence;
+        private long size;
+
+        /**
+         * Job class constructor
+         *
+         * @param conversion Conversion of the file
+         * @param size Size of the file in bytes
+         */
+        private Job(Callable<String> conversion, long size) {
+
+            // Initialise class attributes
+            super(conversion);
+            this.sequence = 0;
+            this.size = size;
+        }
+
+        /**
+         * Order the missives of a sender, shortest first and then in order of submission
+         *
+         * @param other Other missive of the sender
+         * @return Negative if the missive runs first, positive otherwise
+         */
+        @Override
+        public int compareTo(Job other) {
+
+            if (this.size != other.size) {
+                return this.size < other.size ? -1 : 1;
+            }
+
+            return this.sequence < other.sequence ? -1 : (this.sequence > other.sequence ? 1 : 0);
+        }
+    }
+
+    /**
+     * The Level class holds the senders with conversions waiting at a priority
+     */
+    private static class Level {
+
+        private HashMap<String, SenderQueue> senders;
+        private long virtualTime;
+
+        /**
+         * Level class constructor
+         */
+        private Level() {
+
+            // Initialise class attributes
+            this.senders = new HashMap<>();
+            this.virtualTime = 0;
+        }
+    }
+
+    /**
+     * The SenderQueue class holds the conversions of a sender waiting at a priority
+     */
+    private static class SenderQueue {
+
+        private PriorityQueue<Job> jobs;
+        private long servedBytes;
+
+        /**
+         * SenderQueue class constructor
+         *
+         * @param servedBytes Number of bytes the sender starts with
+         */
+        private SenderQueue(long servedBytes) {
+
+            // Initialise class attributes
+            this.jobs = new PriorityQueue<>();
+            this.servedBytes = servedBytes;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.smic.storage;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.smic.utils.SmicChannelInputStream;
+import org.smic.utils.SmicOutputWriter;
+
+/**
+ * The SmicLocalStorage class stores files on the local file system, the name of a file being its path. Files are read
+ * through pooled buffers or mapped pages and written through an output writer, which renames them atomically once
+ * complete and optionally synchronises them to disk.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicLocalStorage implements SmicStorage {
+
+    private SmicOutputWriter outputWriter;
+
+    /**
+     * SmicLocalStorage class constructor
+     *
+     * @param outputWriter Writer of the files created in the storage
+     */
+    public SmicLocalStorage(SmicOutputWriter outputWriter) {
+
+        // Initialise class attributes
+        this.outputWriter = outputWriter;
+    }
+
+    /**
+     * Open a file for reading
+     *
+     * @param name Path and name of the file
+     * @return Input stream over the content of the file
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    @Override
+    public InputStream open(String name) throws IOException {
+
+        // Check if the file exists
+        if (!new File(name).isFile()) {
+            throw new FileNotFoundException("The specified source file, " + name + ", was not found.");
+        }
+
+        return new SmicChannelInputStream(name);
+    }
+
+    /**
+     * Create a file, creating its folders if required
+     *
+     * @param name Path and name of the file
+     * @return Output which must be committed to make the file visible
+     * @throws IOException
+     */
+    @Override
+    public SmicStorageOutput create(String name) throws IOException {
+
+        // Folder of the file
+        Path folder = Paths.get(name).toAbsolutePath().getParent();
+
+        if (folder != null) {
+            Files.createDirectories(folder);
+        }
+
+        return this.outputWriter.open(name);
+    }
+
+    /**
+     * Delete a file
+     *
+     * @param name Path and name of the file
+     * @return Whether the file existed
+     * @throws IOException
+     */
+    @Override
+    public boolean delete(String name) throws IOException {
+        return Files.deleteIfExists(Paths.get(name));
+    }
+
+    /**
+     * Check if a file exists
+     *
+     * @param name Path and name of the file
+     * @return Whether the file exists
+     */
+    @Override
+    public boolean exists(String name) {
+        return new File(name).isFile();
+    }
+
+    /**
+     * Get the size of a file
+     *
+     * @param name Path and name of the file
+     * @return Size of the file in bytes
+     * @throws FileNotFoundException
+     */
+    @Override
+    public long size(String name) throws FileNotFoundException {
+
+        File file = new File(name);
+
+        // Check if the file exists
+        if (!file.isFile()) {
+            throw new FileNotFoundException("The specified source file, " + name + ", was not found.");
+        }
+
+        return file.length();
+    }
+
+    /**
+     * Get the local file holding the content of a file
+     *
+     * @param name Path and name of the file
+     * @return Local file
+     */
+    @Override
+    public File getLocalFile(String name) {
+        return new File(name);
+    }
+
+    /**
+     * Get the writer of the files created in the storage
+     *
+     * @return Output writer
+     */
+    public SmicOutputWriter getOutputWriter() {
+        return this.outputWriter;
+    }
+}
@@ -0,0 +1,205 @@
+package org.smic.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+
+/**
+ * The SmicMemoryStorage class holds files in memory, for tests and for deployments which exchange small files with the
+ * SMIC module without going through a file system. Committing a file publishes its whole content at once.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicMemoryStorage implements SmicStorage {
+
+    private ConcurrentHashMap<String, byte[]> files;
+
+    /**
+     * SmicMemoryStorage class constructor
+     */
+    public SmicMemoryStorage() {
+
+        // Initialise class attributes
+        this.files = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Add a file to the storage
+     *
+     * @param name Name of the file
+     * @param content Content of the file
+     */
+    public void put(String name, byte[] content) {
+        this.files.put(name, content);
+    }
+
+    /**
+     * Get the content of a file
+     *
+     * @param name Name of the file
+     * @return Content of the file or null if the file does not exist
+     */
+    public byte[] get(String name) {
+        return this.files.get(name);
+    }
+
+    /**
+     * Open a file for reading
+     *
+     * @param name Name of the file
+     * @return Input stream over the content of the file
+     * @throws FileNotFoundException
+     */
+    @Override
+    public InputStream open(String name) throws FileNotFoundException {
+        return new ByteArrayInputStream(this.getContent(name));
+    }
+
+    /**
+     * Create a file
+     *
+     * @param name Name of the file
+     * @return Output which must be committed to make the file visible
+     */
+    @Override
+    public SmicStorageOutput create(String name) {
+        return new MemoryOutput(name);
+    }
+
+    /**
+     * Delete a file
+     *
+     * @param name Name of the file
+     * @return Whether the file existed
+     */
+    @Override
+    public boolean delete(String name) {
+        return this.files.remove(name) != null;
+    }
+
+    /**
+     * Check if a file exists
+     *
+     * @param name Name of the file
+     * @return Whether the file exists
+     */
+    @Override
+    public boolean exists(String name) {
+        return this.files.containsKey(name);
+    }
+
+    /**
+     * Get the size of a file
+     *
+     * @param name Name of the file
+     * @return Size of the file in bytes
+     * @throws FileNotFoundException
+     */
+    @Override
+    public long size(String name) throws FileNotFoundException {
+        return this.getContent(name).length;
+    }
+
+    /**
+     * Files held in memory have no local file
+     *
+     * @param name Name of the file
+     * @return Always null
+     */
+    @Override
+    public File getLocalFile(String name) {
+        return null;
+    }
+
+    /**
+     * Get the content of a file which must exist
+     *
+     * @param name Name of the file
+     * @return Content of the file
+     * @throws FileNotFoundException
+     */
+    private byte[] getContent(String name) throws FileNotFoundException {
+
+        byte[] content = this.files.get(name);
+
+        // Check if the file exists
+        if (content == null) {
+            throw new FileNotFoundException("The specified source file, " + name + ", was not found.");
+        }
+
+        return content;
+    }
+
+    /**
+     * The MemoryOutput class collects the content of a file until it is committed
+     */
+    private class MemoryOutput extends SmicStorageOutput {
+
+        private ByteArrayOutputStream content;
+        private String name;
+
+        /**
+         * MemoryOutput class constructor
+         *
+         * @param name Name of the file
+         */
+        private MemoryOutput(String name) {
+
+            // Initialise class attributes
+            this.content = new ByteArrayOutputStream();
+            this.name = name;
+        }
+
+        /**
+         * Write a byte to the file
+         *
+         * @param b Byte that needs to be written
+         */
+        @Override
+        public void write(int b) {
+            this.content.write(b);
+        }
+
+        /**
+         * Write part of an array to the file
+         *
+         * @param b Array containing the bytes that need to be written
+         * @param off Position of the first byte
+         * @param len Number of bytes
+         */
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.content.write(b, off, len);
+        }
+
+        /**
+         * Publish the content of the file
+         *
+         * @throws IOException
+         */
+        @Override
+        public void commit() throws IOException {
+
+            // Check if the output has been discarded
+            if (this.content == null) {
+                throw new IOException("The file " + this.name + " has already been closed.");
+            }
+
+            files.put(this.name, this.content.toByteArray());
+            this.content = null;
+        }
+
+        /**
+         * Discard the content of the file if it has not been committed
+         */
+        @Override
+        public void close() {
+            this.content = null;
+        }
+    }
+}
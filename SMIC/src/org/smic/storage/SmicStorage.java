@@ -0,0 +1,72 @@
+package org.smic.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The SmicStorage interface is implemented by the storage backends from which the SMIC module reads the files it
+ * converts and to which it writes the resulting files. Files are identified by names whose meaning depends on the
+ * backend, such as paths for the local file system or entry names for a ZIP archive. Resulting files are created
+ * through outputs which only make them visible once committed, so that a partial file is never seen by readers.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public interface SmicStorage {
+
+    /**
+     * Open a file for reading
+     *
+     * @param name Name of the file
+     * @return Input stream over the content of the file
+     * @throws java.io.FileNotFoundException
+     * @throws IOException
+     */
+    InputStream open(String name) throws IOException;
+
+    /**
+     * Create a file, which replaces any file of the same name once committed
+     *
+     * @param name Name of the file
+     * @return Output which must be committed to make the file visible
+     * @throws IOException
+     */
+    SmicStorageOutput create(String name) throws IOException;
+
+    /**
+     * Delete a file
+     *
+     * @param name Name of the file
+     * @return Whether the file existed
+     * @throws IOException
+     */
+    boolean delete(String name) throws IOException;
+
+    /**
+     * Check if a file exists
+     *
+     * @param name Name of the file
+     * @return Whether the file exists
+     * @throws IOException
+     */
+    boolean exists(String name) throws IOException;
+
+    /**
+     * Get the size of a file
+     *
+     * @param name Name of the file
+     * @return Size of the file in bytes
+     * @throws java.io.FileNotFoundException
+     * @throws IOException
+     */
+    long size(String name) throws IOException;
+
+    /**
+     * Get the local file holding the content of a file, so that it can be read in place instead of being copied
+     *
+     * @param name Name of the file
+     * @return Local file or null if the backend does not keep its files on the local file system
+     */
+    File getLocalFile(String name);
+}
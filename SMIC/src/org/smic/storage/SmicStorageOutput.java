@@ -0,0 +1,21 @@
+package org.smic.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The SmicStorageOutput class is the output stream through which a file of a storage backend is written. The file only
+ * becomes visible under its name once committed; closing the output without committing it discards what was written.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public abstract class SmicStorageOutput extends OutputStream {
+
+    /**
+     * Complete the file and make it visible under its name, atomically replacing any file of the same name
+     *
+     * @throws IOException
+     */
+    public abstract void commit() throws IOException;
+}
@@ -0,0 +1,274 @@
+package org.smic.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The SmicZipStorage class stores files as the entries of a ZIP archive, so that a batch of missives can be read from
+ * or written to a single file. Entries being written are kept under a temporary name until committed. The archive is
+ * created if it does not exist and the entries written are only saved to the archive, which is replaced as a whole,
+ * when the storage is closed.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicZipStorage implements SmicStorage, Closeable {
+
+    private String archiveFilename;
+    private FileSystem zipFileSystem;
+
+    /**
+     * SmicZipStorage class constructor
+     *
+     * @param archiveFilename Path and name of the ZIP archive
+     * @throws IOException
+     */
+    public SmicZipStorage(String archiveFilename) throws IOException {
+
+        // Initialise class attributes
+        this.archiveFilename = archiveFilename;
+
+        // ZIP file system over the archive, keeping the entries being written in temporary files rather than memory
+        HashMap<String, Object> env = new HashMap<>();
+        env.put("create", "true");
+        env.put("useTempFile", Boolean.TRUE);
+
+        this.zipFileSystem = FileSystems.newFileSystem(URI.create("jar:" +
+                Paths.get(archiveFilename).toAbsolutePath().toUri()), env);
+    }
+
+    /**
+     * Get the path and name of the ZIP archive
+     *
+     * @return Path and name of the archive
+     */
+    public String getArchiveFilename() {
+        return this.archiveFilename;
+    }
+
+    /**
+     * Open an entry for reading
+     *
+     * @param name Name of the entry
+     * @return Input stream over the content of the entry
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    @Override
+    public InputStream open(String name) throws IOException {
+        return Files.newInputStream(this.getExistingEntry(name));
+    }
+
+    /**
+     * Create an entry, creating its folders if required
+     *
+     * @param name Name of the entry
+     * @return Output which must be committed to make the entry visible
+     * @throws IOException
+     */
+    @Override
+    public SmicStorageOutput create(String name) throws IOException {
+
+        Path entry = this.getEntry(name);
+
+        // Folder of the entry
+        if (entry.getParent() != null) {
+            Files.createDirectories(entry.getParent());
+        }
+
+        return new ZipOutput(entry);
+    }
+
+    /**
+     * Delete an entry
+     *
+     * @param name Name of the entry
+     * @return Whether the entry existed
+     * @throws IOException
+     */
+    @Override
+    public boolean delete(String name) throws IOException {
+        return Files.deleteIfExists(this.getEntry(name));
+    }
+
+    /**
+     * Check if an entry exists
+     *
+     * @param name Name of the entry
+     * @return Whether the entry exists
+     */
+    @Override
+    public boolean exists(String name) {
+        return Files.isRegularFile(this.getEntry(name));
+    }
+
+    /**
+     * Get the uncompressed size of an entry
+     *
+     * @param name Name of the entry
+     * @return Size of the entry in bytes
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    @Override
+    public long size(String name) throws IOException {
+        return Files.size(this.getExistingEntry(name));
+    }
+
+    /**
+     * Entries of a ZIP archive have no local file
+     *
+     * @param name Name of the entry
+     * @return Always null
+     */
+    @Override
+    public File getLocalFile(String name) {
+        return null;
+    }
+
+    /**
+     * Save the entries written to the archive and close it
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        this.zipFileSystem.close();
+    }
+
+    /**
+     * Get the path of an entry in the ZIP file system
+     *
+     * @param name Name of the entry
+     * @return Path of the entry
+     */
+    private Path getEntry(String name) {
+
+        // Entry names are relative to the root of the archive
+        return this.zipFileSystem.getPath("/", name);
+    }
+
+    /**
+     * Get the path of an entry which must exist
+     *
+     * @param name Name of the entry
+     * @return Path of the entry
+     * @throws FileNotFoundException
+     */
+    private Path getExistingEntry(String name) throws FileNotFoundException {
+
+        Path entry = this.getEntry(name);
+
+        // Check if the entry exists
+        if (!Files.isRegularFile(entry)) {
+            throw new FileNotFoundException("The specified source file, " + name + ", was not found in " +
+                    this.archiveFilename + ".");
+        }
+
+        return entry;
+    }
+
+    /**
+     * The ZipOutput class writes an entry under a temporary name and renames it once committed
+     */
+    private static class ZipOutput extends SmicStorageOutput {
+
+        private Path entry;
+        private OutputStream os;
+        private Path tempEntry;
+
+        /**
+         * ZipOutput class constructor
+         *
+         * @param entry Path of the entry
+         * @throws IOException
+         */
+        private ZipOutput(Path entry) throws IOException {
+
+            // Initialise class attributes
+            this.entry = entry;
+            this.tempEntry = entry.resolveSibling("." + entry.getFileName() + "." +
+                    Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".part");
+            this.os = Files.newOutputStream(this.tempEntry);
+        }
+
+        /**
+         * Write a byte to the entry
+         *
+         * @param b Byte that needs to be written
+         * @throws IOException
+         */
+        @Override
+        public void write(int b) throws IOException {
+            this.os.write(b);
+        }
+
+        /**
+         * Write part of an array to the entry
+         *
+         * @param b Array containing the bytes that need to be written
+         * @param off Position of the first byte
+         * @param len Number of bytes
+         * @throws IOException
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.os.write(b, off, len);
+        }
+
+        /**
+         * Complete the entry and rename it
+         *
+         * @throws IOException
+         */
+        @Override
+        public void commit() throws IOException {
+
+            // Complete the temporary entry
+            this.os.close();
+            this.os = null;
+
+            // Make the entry visible under its name
+            try {
+                Files.move(this.tempEntry, this.entry, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                Files.deleteIfExists(this.tempEntry);
+                throw ex;
+            }
+        }
+
+        /**
+         * Discard the entry if it has not been committed
+         *
+         * @throws IOException
+         */
+        @Override
+        public void close() throws IOException {
+
+            // Check if the entry has already been committed or discarded
+            if (this.os == null) {
+                return;
+            }
+
+            try {
+                this.os.close();
+            } finally {
+                this.os = null;
+                Files.deleteIfExists(this.tempEntry);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.smic.transformation;
+
+import javax.xml.validation.Schema;
+import org.smic.layout.SmicOutputLayout;
+import org.smic.storage.SmicLocalStorage;
+import org.smic.storage.SmicStorage;
+import org.smic.utils.SmicFileUtils;
+import org.smic.utils.SmicOutputWriter;
+
+/**
+ * The SmicConversionContext class holds the settings of the SMIC module which apply to a conversion, such as the size
+ * from which files are processed through scratch files, the storage of the resulting files, the layout of the
+ * output folder, the schema against which missive XML documents are validated and the compression of the resulting
+ * files.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicConversionContext {
+
+    private boolean compactPdf;
+    private boolean gzipXml;
+    private SmicOutputLayout outputLayout;
+    private SmicStorage outputStorage;
+    private Schema schema;
+    private long spillThreshold;
+
+    /**
+     * SmicConversionContext class default constructor, converting in memory and writing outputs to the local file
+     * system in the output folder itself, without synchronising them to disk
+     */
+    public SmicConversionContext() {
+
+        // Default conversion settings
+        this(SmicFileUtils.MAX_IN_MEMORY_SIZE, new SmicLocalStorage(new SmicOutputWriter(false, 0)),
+                new SmicOutputLayout(SmicOutputLayout.LAYOUT_FLAT, SmicOutputLayout.DEFAULT_DEPTH));
+    }
+
+    /**
+     * SmicConversionContext class constructor
+     *
+     * @param spillThreshold Size in bytes above which files are processed through scratch files instead of memory
+     * @param outputStorage Storage of the resulting files
+     * @param outputLayout Layout of the resulting files in the output folder
+     */
+    public SmicConversionContext(long spillThreshold, SmicStorage outputStorage, SmicOutputLayout outputLayout) {
+
+        // Missive XML documents are not validated
+        this(spillThreshold, outputStorage, outputLayout, null);
+    }
+
+    /**
+     * SmicConversionContext class constructor
+     *
+     * @param spillThreshold Size in bytes above which files are processed through scratch files instead of memory
+     * @param outputStorage Storage of the resulting files
+     * @param outputLayout Layout of the resulting files in the output folder
+     * @param schema Compiled schema against which missive XML documents are validated, or null
+     */
+    public SmicConversionContext(long spillThreshold, SmicStorage outputStorage, SmicOutputLayout outputLayout,
+            Schema schema) {
+
+        // Resulting files are not compressed further
+        this(spillThreshold, outputStorage, outputLayout, schema, false, false);
+    }
+
+    /**
+     * SmicConversionContext class constructor
+     *
+     * @param spillThreshold Size in bytes above which files are processed through scratch files instead of memory
+     * @param outputStorage Storage of the resulting files
+     * @param outputLayout Layout of the resulting files in the output folder
+     * @param schema Compiled schema against which missive XML documents are validated, or null
+     * @param compactPdf Whether the resulting PDF documents are written with compressed object and cross-reference
+     * streams
+     * @param gzipXml Whether the resulting missive XML documents are written compressed with gzip
+     */
+    public SmicConversionContext(long spillThreshold, SmicStorage outputStorage, SmicOutputLayout outputLayout,
+            Schema schema, boolean compactPdf, boolean gzipXml) {
+
+        // Initialise class attributes
+        this.compactPdf = compactPdf;
+        this.gzipXml = gzipXml;
+        this.outputLayout = outputLayout;
+        this.outputStorage = outputStorage;
+        this.schema = schema;
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * Get the layout of the resulting files in the output folder
+     *
+     * @return Output layout
+     */
+    public SmicOutputLayout getOutputLayout() {
+        return this.outputLayout;
+    }
+
+    /**
+     * Get the storage of the resulting files
+     *
+     * @return Output storage
+     */
+    public SmicStorage getOutputStorage() {
+        return this.outputStorage;
+    }
+
+    /**
+     * Get the size above which files are processed through scratch files instead of memory
+     *
+     * @return Size in bytes
+     */
+    public long getSpillThreshold() {
+        return this.spillThreshold;
+    }
+
+    /**
+     * Get the schema against which missive XML documents are validated before their conversion
+     *
+     * @return Compiled schema or null if missive XML documents are not validated
+     */
+    public Schema getSchema() {
+        return this.schema;
+    }
+
+    /**
+     * Check if the resulting PDF documents are written with full compression
+     *
+     * @return Whether the objects and the cross-reference table of the PDF documents are written to compressed streams
+     */
+    public boolean isCompactPdf() {
+        return this.compactPdf;
+    }
+
+    /**
+     * Check if the resulting missive XML documents are compressed with gzip
+     *
+     * @return Whether the missive XML documents are written as .xml.gz files
+     */
+    public boolean isGzipXml() {
+        return this.gzipXml;
+    }
+}
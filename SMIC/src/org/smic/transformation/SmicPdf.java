@@ -1,12 +1,26 @@
 package org.smic.transformation;
 
+import com.itextpdf.text.pdf.PdfReader;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -14,8 +28,17 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.*;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.smic.audit.SmicConversionResult;
+import org.smic.concurrency.SmicDeadline;
+import org.smic.concurrency.SmicDocumentPool;
 import org.smic.exceptions.*;
+import org.smic.layout.SmicOutputLayout;
+import org.smic.monitoring.SmicStageRecorder;
+import org.smic.storage.SmicStorage;
+import org.smic.storage.SmicStorageOutput;
 import org.smic.utils.NamespaceContextMap;
+import org.smic.utils.SmicDigestUtils;
 import org.smic.utils.SmicFileUtils;
 import org.smic.utils.SmicPdfReader;
 import org.smic.utils.SmicPdfUtils;
@@ -26,22 +49,32 @@ import org.xml.sax.SAXException;
 
 /**
  * The SmicPdf class tries to find the required XMP tag within the given PDF document and tries to convert it to a
- * missive XML file.
+ * missive XML file. The missive can also be given a Document object for each of several PDF documents, encoded in
+ * parallel and written into the missive in a single pass.
  * 
  * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
  * @version 1.0
  */
 public class SmicPdf {
 
+    private static final String SPILLED_DATA_MARKER = "#SMIC#SpilledDocumentData#";
+    private static final int GZIP_BUFFER_SIZE = 65536;
+
     private HashMap<String, String> documentInfo;
     private String documentLocale;
     private String documentMime;
     private String documentTemplate;
     private String documentType;
+    private boolean gzip;
     private String missiveTag;
     private String missiveXmlEncodedValue;
     private String outputFolder;
+    private SmicOutputLayout outputLayout;
+    private SmicStorage outputStorage;
+    private String pdfDigest;
     private String pdfFilename;
+    private SmicConversionResult result;
+    private boolean spill;
     private String tempFolder;
     private String xmlFilename;
     private Document xmlMetadata;
@@ -66,26 +99,84 @@ public class SmicPdf {
             String documentMime, String documentLocale, String documentTemplate) throws FileNotFoundException,
             IOException, ParserConfigurationException, SAXException {
 
+        // Convert the PDF document in memory with the default conversion settings
+        this(pdfFilename, outputFolder, tempFolder, missiveTag, documentType, documentMime, documentLocale,
+                documentTemplate, new SmicConversionContext());
+    }
+
+    /**
+     * SmicPdf class constructor
+     * 
+     * @param pdfFilename Path and name of the PDF document
+     * @param outputFolder Path of XML output folder in the output storage
+     * @param tempFolder Path of temporary files folder
+     * @param missiveTag Name of the missive XML tag in the XMP metadata of the PDF file
+     * @param documentType Type of document being added to the missive XML file
+     * @param documentMime MIME type of the document being added to the missive XML file
+     * @param documentLocale Locale of the document being added to the missive XML file
+     * @param documentTemplate The Document object template that will be added to the missive XML file
+     * @param context Conversion settings
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    public SmicPdf(String pdfFilename, String outputFolder, String tempFolder, String missiveTag, String documentType,
+            String documentMime, String documentLocale, String documentTemplate, SmicConversionContext context) throws
+            FileNotFoundException, IOException, ParserConfigurationException, SAXException {
+
         // Initialise class attributes
         this.documentLocale = documentLocale;
         this.documentMime = documentMime;
         this.documentTemplate = documentTemplate;
         this.documentType = documentType;
+        this.gzip = context.isGzipXml();
         this.missiveTag = missiveTag;
         this.missiveXmlEncodedValue = "";
         this.outputFolder = outputFolder;
+        this.outputLayout = context.getOutputLayout();
+        this.outputStorage = context.getOutputStorage();
+        this.pdfDigest = null;
         this.pdfFilename = pdfFilename;
+        this.result = null;
+        this.spill = SmicFileUtils.isLargeFile(pdfFilename, context.getSpillThreshold());
         this.tempFolder = tempFolder;
         this.xmlFilename = "";
 
-        // Read the given PDF file document
-        SmicPdfReader smicPdfReader = new SmicPdfReader(pdfFilename);
+        // Record the PDF reading stage
+        SmicStageRecorder stage = SmicStageRecorder.beginStage(SmicStageRecorder.PDF_TO_XML, "read", pdfFilename);
+
+        try {
+
+            // Read the given PDF file document
+            SmicPdfReader smicPdfReader = new SmicPdfReader(pdfFilename, this.spill);
+
+            // PDF document info
+            this.documentInfo = smicPdfReader.getDocumentInfo();
+
+            // Get the PDF file metadata
+            this.xmlMetadata = smicPdfReader.getXmlMetadataDocument();
+
+            // Digest of the PDF file when it has been loaded whole
+            this.pdfDigest = smicPdfReader.getDigest();
+
+            // Size of the PDF document read
+            if (stage.isEnabled()) {
+                stage.setInputSize(new File(pdfFilename).length());
+            }
+
+            stage.success();
+
+        } catch (Exception ex) {
+
+            // Record the exception which interrupted the stage
+            stage.failure(ex);
 
-        // PDF document info
-        this.documentInfo = smicPdfReader.getDocumentInfo();
+            throw ex;
 
-        // Get the PDF file metadata
-        this.xmlMetadata = smicPdfReader.getXmlMetadataDocument();
+        } finally {
+            stage.end();
+        }
     }
 
     /**
@@ -114,45 +205,623 @@ public class SmicPdf {
             XmlDocumentNotGeneratedException, XPathExpressionException, ContainerNodeNotFoundException,
             InvalidNamespaceDefinitionException {
 
-        // Check if the PDF file contains the required XMP tag
-        if (this.hasMissiveXML()) {
+        // Record the complete conversion
+        SmicStageRecorder conversion = SmicStageRecorder.beginConversion(SmicStageRecorder.PDF_TO_XML,
+                this.pdfFilename);
 
-            // Create the preliminary missive XML document from the XMP tag
-            String preliminaryMissiveXmlFilename = this.createPreliminaryMissiveXmlDocument();
+        // Names of the preliminary missive XML file, created once the XMP tag has been found, of the scratch file
+        // holding the encoded PDF file when it is too large to be held in memory and of the missive written with a
+        // marker in its place
+        String preliminaryMissiveXmlFilename = null;
+        String pdfFilenameOnly = SmicFileUtils.getFilename(this.pdfFilename);
+        String encodedPdfFilename = this.tempFolder + System.getProperty("file.separator") +
+                pdfFilenameOnly.substring(0, pdfFilenameOnly.length() - 4) + "_temp.b64";
+        String skeletonFilename = this.tempFolder + System.getProperty("file.separator") +
+                pdfFilenameOnly.substring(0, pdfFilenameOnly.length() - 4) + "_skeleton.xml";
+
+        try {
+
+            // Check if the PDF file contains the required XMP tag
+            if (this.hasMissiveXML()) {
+
+                // Create the preliminary missive XML document from the XMP tag
+                SmicStageRecorder stage = this.beginStage("extract");
+
+                try {
+                    preliminaryMissiveXmlFilename = this.createPreliminaryMissiveXmlDocument();
+                    stage.setInputSize(this.missiveXmlEncodedValue.length());
+                    stage.success();
+                } catch (Exception ex) {
+                    stage.failure(ex);
+                    throw ex;
+                } finally {
+                    stage.end();
+                }
+
+                // Base64 encoded PDF file, or a marker standing for the scratch file in the Document object, the PDF
+                // file being digested as it is encoded unless it was digested as it was loaded
+                String encodedPdfFileContent;
+                MessageDigest documentDigest = this.pdfDigest == null ? SmicDigestUtils.newDigest() : null;
+                stage = this.beginStage("encode");
+
+                try {
+
+                    if (this.spill) {
+                        stage.setOutputSize(SmicPdfUtils.encodePdf(this.pdfFilename, encodedPdfFilename, 76,
+                                documentDigest));
+                        encodedPdfFileContent = SPILLED_DATA_MARKER;
+                    } else {
+                        encodedPdfFileContent = SmicPdfUtils.encodePdf(this.pdfFilename, documentDigest);
+                        stage.setOutputSize(encodedPdfFileContent.length());
+                    }
+
+                    stage.success();
+
+                } catch (Exception ex) {
+
+                    // Record the exception which interrupted the stage
+                    stage.failure(ex);
+
+                    throw ex;
+
+                } finally {
+                    stage.end();
+                }
+
+                // Generate the document object node
+                Document documentObject;
+                stage = this.beginStage("template");
+
+                try {
+                    documentObject = this.generateDocumentObjectNode(encodedPdfFileContent);
+                    stage.setInputSize(encodedPdfFileContent.length());
+                    stage.success();
+                } catch (Exception ex) {
+                    stage.failure(ex);
+                    throw ex;
+                } finally {
+                    stage.end();
+                }
+
+                // Append the Document object node to the preliminary missive XML document
+                Document finalMissiveXmlDocument;
+                stage = this.beginStage("append");
+
+                try {
+                    finalMissiveXmlDocument = this.appendDocumentObject(preliminaryMissiveXmlFilename, documentObject,
+                            namespace, xPath);
+                    stage.success();
+                } catch (Exception ex) {
+                    stage.failure(ex);
+                    throw ex;
+                } finally {
+                    stage.end();
+                }
+
+                // MsvId of the missive when the layout of the output folder depends on it
+                String missiveId = this.outputLayout.needsMissiveId() ?
+                        SmicOutputLayout.getMissiveId(finalMissiveXmlDocument) : null;
+
+                // Name of the final missive XML document, relative to the output folder
+                String finalMissiveXmlFilename = this.outputLayout.resolve(
+                        pdfFilenameOnly.substring(0, pdfFilenameOnly.length() - 4) + this.getOutputXmlExtension(),
+                        missiveId);
+                String finalMissiveXmlPath = SmicFileUtils.getPath(this.outputFolder, finalMissiveXmlFilename);
+
+                // Save the final missive XML file
+                MessageDigest outputDigest = SmicDigestUtils.newDigest();
+                stage = this.beginStage("write");
+
+                // Final missive XML file, which only appears in the output folder once completely written and which is
+                // digested as it is written, after its compression in compact mode
+                try (SmicStorageOutput os = this.outputStorage.create(finalMissiveXmlPath)) {
+
+                    try (OutputStream xmlStream = this.openXmlStream(new DigestOutputStream(os, outputDigest))) {
+
+                        if (this.spill) {
+
+                            // Write the missive with the marker, then splice the encoded PDF file in place of the
+                            // marker
+                            SmicFileUtils.writeFile(finalMissiveXmlDocument, skeletonFilename);
+                            SmicFileUtils.spliceFile(skeletonFilename, SPILLED_DATA_MARKER, encodedPdfFilename,
+                                    xmlStream);
+
+                        } else {
+                            SmicFileUtils.writeFile(finalMissiveXmlDocument, xmlStream);
+                        }
+                    }
+
+                    // Make the final missive XML file visible
+                    os.commit();
+
+                    // Size of the final missive XML file
+                    if (stage.isEnabled() || conversion.isEnabled()) {
+                        long outputSize = this.outputStorage.size(finalMissiveXmlPath);
+                        stage.setOutputSize(outputSize);
+                        conversion.setOutputSize(outputSize);
+                    }
+
+                    stage.success();
+
+                } catch (Exception ex) {
+
+                    // Record the exception which interrupted the stage
+                    stage.failure(ex);
+
+                    throw ex;
+
+                } finally {
+                    stage.end();
+                }
+
+                // Set the value for the final missive XML filename
+                this.xmlFilename = finalMissiveXmlFilename;
+
+                // Digests of the PDF document, which is the converted file, and of the final missive XML document
+                String documentDigestValue = documentDigest != null ? SmicDigestUtils.toHex(documentDigest) :
+                        this.pdfDigest;
+
+                this.result = new SmicConversionResult(SmicStageRecorder.PDF_TO_XML, documentDigestValue,
+                        Collections.singletonList(this.getOutputXmlFilename()),
+                        Collections.singletonList(SmicDigestUtils.toHex(outputDigest)),
+                        Collections.singletonList(pdfFilenameOnly), Collections.singletonList(documentDigestValue));
+
+            } else {
 
-            // Base64 encoded PDF file
-            String encodedPdfFileContent = SmicPdfUtils.encodePdf(this.pdfFilename);
+                // Throw exception since the missive XML tag with the appropriate value was not found
+                throw new MissiveXmlNotFoundException(this.pdfFilename);
+            }
+
+            // Size of the converted PDF document
+            if (conversion.isEnabled()) {
+                conversion.setInputSize(new File(this.pdfFilename).length());
+            }
+
+            conversion.success();
+
+        } catch (Exception ex) {
 
-            // Generate the document object node
-            Document documentObject = this.generateDocumentObjectNode(encodedPdfFileContent);
+            // Record the exception which interrupted the conversion
+            conversion.failure(ex);
 
-            // Append the Document object node to the preliminary missive XML document
-            Document finalMissiveXmlDocument = this.appendDocumentObject(preliminaryMissiveXmlFilename, documentObject,
-                    namespace, xPath);
+            throw ex;
 
-            // Name of the final missive XML document
-            String pdfFilenameOnly = SmicFileUtils.getFilename(this.pdfFilename);
-            String finalMissiveXmlFilename = pdfFilenameOnly.substring(0, pdfFilenameOnly.length() - 4) + ".xml";
+        } finally {
+
+            // Delete the scratch files, whether the conversion succeeded or not
+            SmicFileUtils.deleteFiles(new String[] { skeletonFilename, encodedPdfFilename });
+
+            if (preliminaryMissiveXmlFilename != null) {
+                SmicFileUtils.deleteFile(preliminaryMissiveXmlFilename);
+            }
+
+            conversion.end();
+        }
+
+        return this.getOutputXmlFilename();
+    }
+
+    /**
+     * Convert the PDF document to the required missive XML document containing a Document object for each of the given
+     * PDF documents at the specified XPath. The PDF documents are encoded in parallel to scratch files which are
+     * spliced into the missive XML document as it is written.
+     * 
+     * @param namespace Comma-delimited list of name spaces used within the missive XML document
+     * @param xPath Path at which the encoded PDF documents will be added in the missive XML document
+     * @param documentFilenames Paths and names of the PDF documents added to the missive XML document, in order
+     * @return Path and name of the missive XML file
+     * @throws MissiveXmlNotFoundException
+     * @throws UnsupportedEncodingException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @throws InterruptedIOException
+     * @throws InvalidDocumentObjectTemplateException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws XmlDocumentNotGeneratedException
+     * @throws XPathExpressionException
+     * @throws ContainerNodeNotFoundException
+     * @throws InvalidNamespaceDefinitionException
+     */
+    public String convert(String namespace, String xPath, List<String> documentFilenames) throws
+            MissiveXmlNotFoundException, UnsupportedEncodingException, ParserConfigurationException, SAXException,
+            IOException, InvalidDocumentObjectTemplateException, TransformerConfigurationException,
+            TransformerException, XmlDocumentNotGeneratedException, XPathExpressionException,
+            ContainerNodeNotFoundException, InvalidNamespaceDefinitionException {
+
+        // Record the complete conversion
+        SmicStageRecorder conversion = SmicStageRecorder.beginConversion(SmicStageRecorder.PDF_TO_XML,
+                this.pdfFilename);
+
+        // Names of the preliminary missive XML file, created once the XMP tag has been found, and of the missive
+        // written with markers in place of the encoded PDF documents
+        String preliminaryMissiveXmlFilename = null;
+        String pdfFilenameOnly = SmicFileUtils.getFilename(this.pdfFilename);
+        String skeletonFilename = this.tempFolder + System.getProperty("file.separator") +
+                pdfFilenameOnly.substring(0, pdfFilenameOnly.length() - 4) + "_skeleton.xml";
+
+        // Names of the scratch files holding the encoded PDF documents, the markers standing for them and the digests
+        // of the PDF documents computed as they are encoded
+        String[] encodedPdfFilenames = new String[documentFilenames.size()];
+        String[] markers = new String[documentFilenames.size()];
+        MessageDigest[] documentDigests = new MessageDigest[documentFilenames.size()];
+
+        for (int i = 0; i < encodedPdfFilenames.length; i++) {
+            encodedPdfFilenames[i] = this.tempFolder + System.getProperty("file.separator") +
+                    pdfFilenameOnly.substring(0, pdfFilenameOnly.length() - 4) + "_temp_" + i + ".b64";
+            markers[i] = SPILLED_DATA_MARKER + i + "#";
+            documentDigests[i] = SmicDigestUtils.newDigest();
+        }
+
+        try {
+
+            // Check if the PDF file contains the required XMP tag
+            if (!this.hasMissiveXML()) {
+
+                // Throw exception since the missive XML tag with the appropriate value was not found
+                throw new MissiveXmlNotFoundException(this.pdfFilename);
+            }
+
+            // Create the preliminary missive XML document from the XMP tag
+            SmicStageRecorder stage = this.beginStage("extract");
+
+            try {
+                preliminaryMissiveXmlFilename = this.createPreliminaryMissiveXmlDocument();
+                stage.setInputSize(this.missiveXmlEncodedValue.length());
+                stage.success();
+            } catch (Exception ex) {
+                stage.failure(ex);
+                throw ex;
+            } finally {
+                stage.end();
+            }
+
+            // Encode the PDF documents and generate their Document object nodes in parallel
+            List<Document> documentObjects = this.generateDocumentObjectNodes(documentFilenames, encodedPdfFilenames,
+                    markers, documentDigests);
+
+            // Append the Document object nodes to the preliminary missive XML document
+            Document finalMissiveXmlDocument;
+            stage = this.beginStage("append");
+
+            try {
+                finalMissiveXmlDocument = this.appendDocumentObjects(preliminaryMissiveXmlFilename, documentObjects,
+                        namespace, xPath);
+                stage.success();
+            } catch (Exception ex) {
+                stage.failure(ex);
+                throw ex;
+            } finally {
+                stage.end();
+            }
+
+            // MsvId of the missive when the layout of the output folder depends on it
+            String missiveId = this.outputLayout.needsMissiveId() ?
+                    SmicOutputLayout.getMissiveId(finalMissiveXmlDocument) : null;
+
+            // Name of the final missive XML document, relative to the output folder
+            String finalMissiveXmlFilename = this.outputLayout.resolve(
+                    pdfFilenameOnly.substring(0, pdfFilenameOnly.length() - 4) + this.getOutputXmlExtension(),
+                    missiveId);
+            String finalMissiveXmlPath = SmicFileUtils.getPath(this.outputFolder, finalMissiveXmlFilename);
 
             // Save the final missive XML file
-            SmicFileUtils.writeFile(finalMissiveXmlDocument, this.outputFolder + System.getProperty("file.separator") +
-                    finalMissiveXmlFilename);
+            MessageDigest outputDigest = SmicDigestUtils.newDigest();
+            stage = this.beginStage("write");
+
+            // Final missive XML file, which only appears in the output folder once completely written and which is
+            // digested as it is written, after its compression in compact mode
+            try (SmicStorageOutput os = this.outputStorage.create(finalMissiveXmlPath)) {
+
+                // Write the missive with the markers, then splice the encoded PDF files in place of the markers
+                SmicFileUtils.writeFile(finalMissiveXmlDocument, skeletonFilename);
+
+                try (OutputStream xmlStream = this.openXmlStream(new DigestOutputStream(os, outputDigest))) {
+                    SmicFileUtils.spliceFiles(skeletonFilename, markers, encodedPdfFilenames, xmlStream);
+                }
+
+                // Make the final missive XML file visible
+                os.commit();
+
+                // Size of the final missive XML file
+                if (stage.isEnabled() || conversion.isEnabled()) {
+                    long outputSize = this.outputStorage.size(finalMissiveXmlPath);
+                    stage.setOutputSize(outputSize);
+                    conversion.setOutputSize(outputSize);
+                }
+
+                stage.success();
+
+            } catch (Exception ex) {
+
+                // Record the exception which interrupted the stage
+                stage.failure(ex);
 
-            // Delete the preliminary missive XML file
-            SmicFileUtils.deleteFile(preliminaryMissiveXmlFilename);
+                throw ex;
+
+            } finally {
+                stage.end();
+            }
 
             // Set the value for the final missive XML filename
             this.xmlFilename = finalMissiveXmlFilename;
 
-        } else {
+            // Digests of the PDF documents and of the final missive XML document
+            List<String> documentNames = new ArrayList<>();
+            List<String> documentDigestValues = new ArrayList<>();
+
+            for (int i = 0; i < documentDigests.length; i++) {
+                documentNames.add(SmicFileUtils.getFilename(documentFilenames.get(i)));
+                documentDigestValues.add(SmicDigestUtils.toHex(documentDigests[i]));
+            }
+
+            this.result = new SmicConversionResult(SmicStageRecorder.PDF_TO_XML, this.pdfDigest,
+                    Collections.singletonList(this.getOutputXmlFilename()),
+                    Collections.singletonList(SmicDigestUtils.toHex(outputDigest)), documentNames,
+                    documentDigestValues);
+
+            // Size of the converted PDF documents
+            if (conversion.isEnabled()) {
+
+                long inputSize = new File(this.pdfFilename).length();
+
+                for (String documentFilename : documentFilenames) {
+                    inputSize += new File(documentFilename).length();
+                }
+
+                conversion.setInputSize(inputSize);
+            }
+
+            conversion.success();
+
+        } catch (Exception ex) {
+
+            // Record the exception which interrupted the conversion
+            conversion.failure(ex);
+
+            throw ex;
+
+        } finally {
+
+            // Delete the scratch files, whether the conversion succeeded or not
+            SmicFileUtils.deleteFiles(encodedPdfFilenames);
+            SmicFileUtils.deleteFile(skeletonFilename);
+
+            if (preliminaryMissiveXmlFilename != null) {
+                SmicFileUtils.deleteFile(preliminaryMissiveXmlFilename);
+            }
 
-            // Throw exception since the missive XML tag with the appropriate value was not found
-            throw new MissiveXmlNotFoundException(this.pdfFilename);
+            conversion.end();
         }
 
         return this.getOutputXmlFilename();
     }
 
+    /**
+     * Get the result of the last conversion, with the digests of the PDF documents computed as they were encoded and of
+     * the final missive XML document computed as it was written
+     * 
+     * @return Result of the conversion, or null if no conversion has completed
+     */
+    public SmicConversionResult getResult() {
+        return this.result;
+    }
+
+    /**
+     * Get the missive XML document found in the metadata of the PDF document by the last conversion
+     * 
+     * @return Missive XML document, or an empty string if no conversion has found it
+     */
+    public String getMissiveXml() {
+        return this.missiveXmlEncodedValue;
+    }
+
+    /**
+     * Encode PDF documents to scratch files and generate their Document object nodes in parallel, on the threads shared
+     * by all the conversions
+     * 
+     * @param documentFilenames Paths and names of the PDF documents
+     * @param encodedPdfFilenames Paths and names of the scratch files receiving the encoded PDF documents
+     * @param markers Markers standing for the encoded PDF documents in the Document object nodes
+     * @param documentDigests Message digests updated with the PDF documents as they are encoded
+     * @return Document object nodes, in the order of the PDF documents
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @throws InterruptedIOException
+     * @throws InvalidDocumentObjectTemplateException
+     */
+    private List<Document> generateDocumentObjectNodes(List<String> documentFilenames,
+            final String[] encodedPdfFilenames, final String[] markers, final MessageDigest[] documentDigests) throws
+            ParserConfigurationException, SAXException, IOException, InvalidDocumentObjectTemplateException {
+
+        // A missive may be given no PDF document to carry
+        if (documentFilenames.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Deadline of the conversion, attached to the threads working for it
+        final SmicDeadline deadline = SmicDeadline.current();
+
+        // Work submitted for each PDF document
+        List<Future<Document>> results = new ArrayList<>();
+
+        try {
+
+            for (int i = 0; i < documentFilenames.size(); i++) {
+
+                final int document = i;
+                final String documentFilename = documentFilenames.get(i);
+
+                results.add(SmicDocumentPool.submit(new Callable<Document>() {
+
+                    @Override
+                    public Document call() throws Exception {
+
+                        SmicDeadline previousDeadline = SmicDeadline.attach(deadline);
+
+                        try {
+                            return generateDocumentObjectNode(documentFilename, encodedPdfFilenames[document],
+                                    markers[document], documentDigests[document]);
+                        } finally {
+                            SmicDeadline.attach(previousDeadline);
+                        }
+                    }
+                }));
+            }
+
+            // Wait for every PDF document, keeping the first failure
+            List<Document> documentObjects = new ArrayList<>();
+            Throwable failure = null;
+
+            for (Future<Document> result : results) {
+
+                try {
+                    documentObjects.add(result.get());
+                } catch (ExecutionException ex) {
+
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                }
+            }
+
+            if (failure == null) {
+                return documentObjects;
+            }
+
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof SAXException) {
+                throw (SAXException) failure;
+            } else if (failure instanceof ParserConfigurationException) {
+                throw (ParserConfigurationException) failure;
+            } else if (failure instanceof InvalidDocumentObjectTemplateException) {
+                throw (InvalidDocumentObjectTemplateException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+
+            throw new IOException(failure);
+
+        } catch (InterruptedException ex) {
+
+            // Give up the conversion, keeping the interrupted status of the thread
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("The conversion of the PDF documents has been interrupted.");
+
+        } finally {
+
+            // Stop the work left for the PDF documents, the threads being shared by other conversions
+            for (Future<Document> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Encode a PDF document to a scratch file and generate its Document object node
+     * 
+     * @param documentFilename Path and name of the PDF document
+     * @param encodedPdfFilename Path and name of the scratch file receiving the encoded PDF document
+     * @param marker Marker standing for the encoded PDF document in the Document object node
+     * @param digest Message digest updated with the PDF document as it is encoded
+     * @return Document object node
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @throws InvalidDocumentObjectTemplateException
+     */
+    private Document generateDocumentObjectNode(String documentFilename, String encodedPdfFilename, String marker,
+            MessageDigest digest) throws ParserConfigurationException, SAXException, IOException,
+            InvalidDocumentObjectTemplateException {
+
+        // Info of the PDF document, read without loading the document
+        HashMap<String, String> info;
+        SmicStageRecorder stage = this.beginStage("read");
+
+        try {
+
+            // Check if the PDF document exists
+            if (!new File(documentFilename).exists()) {
+                throw new FileNotFoundException("The specified source file, " + documentFilename + ", was not found.");
+            }
+
+            PdfReader pdfReader = SmicPdfUtils.getPdfReader(documentFilename, true);
+
+            try {
+                info = pdfReader.getInfo();
+            } finally {
+                pdfReader.close();
+            }
+
+            stage.success();
+
+        } catch (Exception ex) {
+
+            // Record the exception which interrupted the stage
+            stage.failure(ex);
+
+            throw ex;
+
+        } finally {
+            stage.end();
+        }
+
+        // Encode the PDF document to its scratch file
+        stage = this.beginStage("encode");
+
+        try {
+            stage.setOutputSize(SmicPdfUtils.encodePdf(documentFilename, encodedPdfFilename, 76, digest));
+            stage.success();
+        } catch (Exception ex) {
+            stage.failure(ex);
+            throw ex;
+        } finally {
+            stage.end();
+        }
+
+        // Generate the Document object node, the marker standing for the encoded PDF document
+        stage = this.beginStage("template");
+
+        try {
+
+            Document documentObject = this.generateDocumentObjectNode(info, documentFilename, marker);
+            stage.success();
+
+            return documentObject;
+
+        } catch (Exception ex) {
+
+            // Record the exception which interrupted the stage
+            stage.failure(ex);
+
+            throw ex;
+
+        } finally {
+            stage.end();
+        }
+    }
+
+    /**
+     * Start recording a stage of the conversion of the PDF document
+     * 
+     * @param stage Name of the stage
+     * @return Recorder of the stage
+     * @throws ConversionTimeoutException
+     */
+    private SmicStageRecorder beginStage(String stage) throws ConversionTimeoutException {
+
+        // Abort the conversion between two stages once its deadline has passed
+        SmicDeadline.checkCurrent();
+
+        return SmicStageRecorder.beginStage(SmicStageRecorder.PDF_TO_XML, stage, this.pdfFilename);
+    }
+
     /**
      * Check if the metadata of the PDF file contains the required missive XML tag and content
      * 
@@ -236,17 +905,41 @@ public class SmicPdf {
     private Document generateDocumentObjectNode(String encodedPdfFileContent) throws ParserConfigurationException,
             SAXException, IOException, InvalidDocumentObjectTemplateException {
 
-        // Create a map of tokens and corresponding values
-        HashMap<String, String> tokens = new HashMap<>();
+        // Document object of the converted PDF document
+        return this.generateDocumentObjectNode(this.documentInfo, this.pdfFilename, encodedPdfFileContent);
+    }
+
+    /**
+     * Generate the document object node of a PDF document using the document node template
+     * 
+     * @param documentInfo Info of the PDF document
+     * @param documentFilename Path and name of the PDF document
+     * @param encodedPdfFileContent Encoded PDF document, or a marker standing for it
+     * @return Document object node that needs to be appended to the missive XML file
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @throws InvalidDocumentObjectTemplateException
+     */
+    private Document generateDocumentObjectNode(HashMap<String, String> documentInfo, String documentFilename,
+            String encodedPdfFileContent) throws ParserConfigurationException, SAXException, IOException,
+            InvalidDocumentObjectTemplateException {
+
+        // Document object template, left unchanged for the other PDF documents
+        String documentTemplate = this.documentTemplate;
+
+        // Create a map of tokens and corresponding values, replaced in order so that the large encoded PDF document
+        // is copied into the template last instead of being copied again with every other token
+        LinkedHashMap<String, String> tokens = new LinkedHashMap<>();
         HashMap<String, String> placedTokens = new HashMap<>();
 
         // Define token place holders and corresponding values
         tokens.put("#SMIC#DocumentType#", this.documentType);
-        tokens.put("#SMIC#DocumentDate#", this.getIsoDate(this.documentInfo.get("CreationDate")));
-        tokens.put("#SMIC#DocumentTitle#", this.documentInfo.get("Title"));
+        tokens.put("#SMIC#DocumentDate#", this.getIsoDate(documentInfo.get("CreationDate")));
+        tokens.put("#SMIC#DocumentTitle#", documentInfo.get("Title"));
         tokens.put("#SMIC#DocumentLanguage#", this.documentLocale);
         tokens.put("#SMIC#DocumentApplicationType#", this.documentMime);
-        tokens.put("#SMIC#DocumentFilename#", SmicFileUtils.getFilename(this.pdfFilename));
+        tokens.put("#SMIC#DocumentFilename#", SmicFileUtils.getFilename(documentFilename));
         tokens.put("#SMIC#DocumentData#", this.xmlWrap(encodedPdfFileContent, 76));
 
         // Tokens map iterator
@@ -259,17 +952,17 @@ public class SmicPdf {
             Map.Entry<String, String> entry = (Map.Entry<String, String>)mapIt.next();
 
             // Get the beginning position of the placeholder
-            int placeHolderIndex = this.documentTemplate.indexOf(entry.getKey());
+            int placeHolderIndex = documentTemplate.indexOf(entry.getKey());
 
             // Check if the placeholder was found in the document template
             if (placeHolderIndex > -1) {
 
                 // Check if the current placeholder could be found in the document template
-                if (this.documentTemplate.substring(placeHolderIndex, entry.getKey().length() +
+                if (documentTemplate.substring(placeHolderIndex, entry.getKey().length() +
                         placeHolderIndex).equals(entry.getKey())) {
 
                     // Replace the placeholders in the template string
-                    this.documentTemplate = this.documentTemplate.replaceAll(entry.getKey(), entry.getValue());
+                    documentTemplate = documentTemplate.replace(entry.getKey(), entry.getValue());
 
                     // Update the list of mapped placeholders
                     if (!placedTokens.containsKey(entry.getKey())) {
@@ -291,7 +984,7 @@ public class SmicPdf {
         }
 
         // Input stream from the document template
-        ByteArrayInputStream bais = new ByteArrayInputStream(this.documentTemplate.getBytes());
+        ByteArrayInputStream bais = new ByteArrayInputStream(documentTemplate.getBytes());
 
         // XML document parser instance
         DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
@@ -365,6 +1058,30 @@ public class SmicPdf {
             String namespace, String xPathExpression) throws XPathExpressionException, ContainerNodeNotFoundException,
             ParserConfigurationException, SAXException, IOException, InvalidNamespaceDefinitionException {
 
+        // Single Document object
+        return this.appendDocumentObjects(preliminaryMissiveXmlFilename, Collections.singletonList(documentObject),
+                namespace, xPathExpression);
+    }
+
+    /**
+     * Append document nodes to the missive XML document at the end of the container defined by the XPath
+     * 
+     * @param preliminaryMissiveXmlFilename Preliminary missive XML document path and filename
+     * @param documentObjects Document objects, in the order in which they are appended
+     * @param namespace Comma-delimited list of name spaces used within the missive XML document
+     * @param xPathExpression XPath expression string which defines the container of the Document object nodes
+     * @return Final missive XML document object
+     * @throws XPathExpressionException
+     * @throws ContainerNodeNotFoundException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     * @throws InvalidNamespaceDefinitionException
+     */
+    private Document appendDocumentObjects(String preliminaryMissiveXmlFilename, List<Document> documentObjects,
+            String namespace, String xPathExpression) throws XPathExpressionException, ContainerNodeNotFoundException,
+            ParserConfigurationException, SAXException, IOException, InvalidNamespaceDefinitionException {
+
         // Load the preliminary missive XML file
         DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
         dbf.setNamespaceAware(true);
@@ -393,14 +1110,17 @@ public class SmicPdf {
             // Check if the container node was obtained with the given XPath expression
             if (containerNodeList.getLength() > 0) {
 
-                // Append the Document object node to the container (we consider the last occurence of the container)
+                // Append the Document object nodes to the container (we consider the last occurence of the container)
                 Node containerNode = containerNodeList.item(containerNodeList.getLength() - 1);
 
-                // Document object node
-                Node documentObjectNode = preliminaryMissiveXml.importNode(documentObject.getFirstChild(), true);
+                for (Document documentObject : documentObjects) {
 
-                // Append the document object node to the preliminary document
-                containerNode.appendChild(documentObjectNode);
+                    // Document object node
+                    Node documentObjectNode = preliminaryMissiveXml.importNode(documentObject.getFirstChild(), true);
+
+                    // Append the document object node to the preliminary document
+                    containerNode.appendChild(documentObjectNode);
+                }
 
                 // Normalise the missive document object
                 preliminaryMissiveXml.normalizeDocument();
@@ -433,7 +1153,32 @@ public class SmicPdf {
             throw new XmlDocumentNotGeneratedException();
         }
 
-        return this.outputFolder + System.getProperty("file.separator") + this.xmlFilename;
+        return SmicFileUtils.getPath(this.outputFolder, this.xmlFilename);
+    }
+
+    /**
+     * Get the extension of the resulting XML file
+     * 
+     * @return .xml.gz in compact mode, .xml otherwise
+     */
+    private String getOutputXmlExtension() {
+        return this.gzip ? ".xml.gz" : ".xml";
+    }
+
+    /**
+     * Open the stream through which the final missive XML document is written, compressing it with gzip in compact
+     * mode. Closing the stream completes the compressed data but leaves the given stream open, so that the final
+     * missive XML file can be committed.
+     * 
+     * @param os Stream of the final missive XML file
+     * @return Stream receiving the content of the final missive XML document
+     * @throws IOException
+     */
+    private OutputStream openXmlStream(OutputStream os) throws IOException {
+
+        OutputStream shieldedStream = new CloseShieldOutputStream(os);
+
+        return this.gzip ? new GZIPOutputStream(shieldedStream, GZIP_BUFFER_SIZE) : shieldedStream;
     }
 
     /**
@@ -479,8 +1224,8 @@ public class SmicPdf {
      */
     private String xmlWrap(String rawString, int length) {
 
-        // Wrapped string
-        String wrappedString = "";
+        // Wrapped string sized for the data and the new line characters
+        StringBuilder wrappedString = new StringBuilder(rawString.length() + rawString.length() / length + 1);
 
         // Character position counter
         int i = 0;
@@ -488,25 +1233,16 @@ public class SmicPdf {
         // Scan the list of characters in the string that needs to be wrapped
         while (i < rawString.length()) {
 
-            // Check if we are at the end of the string
-            if (i + length > rawString.length()) {
-
-                // Extract a line of data from the string that needs to be wrapped
-                wrappedString += rawString.substring(i, rawString.length());
-
-            } else {
-
-                // Extract a line of data from the string that needs to be wrapped
-                wrappedString += rawString.substring(i, i + length);
-            }
+            // Extract a line of data from the string that needs to be wrapped
+            wrappedString.append(rawString, i, Math.min(i + length, rawString.length()));
 
             // Add XML new line character to the string
-            wrappedString += '\n';
+            wrappedString.append('\n');
 
             // Increase the character position counter
             i =  i + length;
         }
 
-        return wrappedString.trim();
+        return wrappedString.toString().trim();
     }
 }
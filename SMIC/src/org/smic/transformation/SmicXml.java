@@ -8,17 +8,38 @@ import com.itextpdf.text.xml.xmp.PdfA1Schema;
 import com.itextpdf.text.xml.xmp.XmpBasicSchema;
 import com.itextpdf.text.xml.xmp.XmpWriter;
 import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.smic.audit.SmicConversionResult;
+import org.smic.concurrency.SmicDeadline;
+import org.smic.concurrency.SmicDocumentPool;
+import org.smic.exceptions.ConversionTimeoutException;
 import org.smic.exceptions.DocumentObjectNotFoundException;
 import org.smic.exceptions.InvalidPdfPageNumberException;
 import org.smic.exceptions.PdfDocumentNotGeneratedException;
+import org.smic.layout.SmicOutputLayout;
+import org.smic.monitoring.SmicStageRecorder;
+import org.smic.storage.SmicStorage;
+import org.smic.storage.SmicStorageOutput;
+import org.smic.utils.SmicChannelOutputStream;
+import org.smic.utils.SmicDigestUtils;
 import org.smic.utils.SmicFileUtils;
 import org.smic.utils.SmicPdfUtils;
 import org.smic.utils.SmicXmlReader;
+import org.smic.utils.SmicXmlStreamSplitter;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -26,18 +47,27 @@ import org.xml.sax.SAXException;
 
 /**
  * The SmicXml class tries to find the required Document object within a specified missive XML document and converts it
- * to PDF if possible.
+ * to PDF if possible. A missive carrying several PDF documents can also have all its Document objects found in a single
+ * scan and converted in parallel, one PDF document per Document object.
  * 
  * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
  * @version 1.0
  */
 public class SmicXml {
 
+    private boolean compact;
     private String encodedPdf;
     private String encodedPdfFilename;
+    private String missiveId;
     private String outputFolder;
+    private SmicOutputLayout outputLayout;
+    private SmicStorage outputStorage;
     private String pdfFilename;
+    private SmicConversionResult result;
+    private boolean spill;
+    private SmicXmlStreamSplitter streamSplitter;
     private String tempFolder;
+    private String xmlDigest;
     private Document xmlDocument;
     private String xmlFilename;
 
@@ -55,17 +85,75 @@ public class SmicXml {
     public SmicXml(String xmlFilename, String outputFolder, String tempFolder) throws FileNotFoundException,
             ParserConfigurationException, IOException, SAXException {
 
+        // Convert the missive XML document in memory with the default conversion settings
+        this(xmlFilename, outputFolder, tempFolder, new SmicConversionContext());
+    }
+
+    /**
+     * SmicXml class constructor
+     * 
+     * @param xmlFilename Path and name of the missive XML document
+     * @param outputFolder Path of PDF output folder in the output storage
+     * @param tempFolder Path of temporary files folder
+     * @param context Conversion settings
+     * @throws FileNotFoundException
+     * @throws ParserConfigurationException
+     * @throws IOException
+     * @throws SAXException
+     */
+    public SmicXml(String xmlFilename, String outputFolder, String tempFolder, SmicConversionContext context) throws
+            FileNotFoundException, ParserConfigurationException, IOException, SAXException {
+
         // Initialise class attributes
+        this.compact = context.isCompactPdf();
+        this.missiveId = null;
         this.outputFolder = outputFolder;
+        this.outputLayout = context.getOutputLayout();
+        this.outputStorage = context.getOutputStorage();
         this.pdfFilename = "";
+        this.result = null;
+        this.spill = SmicFileUtils.isLargeFile(xmlFilename, context.getSpillThreshold());
         this.tempFolder = tempFolder;
+        this.xmlDigest = null;
         this.xmlFilename = xmlFilename;
 
-        // Read the missive XML document
-        SmicXmlReader smicXmlReader = new SmicXmlReader(xmlFilename);
+        // Large missive XML documents are streamed during the conversion instead of being parsed here
+        if (this.spill) {
+            this.streamSplitter = new SmicXmlStreamSplitter(xmlFilename, context.getSchema());
+            return;
+        }
+
+        // Record the missive XML parsing stage
+        SmicStageRecorder stage = this.beginStage("parse");
+
+        try {
+
+            // Read the missive XML document, validating it against the configured schema
+            SmicXmlReader smicXmlReader = new SmicXmlReader(xmlFilename, context.getSchema());
+
+            // XML document representing the missive XML file
+            this.xmlDocument = smicXmlReader.getXmlDocument();
+
+            // Digest of the missive XML document, computed as it was parsed
+            this.xmlDigest = smicXmlReader.getDigest();
+
+            // Size of the missive XML document parsed
+            if (stage.isEnabled()) {
+                stage.setInputSize(new File(xmlFilename).length());
+            }
+
+            stage.success();
 
-        // XML document representing the missive XML file
-        this.xmlDocument = smicXmlReader.getXmlDocument();
+        } catch (Exception ex) {
+
+            // Record the exception which interrupted the stage
+            stage.failure(ex);
+
+            throw ex;
+
+        } finally {
+            stage.end();
+        }
     }
 
     /**
@@ -80,39 +168,670 @@ public class SmicXml {
      * @throws TransformerException
      * @throws InvalidPdfPageNumberException
      * @throws DocumentException
+     * @throws SAXException
      */
     public String convert(String generatorName) throws DocumentObjectNotFoundException,
             PdfDocumentNotGeneratedException, IOException, TransformerConfigurationException, TransformerException,
+            InvalidPdfPageNumberException, DocumentException, SAXException {
+
+        // Record the complete conversion
+        SmicStageRecorder conversion = SmicStageRecorder.beginConversion(SmicStageRecorder.XML_TO_PDF,
+                this.xmlFilename);
+
+        try {
+
+            // Get the document object node
+            Node documentObjectNode = null;
+            boolean documentObjectFound;
+            SmicStageRecorder stage = this.beginStage("locate");
+
+            try {
+
+                if (this.spill) {
+
+                    // Stream the missive XML document to locate the Document object
+                    documentObjectFound = this.streamSplitter.locateDocumentObject();
+                    this.encodedPdfFilename = this.streamSplitter.getEncodedPdfFilename();
+                    this.missiveId = this.streamSplitter.getMissiveId();
+
+                } else {
+                    documentObjectNode = this.getDocumentObjectNode(this.xmlDocument.getFirstChild());
+                    documentObjectFound = documentObjectNode != null;
+
+                    // MsvId of the missive when the layout of the output folder depends on it
+                    if (this.outputLayout.needsMissiveId()) {
+                        this.missiveId = SmicOutputLayout.getMissiveId(this.xmlDocument);
+                    }
+                }
+
+                stage.success();
+
+            } catch (XMLStreamException ex) {
+
+                // Record the streaming error which interrupted the stage
+                stage.failure(ex);
+
+                // Report streaming errors as parsing errors of the missive XML document
+                throw new SAXException(ex);
+
+            } catch (Exception ex) {
+
+                // Record the exception which interrupted the stage
+                stage.failure(ex);
+
+                throw ex;
+
+            } finally {
+                stage.end();
+            }
+
+            // Check if the Document object node was found
+            if (documentObjectFound) {
+
+                // Names of the preliminary PDF file and of the missive XML document without the Document object node,
+                // and digest of the PDF document computed as it is decoded
+                String preliminaryPdfFilename;
+                String missiveXMLWithoutDocumentObjectFilename;
+                String documentDigest;
+
+                if (this.spill) {
+
+                    // Decode the PDF document and strip the Document object in a single streaming pass
+                    stage = this.beginStage("split");
+
+                    try {
+
+                        preliminaryPdfFilename = this.encodedPdfFilename.substring(0,
+                                this.encodedPdfFilename.length() - 4) + "_temp.pdf";
+                        missiveXMLWithoutDocumentObjectFilename = this.encodedPdfFilename.substring(0,
+                                this.encodedPdfFilename.length() - 4) + "_temp.xml";
+
+                        stage.setOutputSize(this.streamSplitter.split(this.tempFolder +
+                                System.getProperty("file.separator") + missiveXMLWithoutDocumentObjectFilename,
+                                this.tempFolder + System.getProperty("file.separator") + preliminaryPdfFilename));
+                        documentDigest = this.streamSplitter.getPdfDigests().get(0);
+                        stage.success();
+
+                    } catch (XMLStreamException ex) {
+
+                        // Record the streaming error which interrupted the stage
+                        stage.failure(ex);
+
+                        // Report streaming errors as parsing errors of the missive XML document
+                        throw new SAXException(ex);
+
+                    } catch (Exception ex) {
+
+                        // Record the exception which interrupted the stage
+                        stage.failure(ex);
+
+                        throw ex;
+
+                    } finally {
+                        stage.end();
+                    }
+
+                } else {
+
+                    // Generate the preliminary PDF file
+                    MessageDigest digest = SmicDigestUtils.newDigest();
+                    stage = this.beginStage("decode");
+
+                    try {
+                        stage.setInputSize(this.encodedPdf.length());
+                        preliminaryPdfFilename = this.getPreliminaryPdfFile(digest);
+                        documentDigest = SmicDigestUtils.toHex(digest);
+                        stage.success();
+                    } catch (Exception ex) {
+                        stage.failure(ex);
+                        throw ex;
+                    } finally {
+                        stage.end();
+                    }
+
+                    // Generate the missive XML document without the Document object node
+                    stage = this.beginStage("strip");
+
+                    try {
+                        missiveXMLWithoutDocumentObjectFilename =
+                                this.generateMissiveWithoutDocumentObject(documentObjectNode);
+                        stage.success();
+                    } catch (Exception ex) {
+                        stage.failure(ex);
+                        throw ex;
+                    } finally {
+                        stage.end();
+                    }
+                }
+
+                // Create the final PDF document with required XMP tags using the decoded PDF document
+                MessageDigest outputDigest = SmicDigestUtils.newDigest();
+                stage = this.beginStage("assemble");
+
+                try {
+
+                    // Set the name of the final PDF file
+                    this.pdfFilename = this.createFinalPdfDocument(generatorName, preliminaryPdfFilename,
+                            missiveXMLWithoutDocumentObjectFilename, outputDigest);
+
+                    // Size of the final PDF document
+                    if (stage.isEnabled() || conversion.isEnabled()) {
+                        long outputSize = this.outputStorage.size(this.getOutputPdfFilename());
+                        stage.setOutputSize(outputSize);
+                        conversion.setOutputSize(outputSize);
+                    }
+
+                    stage.success();
+
+                } catch (Exception ex) {
+
+                    // Record the exception which interrupted the stage
+                    stage.failure(ex);
+
+                    throw ex;
+
+                } finally {
+                    stage.end();
+                }
+
+                // Delete preliminary files used to create the output PDF
+                SmicFileUtils.deleteFile(this.tempFolder + System.getProperty("file.separator") +
+                        preliminaryPdfFilename);
+                SmicFileUtils.deleteFile(this.tempFolder + System.getProperty("file.separator") +
+                        missiveXMLWithoutDocumentObjectFilename);
+
+                // Digests of the missive XML document, read as it was parsed or split, of the PDF document and of the
+                // final PDF document
+                this.result = new SmicConversionResult(SmicStageRecorder.XML_TO_PDF, this.getXmlDigest(),
+                        Collections.singletonList(this.getOutputPdfFilename()),
+                        Collections.singletonList(SmicDigestUtils.toHex(outputDigest)),
+                        Collections.singletonList(this.encodedPdfFilename), Collections.singletonList(documentDigest));
+
+            } else {
+
+                // Throw exception since the Document object node was not found
+                throw new DocumentObjectNotFoundException(this.xmlFilename);
+            }
+
+            // Size of the converted missive XML document
+            if (conversion.isEnabled()) {
+                conversion.setInputSize(new File(this.xmlFilename).length());
+            }
+
+            conversion.success();
+
+        } catch (Exception ex) {
+
+            // Record the exception which interrupted the conversion
+            conversion.failure(ex);
+
+            throw ex;
+
+        } finally {
+            conversion.end();
+        }
+
+        return this.getOutputPdfFilename();
+    }
+
+    /**
+     * Convert every Document object of the specified missive XML document to a PDF document. The Document objects are
+     * found in a single scan of the missive and their PDF documents are decoded and assembled in parallel, each one
+     * carrying the missive XML document without any of its Document objects.
+     * 
+     * @param generatorName Name of the PDF document generator that will appear on the final output PDF
+     * @return Paths and names of the PDF documents, in the order of the Document objects within the missive
+     * @throws DocumentObjectNotFoundException
+     * @throws IOException
+     * @throws InterruptedIOException
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     * @throws InvalidPdfPageNumberException
+     * @throws DocumentException
+     * @throws SAXException
+     */
+    public List<String> convertAll(String generatorName) throws DocumentObjectNotFoundException, IOException,
+            TransformerConfigurationException, TransformerException, InvalidPdfPageNumberException, DocumentException,
+            SAXException {
+
+        // Paths and names of the PDF documents
+        List<String> outputFilenames;
+
+        // Record the complete conversion
+        SmicStageRecorder conversion = SmicStageRecorder.beginConversion(SmicStageRecorder.XML_TO_PDF,
+                this.xmlFilename);
+
+        try {
+
+            // Names of the encoded PDF documents, with their nodes and contents when the missive is parsed in memory
+            List<String> encodedPdfFilenames = new ArrayList<>();
+            List<String> encodedPdfs = new ArrayList<>();
+            List<Node> documentObjectNodes = new ArrayList<>();
+            SmicStageRecorder stage = this.beginStage("locate");
+
+            try {
+
+                if (this.spill) {
+
+                    // Stream the missive XML document to locate every Document object
+                    this.streamSplitter.locateDocumentObjects();
+                    encodedPdfFilenames.addAll(this.streamSplitter.getEncodedPdfFilenames());
+                    this.missiveId = this.streamSplitter.getMissiveId();
+
+                } else {
+                    this.getDocumentObjectNodes(this.xmlDocument.getFirstChild(), documentObjectNodes, encodedPdfs,
+                            encodedPdfFilenames);
+
+                    // MsvId of the missive when the layout of the output folder depends on it
+                    if (this.outputLayout.needsMissiveId()) {
+                        this.missiveId = SmicOutputLayout.getMissiveId(this.xmlDocument);
+                    }
+                }
+
+                stage.success();
+
+            } catch (XMLStreamException ex) {
+
+                // Record the streaming error which interrupted the stage
+                stage.failure(ex);
+
+                // Report streaming errors as parsing errors of the missive XML document
+                throw new SAXException(ex);
+
+            } catch (Exception ex) {
+
+                // Record the exception which interrupted the stage
+                stage.failure(ex);
+
+                throw ex;
+
+            } finally {
+                stage.end();
+            }
+
+            // Check if a Document object node was found
+            if (encodedPdfFilenames.isEmpty()) {
+                throw new DocumentObjectNotFoundException(this.xmlFilename);
+            }
+
+            // Names given to the PDF documents, and the missive XML document without the Document object nodes
+            List<String> baseNames = getDistinctBaseNames(encodedPdfFilenames);
+            String missiveXMLWithoutDocumentObjectsFilename = baseNames.get(0) + "_temp.xml";
+
+            if (this.spill) {
+
+                // Decode every PDF document and strip the Document objects in a single streaming pass
+                stage = this.beginStage("split");
+
+                try {
+
+                    List<String> preliminaryPdfFilenames = new ArrayList<>();
+
+                    for (String baseName : baseNames) {
+                        preliminaryPdfFilenames.add(this.tempFolder + System.getProperty("file.separator") +
+                                baseName + "_temp.pdf");
+                    }
+
+                    stage.setOutputSize(this.streamSplitter.split(this.tempFolder +
+                            System.getProperty("file.separator") + missiveXMLWithoutDocumentObjectsFilename,
+                            preliminaryPdfFilenames));
+                    stage.success();
+
+                } catch (XMLStreamException ex) {
+
+                    // Record the streaming error which interrupted the stage
+                    stage.failure(ex);
+
+                    // Report streaming errors as parsing errors of the missive XML document
+                    throw new SAXException(ex);
+
+                } catch (Exception ex) {
+
+                    // Record the exception which interrupted the stage
+                    stage.failure(ex);
+
+                    throw ex;
+
+                } finally {
+                    stage.end();
+                }
+
+            } else {
+
+                // Generate the missive XML document without the Document object nodes, their contents being kept
+                stage = this.beginStage("strip");
+
+                try {
+
+                    for (Node documentObjectNode : documentObjectNodes) {
+                        documentObjectNode.getParentNode().removeChild(documentObjectNode);
+                    }
+
+                    this.xmlDocument.normalizeDocument();
+
+                    SmicFileUtils.writeFile(this.xmlDocument, this.tempFolder + System.getProperty("file.separator") +
+                            missiveXMLWithoutDocumentObjectsFilename);
+                    stage.success();
+
+                } catch (Exception ex) {
+
+                    // Record the exception which interrupted the stage
+                    stage.failure(ex);
+
+                    throw ex;
+
+                } finally {
+                    stage.end();
+                }
+            }
+
+            // Digests of the PDF documents, unless they have already been decoded, and of the final PDF documents
+            MessageDigest[] documentDigests = new MessageDigest[baseNames.size()];
+            MessageDigest[] outputDigests = new MessageDigest[baseNames.size()];
+
+            for (int i = 0; i < baseNames.size(); i++) {
+                documentDigests[i] = this.spill ? null : SmicDigestUtils.newDigest();
+                outputDigests[i] = SmicDigestUtils.newDigest();
+            }
+
+            try {
+
+                // Decode and assemble the PDF documents in parallel
+                outputFilenames = this.createFinalPdfDocuments(generatorName, baseNames, this.spill ? null :
+                        encodedPdfs, missiveXMLWithoutDocumentObjectsFilename, documentDigests, outputDigests);
+
+            } finally {
+
+                // Delete the missive XML document shared by the PDF documents
+                SmicFileUtils.deleteFile(this.tempFolder + System.getProperty("file.separator") +
+                        missiveXMLWithoutDocumentObjectsFilename);
+            }
+
+            // Digests of the PDF documents and of the final PDF documents
+            List<String> documentDigestValues = new ArrayList<>();
+            List<String> outputDigestValues = new ArrayList<>();
+
+            for (int i = 0; i < baseNames.size(); i++) {
+                documentDigestValues.add(this.spill ? this.streamSplitter.getPdfDigests().get(i) :
+                        SmicDigestUtils.toHex(documentDigests[i]));
+                outputDigestValues.add(SmicDigestUtils.toHex(outputDigests[i]));
+            }
+
+            this.result = new SmicConversionResult(SmicStageRecorder.XML_TO_PDF, this.getXmlDigest(), outputFilenames,
+                    outputDigestValues, encodedPdfFilenames, documentDigestValues);
+
+            // Sizes of the converted missive XML document and of the PDF documents
+            if (conversion.isEnabled()) {
+
+                long outputSize = 0;
+
+                for (String outputFilename : outputFilenames) {
+                    outputSize += this.outputStorage.size(outputFilename);
+                }
+
+                conversion.setInputSize(new File(this.xmlFilename).length());
+                conversion.setOutputSize(outputSize);
+            }
+
+            conversion.success();
+
+        } catch (Exception ex) {
+
+            // Record the exception which interrupted the conversion
+            conversion.failure(ex);
+
+            throw ex;
+
+        } finally {
+            conversion.end();
+        }
+
+        return outputFilenames;
+    }
+
+    /**
+     * Get the result of the last conversion, with the digests of the PDF documents computed as they were decoded and
+     * of the final PDF documents computed as they were written
+     * 
+     * @return Result of the conversion, or null if no conversion has completed
+     */
+    public SmicConversionResult getResult() {
+        return this.result;
+    }
+
+    /**
+     * Get the digest of the missive XML document, computed as it was parsed or, when it is streamed, as it was split
+     * 
+     * @return Hexadecimal SHA-256 digest of the missive XML document
+     */
+    private String getXmlDigest() {
+        return this.spill ? this.streamSplitter.getSourceDigest() : this.xmlDigest;
+    }
+
+    /**
+     * Decode and assemble the PDF documents of a missive in parallel, on the threads shared by all the conversions, the
+     * PDF documents which have been completed being deleted if any of them fails
+     * 
+     * @param generatorName Name of the PDF document generator that will appear on the final output PDFs
+     * @param baseNames Names of the PDF documents without their extension
+     * @param encodedPdfs Base64 encoded PDF documents, or null if they have already been decoded to preliminary files
+     * @param xmlFilename Missive XML document filename
+     * @param documentDigests Message digests updated with the PDF documents as they are decoded, in the order of the
+     * given names, or null entries if they have already been decoded
+     * @param outputDigests Message digests updated with the final PDF documents, in the order of the given names
+     * @return Paths and names of the PDF documents, in the order of the given names
+     * @throws IOException
+     * @throws InterruptedIOException
+     * @throws InvalidPdfPageNumberException
+     * @throws DocumentException
+     */
+    private List<String> createFinalPdfDocuments(final String generatorName, List<String> baseNames,
+            List<String> encodedPdfs, final String xmlFilename, MessageDigest[] documentDigests,
+            MessageDigest[] outputDigests) throws IOException, InvalidPdfPageNumberException, DocumentException {
+
+        // Deadline of the conversion, attached to the threads working for it
+        final SmicDeadline deadline = SmicDeadline.current();
+
+        // Work submitted for each PDF document
+        List<Future<String>> results = new ArrayList<>();
+
+        try {
+
+            for (int i = 0; i < baseNames.size(); i++) {
+
+                final String baseName = baseNames.get(i);
+                final String encodedPdf = encodedPdfs != null ? encodedPdfs.get(i) : null;
+                final MessageDigest documentDigest = documentDigests[i];
+                final MessageDigest outputDigest = outputDigests[i];
+
+                results.add(SmicDocumentPool.submit(new Callable<String>() {
+
+                    @Override
+                    public String call() throws Exception {
+
+                        SmicDeadline previousDeadline = SmicDeadline.attach(deadline);
+
+                        try {
+                            return createFinalPdfDocument(generatorName, baseName, encodedPdf, xmlFilename,
+                                    documentDigest, outputDigest);
+                        } finally {
+                            SmicDeadline.attach(previousDeadline);
+                        }
+                    }
+                }));
+            }
+
+            // Wait for every PDF document, keeping the first failure
+            List<String> outputFilenames = new ArrayList<>();
+            Throwable failure = null;
+
+            for (Future<String> result : results) {
+
+                try {
+                    outputFilenames.add(result.get());
+                } catch (ExecutionException ex) {
+
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                }
+            }
+
+            if (failure == null) {
+                return outputFilenames;
+            }
+
+            // Deliver all the PDF documents of the missive or none of them
+            for (String outputFilename : outputFilenames) {
+                this.outputStorage.delete(outputFilename);
+            }
+
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof InvalidPdfPageNumberException) {
+                throw (InvalidPdfPageNumberException) failure;
+            } else if (failure instanceof DocumentException) {
+                throw (DocumentException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+
+            throw new IOException(failure);
+
+        } catch (InterruptedException ex) {
+
+            // Give up the conversion, keeping the interrupted status of the thread
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("The conversion of the missive has been interrupted.");
+
+        } finally {
+
+            // Stop the work left for the PDF documents, the threads being shared by other conversions
+            for (Future<String> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Decode, when it has not been decoded yet, and assemble one of the PDF documents of a missive
+     * 
+     * @param generatorName Name of the PDF document generator that will appear on the final output PDF
+     * @param baseName Name of the PDF document without its extension
+     * @param encodedPdf Base64 encoded PDF document, or null if it has already been decoded to its preliminary file
+     * @param xmlFilename Missive XML document filename
+     * @param documentDigest Message digest updated with the PDF document as it is decoded, or null
+     * @param outputDigest Message digest updated with the final PDF document as it is written
+     * @return Path and name of the PDF document
+     * @throws IOException
+     * @throws InvalidPdfPageNumberException
+     * @throws DocumentException
+     */
+    private String createFinalPdfDocument(String generatorName, String baseName, String encodedPdf,
+            String xmlFilename, MessageDigest documentDigest, MessageDigest outputDigest) throws IOException,
             InvalidPdfPageNumberException, DocumentException {
 
-        // Get the document object node
-        Node documentObjectNode = this.getDocumentObjectNode(this.xmlDocument.getFirstChild());
+        // Name of the preliminary PDF file
+        String preliminaryPdfFilename = baseName + "_temp.pdf";
 
-        // Check if the Document object node was found
-        if (documentObjectNode != null) {
+        try {
 
             // Generate the preliminary PDF file
-            String preliminaryPdfFilename = this.getPreliminaryPdfFile();
-
-            // Generate the missive XML document without the Document object node
-            String missiveXMLWithoutDocumentObjectFilename = 
-                    this.generateMissiveWithoutDocumentObject(documentObjectNode);
+            if (encodedPdf != null) {
+
+                SmicStageRecorder stage = this.beginStage("decode");
+
+                try {
+                    stage.setInputSize(encodedPdf.length());
+                    preliminaryPdfFilename = this.getPreliminaryPdfFile(encodedPdf, baseName + ".pdf", documentDigest);
+                    stage.success();
+                } catch (Exception ex) {
+                    stage.failure(ex);
+                    throw ex;
+                } finally {
+                    stage.end();
+                }
+            }
 
             // Create the final PDF document with required XMP tags using the decoded PDF document
-            this.createFinalPdfDocument(generatorName, preliminaryPdfFilename, missiveXMLWithoutDocumentObjectFilename);
+            SmicStageRecorder stage = this.beginStage("assemble");
+
+            try {
+
+                String outputFilename = SmicFileUtils.getPath(this.outputFolder, this.createFinalPdfDocument(
+                        generatorName, preliminaryPdfFilename, xmlFilename, outputDigest));
+
+                // Size of the final PDF document
+                if (stage.isEnabled()) {
+                    stage.setOutputSize(this.outputStorage.size(outputFilename));
+                }
+
+                stage.success();
+
+                return outputFilename;
+
+            } catch (Exception ex) {
 
-            // Delete preliminary files used to create the output PDF
+                // Record the exception which interrupted the stage
+                stage.failure(ex);
+
+                throw ex;
+
+            } finally {
+                stage.end();
+            }
+
+        } finally {
+
+            // Delete the preliminary file used to create the output PDF
             SmicFileUtils.deleteFile(this.tempFolder + System.getProperty("file.separator") + preliminaryPdfFilename);
-            SmicFileUtils.deleteFile(this.tempFolder + System.getProperty("file.separator") +
-                    missiveXMLWithoutDocumentObjectFilename);
+        }
+    }
+
+    /**
+     * Get the names given to the PDF documents of a missive, without their extension, the documents carrying the same
+     * name being told apart by their position within the missive
+     * 
+     * @param encodedPdfFilenames Names of the encoded PDF documents
+     * @return Distinct names without extension, in the order of the given names
+     */
+    private static List<String> getDistinctBaseNames(List<String> encodedPdfFilenames) {
 
-        } else {
+        List<String> baseNames = new ArrayList<>();
+        HashSet<String> usedNames = new HashSet<>();
 
-            // Throw exception since the Document object node was not found
-            throw new DocumentObjectNotFoundException(this.xmlFilename);
+        for (int i = 0; i < encodedPdfFilenames.size(); i++) {
+
+            String baseName = encodedPdfFilenames.get(i).substring(0, encodedPdfFilenames.get(i).length() - 4);
+
+            // Names differing only by their case would share a file on some file systems
+            for (int suffix = i + 1; !usedNames.add(baseName.toLowerCase()); suffix++) {
+                baseName = encodedPdfFilenames.get(i).substring(0, encodedPdfFilenames.get(i).length() - 4) + "_" +
+                        suffix;
+            }
+
+            baseNames.add(baseName);
         }
 
-        return this.getOutputPdfFilename();
+        return baseNames;
+    }
+
+    /**
+     * Start recording a stage of the conversion of the missive XML document
+     * 
+     * @param stage Name of the stage
+     * @return Recorder of the stage
+     * @throws ConversionTimeoutException
+     */
+    private SmicStageRecorder beginStage(String stage) throws ConversionTimeoutException {
+
+        // Abort the conversion between two stages once its deadline has passed
+        SmicDeadline.checkCurrent();
+
+        return SmicStageRecorder.beginStage(SmicStageRecorder.XML_TO_PDF, stage, this.xmlFilename);
     }
 
     /**
@@ -168,6 +887,54 @@ public class SmicXml {
         return documentObjectNode;
     }
 
+    /**
+     * Scan the missive XML object to detect every Document object containing an encoded PDF document, the Document
+     * objects enclosed by another one being left with it
+     * 
+     * @param node Node whose descendants are scanned
+     * @param documentObjectNodes Document object nodes found
+     * @param encodedPdfs Encoded PDF documents of the Document objects found
+     * @param encodedPdfFilenames Names of the encoded PDF documents of the Document objects found
+     */
+    private void getDocumentObjectNodes(Node node, List<Node> documentObjectNodes, List<String> encodedPdfs,
+            List<String> encodedPdfFilenames) {
+
+        // Get the child nodes of the current node
+        NodeList children = node.getChildNodes();
+
+        // Check if the list of child node is not empty
+        if (children != null) {
+
+            // Scan the list of child nodes and check the name of the node
+            for (int i = 0; i < children.getLength(); i++) {
+
+                // Current child node
+                Node childNode = children.item(i);
+
+                // Check the name of the node
+                if (childNode.getNodeName().toLowerCase().startsWith("document") ||
+                        childNode.getNodeName().toLowerCase().endsWith("document")) {
+
+                    // Contents node
+                    Node contentsNode = this.getContentsNode(childNode);
+
+                    // Test the 'Contents' node for required nodes and values, which it leaves in the class attributes
+                    if (contentsNode != null && this.testContentsNode(contentsNode)) {
+
+                        documentObjectNodes.add(childNode);
+                        encodedPdfs.add(this.encodedPdf);
+                        encodedPdfFilenames.add(this.encodedPdfFilename);
+
+                        continue;
+                    }
+                }
+
+                // Traverse the child nodes of the current node
+                this.getDocumentObjectNodes(childNode, documentObjectNodes, encodedPdfs, encodedPdfFilenames);
+            }
+        }
+    }
+
     /**
      * Get the 'Contents' child node of the given node
      * 
@@ -319,23 +1086,60 @@ public class SmicXml {
             throw new PdfDocumentNotGeneratedException();
         }
 
-        return this.outputFolder + System.getProperty("file.separator") + this.pdfFilename;
+        return SmicFileUtils.getPath(this.outputFolder, this.pdfFilename);
     }
 
     /**
      * Create the preliminary output PDF file
      * 
+     * @param digest Message digest updated with the PDF document as it is decoded
+     * @return Name of preliminary PDF file
+     * @throws IOException
+     */
+    private String getPreliminaryPdfFile(MessageDigest digest) throws IOException {
+
+        // PDF document of the located Document object
+        return this.getPreliminaryPdfFile(this.encodedPdf, this.encodedPdfFilename, digest);
+    }
+
+    /**
+     * Create the preliminary output PDF file of an encoded PDF document
+     * 
+     * @param encodedPdf Base64 encoded PDF document
+     * @param encodedPdfFilename Name of the encoded PDF document
+     * @param digest Message digest updated with the PDF document as it is decoded
      * @return Name of preliminary PDF file
+     * @throws IOException
      */
-    private String getPreliminaryPdfFile() throws IOException {
+    private String getPreliminaryPdfFile(String encodedPdf, String encodedPdfFilename, MessageDigest digest) throws
+            IOException {
 
         // Name of the preliminary PDF file
-        String preliminaryPdfFilename = this.encodedPdfFilename.substring(0, this.encodedPdfFilename.length() - 4) +
+        String preliminaryPdfFilename = encodedPdfFilename.substring(0, encodedPdfFilename.length() - 4) +
                 "_temp.pdf";
 
-        // Write decoded PDF file contents to file
-        SmicFileUtils.writeFile(Base64.decodeBase64(this.encodedPdf), this.tempFolder +
-                System.getProperty("file.separator") + preliminaryPdfFilename);
+        // Reusable chunks of the encoded PDF file contents
+        char[] encodedChars = new char[8192];
+        byte[] encodedBytes = new byte[encodedChars.length];
+
+        // Decode the PDF file contents one chunk at a time to the file instead of decoding them to a single array,
+        // digesting the decoded contents on their way to the file
+        try (OutputStream os = new Base64OutputStream(new DigestOutputStream(new SmicChannelOutputStream(
+                this.tempFolder + System.getProperty("file.separator") + preliminaryPdfFilename), digest), false)) {
+
+            for (int i = 0; i < encodedPdf.length(); i += encodedChars.length) {
+
+                int length = Math.min(encodedChars.length, encodedPdf.length() - i);
+                encodedPdf.getChars(i, i + length, encodedChars, 0);
+
+                // Base 64 characters are all ASCII
+                for (int j = 0; j < length; j++) {
+                    encodedBytes[j] = (byte) encodedChars[j];
+                }
+
+                os.write(encodedBytes, 0, length);
+            }
+        }
 
         return preliminaryPdfFilename;
     }
@@ -347,9 +1151,10 @@ public class SmicXml {
      * @return Name of the missive XML document without the Document object node
      * @throws TransformerConfigurationException
      * @throws TransformerException
+     * @throws IOException
      */
     private String generateMissiveWithoutDocumentObject(Node documentObjectNode) throws 
-            TransformerConfigurationException, TransformerException {
+            TransformerConfigurationException, TransformerException, IOException {
 
         // Name of missive XML document without encoded PDF document
         String missiveNoDocumentObjectFilename =
@@ -375,140 +1180,167 @@ public class SmicXml {
      * @param generatorName Name of the PDF document generator that will appear on the final output PDF
      * @param pdfFilename Preliminary PDF filename
      * @param xmlFilename Missive XML document filename
+     * @param digest Message digest updated with the final PDF document as it is written
+     * @return Name of the final PDF file, relative to the output folder
      * @throws IOException
      * @throws InvalidPdfPageNumberException
      * @throws DocumentException
      */
-    private void createFinalPdfDocument(String generatorName, String pdfFilename, String xmlFilename)
-            throws IOException, InvalidPdfPageNumberException, DocumentException {
+    private String createFinalPdfDocument(String generatorName, String pdfFilename, String xmlFilename,
+            MessageDigest digest) throws IOException, InvalidPdfPageNumberException, DocumentException {
+
+        // Final PDF filename, relative to the output folder
+        String finalPdfFilename = this.outputLayout.resolve(pdfFilename.substring(0, pdfFilename.length() - 9) + ".pdf",
+                this.missiveId);
 
-        // Final PDF filename
-        String finalPdfFilename = pdfFilename.substring(0, pdfFilename.length() - 9) + ".pdf";
+        // Path of the preliminary PDF file
+        String preliminaryPdfPath = this.tempFolder + System.getProperty("file.separator") + pdfFilename;
 
-        // Read the preliminary PDF file
-        PdfReader pdfReader = new PdfReader(this.tempFolder + System.getProperty("file.separator") + pdfFilename);
+        // Read the preliminary PDF file, keeping large documents on disk and reading their objects on demand
+        PdfReader pdfReader = SmicPdfUtils.getPdfReader(preliminaryPdfPath, this.spill);
 
-        // Get the size of the PDF document page
-        Rectangle pageSize = SmicPdfUtils.getPageSize(pdfReader, 1);
+        try {
 
-        // Output filename
-        String outputFilename = this.outputFolder + System.getProperty("file.separator") + finalPdfFilename;
+            // Get the size of the PDF document page
+            Rectangle pageSize = SmicPdfUtils.getPageSize(pdfReader, 1);
 
-        // Create PDF document using the print size of the ODS document
-        com.itextpdf.text.Document document = new com.itextpdf.text.Document(pageSize);
+            // Output filename
+            String outputFilename = SmicFileUtils.getPath(this.outputFolder, finalPdfFilename);
 
-        // Final PDF document output file
-        File outFile = new File(outputFilename);
+            // Create PDF document using the print size of the ODS document
+            com.itextpdf.text.Document document = new com.itextpdf.text.Document(pageSize);
 
-        // PDF document content writer
-        FileOutputStream fileOutputStream = new FileOutputStream(outFile);
-        PdfWriter writer = PdfWriter.getInstance(document, fileOutputStream);
+            // PDF document content writer, discarded if the final PDF document cannot be completed
+            try (SmicStorageOutput fileOutputStream = this.outputStorage.create(outputFilename)) {
 
-        // PDF document version
-        writer.setPdfVersion(PdfWriter.PDF_VERSION_1_5);
-        writer.setPDFXConformance(PdfWriter.PDFA1A);
-        writer.setTagged();
+                // PDF document writer, digesting the document as it is written and leaving the output open so that it
+                // can be committed once complete
+                PdfWriter writer = PdfWriter.getInstance(document, new DigestOutputStream(fileOutputStream, digest));
+                writer.setCloseStream(false);
 
-        // Open the final PDF document
-        document.open();
+                // PDF document version
+                writer.setPdfVersion(PdfWriter.PDF_VERSION_1_5);
 
-        // Decoded PDF document info
-        HashMap<String, String> documentInfo = pdfReader.getInfo();
+                // Objects and cross-reference table written to compressed streams in compact mode
+                if (this.compact) {
+                    writer.setFullCompression();
+                }
+                writer.setPDFXConformance(PdfWriter.PDFA1A);
+                writer.setTagged();
+
+                // Open the final PDF document
+                document.open();
+
+                // Decoded PDF document info
+                HashMap<String, String> documentInfo = pdfReader.getInfo();
         
-        // PDF document tags
-        document.addAuthor(documentInfo.get("Author"));
-        document.addCreator(documentInfo.get("Creator"));
-        document.addCreationDate();
-        document.addKeywords(documentInfo.get("Keywords"));
-        document.addProducer();
-        document.addSubject(documentInfo.get("Subject"));
-        document.addTitle(documentInfo.get("Title"));
-
-        // Get a handle to PDF document content
-        PdfContentByte contentByte = writer.getDirectContent();
-
-        // Import the first page of the decoded PDF file
-        PdfImportedPage page = writer.getImportedPage(pdfReader, 1);
-
-        // Add the duplicated page to the new PDF document
-        contentByte.addTemplate(page, 0, 0);
-
-        // Set the colour profile of the document
-        PdfDictionary outputIntent = new PdfDictionary(PdfName.OUTPUTINTENT);
+                // PDF document tags
+                document.addAuthor(documentInfo.get("Author"));
+                document.addCreator(documentInfo.get("Creator"));
+                document.addCreationDate();
+                document.addKeywords(documentInfo.get("Keywords"));
+                document.addProducer();
+                document.addSubject(documentInfo.get("Subject"));
+                document.addTitle(documentInfo.get("Title"));
+
+                // Get a handle to PDF document content
+                PdfContentByte contentByte = writer.getDirectContent();
+
+                // Import the first page of the decoded PDF file
+                PdfImportedPage page = writer.getImportedPage(pdfReader, 1);
+
+                // Add the duplicated page to the new PDF document
+                contentByte.addTemplate(page, 0, 0);
+
+                // Set the colour profile of the document
+                PdfDictionary outputIntent = new PdfDictionary(PdfName.OUTPUTINTENT);
         
-        // Colour profile dictionary properties
-        outputIntent.put(PdfName.OUTPUTCONDITIONIDENTIFIER, new PdfString("sRGB IEC61966-2.1"));
-        outputIntent.put(PdfName.INFO, new PdfString("sRGB IEC61966-2.1"));
-        outputIntent.put(PdfName.S, PdfName.GTS_PDFA1);
+                // Colour profile dictionary properties
+                outputIntent.put(PdfName.OUTPUTCONDITIONIDENTIFIER, new PdfString("sRGB IEC61966-2.1"));
+                outputIntent.put(PdfName.INFO, new PdfString("sRGB IEC61966-2.1"));
+                outputIntent.put(PdfName.S, PdfName.GTS_PDFA1);
 
-        // Load the PDF document ICC profile
-        ICC_Profile icc = ICC_Profile.getInstance(SmicXml.class.getResourceAsStream("srgb.icc"));
+                // Load the PDF document ICC profile
+                ICC_Profile icc;
+
+                try (InputStream iccStream = SmicXml.class.getResourceAsStream("srgb.icc")) {
+                    icc = ICC_Profile.getInstance(iccStream);
+                }
 
-        // PDF ICC profile
-        PdfICCBased pdfIcc = new PdfICCBased(icc);
-        pdfIcc.remove(PdfName.ALTERNATE);
+                // PDF ICC profile
+                PdfICCBased pdfIcc = new PdfICCBased(icc);
+                pdfIcc.remove(PdfName.ALTERNATE);
         
-        // Add profile to PDF document
-        outputIntent.put(PdfName.DESTOUTPUTPROFILE, writer.addToBody(pdfIcc).getIndirectReference()); 
-        writer.getExtraCatalog().put(PdfName.OUTPUTINTENTS, new PdfArray(outputIntent)); 
+                // Add profile to PDF document
+                outputIntent.put(PdfName.DESTOUTPUTPROFILE, writer.addToBody(pdfIcc).getIndirectReference()); 
+                writer.getExtraCatalog().put(PdfName.OUTPUTINTENTS, new PdfArray(outputIntent)); 
 
-        // Byte array output stream
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                // Byte array output stream
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
        
-        // XMP data writer
-        XmpWriter xmp = new XmpWriter(baos);
+                // XMP data writer
+                XmpWriter xmp = new XmpWriter(baos);
 
-        // XMP DublinCore schema
-        DublinCoreSchema dcs = new DublinCoreSchema();
+                // XMP DublinCore schema
+                DublinCoreSchema dcs = new DublinCoreSchema();
 
-        // DublinCore schema properties
-        dcs.addAuthor(documentInfo.get("Author"));
-        dcs.addDescription("");
-        dcs.addPublisher("smurf");
-        dcs.addSubject(documentInfo.get("Subject"));
-        dcs.addTitle(documentInfo.get("Title"));
+                // DublinCore schema properties
+                dcs.addAuthor(documentInfo.get("Author"));
+                dcs.addDescription("");
+                dcs.addPublisher("smurf");
+                dcs.addSubject(documentInfo.get("Subject"));
+                dcs.addTitle(documentInfo.get("Title"));
 
-        // Add DublinCore data to XMP
-        xmp.addRdfDescription(dcs);
+                // Add DublinCore data to XMP
+                xmp.addRdfDescription(dcs);
 
-        // XMP schema for SEPAmail properties
-        XmpBasicSchema cp = new XmpBasicSchema();
+                // XMP schema for SEPAmail properties
+                XmpBasicSchema cp = new XmpBasicSchema();
 
-        // Encoded false
-        String jFalse = "false";
-        byte[] bFalse = jFalse.getBytes("UTF-8");
+                // Encoded false
+                String jFalse = "false";
+                byte[] bFalse = jFalse.getBytes("UTF-8");
 
-        // Encoded generator name
-        byte[] bGeneratorName = generatorName.getBytes("UTF-8");
+                // Encoded generator name
+                byte[] bGeneratorName = generatorName.getBytes("UTF-8");
 
-        // SEPAmail XMP properties
-        cp.setProperty("xmp:sepamail_missive", SmicFileUtils.encodedMissiveXmlContent(this.tempFolder +
-                System.getProperty("file.separator") + xmlFilename));
-        cp.setProperty("xmp:sepamail_document.signed", new String(bFalse, "UTF-8"));
-        cp.setProperty("xmp:sepamail_document.generator", new String(bGeneratorName, "UTF-8"));
+                // SEPAmail XMP properties
+                cp.setProperty("xmp:sepamail_missive", SmicFileUtils.encodedMissiveXmlContent(this.tempFolder +
+                        System.getProperty("file.separator") + xmlFilename));
+                cp.setProperty("xmp:sepamail_document.signed", new String(bFalse, "UTF-8"));
+                cp.setProperty("xmp:sepamail_document.generator", new String(bGeneratorName, "UTF-8"));
 
-        // Add SEPAmail data to XMP
-        xmp.addRdfDescription(cp);
+                // Add SEPAmail data to XMP
+                xmp.addRdfDescription(cp);
 
-        // XMP schema for PDF conformance
-        PdfA1Schema cs = new PdfA1Schema();
+                // XMP schema for PDF conformance
+                PdfA1Schema cs = new PdfA1Schema();
 
-        // Set conformance schema properties
-        cs.addConformance("A");
+                // Set conformance schema properties
+                cs.addConformance("A");
 
-        // Add conformance schema to PDF
-        xmp.addRdfDescription(cs);
+                // Add conformance schema to PDF
+                xmp.addRdfDescription(cs);
 
-        // Close XMP writer
-        xmp.close();
+                // Close XMP writer
+                xmp.close();
 
-        // Add XMP data to the PDF file
-        writer.setXmpMetadata(baos.toByteArray());
+                // Add XMP data to the PDF file
+                writer.setXmpMetadata(baos.toByteArray());
 
-        // Close the PDF document
-        document.close();
+                // Close the PDF document
+                document.close();
+
+                // Make the final PDF document visible in the output folder
+                fileOutputStream.commit();
+            }
+
+        } finally {
+
+            // Release the preliminary PDF file
+            pdfReader.close();
+        }
 
-        // Set the name of the final PDF file
-        this.pdfFilename = finalPdfFilename;
+        return finalPdfFilename;
     }
 }
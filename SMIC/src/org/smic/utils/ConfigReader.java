@@ -3,6 +3,7 @@ package org.smic.utils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import org.smic.exceptions.ConfigurationFileNotFoundException;
 import org.smic.exceptions.InvalidConfigurationException;
@@ -50,7 +51,10 @@ public class ConfigReader {
 
         // Load list of required and optional properties for the SMOC configuration file
         Properties configDefinitionProperties = new Properties();
-        configDefinitionProperties.load(ConfigReader.class.getResourceAsStream("smic.properties"));
+
+        try (InputStream is = ConfigReader.class.getResourceAsStream("smic.properties")) {
+            configDefinitionProperties.load(is);
+        }
 
         // Array of required properties
         ArrayList<String> requiredProperties = 
@@ -58,7 +62,10 @@ public class ConfigReader {
 
         // Load configuration file
         Properties configProperties = new Properties();
-        configProperties.load(new FileInputStream(this.configFile));
+
+        try (FileInputStream fis = new FileInputStream(this.configFile)) {
+            configProperties.load(fis);
+        }
 
         // Check contents of configuration file
         if (configProperties.isEmpty()) {
@@ -0,0 +1,65 @@
+package org.smic.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SmicBufferPool class keeps a bounded number of direct byte buffers which are reused by the file channel streams
+ * of the SMIC module, so that reading and writing payloads allocates fixed size buffers once instead of arrays as large
+ * as the payloads for every conversion.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicBufferPool {
+
+    /**
+     * Size in bytes of the pooled buffers
+     */
+    public static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Maximum number of idle buffers kept by the pool
+     */
+    public static final int MAX_POOLED_BUFFERS = 16;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    /**
+     * Take a buffer from the pool, allocating a new one when the pool is empty
+     *
+     * @return Cleared direct byte buffer
+     */
+    public static ByteBuffer acquire() {
+
+        // Reuse an idle buffer if there is one
+        ByteBuffer buffer = buffers.poll();
+
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        pooledBuffers.decrementAndGet();
+
+        buffer.clear();
+
+        return buffer;
+    }
+
+    /**
+     * Give a buffer back to the pool, leaving it to the garbage collector when the pool is full
+     *
+     * @param buffer Buffer taken from the pool
+     */
+    public static void release(ByteBuffer buffer) {
+
+        // Keep the buffer only if the pool has room for it
+        if (buffer != null && pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            buffers.offer(buffer);
+        } else if (buffer != null) {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.smic.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import org.smic.concurrency.SmicDeadline;
+
+/**
+ * The SmicChannelInputStream class reads a file through a file channel. Small files are read in chunks of a direct
+ * buffer taken from the buffer pool, while large files are mapped in memory one window at a time so that their content
+ * is read straight from the pages of the operating system cache, which are shared with the other processes reading the
+ * same file. Each window is unmapped as soon as it has been read, so that no mapping keeps the file open or locked
+ * until the garbage collector runs; files are only mapped on platforms where windows can be unmapped, and a stream
+ * which fails to unmap a window reads the rest of its file through a pooled buffer.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicChannelInputStream extends InputStream {
+
+    /**
+     * Size in bytes from which files are mapped in memory instead of being read through a pooled buffer
+     */
+    public static final long MIN_MAPPED_SIZE = 1024 * 1024;
+
+    /**
+     * Maximum size in bytes of the part of a file which is mapped at any time
+     */
+    public static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    // Method releasing a mapped buffer and the object it is invoked on, or null if the platform does not provide it
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+
+        Method invokeCleaner = null;
+        Object unsafe = null;
+
+        // Java 9 and later release mapped buffers through sun.misc.Unsafe, which is only reachable by reflection
+        try {
+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+
+            // Files are then read through pooled buffers
+            invokeCleaner = null;
+            unsafe = null;
+        }
+
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private ByteBuffer buffer;
+    private FileChannel channel;
+    private boolean mapped;
+    private long position;
+    private long size;
+
+    /**
+     * SmicChannelInputStream class constructor
+     *
+     * @param filename Path and name of the file that needs to be read
+     * @throws IOException
+     */
+    public SmicChannelInputStream(String filename) throws IOException {
+
+        // Initialise class attributes
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        this.size = this.channel.size();
+        this.mapped = this.size >= MIN_MAPPED_SIZE && INVOKE_CLEANER != null;
+
+        if (this.mapped) {
+
+            // Map the first window of the file
+            this.position = Math.min(MAPPED_WINDOW_SIZE, this.size);
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.position);
+
+        } else {
+
+            this.position = 0;
+
+            // The pooled buffer starts empty
+            this.buffer = SmicBufferPool.acquire();
+            this.buffer.limit(0);
+        }
+    }
+
+    /**
+     * Read a byte from the file
+     *
+     * @return Byte read or -1 at the end of the file
+     * @throws IOException
+     */
+    @Override
+    public int read() throws IOException {
+
+        // Check for the end of the file
+        if (!this.fillBuffer()) {
+            return -1;
+        }
+
+        return this.buffer.get() & 0xff;
+    }
+
+    /**
+     * Read bytes from the file to part of an array
+     *
+     * @param b Array receiving the bytes
+     * @param off Position of the first byte in the array
+     * @param len Maximum number of bytes
+     * @return Number of bytes read or -1 at the end of the file
+     * @throws IOException
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        // Check for the end of the file
+        if (!this.fillBuffer()) {
+            return -1;
+        }
+
+        // Copy the buffered bytes
+        int length = Math.min(len, this.buffer.remaining());
+        this.buffer.get(b, off, length);
+
+        return length;
+    }
+
+    /**
+     * Get the number of bytes which can be read without blocking
+     *
+     * @return Number of buffered bytes
+     */
+    @Override
+    public int available() {
+        return this.buffer == null ? 0 : this.buffer.remaining();
+    }
+
+    /**
+     * Close the file and give the buffer back to the pool
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        // Check if the stream is already closed
+        if (this.channel == null) {
+            return;
+        }
+
+        // Unmap the current window or give the pooled buffer back
+        if (this.mapped) {
+            unmap(this.buffer);
+        } else {
+            SmicBufferPool.release(this.buffer);
+        }
+
+        this.buffer = null;
+
+        this.channel.close();
+        this.channel = null;
+    }
+
+    /**
+     * Read or map the next chunk of the file in the buffer when the buffer has been consumed
+     *
+     * @return Whether the buffer contains bytes to read
+     * @throws IOException
+     */
+    private boolean fillBuffer() throws IOException {
+
+        // Check if bytes remain from the last read
+        if (this.buffer.hasRemaining()) {
+            return true;
+        }
+
+        // Stop reading once the deadline of the conversion has passed
+        SmicDeadline.checkCurrent();
+
+        if (this.mapped) {
+
+            // Check for the end of the file
+            if (this.position >= this.size) {
+                return false;
+            }
+
+            // Unmap the consumed window, without waiting for the garbage collector, and map the next one
+            if (unmap(this.buffer)) {
+
+                long length = Math.min(MAPPED_WINDOW_SIZE, this.size - this.position);
+
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+                this.position += length;
+
+                return true;
+            }
+
+            // Read the rest of the file through a pooled buffer rather than leave more windows mapped
+            this.mapped = false;
+            this.channel.position(this.position);
+
+            this.buffer = SmicBufferPool.acquire();
+        }
+
+        this.buffer.clear();
+
+        int read;
+
+        do {
+            read = this.channel.read(this.buffer);
+        } while (read == 0);
+
+        this.buffer.flip();
+
+        return read > 0;
+    }
+
+    /**
+     * Unmap a window of the file without waiting for the garbage collector
+     *
+     * @param window Mapped window, which must not be read once unmapped
+     * @return Whether the window has been unmapped
+     */
+    private static boolean unmap(ByteBuffer window) {
+
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, window);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+
+            // The window stays mapped until the garbage collector releases it
+            return false;
+        }
+    }
+}
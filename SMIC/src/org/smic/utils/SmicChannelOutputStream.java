@@ -0,0 +1,133 @@
+package org.smic.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import org.smic.concurrency.SmicDeadline;
+
+/**
+ * The SmicChannelOutputStream class writes a file through a file channel in chunks of a direct buffer taken from the
+ * buffer pool, whatever the size of the arrays written to the stream
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicChannelOutputStream extends OutputStream {
+
+    private ByteBuffer buffer;
+    private FileChannel channel;
+
+    /**
+     * SmicChannelOutputStream class constructor
+     *
+     * @param filename Path and name of the file that needs to be written, replaced if it already exists
+     * @throws IOException
+     */
+    public SmicChannelOutputStream(String filename) throws IOException {
+
+        // Initialise class attributes
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer = SmicBufferPool.acquire();
+    }
+
+    /**
+     * Write a byte to the file
+     *
+     * @param b Byte that needs to be written
+     * @throws IOException
+     */
+    @Override
+    public void write(int b) throws IOException {
+
+        // Write the buffer to the file when it is full, unless the deadline of the conversion has passed
+        if (!this.buffer.hasRemaining()) {
+            SmicDeadline.checkCurrent();
+            this.writeBuffer();
+        }
+
+        this.buffer.put((byte) b);
+    }
+
+    /**
+     * Write part of an array to the file
+     *
+     * @param b Array containing the bytes that need to be written
+     * @param off Position of the first byte
+     * @param len Number of bytes
+     * @throws IOException
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        // Copy the array to the buffer one chunk at a time, checking the deadline of the conversion at each chunk
+        while (len > 0) {
+
+            if (!this.buffer.hasRemaining()) {
+                SmicDeadline.checkCurrent();
+                this.writeBuffer();
+            }
+
+            int length = Math.min(len, this.buffer.remaining());
+            this.buffer.put(b, off, length);
+
+            off += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Write the buffered bytes to the file
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        this.writeBuffer();
+    }
+
+    /**
+     * Write the buffered bytes to the file, close the file and give the buffer back to the pool
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        // Check if the stream is already closed
+        if (this.channel == null) {
+            return;
+        }
+
+        try {
+            this.writeBuffer();
+        } finally {
+
+            // Release the file and the buffer even if the last write fails
+            SmicBufferPool.release(this.buffer);
+            this.buffer = null;
+
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    /**
+     * Write the content of the buffer to the file channel
+     *
+     * @throws IOException
+     */
+    private void writeBuffer() throws IOException {
+
+        this.buffer.flip();
+
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+
+        this.buffer.clear();
+    }
+}
@@ -0,0 +1,78 @@
+package org.smic.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SmicDigestUtils is a class which groups static methods pertaining the SHA-256 digests computed by the SMIC module
+ * while the files it reads and writes are streamed, so that no file has to be read again to be digested.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicDigestUtils {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Create a SHA-256 message digest
+     *
+     * @return SHA-256 message digest
+     */
+    public static MessageDigest newDigest() {
+
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Complete a message digest and get its hexadecimal form
+     *
+     * @param digest Message digest, reset once completed
+     * @return Hexadecimal digest
+     */
+    public static String toHex(MessageDigest digest) {
+
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Compute the SHA-256 digest of the content of a file which has not been digested while it was read
+     *
+     * @param filename Path and name of the file
+     * @return Hexadecimal SHA-256 digest
+     * @throws IOException
+     */
+    public static String digest(String filename) throws IOException {
+
+        MessageDigest digest = newDigest();
+
+        // Content of the file
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream is = new SmicChannelInputStream(filename)) {
+
+            int read;
+
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        // Hexadecimal form of the digest
+        return toHex(digest);
+    }
+}
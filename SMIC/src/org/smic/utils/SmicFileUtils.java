@@ -4,7 +4,9 @@ import java.io.*;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.w3c.dom.Document;
 
 /**
@@ -15,6 +17,11 @@ import org.w3c.dom.Document;
  */
 public class SmicFileUtils {
 
+    /**
+     * Largest file size which can be held in memory, leaving room for its Base64 encoded form in a single array
+     */
+    public static final long MAX_IN_MEMORY_SIZE = Integer.MAX_VALUE / 2;
+
     /**
      * Write the contents of a byte array to the specified file
      * 
@@ -24,8 +31,10 @@ public class SmicFileUtils {
      */
     public static void writeFile(byte[] content, String filename) throws IOException {
 
-        // Write contents to file
-        IOUtils.write(content, new FileOutputStream(new File(filename)));
+        // Write contents to file in chunks of a pooled buffer and release the file handle
+        try (OutputStream os = new SmicChannelOutputStream(filename)) {
+            os.write(content);
+        }
     }
 
     /**
@@ -35,20 +44,34 @@ public class SmicFileUtils {
      * @param filename Path and name of the file
      * @throws TransformerConfigurationException
      * @throws TransformerException
+     * @throws IOException
      */
     public static void writeFile(Document content, String filename) throws TransformerConfigurationException,
+            TransformerException, IOException {
+
+        // Output file and stream, closed even if the transformation fails
+        try (OutputStream os = new SmicChannelOutputStream(filename)) {
+            writeFile(content, os);
+        }
+    }
+
+    /**
+     * Write the contents of an XML document object to the specified stream
+     * 
+     * @param content XML document object
+     * @param os Output stream, left open
+     * @throws TransformerConfigurationException
+     * @throws TransformerException
+     */
+    public static void writeFile(Document content, OutputStream os) throws TransformerConfigurationException,
             TransformerException {
 
         // Document object for writing to file
         Source source = new DOMSource(content);
 
-        // Output file and stream
-        File outputXmlFile = new File(filename);
-        Result result = new StreamResult(outputXmlFile);
-
-        // Write the DOM document to the file
+        // Write the DOM document to the stream
         Transformer transformer = TransformerFactory.newInstance().newTransformer();
-        transformer.transform(source, result);
+        transformer.transform(source, new StreamResult(os));
     }
 
     /**
@@ -101,20 +124,15 @@ public class SmicFileUtils {
         // Missive XML file
         File xmlFile = new File(xmlFilename);
 
-        // Missive XML file content array
-        byte[] content;
-
-        // Try to read the content of the missive XML file
-        try (FileInputStream fis = new FileInputStream(xmlFile)) {
-
-            // Content array size
-            content = new byte[(int)xmlFile.length()];
+        // Missive XML file content, sized for the common case of one byte per character
+        StringBuilderWriter content = new StringBuilderWriter((int) xmlFile.length());
 
-            // Read content
-            fis.read(content);
+        // Decode the content of the missive XML file in chunks of a pooled buffer
+        try (Reader reader = new InputStreamReader(new SmicChannelInputStream(xmlFilename), "UTF-8")) {
+            IOUtils.copyLarge(reader, content);
         }
 
-        return new String(content, "UTF-8");
+        return content.toString();
     }
 
     /**
@@ -135,4 +153,143 @@ public class SmicFileUtils {
             return "";
         }
     }
+
+    /**
+     * Get the path and name of a file in a folder
+     * 
+     * @param folder Path of the folder, or an empty string for a name relative to the root of a storage
+     * @param filename Name of the file, which may include sub-folders
+     * @return Path and name of the file
+     */
+    public static String getPath(String folder, String filename) {
+
+        // Names relative to the root of a storage have no folder
+        if (folder == null || folder.length() == 0) {
+            return filename;
+        }
+
+        return folder + System.getProperty("file.separator") + filename;
+    }
+
+    /**
+     * Check if a file is larger than the given threshold and must therefore be processed through scratch files
+     * 
+     * @param filename Path and name of the file
+     * @param threshold Size in bytes above which the file is considered large
+     * @return Whether the file is larger than the threshold
+     */
+    public static boolean isLargeFile(String filename, long threshold) {
+
+        // Size of the file
+        long size = new File(filename).length();
+
+        return size > threshold || size > MAX_IN_MEMORY_SIZE;
+    }
+
+    /**
+     * Write a template file in which a marker is replaced by the content of another file to a stream, without loading
+     * the content file in memory. Whitespace at the end of the content file is left out.
+     * 
+     * @param templateFilename Path and name of the template file, which is expected to be small
+     * @param marker Marker that needs to be replaced in the template file
+     * @param contentFilename Path and name of the file which replaces the marker
+     * @param os Output stream, left open
+     * @throws IOException
+     */
+    public static void spliceFile(String templateFilename, String marker, String contentFilename, OutputStream os)
+            throws IOException {
+
+        // Single marker of the template
+        spliceFiles(templateFilename, new String[] { marker }, new String[] { contentFilename }, os);
+    }
+
+    /**
+     * Write a template file in which markers are replaced by the contents of other files to a stream, in a single pass
+     * and without loading the content files in memory. Whitespace at the end of each content file is left out.
+     * 
+     * @param templateFilename Path and name of the template file, which is expected to be small
+     * @param markers Markers that need to be replaced in the template file, in their order within the template
+     * @param contentFilenames Paths and names of the files which replace the markers
+     * @param os Output stream, left open
+     * @throws IOException
+     */
+    public static void spliceFiles(String templateFilename, String[] markers, String[] contentFilenames,
+            OutputStream os) throws IOException {
+
+        // Content of the template file
+        byte[] template = FileUtils.readFileToByteArray(new File(templateFilename));
+
+        // Position of the template written so far
+        int position = 0;
+
+        for (int i = 0; i < markers.length; i++) {
+
+            // Position of the marker in the template, after the previous marker
+            byte[] marker = markers[i].getBytes("UTF-8");
+            int markerIndex = indexOf(template, marker, position);
+
+            if (markerIndex < 0) {
+                throw new IOException("The marker " + markers[i] + " was not found in " + templateFilename + ".");
+            }
+
+            // Length of the content without its trailing whitespace
+            long contentLength;
+
+            try (RandomAccessFile raf = new RandomAccessFile(contentFilenames[i], "r")) {
+
+                contentLength = raf.length();
+
+                while (contentLength > 0) {
+
+                    raf.seek(contentLength - 1);
+                    int last = raf.read();
+
+                    if (last != '\n' && last != '\r' && last != ' ' && last != '\t') {
+                        break;
+                    }
+
+                    contentLength--;
+                }
+            }
+
+            // Write the template up to the marker, then the content in place of the marker
+            try (InputStream is = new SmicChannelInputStream(contentFilenames[i])) {
+
+                os.write(template, position, markerIndex - position);
+                IOUtils.copyLarge(is, os, 0, contentLength);
+            }
+
+            position = markerIndex + marker.length;
+        }
+
+        // Rest of the template
+        os.write(template, position, template.length - position);
+    }
+
+    /**
+     * Get the position of the first occurrence of a sequence of bytes in an array
+     * 
+     * @param content Array that needs to be searched
+     * @param sequence Sequence of bytes that needs to be found
+     * @param fromIndex Position from which the array is searched
+     * @return Position of the sequence or -1 if it was not found
+     */
+    private static int indexOf(byte[] content, byte[] sequence, int fromIndex) {
+
+        // Scan the possible positions of the sequence
+        for (int i = fromIndex; i <= content.length - sequence.length; i++) {
+
+            int j = 0;
+
+            while (j < sequence.length && content[i + j] == sequence[j]) {
+                j++;
+            }
+
+            if (j == sequence.length) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
 }
@@ -0,0 +1,190 @@
+package org.smic.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The SmicFormatSniffer class tells PDF documents and missive XML documents apart from the first bytes of a file, and
+ * looks for the missive XML tag in the XMP metadata which PDF documents produced by the SMIC module keep uncompressed
+ * near their end, so that files which cannot be converted are rejected without being parsed and the missive carried by
+ * a PDF document is read without reading the document.
+ * 
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicFormatSniffer {
+
+    /**
+     * Format of a PDF document
+     */
+    public static final String FORMAT_PDF = "pdf";
+
+    /**
+     * Format of a missive XML document
+     */
+    public static final String FORMAT_MISSIVE_XML = "xml";
+
+    /**
+     * Number of bytes at the start of a file from which its format is detected
+     */
+    public static final int HEAD_LENGTH = 4096;
+
+    /**
+     * Number of bytes at the end of a PDF document in which the missive XML tag is looked for
+     */
+    public static final int TAIL_LENGTH = 64 * 1024;
+
+    private static final byte[] PDF_MAGIC = { '%', 'P', 'D', 'F', '-' };
+    private static final int PDF_MAGIC_OFFSET = 1024;
+
+    private XMLInputFactory inputFactory;
+    private byte[] missiveTag;
+    private String rootElement;
+    private XMLInputFactory tagInputFactory;
+
+    /**
+     * SmicFormatSniffer class constructor
+     * 
+     * @param missiveTag XMP tag holding the missive XML document in PDF documents
+     * @param rootElement Local name of the root element of missive XML documents
+     * @throws UnsupportedEncodingException
+     */
+    public SmicFormatSniffer(String missiveTag, String rootElement) throws UnsupportedEncodingException {
+
+        // Initialise class attributes
+        this.missiveTag = ("<" + missiveTag).getBytes("UTF-8");
+        this.rootElement = rootElement;
+
+        // Streaming parser factory which does not resolve external entities
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+
+        // Parser factory for the missive XML tag, whose prefix is declared by the enclosing XMP packet
+        this.tagInputFactory = XMLInputFactory.newInstance();
+        this.tagInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        this.tagInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+    }
+
+    /**
+     * Detect the format of a file from its first bytes
+     * 
+     * @param head First bytes of the file, up to HEAD_LENGTH bytes
+     * @param length Number of bytes read
+     * @return FORMAT_PDF, FORMAT_MISSIVE_XML or null if the file is neither a PDF document nor a missive XML document
+     */
+    public String sniff(byte[] head, int length) {
+
+        // PDF readers accept the header anywhere in the first kilobyte of the file
+        if (indexOf(head, Math.min(length, PDF_MAGIC_OFFSET + PDF_MAGIC.length), PDF_MAGIC) >= 0) {
+            return FORMAT_PDF;
+        }
+
+        // Missive XML documents are recognised by their root element, whatever its prefix
+        try {
+
+            XMLStreamReader reader = this.inputFactory.createXMLStreamReader(new ByteArrayInputStream(head, 0,
+                    length));
+
+            try {
+
+                // Skip the declaration, comments and processing instructions preceding the root element
+                while (reader.hasNext()) {
+
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        return reader.getLocalName().equals(this.rootElement) ? FORMAT_MISSIVE_XML : null;
+                    }
+                }
+
+            } finally {
+                reader.close();
+            }
+
+        } catch (XMLStreamException ex) {
+
+            // Not well formed XML, or a root element which does not start within the first bytes
+            return null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Check if the end of a PDF document holds the missive XML tag of its XMP metadata
+     * 
+     * @param tail Last bytes of the PDF document, up to TAIL_LENGTH bytes
+     * @param length Number of bytes read
+     * @return Whether the missive XML tag was found
+     */
+    public boolean hasMissiveTag(byte[] tail, int length) {
+        return indexOf(tail, length, this.missiveTag) >= 0;
+    }
+
+    /**
+     * Extract the missive XML document held by the missive XML tag found at the end of a PDF document
+     * 
+     * @param tail Last bytes of the PDF document, up to TAIL_LENGTH bytes
+     * @param length Number of bytes read
+     * @return Missive XML document or null if the missive XML tag is not wholly held by the bytes read
+     */
+    public String extractMissive(byte[] tail, int length) {
+
+        int tagIndex = indexOf(tail, length, this.missiveTag);
+
+        if (tagIndex < 0) {
+            return null;
+        }
+
+        // The tag is read on its own, out of the XMP packet declaring its prefix
+        try {
+
+            XMLStreamReader reader = this.tagInputFactory.createXMLStreamReader(new ByteArrayInputStream(tail,
+                    tagIndex, length - tagIndex), "UTF-8");
+
+            try {
+
+                reader.nextTag();
+
+                return reader.getElementText();
+
+            } finally {
+                reader.close();
+            }
+
+        } catch (XMLStreamException ex) {
+
+            // The end of the tag lies beyond the bytes read
+            return null;
+        }
+    }
+
+    /**
+     * Get the position of the first occurrence of a sequence of bytes in part of an array
+     * 
+     * @param content Array that needs to be searched
+     * @param length Number of bytes of the array that need to be searched
+     * @param sequence Sequence of bytes that needs to be found
+     * @return Position of the sequence or -1 if it was not found
+     */
+    private static int indexOf(byte[] content, int length, byte[] sequence) {
+
+        // Scan the possible positions of the sequence
+        for (int i = 0; i <= length - sequence.length; i++) {
+
+            int j = 0;
+
+            while (j < sequence.length && content[i + j] == sequence[j]) {
+                j++;
+            }
+
+            if (j == sequence.length) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,282 @@
+package org.smic.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.smic.concurrency.SmicDeadline;
+import org.smic.storage.SmicStorageOutput;
+
+/**
+ * The SmicOutputStream class writes an output file of the SMIC module asynchronously to a temporary file, in chunks of
+ * buffers taken from the buffer pool. The output only appears under its final name once committed; closing the stream
+ * without committing it discards the temporary file, so that a failed conversion leaves no partial output behind.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicOutputStream extends SmicStorageOutput {
+
+    private static final int MAX_PENDING_WRITES = 4;
+
+    private ByteBuffer buffer;
+    private AsynchronousFileChannel channel;
+    private Path path;
+    private ArrayDeque<PendingWrite> pendingWrites;
+    private long position;
+    private Path tempPath;
+    private SmicOutputWriter writer;
+
+    /**
+     * SmicOutputStream class constructor
+     *
+     * @param writer Output writer which commits the output
+     * @param filename Path and name of the output file
+     * @throws IOException
+     */
+    SmicOutputStream(SmicOutputWriter writer, String filename) throws IOException {
+
+        // Initialise class attributes
+        this.path = Paths.get(filename).toAbsolutePath();
+        this.pendingWrites = new ArrayDeque<>();
+        this.position = 0;
+        this.writer = writer;
+
+        // Temporary file in the output folder, so that it can be renamed atomically, created with the same permissions
+        // as any other file of the folder
+        while (this.channel == null) {
+
+            this.tempPath = this.path.resolveSibling("." + this.path.getFileName() + "." +
+                    Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".part");
+
+            try {
+                this.channel = AsynchronousFileChannel.open(this.tempPath, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException ex) {
+                // Another output drew the same name
+            }
+        }
+
+        this.buffer = SmicBufferPool.acquire();
+    }
+
+    /**
+     * Get the path and name of the output file
+     *
+     * @return Path and name of the output file
+     */
+    public String getFilename() {
+        return this.path.toString();
+    }
+
+    /**
+     * Write a byte to the output
+     *
+     * @param b Byte that needs to be written
+     * @throws IOException
+     */
+    @Override
+    public void write(int b) throws IOException {
+
+        // Send the buffer to the file when it is full, unless the deadline of the conversion has passed
+        if (!this.buffer.hasRemaining()) {
+            SmicDeadline.checkCurrent();
+            this.submitBuffer();
+        }
+
+        this.buffer.put((byte) b);
+    }
+
+    /**
+     * Write part of an array to the output
+     *
+     * @param b Array containing the bytes that need to be written
+     * @param off Position of the first byte
+     * @param len Number of bytes
+     * @throws IOException
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        // Copy the array to the buffer one chunk at a time, checking the deadline of the conversion at each chunk
+        while (len > 0) {
+
+            if (!this.buffer.hasRemaining()) {
+                SmicDeadline.checkCurrent();
+                this.submitBuffer();
+            }
+
+            int length = Math.min(len, this.buffer.remaining());
+            this.buffer.put(b, off, length);
+
+            off += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Wait for every write to the temporary file and make the output visible under its final name
+     *
+     * @throws IOException
+     */
+    @Override
+    public void commit() throws IOException {
+
+        // Complete the writes
+        this.submitBuffer();
+
+        while (!this.pendingWrites.isEmpty()) {
+            this.completeWrite(this.pendingWrites.poll());
+        }
+
+        SmicBufferPool.release(this.buffer);
+        this.buffer = null;
+
+        // The writer takes over the channel and the temporary file
+        AsynchronousFileChannel committedChannel = this.channel;
+        this.channel = null;
+
+        this.writer.publish(committedChannel, this.tempPath, this.path);
+    }
+
+    /**
+     * Discard the output if it has not been committed
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        // Check if the output has already been committed or discarded
+        if (this.channel == null) {
+            return;
+        }
+
+        try {
+
+            // Let the writes in progress complete before the file is deleted
+            while (!this.pendingWrites.isEmpty()) {
+
+                PendingWrite pendingWrite = this.pendingWrites.poll();
+
+                try {
+                    pendingWrite.future.get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    // The output is discarded anyway
+                } finally {
+                    SmicBufferPool.release(pendingWrite.buffer);
+                }
+            }
+
+        } finally {
+
+            SmicBufferPool.release(this.buffer);
+            this.buffer = null;
+
+            this.channel.close();
+            this.channel = null;
+
+            Files.deleteIfExists(this.tempPath);
+        }
+    }
+
+    /**
+     * Start writing the content of the buffer to the file and continue with a new buffer, waiting for the oldest write
+     * when too many writes are in progress
+     *
+     * @throws IOException
+     */
+    private void submitBuffer() throws IOException {
+
+        this.buffer.flip();
+
+        // Check if there is anything to write
+        if (!this.buffer.hasRemaining()) {
+            this.buffer.clear();
+            return;
+        }
+
+        // Start the write at the end of the content sent so far
+        long writePosition = this.position;
+        this.position += this.buffer.remaining();
+
+        this.pendingWrites.add(new PendingWrite(this.buffer, writePosition,
+                this.channel.write(this.buffer, writePosition)));
+
+        this.buffer = SmicBufferPool.acquire();
+
+        // Bound the number of buffers in flight
+        if (this.pendingWrites.size() > MAX_PENDING_WRITES) {
+            this.completeWrite(this.pendingWrites.poll());
+        }
+    }
+
+    /**
+     * Wait for a write to complete, finishing it if the file channel wrote only part of the buffer
+     *
+     * @param pendingWrite Write in progress
+     * @throws IOException
+     */
+    private void completeWrite(PendingWrite pendingWrite) throws IOException {
+
+        try {
+
+            long writePosition = pendingWrite.position + pendingWrite.future.get();
+
+            while (pendingWrite.buffer.hasRemaining()) {
+                writePosition += this.channel.write(pendingWrite.buffer, writePosition).get();
+            }
+
+        } catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing " + this.path + ".");
+
+        } catch (ExecutionException ex) {
+
+            // Report the failure of the write
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+
+            throw new IOException(ex.getCause());
+
+        } finally {
+            SmicBufferPool.release(pendingWrite.buffer);
+        }
+    }
+
+    /**
+     * The PendingWrite class holds a write in progress and the buffer it uses
+     */
+    private static class PendingWrite {
+
+        private ByteBuffer buffer;
+        private Future<Integer> future;
+        private long position;
+
+        /**
+         * PendingWrite class constructor
+         *
+         * @param buffer Buffer being written
+         * @param position Position of the buffer in the file
+         * @param future Result of the write
+         */
+        private PendingWrite(ByteBuffer buffer, long position, Future<Integer> future) {
+
+            // Initialise class attributes
+            this.buffer = buffer;
+            this.future = future;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package org.smic.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SmicOutputWriter class writes the resulting files of the SMIC module. Every output is written asynchronously to a
+ * temporary file next to its final name and is renamed atomically once complete, so that a partial output is never
+ * visible in the output folder. When durable outputs are required, the outputs completed by concurrent conversions are
+ * committed together by a single thread: each file is synchronised to disk before being renamed and each output folder
+ * is synchronised once per group, so that the cost of making the renames durable is shared by the whole group.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicOutputWriter {
+
+    /**
+     * Default time in milliseconds during which outputs are gathered before being committed together
+     */
+    public static final long DEFAULT_GROUP_COMMIT_DELAY = 2;
+
+    private static final int MAX_GROUP_SIZE = 256;
+
+    private LinkedBlockingQueue<PendingCommit> commitQueue;
+    private long groupCommitDelay;
+    private boolean sync;
+
+    /**
+     * SmicOutputWriter class constructor
+     *
+     * @param sync Whether outputs are synchronised to disk before being made visible
+     * @param groupCommitDelay Time in milliseconds during which outputs are gathered before being committed together
+     */
+    public SmicOutputWriter(boolean sync, long groupCommitDelay) {
+
+        // Initialise class attributes
+        this.commitQueue = new LinkedBlockingQueue<>();
+        this.groupCommitDelay = groupCommitDelay;
+        this.sync = sync;
+
+        // Start the thread committing durable outputs
+        if (sync) {
+
+            Thread committer = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    commitGroups();
+                }
+            }, "smic-output-commit");
+
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    /**
+     * Check if outputs are synchronised to disk before being made visible
+     *
+     * @return Whether outputs are durable once committed
+     */
+    public boolean isSync() {
+        return this.sync;
+    }
+
+    /**
+     * Open an output file
+     *
+     * @param filename Path and name of the output file
+     * @return Output stream which must be committed to make the file visible
+     * @throws IOException
+     */
+    public SmicOutputStream open(String filename) throws IOException {
+        return new SmicOutputStream(this, filename);
+    }
+
+    /**
+     * Make a completely written output visible under its final name
+     *
+     * @param channel Channel of the temporary file, closed by this method
+     * @param tempPath Temporary file
+     * @param path Final path of the output
+     * @throws IOException
+     */
+    void publish(AsynchronousFileChannel channel, Path tempPath, Path path) throws IOException {
+
+        // Outputs which do not need to be durable are renamed straight away
+        if (!this.sync) {
+
+            try {
+                channel.close();
+                move(tempPath, path);
+            } catch (IOException ex) {
+                Files.deleteIfExists(tempPath);
+                throw ex;
+            }
+
+            return;
+        }
+
+        // Wait for the group of the output to be committed
+        PendingCommit commit = new PendingCommit(channel, tempPath, path);
+        this.commitQueue.add(commit);
+
+        try {
+            commit.done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while committing " + path + ".");
+        }
+
+        if (commit.error != null) {
+            throw commit.error;
+        }
+    }
+
+    /**
+     * Commit the outputs in groups, for as long as the application runs
+     */
+    private void commitGroups() {
+
+        while (true) {
+
+            // Group of outputs committed together
+            List<PendingCommit> group = new ArrayList<>();
+
+            try {
+
+                // Wait for an output, then for the outputs completed shortly after
+                group.add(this.commitQueue.take());
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.groupCommitDelay);
+                long remaining;
+
+                while (group.size() < MAX_GROUP_SIZE && (remaining = deadline - System.nanoTime()) > 0) {
+
+                    PendingCommit commit = this.commitQueue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                    if (commit != null) {
+                        group.add(commit);
+                    }
+                }
+
+                this.commitQueue.drainTo(group, MAX_GROUP_SIZE - group.size());
+
+            } catch (InterruptedException ex) {
+
+                // Keep committing, outputs may still be waiting
+                Thread.interrupted();
+            }
+
+            this.commit(group);
+        }
+    }
+
+    /**
+     * Synchronise and rename a group of outputs, then synchronise their folders once
+     *
+     * @param group Outputs that need to be committed
+     */
+    private void commit(List<PendingCommit> group) {
+
+        // Folders of the renamed outputs
+        Set<Path> folders = new LinkedHashSet<>();
+
+        for (PendingCommit commit : group) {
+
+            try {
+
+                // Make the content durable before it becomes visible
+                try {
+                    commit.channel.force(true);
+                } finally {
+                    commit.channel.close();
+                }
+
+                move(commit.tempPath, commit.path);
+                folders.add(commit.path.getParent());
+
+            } catch (IOException ex) {
+
+                commit.error = ex;
+
+                try {
+                    Files.deleteIfExists(commit.tempPath);
+                } catch (IOException deleteEx) {
+                    // The temporary file is left behind
+                }
+            }
+        }
+
+        // Make the renames durable, once per folder
+        for (Path folder : folders) {
+
+            try (FileChannel folderChannel = FileChannel.open(folder, StandardOpenOption.READ)) {
+                folderChannel.force(true);
+            } catch (IOException ex) {
+                // Folders cannot be synchronised on every platform, in which case the renames are left to the system
+            }
+        }
+
+        // Release the conversions waiting for the group
+        for (PendingCommit commit : group) {
+            commit.done.countDown();
+        }
+    }
+
+    /**
+     * Rename a file atomically, replacing the target if it exists
+     *
+     * @param source File that needs to be renamed
+     * @param target New path of the file
+     * @throws IOException
+     */
+    private static void move(Path source, Path target) throws IOException {
+
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The PendingCommit class holds an output waiting for its group to be committed
+     */
+    private static class PendingCommit {
+
+        private AsynchronousFileChannel channel;
+        private CountDownLatch done;
+        private IOException error;
+        private Path path;
+        private Path tempPath;
+
+        /**
+         * PendingCommit class constructor
+         *
+         * @param channel Channel of the temporary file
+         * @param tempPath Temporary file
+         * @param path Final path of the output
+         */
+        private PendingCommit(AsynchronousFileChannel channel, Path tempPath, Path path) {
+
+            // Initialise class attributes
+            this.channel = channel;
+            this.done = new CountDownLatch(1);
+            this.error = null;
+            this.path = path;
+            this.tempPath = tempPath;
+        }
+    }
+}
@@ -5,10 +5,14 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.HashMap;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import org.apache.commons.io.IOUtils;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -20,6 +24,8 @@ import org.xml.sax.SAXException;
  */
 public class SmicPdfReader {
 
+    private String digest;
+    private boolean partialRead;
     private String source;
     private Document xmlDocument;
     private HashMap<String, String> documentInfo;
@@ -42,6 +48,16 @@ public class SmicPdfReader {
         return this.documentInfo;
     }
 
+    /**
+     * Get the digest of the PDF file, computed as it was loaded
+     * 
+     * @return Hexadecimal SHA-256 digest of the PDF file, or null if the PDF file was mapped in memory or partly read
+     * instead of being loaded
+     */
+    public String getDigest() {
+        return this.digest;
+    }
+
     /**
      * SmicPdfReader class constructor
      * 
@@ -54,7 +70,27 @@ public class SmicPdfReader {
     public SmicPdfReader(String source) throws FileNotFoundException, IOException, ParserConfigurationException,
             SAXException {
 
+        // Read the whole PDF file
+        this(source, false);
+    }
+
+    /**
+     * SmicPdfReader class constructor
+     * 
+     * @param source Path and name of the PDF file that needs to be converted
+     * @param partialRead Whether only the parts of the PDF file holding the document info and the metadata are read,
+     * which is preferred for PDF files too large to be held in memory
+     * @throws FileNotFoundException
+     * @throws IOException
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     */
+    public SmicPdfReader(String source, boolean partialRead) throws FileNotFoundException, IOException,
+            ParserConfigurationException, SAXException {
+
         // Initialise class attributes
+        this.digest = null;
+        this.partialRead = partialRead;
         this.source = source;
         this.xmlDocument = null;
 
@@ -78,14 +114,40 @@ public class SmicPdfReader {
         // Check if the source file exists
         if (sourceFile.exists()) {
 
-            // Source file exists so we read the PDF file
-            PdfReader pdfReader = new PdfReader(this.source);
+            // Source file exists so we read the PDF file, either whole or through mapped pages or random access
+            PdfReader pdfReader;
+
+            if (!this.partialRead && sourceFile.length() < SmicChannelInputStream.MIN_MAPPED_SIZE) {
+
+                // Small PDF files are loaded whole, and digested as they are loaded
+                MessageDigest sourceDigest = SmicDigestUtils.newDigest();
+
+                try (InputStream is = new DigestInputStream(new SmicChannelInputStream(this.source), sourceDigest)) {
+                    pdfReader = new PdfReader(IOUtils.toByteArray(is));
+                }
+
+                this.digest = SmicDigestUtils.toHex(sourceDigest);
+
+            } else {
+                pdfReader = SmicPdfUtils.getPdfReader(this.source, this.partialRead);
+            }
+
+            // Metadata of the PDF file
+            byte[] metadata;
+
+            try {
+
+                // Get document info
+                this.documentInfo = pdfReader.getInfo();
+
+                // Get the metadata of the PDF file
+                metadata = pdfReader.getMetadata();
 
-            // Get document info
-            this.documentInfo = pdfReader.getInfo();
+            } finally {
 
-            // Get the metadata of the PDF file
-            byte[] metadata = pdfReader.getMetadata();
+                // Release the PDF file
+                pdfReader.close();
+            }
 
             // Input stream from the PDF metadata
             ByteArrayInputStream bais = new ByteArrayInputStream(metadata);
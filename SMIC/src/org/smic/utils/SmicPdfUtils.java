@@ -2,10 +2,17 @@ package org.smic.utils;
 
 import com.itextpdf.text.Rectangle;
 import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import org.apache.commons.codec.binary.Base64;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.io.output.WriterOutputStream;
 import org.smic.exceptions.InvalidPdfPageNumberException;
 
 /**
@@ -37,6 +44,34 @@ public class SmicPdfUtils {
         return pdfReader.getPageSize(page);
     }
 
+    /**
+     * Open a PDF file for reading. Large files are mapped in memory and their objects are read on demand from the
+     * mapped pages instead of being copied to the heap; files too large to be mapped at once are read on demand from
+     * the file when a partial read is requested, and are otherwise loaded whole.
+     * 
+     * @param pdfFilename Path and name of the PDF file
+     * @param partialRead Whether the PDF file must not be loaded whole in memory
+     * @return PDF file reader
+     * @throws IOException
+     */
+    public static PdfReader getPdfReader(String pdfFilename, boolean partialRead) throws IOException {
+
+        // Size of the PDF file
+        long size = new File(pdfFilename).length();
+
+        // Map large PDF files which fit in a single mapping
+        if (size >= SmicChannelInputStream.MIN_MAPPED_SIZE && size <= Integer.MAX_VALUE) {
+            return new PdfReader(new RandomAccessFileOrArray(pdfFilename, false, false), null);
+        }
+
+        // Read larger PDF files through random access to the file
+        if (partialRead) {
+            return new PdfReader(new RandomAccessFileOrArray(pdfFilename, false, true), null);
+        }
+
+        return new PdfReader(pdfFilename);
+    }
+
     /**
      * Encode PDF given file content in base 64
      * 
@@ -46,26 +81,85 @@ public class SmicPdfUtils {
      */
     public static String encodePdf(String pdfFilename) throws IOException {
 
+        // The PDF file content is not digested
+        return encodePdf(pdfFilename, (MessageDigest) null);
+    }
+
+    /**
+     * Encode PDF given file content in base 64, digesting the content as it is read
+     * 
+     * @param pdfFilename Path and name of the PDF file that needs to be encoded
+     * @param digest Message digest updated with the PDF file content, or null
+     * @return Base64 file content encoded string
+     * @throws IOException 
+     */
+    public static String encodePdf(String pdfFilename, MessageDigest digest) throws IOException {
+
         // PDF file
         File pdfFile = new File(pdfFilename);
 
-        // PDF file content byte array
-        byte[] content;
+        // Encoded PDF file content, sized for the encoded length of the PDF file
+        StringBuilderWriter content = new StringBuilderWriter((int) ((pdfFile.length() + 2) / 3 * 4));
 
-        // Try to read the content of the PDF file
-        try (FileInputStream fis = new FileInputStream(pdfFile)) {
+        // Stream the PDF file content in chunks of a pooled buffer through a Base 64 encoder without line breaks
+        try (InputStream is = digestStream(new SmicChannelInputStream(pdfFilename), digest);
+                OutputStream os = new Base64OutputStream(new WriterOutputStream(content, "US-ASCII"), true, 0,
+                null)) {
+            IOUtils.copyLarge(is, os);
+        }
+
+        // Encoded PDF file content
+        return content.toString();
+    }
+
+    /**
+     * Encode PDF given file content in base 64 to a file, wrapping the encoded content in lines of the given length, so
+     * that PDF files too large to be held in memory can be encoded through a bounded buffer
+     * 
+     * @param pdfFilename Path and name of the PDF file that needs to be encoded
+     * @param encodedFilename Path and name of the file where the encoded content will be written
+     * @param lineLength Maximum number of characters in a line of encoded content
+     * @return Number of bytes of encoded content
+     * @throws IOException
+     */
+    public static long encodePdf(String pdfFilename, String encodedFilename, int lineLength) throws IOException {
+
+        // The PDF file content is not digested
+        return encodePdf(pdfFilename, encodedFilename, lineLength, null);
+    }
 
-            // Set the size of the content byte array
-            content = new byte[(int)pdfFile.length()];
+    /**
+     * Encode PDF given file content in base 64 to a file, wrapping the encoded content in lines of the given length and
+     * digesting the content as it is read
+     * 
+     * @param pdfFilename Path and name of the PDF file that needs to be encoded
+     * @param encodedFilename Path and name of the file where the encoded content will be written
+     * @param lineLength Maximum number of characters in a line of encoded content
+     * @param digest Message digest updated with the PDF file content, or null
+     * @return Number of bytes of encoded content
+     * @throws IOException
+     */
+    public static long encodePdf(String pdfFilename, String encodedFilename, int lineLength, MessageDigest digest)
+            throws IOException {
 
-            // Read the content of the PDF file
-            fis.read(content);
+        // Stream the PDF file content in chunks of pooled buffers through the Base 64 encoder
+        try (InputStream is = digestStream(new SmicChannelInputStream(pdfFilename), digest);
+                OutputStream os = new Base64OutputStream(new SmicChannelOutputStream(encodedFilename), true,
+                lineLength, new byte[] { '\n' })) {
+            IOUtils.copyLarge(is, os);
         }
 
-        // Base 64 encoder instance
-        Base64 encoder = new Base64();
+        return new File(encodedFilename).length();
+    }
 
-        // Encoded PDF file content
-        return encoder.encodeToString(content);
+    /**
+     * Digest the content of a stream as it is read
+     * 
+     * @param is Input stream
+     * @param digest Message digest updated with the content of the stream, or null
+     * @return Input stream updating the message digest, or the given stream if there is no message digest
+     */
+    private static InputStream digestStream(InputStream is, MessageDigest digest) {
+        return digest != null ? new DigestInputStream(is, digest) : is;
     }
 }
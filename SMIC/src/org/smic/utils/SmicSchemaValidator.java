@@ -0,0 +1,270 @@
+package org.smic.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
+import org.smic.exceptions.InvalidMissiveException;
+import org.w3c.dom.Document;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * The SmicSchemaValidator class validates missive XML documents against a W3C XML schema as they are read for their
+ * conversion, so that validation does not read the documents a second time. Schemas are compiled once per process and
+ * shared by every conversion, whatever its thread. Documents parsed in memory are validated from their DOM tree, which
+ * is left unchanged, and documents which are streamed have the events of their stream forwarded to the validator.
+ * Streamed documents are validated with their values held in memory one element at a time, the largest being the
+ * encoded PDF document.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicSchemaValidator {
+
+    // Compiled schemas, by canonical path of their file
+    private static final HashMap<String, Schema> SCHEMAS = new HashMap<>();
+
+    private AttributesImpl attributes;
+    private XMLStreamReader reader;
+    private ValidatorHandler validatorHandler;
+
+    /**
+     * SmicSchemaValidator class constructor, starting the validation of a streamed document
+     *
+     * @param schema Compiled schema
+     * @param source Path and name of the missive XML document, reported by validation errors
+     * @param reader Reader of the streamed document, whose location is reported by validation errors
+     * @throws SAXException
+     */
+    public SmicSchemaValidator(Schema schema, String source, final XMLStreamReader reader) throws SAXException {
+
+        // Initialise class attributes
+        this.attributes = new AttributesImpl();
+        this.reader = reader;
+        this.validatorHandler = schema.newValidatorHandler();
+
+        this.validatorHandler.setErrorHandler(new ValidationErrorHandler(source));
+
+        // Location of the event being validated
+        this.validatorHandler.setDocumentLocator(new Locator() {
+
+            @Override
+            public String getPublicId() {
+                return reader.getLocation().getPublicId();
+            }
+
+            @Override
+            public String getSystemId() {
+                return reader.getLocation().getSystemId();
+            }
+
+            @Override
+            public int getLineNumber() {
+                return reader.getLocation().getLineNumber();
+            }
+
+            @Override
+            public int getColumnNumber() {
+                return reader.getLocation().getColumnNumber();
+            }
+        });
+
+        this.validatorHandler.startDocument();
+    }
+
+    /**
+     * Get the schema compiled from the given file, compiling it when it is first used by the process
+     *
+     * @param schemaFilename Path and name of the W3C XML schema file
+     * @return Compiled schema
+     * @throws IOException
+     * @throws SAXException
+     */
+    public static Schema getSchema(String schemaFilename) throws IOException, SAXException {
+
+        File schemaFile = new File(schemaFilename).getCanonicalFile();
+
+        synchronized (SCHEMAS) {
+
+            Schema schema = SCHEMAS.get(schemaFile.getPath());
+
+            if (schema == null) {
+
+                // Check if the schema file exists
+                if (!schemaFile.isFile()) {
+                    throw new IOException("The specified schema file, " + schemaFilename + ", was not found.");
+                }
+
+                // Schemas imported or included by the schema are resolved relative to its file
+                schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(schemaFile);
+                SCHEMAS.put(schemaFile.getPath(), schema);
+            }
+
+            return schema;
+        }
+    }
+
+    /**
+     * Validate a missive XML document parsed in memory, which must have been parsed with namespace support
+     *
+     * @param schema Compiled schema
+     * @param document Missive XML document
+     * @param source Path and name of the missive XML document, reported by validation errors
+     * @throws InvalidMissiveException
+     * @throws IOException
+     * @throws SAXException
+     */
+    public static void validate(Schema schema, Document document, String source) throws IOException, SAXException {
+
+        Validator validator = schema.newValidator();
+        validator.setErrorHandler(new ValidationErrorHandler(source));
+
+        // The DOM tree is only read
+        validator.validate(new DOMSource(document, new File(source).toURI().toString()));
+    }
+
+    /**
+     * Forward the current event of the streamed document to the validator
+     *
+     * @throws InvalidMissiveException
+     * @throws SAXException
+     */
+    public void forward() throws SAXException {
+
+        XMLStreamReader reader = this.reader;
+
+        switch (reader.getEventType()) {
+
+            case XMLStreamConstants.START_ELEMENT:
+
+                // Namespaces declared by the element, followed by the element and its attributes
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    this.validatorHandler.startPrefixMapping(nonNull(reader.getNamespacePrefix(i)),
+                            nonNull(reader.getNamespaceURI(i)));
+                }
+
+                this.attributes.clear();
+
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    this.attributes.addAttribute(nonNull(reader.getAttributeNamespace(i)),
+                            reader.getAttributeLocalName(i), qualifiedName(reader.getAttributePrefix(i),
+                            reader.getAttributeLocalName(i)), "CDATA", reader.getAttributeValue(i));
+                }
+
+                this.validatorHandler.startElement(nonNull(reader.getNamespaceURI()), reader.getLocalName(),
+                        qualifiedName(reader.getPrefix(), reader.getLocalName()), this.attributes);
+                break;
+
+            case XMLStreamConstants.END_ELEMENT:
+
+                this.validatorHandler.endElement(nonNull(reader.getNamespaceURI()), reader.getLocalName(),
+                        qualifiedName(reader.getPrefix(), reader.getLocalName()));
+
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    this.validatorHandler.endPrefixMapping(nonNull(reader.getNamespacePrefix(i)));
+                }
+                break;
+
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+
+                this.validatorHandler.characters(reader.getTextCharacters(), reader.getTextStart(),
+                        reader.getTextLength());
+                break;
+
+            case XMLStreamConstants.END_DOCUMENT:
+
+                this.validatorHandler.endDocument();
+                break;
+
+            default:
+
+                // Comments and processing instructions are not validated
+                break;
+        }
+    }
+
+    /**
+     * Get the qualified name of an element or of an attribute
+     *
+     * @param prefix Prefix of the name, null or empty when the name has no prefix
+     * @param localName Local name
+     * @return Qualified name
+     */
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    /**
+     * Replace a missing prefix or namespace by an empty string, as expected by SAX handlers
+     *
+     * @param value Prefix or namespace
+     * @return Value or an empty string
+     */
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * The ValidationErrorHandler class stops the validation at the first error of a document
+     */
+    private static class ValidationErrorHandler implements ErrorHandler {
+
+        private String source;
+
+        /**
+         * ValidationErrorHandler class constructor
+         *
+         * @param source Path and name of the missive XML document
+         */
+        private ValidationErrorHandler(String source) {
+
+            // Initialise class attributes
+            this.source = source;
+        }
+
+        /**
+         * Ignore warnings
+         *
+         * @param ex Warning
+         */
+        @Override
+        public void warning(SAXParseException ex) {
+            // Warnings do not make the document invalid
+        }
+
+        /**
+         * Report an error
+         *
+         * @param ex Error
+         * @throws InvalidMissiveException
+         */
+        @Override
+        public void error(SAXParseException ex) throws InvalidMissiveException {
+            throw new InvalidMissiveException(this.source, ex);
+        }
+
+        /**
+         * Report a fatal error
+         *
+         * @param ex Fatal error
+         * @throws InvalidMissiveException
+         */
+        @Override
+        public void fatalError(SAXParseException ex) throws InvalidMissiveException {
+            throw new InvalidMissiveException(this.source, ex);
+        }
+    }
+}
@@ -3,10 +3,17 @@ package org.smic.utils;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.validation.Schema;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -17,6 +24,8 @@ import org.xml.sax.SAXException;
  */
 public class SmicXmlReader {
 
+    private String digest;
+    private Schema schema;
     private String source;
     private Document xmlDocument;
 
@@ -29,6 +38,15 @@ public class SmicXmlReader {
         return this.xmlDocument;
     }
 
+    /**
+     * Get the digest of the XML file, computed as it was parsed
+     * 
+     * @return Hexadecimal SHA-256 digest of the XML file
+     */
+    public String getDigest() {
+        return this.digest;
+    }
+
     /**
      * SmicXmlReader class constructor
      * 
@@ -41,7 +59,26 @@ public class SmicXmlReader {
     public SmicXmlReader(String source) throws ParserConfigurationException, FileNotFoundException, SAXException,
             IOException {
 
+        // The XML file is not validated
+        this(source, null);
+    }
+
+    /**
+     * SmicXmlReader class constructor validating the XML file against a schema once it has been parsed
+     * 
+     * @param source Path and name of the XML file that needs to be converted
+     * @param schema Compiled schema against which the XML file is validated, or null
+     * @throws ParserConfigurationException
+     * @throws FileNotFoundException
+     * @throws SAXException
+     * @throws IOException
+     */
+    public SmicXmlReader(String source, Schema schema) throws ParserConfigurationException, FileNotFoundException,
+            SAXException, IOException {
+
         // Initialise class attributes
+        this.digest = null;
+        this.schema = schema;
         this.source = source;
         this.xmlDocument = null;
 
@@ -59,9 +96,8 @@ public class SmicXmlReader {
      */
     private void parse() throws ParserConfigurationException, FileNotFoundException, SAXException, IOException {
 
-        // Parse the source XML file
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db = dbf.newDocumentBuilder();
+        // Parse the source XML file, with the namespace support required by the validation against a schema
+        DocumentBuilder db = newDocumentBuilder(this.schema != null);
 
         // XML source file instance
         File sourceFile = new File(this.source);
@@ -69,8 +105,28 @@ public class SmicXmlReader {
         // Check if the source file exists
         if (sourceFile.exists()) {
 
-            // Source file exists so we parse the XML file
-            this.xmlDocument = db.parse(sourceFile);
+            // Source file exists so we parse the XML file, read through mapped pages when it is large and digested
+            // as it is read
+            MessageDigest sourceDigest = SmicDigestUtils.newDigest();
+
+            try (InputStream is = new DigestInputStream(new SmicChannelInputStream(this.source), sourceDigest)) {
+
+                // Keep the location of the file for resolving relative references; the parser does not close the
+                // stream, so that what it leaves of the file can still be digested
+                InputSource inputSource = new InputSource(new CloseShieldInputStream(is));
+                inputSource.setSystemId(sourceFile.toURI().toString());
+
+                this.xmlDocument = db.parse(inputSource);
+
+                IOUtils.skip(is, Long.MAX_VALUE);
+            }
+
+            this.digest = SmicDigestUtils.toHex(sourceDigest);
+
+            // Validate the parsed document in memory rather than reading the file again
+            if (this.schema != null) {
+                SmicSchemaValidator.validate(this.schema, this.xmlDocument, this.source);
+            }
 
         } else {
 
@@ -78,4 +134,20 @@ public class SmicXmlReader {
             throw new FileNotFoundException("The specified source file, " + this.source + ", was not found.");
         }
     }
+
+    /**
+     * Create the parser of the missive XML documents, which the streaming conversion shares with this class so that
+     * both conversions read and write missives alike
+     * 
+     * @param namespaceAware Whether the parser supports namespaces, as the validation against a schema requires
+     * @return Document builder
+     * @throws ParserConfigurationException
+     */
+    static DocumentBuilder newDocumentBuilder(boolean namespaceAware) throws ParserConfigurationException {
+
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(namespaceAware);
+
+        return dbf.newDocumentBuilder();
+    }
 }
@@ -0,0 +1,719 @@
+package org.smic.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.transform.TransformerException;
+import javax.xml.validation.Schema;
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.smic.layout.SmicOutputLayout;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * The SmicXmlStreamSplitter class splits a missive XML document which is too large to be loaded in memory. It streams
+ * the missive twice: the first pass locates the Document object containing the encoded PDF document with the same rules
+ * as the in-memory conversion, the second pass writes the missive without that Document object and decodes the PDF
+ * document to separate files. Only a few kilobytes of the document are held in memory at any time, besides the missive
+ * without its Document objects, which is serialised as the in-memory conversion serialises it so that both conversions
+ * embed the same missive in the PDF document. When a schema is given, the first pass also validates the missive,
+ * reading it to its end. Missives carrying several PDF documents can have all their Document objects located by the
+ * first pass and decoded by the second.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicXmlStreamSplitter {
+
+    private static final int MAX_VALUE_LENGTH = 4096;
+
+    private long dataIndex;
+    private long documentObjectIndex;
+    private ArrayList<Element> documentObjects;
+    private String encodedPdfFilename;
+    private XMLInputFactory inputFactory;
+    private String missiveId;
+    private ArrayList<String> pdfDigests;
+    private Schema schema;
+    private String source;
+    private String sourceDigest;
+
+    /**
+     * SmicXmlStreamSplitter class constructor
+     *
+     * @param source Path and name of the missive XML document
+     * @throws FileNotFoundException
+     */
+    public SmicXmlStreamSplitter(String source) throws FileNotFoundException {
+
+        // The missive is not validated
+        this(source, null);
+    }
+
+    /**
+     * SmicXmlStreamSplitter class constructor validating the missive against a schema while locating the Document
+     * object
+     *
+     * @param source Path and name of the missive XML document
+     * @param schema Compiled schema against which the missive is validated, or null
+     * @throws FileNotFoundException
+     */
+    public SmicXmlStreamSplitter(String source, Schema schema) throws FileNotFoundException {
+
+        // Initialise class attributes
+        this.dataIndex = -1;
+        this.documentObjectIndex = -1;
+        this.documentObjects = new ArrayList<>();
+        this.encodedPdfFilename = null;
+        this.missiveId = null;
+        this.pdfDigests = new ArrayList<>();
+        this.schema = schema;
+        this.source = source;
+        this.sourceDigest = null;
+
+        // Streaming parser factory which does not resolve external entities
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+
+        // Check if the source file exists
+        if (!new File(source).exists()) {
+            throw new FileNotFoundException("The specified source file, " + source + ", was not found.");
+        }
+    }
+
+    /**
+     * Get the name of the PDF document carried by the located Document object
+     *
+     * @return Name of the encoded PDF document
+     */
+    public String getEncodedPdfFilename() {
+        return this.encodedPdfFilename;
+    }
+
+    /**
+     * Get the names of the PDF documents carried by the Document objects located by locateDocumentObjects
+     *
+     * @return Names of the encoded PDF documents, in the order of the missive
+     */
+    public List<String> getEncodedPdfFilenames() {
+
+        List<String> encodedPdfFilenames = new ArrayList<>();
+
+        for (Element documentObject : this.documentObjects) {
+            encodedPdfFilenames.add(documentObject.contents.pdfName);
+        }
+
+        return encodedPdfFilenames;
+    }
+
+    /**
+     * Get the digests of the PDF documents decoded by the last split, computed as they were decoded
+     *
+     * @return Hexadecimal SHA-256 digests of the decoded PDF documents, in the order of the missive
+     */
+    public List<String> getPdfDigests() {
+        return Collections.unmodifiableList(this.pdfDigests);
+    }
+
+    /**
+     * Get the digest of the missive XML document read by the last split, computed as it was read
+     *
+     * @return Hexadecimal SHA-256 digest of the missive XML document, or null if it has not been split
+     */
+    public String getSourceDigest() {
+        return this.sourceDigest;
+    }
+
+    /**
+     * Get the MsvId of the missive, read while locating the Document object
+     *
+     * @return MsvId of the missive or null if it was not found
+     */
+    public String getMissiveId() {
+        return this.missiveId;
+    }
+
+    /**
+     * Stream the missive XML document to locate the Document object containing the encoded PDF document
+     *
+     * @return Whether the Document object was found
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws SAXException
+     */
+    public boolean locateDocumentObject() throws IOException, XMLStreamException, SAXException {
+
+        // Stop at the first Document object
+        return this.locate(false);
+    }
+
+    /**
+     * Stream the missive XML document to locate every Document object containing an encoded PDF document, the Document
+     * objects enclosed by another one being left with it
+     *
+     * @return Number of Document objects found
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws SAXException
+     */
+    public int locateDocumentObjects() throws IOException, XMLStreamException, SAXException {
+
+        // Read the whole missive
+        this.locate(true);
+
+        // Keep the outermost Document objects, in the order of the missive
+        Collections.sort(this.documentObjects, new Comparator<Element>() {
+
+            @Override
+            public int compare(Element first, Element second) {
+                return Long.compare(first.index, second.index);
+            }
+        });
+
+        ArrayList<Element> outermost = new ArrayList<>();
+
+        for (Element documentObject : this.documentObjects) {
+
+            Element last = outermost.isEmpty() ? null : outermost.get(outermost.size() - 1);
+
+            if (last == null || documentObject.index > last.lastIndex) {
+                outermost.add(documentObject);
+            }
+        }
+
+        this.documentObjects = outermost;
+
+        return this.documentObjects.size();
+    }
+
+    /**
+     * Stream the missive XML document to locate the first Document object or all of them
+     *
+     * @param all Whether every Document object is looked for
+     * @return Whether a Document object was found
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws SAXException
+     */
+    private boolean locate(boolean all) throws IOException, XMLStreamException, SAXException {
+
+        // Open elements of the missive
+        Deque<Element> openElements = new ArrayDeque<>();
+
+        // Number of elements started so far
+        long index = 0;
+
+        try (InputStream is = new SmicChannelInputStream(this.source)) {
+
+            XMLStreamReader reader = this.inputFactory.createXMLStreamReader(is);
+
+            try {
+
+                // Validator of the missive, fed with the events read to locate the Document object
+                SmicSchemaValidator validator = this.schema != null ? new SmicSchemaValidator(this.schema,
+                        this.source, reader) : null;
+
+                // Scan the events of the missive
+                while (reader.hasNext()) {
+
+                    int event = reader.next();
+
+                    if (validator != null) {
+                        validator.forward();
+                    }
+
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+
+                        // Any child ends the first text value of its parent
+                        Element parent = openElements.peek();
+
+                        if (parent != null) {
+                            parent.firstValueComplete = true;
+                        }
+
+                        // Qualified name of the element as seen by the in-memory conversion
+                        String prefix = reader.getPrefix();
+                        String name = ((prefix == null || prefix.isEmpty()) ? "" : prefix + ":") +
+                                reader.getLocalName();
+
+                        Element element = new Element(index++, name.toLowerCase(), parent);
+
+                        // Keep the value of the first MsvId of the missive
+                        element.missiveIdTag = this.missiveId == null &&
+                                SmicOutputLayout.isMissiveIdTag(reader.getLocalName());
+
+                        // Document objects are looked for below the root element
+                        element.documentLike = parent != null && (element.name.startsWith("document") ||
+                                element.name.endsWith("document"));
+
+                        // The first 'Contents' child of a potential Document object is the one tested
+                        if (parent != null && parent.documentLike && parent.contents == null &&
+                                (element.name.startsWith("contents") || element.name.endsWith("contents"))) {
+                            parent.contents = element;
+                            element.testedContents = true;
+                        }
+
+                        openElements.push(element);
+
+                    } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA ||
+                            event == XMLStreamConstants.SPACE) {
+
+                        // Collect the first text value of the current element
+                        Element current = openElements.peek();
+
+                        if (current != null && !current.firstValueComplete) {
+                            current.appendValue(reader.getTextCharacters(), reader.getTextStart(),
+                                    reader.getTextLength());
+                        }
+
+                    } else if (event == XMLStreamConstants.COMMENT ||
+                            event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+
+                        // Any other child ends the first text value of its parent
+                        Element current = openElements.peek();
+
+                        if (current != null) {
+                            current.firstValueComplete = true;
+                        }
+
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+
+                        Element element = openElements.pop();
+                        Element parent = element.parent;
+
+                        // Last element enclosed by the element, telling which Document objects it encloses
+                        element.lastIndex = index - 1;
+
+                        // Record the MsvId of the missive
+                        if (element.missiveIdTag && this.missiveId == null) {
+                            this.missiveId = element.firstValue.toString().trim();
+                        }
+
+                        // Test the children of a tested 'Contents' node
+                        if (parent != null && parent.testedContents && !parent.qualified) {
+                            parent.testChild(element);
+
+                            // The Document object qualifies as soon as its 'Contents' node contains the required values
+                            if (parent.qualified) {
+
+                                // Keep every Document object when all of them are looked for
+                                if (all) {
+                                    this.documentObjects.add(parent.parent);
+                                    continue;
+                                }
+
+                                // Keep the Document object which starts first
+                                if (this.documentObjectIndex < 0 || parent.parent.index < this.documentObjectIndex) {
+                                    this.documentObjectIndex = parent.parent.index;
+                                    this.dataIndex = parent.dataIndex;
+                                    this.encodedPdfFilename = parent.pdfName;
+                                }
+
+                                // Stop reading when no enclosing Document object could still qualify, unless the rest
+                                // of the missive is validated
+                                if (validator == null && this.isEarliestCandidate(parent.parent, openElements)) {
+                                    return true;
+                                }
+                            }
+                        }
+                    }
+                }
+
+            } finally {
+                reader.close();
+            }
+        }
+
+        return this.documentObjectIndex >= 0 || !this.documentObjects.isEmpty();
+    }
+
+    /**
+     * Write the missive XML document without the located Document object and decode the PDF document it contains
+     *
+     * @param missiveFilename Path and name of the missive XML file without the Document object
+     * @param pdfFilename Path and name of the decoded PDF file
+     * @return Number of bytes of the missive XML file without the Document object
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws SAXException
+     * @throws TransformerException
+     */
+    public long split(String missiveFilename, String pdfFilename) throws IOException, XMLStreamException,
+            SAXException, TransformerException {
+
+        // Document object located by locateDocumentObject
+        return this.split(missiveFilename, new long[] { this.documentObjectIndex }, new long[] { this.dataIndex },
+                new String[] { pdfFilename });
+    }
+
+    /**
+     * Write the missive XML document without the Document objects located by locateDocumentObjects and decode the PDF
+     * documents they contain, in a single pass
+     *
+     * @param missiveFilename Path and name of the missive XML file without the Document objects
+     * @param pdfFilenames Paths and names of the decoded PDF files, in the order of the Document objects
+     * @return Number of bytes of the missive XML file without the Document objects
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws SAXException
+     * @throws TransformerException
+     */
+    public long split(String missiveFilename, List<String> pdfFilenames) throws IOException, XMLStreamException,
+            SAXException, TransformerException {
+
+        // Positions of the located Document objects and of their Data nodes
+        long[] documentObjectIndexes = new long[this.documentObjects.size()];
+        long[] dataIndexes = new long[this.documentObjects.size()];
+
+        for (int i = 0; i < documentObjectIndexes.length; i++) {
+            documentObjectIndexes[i] = this.documentObjects.get(i).index;
+            dataIndexes[i] = this.documentObjects.get(i).contents.dataIndex;
+        }
+
+        return this.split(missiveFilename, documentObjectIndexes, dataIndexes,
+                pdfFilenames.toArray(new String[pdfFilenames.size()]));
+    }
+
+    /**
+     * Write the missive XML document without the given Document objects and decode the PDF documents they contain
+     *
+     * @param missiveFilename Path and name of the missive XML file without the Document objects
+     * @param documentObjectIndexes Positions of the Document objects, which do not enclose each other, in ascending
+     * order
+     * @param dataIndexes Positions of the Data nodes of the Document objects
+     * @param pdfFilenames Paths and names of the decoded PDF files
+     * @return Number of bytes of the missive XML file without the Document objects
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws SAXException
+     * @throws TransformerException
+     */
+    private long split(String missiveFilename, long[] documentObjectIndexes, long[] dataIndexes,
+            String[] pdfFilenames) throws IOException, XMLStreamException, SAXException, TransformerException {
+
+        // Number of elements started so far
+        long index = 0;
+
+        // Next Document object to remove and depth of the Document object being removed
+        int next = 0;
+        int skippedDepth = 0;
+
+        // State of the Data node whose first text value is the encoded PDF document
+        boolean inData = false;
+        boolean dataValueComplete = false;
+        int dataDepth = 0;
+
+        // Reusable buffer for the encoded characters
+        byte[] encoded = new byte[8192];
+
+        // Decoded PDF document being written, digested as it is written
+        OutputStream pdfStream = null;
+        MessageDigest pdfDigest = SmicDigestUtils.newDigest();
+
+        this.pdfDigests.clear();
+        this.sourceDigest = null;
+
+        // Missive XML document, digested as it is read
+        MessageDigest sourceDigest = SmicDigestUtils.newDigest();
+
+        // Missive without the Document objects, held in memory until it is serialised like the in-memory conversion
+        ByteArrayOutputStream missiveStream = new ByteArrayOutputStream();
+
+        try (InputStream is = new DigestInputStream(new SmicChannelInputStream(this.source), sourceDigest)) {
+
+            // The parser does not close the stream, so that what it leaves of the missive can still be digested
+            XMLEventReader reader = this.inputFactory.createXMLEventReader(new CloseShieldInputStream(is));
+            XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(missiveStream, "UTF-8");
+
+            try {
+
+                // Copy the events of the missive
+                while (reader.hasNext()) {
+
+                    XMLEvent event = reader.nextEvent();
+
+                    if (event.isStartDocument()) {
+
+                        // Declare the encoding in which the events are written rather than that of the missive
+                        StartDocument startDocument = (StartDocument) event;
+                        event = XMLEventFactory.newInstance().createStartDocument("UTF-8", startDocument.getVersion(),
+                                startDocument.isStandalone());
+
+                    } else if (event.isStartElement()) {
+
+                        // A child ends the first text value of the Data node
+                        dataValueComplete |= inData;
+
+                        // Check if a located Document object or one of its children starts
+                        if (skippedDepth > 0 || (next < documentObjectIndexes.length &&
+                                index == documentObjectIndexes[next])) {
+                            skippedDepth++;
+                        }
+
+                        // Check if the Data node of the encoded PDF document starts
+                        if (skippedDepth > 0 && index == dataIndexes[next]) {
+                            inData = true;
+                            dataValueComplete = false;
+                            dataDepth = skippedDepth;
+                            pdfStream = new Base64OutputStream(new DigestOutputStream(new SmicChannelOutputStream(
+                                    pdfFilenames[next]), pdfDigest), false);
+                        }
+
+                        index++;
+
+                    } else if (event.isEndElement() && skippedDepth > 0) {
+
+                        // Check if the Data node ends, completing its PDF document
+                        if (inData && skippedDepth == dataDepth) {
+                            inData = false;
+                            pdfStream.close();
+                            pdfStream = null;
+                            this.pdfDigests.add(SmicDigestUtils.toHex(pdfDigest));
+                        }
+
+                        // Check if the Document object ends
+                        if (--skippedDepth == 0) {
+                            next++;
+                        }
+
+                        continue;
+
+                    } else if (event.isCharacters() && inData && !dataValueComplete) {
+
+                        // Decode the encoded PDF document
+                        String data = event.asCharacters().getData();
+
+                        for (int i = 0; i < data.length(); i += encoded.length) {
+
+                            int length = Math.min(encoded.length, data.length() - i);
+
+                            for (int j = 0; j < length; j++) {
+                                encoded[j] = (byte) data.charAt(i + j);
+                            }
+
+                            pdfStream.write(encoded, 0, length);
+                        }
+
+                    } else if (event.getEventType() == XMLStreamConstants.COMMENT ||
+                            event.getEventType() == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+
+                        // Any other child ends the first text value of the Data node
+                        dataValueComplete |= inData;
+                    }
+
+                    // Copy everything but the located Document objects
+                    if (skippedDepth == 0) {
+                        writer.add(event);
+                    }
+                }
+
+                writer.flush();
+
+            } finally {
+                writer.close();
+                reader.close();
+            }
+
+            // Read what the parser left of the missive, so that the digest covers the whole missive XML document
+            IOUtils.skip(is, Long.MAX_VALUE);
+
+            this.sourceDigest = SmicDigestUtils.toHex(sourceDigest);
+
+        } finally {
+
+            // Release the PDF document of a missive which could not be read to its end
+            if (pdfStream != null) {
+                pdfStream.close();
+            }
+        }
+
+        // Write the missive without the Document objects as the in-memory conversion writes it
+        this.writeMissive(missiveStream.toByteArray(), missiveFilename);
+
+        return new File(missiveFilename).length();
+    }
+
+    /**
+     * Write the missive XML document without its Document objects through the document object model, the serialiser
+     * then giving its declaration, the order of its attributes and the form of its empty elements exactly as the
+     * in-memory conversion does
+     *
+     * @param missive Missive XML document without its Document objects, as copied from the source
+     * @param missiveFilename Path and name of the missive XML file without the Document objects
+     * @throws IOException
+     * @throws SAXException
+     * @throws TransformerException
+     */
+    private void writeMissive(byte[] missive, String missiveFilename) throws IOException, SAXException,
+            TransformerException {
+
+        // Parse the missive as the in-memory conversion parses the source
+        Document document;
+
+        try {
+            document = SmicXmlReader.newDocumentBuilder(this.schema != null).parse(new ByteArrayInputStream(missive));
+        } catch (ParserConfigurationException ex) {
+
+            // The default configuration of the parser is always supported
+            throw new IllegalStateException(ex);
+        }
+
+        // Normalise the missive as the in-memory conversion does once the Document objects have been removed
+        document.normalizeDocument();
+
+        SmicFileUtils.writeFile(document, missiveFilename);
+    }
+
+    /**
+     * Check that no Document object which is still open, and therefore starts earlier, could still qualify
+     *
+     * @param documentObject Qualified Document object
+     * @param openElements Open elements of the missive
+     * @return Whether the qualified Document object is the first one of the missive
+     */
+    private boolean isEarliestCandidate(Element documentObject, Deque<Element> openElements) {
+
+        // Scan the ancestors of the Document object
+        for (Element element : openElements) {
+            if (element != documentObject && element.documentLike && element.index < documentObject.index) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The Element class holds what the first pass needs to know about an open element of the missive
+     */
+    private static class Element {
+
+        private Element contents;
+        private long dataIndex;
+        private boolean documentLike;
+        private StringBuilder firstValue;
+        private boolean firstValueComplete;
+        private long firstValueLength;
+        private long index;
+        private long lastIndex;
+        private boolean missiveIdTag;
+        private String name;
+        private Element parent;
+        private String pdfName;
+        private boolean qualified;
+        private char[] resultSet;
+        private boolean testedContents;
+
+        /**
+         * Element class constructor
+         *
+         * @param index Position of the element in the missive
+         * @param name Lower case qualified name of the element
+         * @param parent Parent of the element
+         */
+        private Element(long index, String name, Element parent) {
+
+            // Initialise class attributes
+            this.dataIndex = -1;
+            this.firstValue = new StringBuilder();
+            this.firstValueComplete = false;
+            this.firstValueLength = 0;
+            this.index = index;
+            this.lastIndex = index;
+            this.missiveIdTag = false;
+            this.name = name;
+            this.parent = parent;
+            this.qualified = false;
+            this.resultSet = "000000".toCharArray();
+            this.testedContents = false;
+        }
+
+        /**
+         * Append characters to the first text value of the element, keeping only the beginning of long values
+         *
+         * @param text Characters
+         * @param start Position of the first character
+         * @param length Number of characters
+         */
+        private void appendValue(char[] text, int start, int length) {
+
+            // Keep the beginning of the value only
+            int kept = Math.max(0, Math.min(length, MAX_VALUE_LENGTH - this.firstValue.length()));
+            this.firstValue.append(text, start, kept);
+            this.firstValueLength += length;
+        }
+
+        /**
+         * Test a child of a 'Contents' node for the required node names and values
+         *
+         * @param child Child node which has just been read
+         */
+        private void testChild(Element child) {
+
+            if (child.name.startsWith("mime-type") || child.name.endsWith("mime-type")) {
+
+                // We have a potential Mime-type node
+                this.resultSet[0] = '1';
+
+                // Check the value of the node
+                if (child.firstValueLength > 0 && child.firstValue.toString().toLowerCase().equals("application/pdf")) {
+                    this.resultSet[1] = '1';
+                }
+
+            } else if (child.name.startsWith("name") || child.name.endsWith("name")) {
+
+                // We have a potential Name node
+                this.resultSet[2] = '1';
+
+                // Check the value of the node for valid PDF filename
+                String value = child.firstValue.toString();
+
+                if (value.length() > 0 && value.toLowerCase().endsWith(".pdf")) {
+                    this.pdfName = value;
+                    this.resultSet[3] = '1';
+                }
+
+            } else if (child.name.startsWith("data") || child.name.endsWith("data")) {
+
+                // We have a potential Data node
+                this.resultSet[4] = '1';
+
+                // Check the value of the Data node is not empty
+                if (child.firstValueLength > 0) {
+                    this.dataIndex = child.index;
+                    this.resultSet[5] = '1';
+                }
+            }
+
+            // Check the result set of the tests carried out
+            this.qualified = new String(this.resultSet).equals("111111");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.smic.workspace;
+
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The SmicWorkspace class is the private scratch folder of a single conversion. Closing the workspace removes the
+ * folder with every intermediate file it still contains, whether the conversion succeeded or not.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicWorkspace implements AutoCloseable {
+
+    private File folder;
+    private SmicWorkspaceManager manager;
+    private long reservedSize;
+
+    /**
+     * SmicWorkspace class constructor
+     *
+     * @param manager Workspace manager which created the workspace
+     * @param folder Scratch folder of the conversion
+     * @param reservedSize Number of bytes reserved in memory backed storage, 0 if the folder is on disk
+     */
+    SmicWorkspace(SmicWorkspaceManager manager, File folder, long reservedSize) {
+
+        // Initialise class attributes
+        this.folder = folder;
+        this.manager = manager;
+        this.reservedSize = reservedSize;
+    }
+
+    /**
+     * Get the path of the scratch folder
+     *
+     * @return Path of the scratch folder
+     */
+    public String getFolder() {
+        return this.folder.getPath();
+    }
+
+    /**
+     * Check if the scratch folder is held in memory backed storage
+     *
+     * @return Whether the scratch folder is in memory
+     */
+    public boolean isInMemory() {
+        return this.reservedSize > 0;
+    }
+
+    /**
+     * Remove the scratch folder and its content
+     */
+    @Override
+    public void close() {
+
+        // Check if the workspace is already closed
+        if (this.folder == null) {
+            return;
+        }
+
+        // Intermediate files which cannot be deleted now are swept once the process has ended
+        FileUtils.deleteQuietly(this.folder);
+        this.folder = null;
+
+        // Give back the memory backed space reserved for the workspace
+        this.manager.release(this.reservedSize);
+    }
+}
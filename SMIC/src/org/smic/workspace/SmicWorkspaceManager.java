@@ -0,0 +1,265 @@
+package org.smic.workspace;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The SmicWorkspaceManager class gives each conversion a private scratch folder, removed as soon as the conversion
+ * ends. The scratch folders of a process are grouped in a folder of their own, locked for as long as the process runs:
+ * the folders of processes which ended without removing them are found by their released lock and are swept when the
+ * temporary folder is first used by another process. Scratch folders are placed in memory backed storage, such as
+ * /dev/shm, when it exists and has room for the intermediate files of the conversion, and in the temporary folder
+ * otherwise.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 1.0
+ */
+public class SmicWorkspaceManager {
+
+    /**
+     * Default memory backed folder preferred for scratch folders
+     */
+    public static final String DEFAULT_MEMORY_FOLDER = "/dev/shm";
+
+    /**
+     * Estimated number of bytes of intermediate files written per byte of input by a conversion
+     */
+    public static final double SCRATCH_FACTOR = 2;
+
+    private static final String FOLDER_PREFIX = "smic-";
+    private static final String LOCK_FILENAME = ".lock";
+    private static final long UNLOCKED_FOLDER_AGE = 60L * 60 * 1000;
+
+    private static final HashMap<File, File> processFolders = new HashMap<>();
+    private static final List<FileLock> processLocks = new ArrayList<>();
+    private static final AtomicLong sequence = new AtomicLong();
+
+    private File diskFolder;
+    private File memoryFolder;
+    private long memoryReserve;
+    private long memoryReserved;
+
+    /**
+     * SmicWorkspaceManager class constructor
+     *
+     * @param tempFolder Folder where scratch folders are created when they cannot be held in memory
+     * @param memoryFolder Memory backed folder preferred for scratch folders, or an empty string to always use the
+     * temporary folder
+     * @param memoryReserve Number of bytes of the memory backed folder which must be left free
+     * @throws IOException
+     */
+    public SmicWorkspaceManager(String tempFolder, String memoryFolder, long memoryReserve) throws IOException {
+
+        // Initialise class attributes
+        this.memoryReserve = memoryReserve;
+        this.memoryReserved = 0;
+
+        // Scratch folders of the process on disk
+        this.diskFolder = getProcessFolder(new File(tempFolder));
+
+        // Scratch folders of the process in memory, if the memory backed folder can be used
+        File memoryRoot = new File(memoryFolder);
+        this.memoryFolder = null;
+
+        if (memoryFolder.length() > 0 && memoryRoot.isDirectory() && memoryRoot.canWrite()) {
+
+            try {
+                this.memoryFolder = getProcessFolder(memoryRoot);
+            } catch (IOException ex) {
+                // Scratch folders are kept in the temporary folder
+            }
+        }
+    }
+
+    /**
+     * Create the private scratch folder of a conversion
+     *
+     * @param name Name identifying the conversion, such as its direction
+     * @param inputSize Size in bytes of the file being converted
+     * @return Workspace of the conversion, which must be closed once the conversion ends
+     * @throws IOException
+     */
+    public SmicWorkspace create(String name, long inputSize) throws IOException {
+
+        // Space needed by the intermediate files of the conversion
+        long scratchSize = (long) (inputSize * SCRATCH_FACTOR);
+
+        // Prefer memory backed storage when it has room for the intermediate files
+        File root = this.diskFolder;
+        long reservedSize = 0;
+
+        if (this.memoryFolder != null && this.reserve(scratchSize)) {
+            root = this.memoryFolder;
+            reservedSize = scratchSize;
+        }
+
+        // Scratch folder named after the conversion
+        File folder = new File(root, name + "-" + sequence.incrementAndGet());
+
+        try {
+            Files.createDirectory(folder.toPath());
+        } catch (IOException ex) {
+            this.release(reservedSize);
+            throw ex;
+        }
+
+        return new SmicWorkspace(this, folder, reservedSize);
+    }
+
+    /**
+     * Reserve space in the memory backed folder
+     *
+     * @param size Number of bytes that need to be reserved
+     * @return Whether the space was reserved
+     */
+    private synchronized boolean reserve(long size) {
+
+        // Free space, less the space reserved by running conversions which may not have been written yet
+        long available = this.memoryFolder.getUsableSpace() - this.memoryReserved;
+
+        if (available - size < this.memoryReserve) {
+            return false;
+        }
+
+        this.memoryReserved += size;
+
+        return true;
+    }
+
+    /**
+     * Give back space reserved in the memory backed folder
+     *
+     * @param size Number of bytes reserved
+     */
+    synchronized void release(long size) {
+        this.memoryReserved -= size;
+    }
+
+    /**
+     * Get the folder grouping the scratch folders of the process in the given folder, creating and locking it the
+     * first time after sweeping the folders left by processes which have ended
+     *
+     * @param root Folder where scratch folders are created
+     * @return Folder of the process
+     * @throws IOException
+     */
+    private static File getProcessFolder(File root) throws IOException {
+
+        synchronized (processFolders) {
+
+            File processFolder = processFolders.get(root.getAbsoluteFile());
+
+            if (processFolder != null) {
+                return processFolder;
+            }
+
+            // Remove the scratch folders of the processes which have ended
+            sweep(root);
+
+            // Create a folder for the process under a name no other process uses
+            while (processFolder == null) {
+
+                processFolder = new File(root, FOLDER_PREFIX +
+                        Long.toHexString(ThreadLocalRandom.current().nextLong()));
+
+                try {
+                    Files.createDirectory(processFolder.toPath());
+                } catch (FileAlreadyExistsException ex) {
+                    processFolder = null;
+                }
+            }
+
+            // Hold the lock of the folder for as long as the process runs
+            FileChannel lockChannel = FileChannel.open(new File(processFolder, LOCK_FILENAME).toPath(),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+            try {
+                processLocks.add(lockChannel.lock());
+            } catch (IOException ex) {
+                lockChannel.close();
+                throw ex;
+            }
+
+            processFolders.put(root.getAbsoluteFile(), processFolder);
+
+            // Remove the folder when the process exits normally, the sweep handling the processes which do not
+            final File exitFolder = processFolder;
+
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    FileUtils.deleteQuietly(exitFolder);
+                }
+            }, "smic-workspace-cleanup"));
+
+            return processFolder;
+        }
+    }
+
+    /**
+     * Remove the folders of the processes which ended without removing their scratch folders
+     *
+     * @param root Folder where scratch folders are created
+     */
+    private static void sweep(File root) {
+
+        // Folders of the processes which used the folder
+        File[] folders = root.listFiles(new FileFilter() {
+
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory() && file.getName().startsWith(FOLDER_PREFIX);
+            }
+        });
+
+        if (folders == null) {
+            return;
+        }
+
+        for (File folder : folders) {
+
+            boolean ended = false;
+
+            try (FileChannel lockChannel = FileChannel.open(new File(folder, LOCK_FILENAME).toPath(),
+                    StandardOpenOption.WRITE)) {
+
+                // The lock is only free once the process holding it has ended
+                FileLock lock = lockChannel.tryLock();
+
+                if (lock != null) {
+                    lock.release();
+                    ended = true;
+                }
+
+            } catch (NoSuchFileException ex) {
+
+                // A folder without lock is either being created or was left by a process which ended before locking it
+                ended = System.currentTimeMillis() - folder.lastModified() > UNLOCKED_FOLDER_AGE;
+
+            } catch (OverlappingFileLockException | IOException ex) {
+
+                // The folder belongs to this process or cannot be checked
+                ended = false;
+            }
+
+            if (ended) {
+                FileUtils.deleteQuietly(folder);
+            }
+        }
+    }
+}
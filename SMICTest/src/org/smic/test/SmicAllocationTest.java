@@ -0,0 +1,251 @@
+package org.smic.test;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+import com.itextpdf.text.pdf.PdfStream;
+import com.itextpdf.text.pdf.PdfWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.FileUtils;
+import org.smic.Smic;
+
+/**
+ * The SmicAllocationTest class measures the number of bytes allocated by the SMIC module for each conversion and checks
+ * them against a budget proportional to the size of the converted file. Synthetic inputs of several sizes are generated
+ * from the sample missive XML files so that both conversion directions are covered.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 0.1
+ */
+public class SmicAllocationTest {
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 3;
+
+    private long fixedAllowance;
+    private double pdf2XmlMaxMultiple;
+    private Smic smic;
+    private String workFolder;
+    private double xml2PdfMaxMultiple;
+
+    /**
+     * SmicAllocationTest class constructor
+     *
+     * @param smic SMIC module instance used for the conversions
+     * @param workFolder Folder where the synthetic inputs will be generated
+     * @param xml2PdfMaxMultiple Maximum number of bytes allocated per byte of input by an XML to PDF conversion
+     * @param pdf2XmlMaxMultiple Maximum number of bytes allocated per byte of input by a PDF to XML conversion
+     * @param fixedAllowance Number of bytes allowed on top of the proportional budget for the fixed cost of a conversion
+     */
+    public SmicAllocationTest(Smic smic, String workFolder, double xml2PdfMaxMultiple, double pdf2XmlMaxMultiple,
+            long fixedAllowance) {
+
+        // Initialise class attributes
+        this.fixedAllowance = fixedAllowance;
+        this.pdf2XmlMaxMultiple = pdf2XmlMaxMultiple;
+        this.smic = smic;
+        this.workFolder = workFolder;
+        this.xml2PdfMaxMultiple = xml2PdfMaxMultiple;
+    }
+
+    /**
+     * Run the allocation tests for each of the given attachment sizes
+     *
+     * @param sampleXmlFilename Sample missive XML file used as template for the synthetic inputs
+     * @param sizes Sizes in bytes of the attachments that will be converted
+     * @return Whether every conversion stayed within its allocation budget
+     * @throws Exception
+     */
+    public boolean run(String sampleXmlFilename, int[] sizes) throws Exception {
+
+        // Thread allocation counter
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // Create the folder for the synthetic inputs
+        new File(this.workFolder).mkdirs();
+
+        boolean passed = true;
+
+        System.out.println(String.format("%-8s %12s %14s %10s %8s", "dir", "input", "allocated", "multiple", "result"));
+
+        // Scan the list of attachment sizes
+        for (int i = 0; i < sizes.length; i++) {
+
+            // Generate the synthetic inputs for the current size
+            String xmlFilename = this.generateMissiveXml(sampleXmlFilename, sizes[i]);
+            String pdfFilename = this.generatePdf(xmlFilename, sizes[i]);
+
+            // Measure both directions
+            passed &= this.measure(threadBean, "xml2pdf", xmlFilename);
+            passed &= this.measure(threadBean, "pdf2xml", pdfFilename);
+        }
+
+        return passed;
+    }
+
+    /**
+     * Measure the bytes allocated by the conversion of the given file and compare them with the allocation budget
+     *
+     * @param threadBean Thread allocation counter
+     * @param direction Direction of the conversion, xml2pdf or pdf2xml
+     * @param filename Path and name of the file that needs to be converted
+     * @return Whether the conversion stayed within its allocation budget
+     * @throws Exception
+     */
+    private boolean measure(com.sun.management.ThreadMXBean threadBean, String direction, String filename)
+            throws Exception {
+
+        // Warm up the conversion so that class loading and JIT compilation are not measured
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            this.convert(direction, filename);
+        }
+
+        // Keep the lowest allocation seen over the measured runs
+        long allocated = Long.MAX_VALUE;
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            this.convert(direction, filename);
+            long after = threadBean.getThreadAllocatedBytes(threadId);
+
+            allocated = Math.min(allocated, after - before);
+        }
+
+        // Compare the allocation with the budget of the input file
+        long inputSize = new File(filename).length();
+        double maxMultiple = direction.equals("xml2pdf") ? this.xml2PdfMaxMultiple : this.pdf2XmlMaxMultiple;
+        long budget = (long) (inputSize * maxMultiple) + this.fixedAllowance;
+        boolean passed = allocated <= budget;
+
+        System.out.println(String.format("%-8s %12d %14d %10.1f %8s", direction, inputSize, allocated,
+                (double) allocated / inputSize, passed ? "ok" : "FAILED"));
+
+        return passed;
+    }
+
+    /**
+     * Convert the given file in the given direction
+     *
+     * @param direction Direction of the conversion, xml2pdf or pdf2xml
+     * @param filename Path and name of the file that needs to be converted
+     * @throws Exception
+     */
+    private void convert(String direction, String filename) throws Exception {
+
+        if (direction.equals("xml2pdf")) {
+            this.smic.smicXml2Pdf(filename);
+        } else {
+            this.smic.smicPdf2Xml(filename);
+        }
+    }
+
+    /**
+     * Generate a missive XML file whose Document object carries a PDF attachment of the given size
+     *
+     * @param sampleXmlFilename Sample missive XML file used as template
+     * @param size Size in bytes of the attachment
+     * @return Path and name of the generated missive XML file
+     * @throws Exception
+     */
+    private String generateMissiveXml(String sampleXmlFilename, int size) throws Exception {
+
+        // PDF attachment of the requested size
+        byte[] attachment = this.createPdf(size);
+
+        // Encoded attachment wrapped like the SMIC module does
+        String encodedAttachment = new Base64(76, new byte[] { '\n' }).encodeToString(attachment).trim();
+
+        // Replace the name and the data of the Document object of the sample missive
+        String sample = FileUtils.readFileToString(new File(sampleXmlFilename), "UTF-8");
+        String name = "alloc_" + size;
+        String missive = sample.replaceFirst("(?s)(<sem:Name>).*?(</sem:Name>)", "$1" + name + ".pdf$2");
+        int dataStart = missive.indexOf("<sem:Data>") + "<sem:Data>".length();
+        int dataEnd = missive.indexOf("</sem:Data>", dataStart);
+        missive = missive.substring(0, dataStart) + encodedAttachment + missive.substring(dataEnd);
+
+        // Write the synthetic missive XML file
+        String xmlFilename = this.workFolder + System.getProperty("file.separator") + name + ".xml";
+        FileUtils.writeStringToFile(new File(xmlFilename), missive, "UTF-8");
+
+        return xmlFilename;
+    }
+
+    /**
+     * Generate a PDF document carrying the missive of the given XML file and a payload of the given size
+     *
+     * @param xmlFilename Path and name of the synthetic missive XML file
+     * @param size Size in bytes of the payload
+     * @return Path and name of the generated PDF document
+     * @throws Exception
+     */
+    private String generatePdf(String xmlFilename, int size) throws Exception {
+
+        // Convert the missive so that the PDF document carries the missive in its metadata
+        String convertedPdfFilename = this.smic.smicXml2Pdf(xmlFilename);
+
+        // Add an incompressible payload to the converted PDF document
+        String pdfFilename = this.workFolder + System.getProperty("file.separator") + "alloc_" + size + ".pdf";
+        PdfReader pdfReader = new PdfReader(convertedPdfFilename);
+
+        try (FileOutputStream fos = new FileOutputStream(pdfFilename)) {
+            PdfStamper stamper = new PdfStamper(pdfReader, fos);
+            stamper.getWriter().addToBody(new PdfStream(this.randomBytes(size)));
+            stamper.close();
+        } finally {
+            pdfReader.close();
+        }
+
+        return pdfFilename;
+    }
+
+    /**
+     * Create a one page PDF document padded with an incompressible payload to the given size
+     *
+     * @param size Approximate size in bytes of the PDF document
+     * @return PDF document content
+     * @throws Exception
+     */
+    private byte[] createPdf(int size) throws Exception {
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(size + 4096);
+
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        document.addAuthor("SMIC");
+        document.addCreator("SMIC");
+        document.addCreationDate();
+        document.addKeywords("SMIC");
+        document.addSubject("SMIC allocation test");
+        document.addTitle("SMIC allocation test");
+        document.open();
+        document.add(new Paragraph("SMIC allocation test attachment of " + size + " bytes"));
+        writer.addToBody(new PdfStream(this.randomBytes(size)));
+        document.close();
+
+        return baos.toByteArray();
+    }
+
+    /**
+     * Generate reproducible random bytes
+     *
+     * @param size Number of bytes
+     * @return Random bytes
+     */
+    private byte[] randomBytes(int size) {
+
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+
+        return bytes;
+    }
+}
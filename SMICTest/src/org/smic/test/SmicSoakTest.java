@@ -0,0 +1,129 @@
+package org.smic.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import org.smic.Smic;
+
+/**
+ * The SmicSoakTest class runs a long series of conversions with the SMIC module and checks that the number of open file
+ * descriptors and the heap retained after garbage collection stay flat, so that resource leaks are detected before they
+ * exhaust a long-running worker.
+ *
+ * @author Bishan Kumar Madhoo <bishan.madhoo@idsoft.mu>
+ * @version 0.1
+ */
+public class SmicSoakTest {
+
+    private static final int SAMPLES = 20;
+    private static final long FD_TOLERANCE = 16;
+    private static final long HEAP_TOLERANCE = 16L * 1024 * 1024;
+
+    private Smic smic;
+
+    /**
+     * SmicSoakTest class constructor
+     *
+     * @param smic SMIC module instance used for the conversions
+     */
+    public SmicSoakTest(Smic smic) {
+
+        // Initialise class attributes
+        this.smic = smic;
+    }
+
+    /**
+     * Run the given number of conversions, alternating between the given missive XML and PDF files
+     *
+     * @param xmlFilenames Missive XML files converted to PDF
+     * @param pdfFilenames PDF files converted to missive XML
+     * @param iterations Number of conversions
+     * @return Whether open file descriptors and retained heap stayed flat
+     * @throws Exception
+     */
+    public boolean run(String[] xmlFilenames, String[] pdfFilenames, int iterations) throws Exception {
+
+        // Interval between two samples of resource usage
+        int sampleInterval = Math.max(1, iterations / SAMPLES);
+
+        // Baseline resource usage, taken once the first interval has warmed up the module
+        long baselineFds = -1;
+        long baselineHeap = -1;
+        long maxFds = 0;
+        long maxHeap = 0;
+
+        System.out.println(String.format("%10s %10s %14s", "conversion", "open fds", "retained heap"));
+
+        // Run the conversions
+        for (int i = 1; i <= iterations; i++) {
+
+            // Alternate between the two conversion directions
+            if (i % 2 == 0) {
+                this.smic.smicXml2Pdf(xmlFilenames[(i / 2) % xmlFilenames.length]);
+            } else {
+                this.smic.smicPdf2Xml(pdfFilenames[(i / 2) % pdfFilenames.length]);
+            }
+
+            // Sample the resource usage
+            if (i % sampleInterval == 0 || i == iterations) {
+
+                // Open file descriptors are sampled before collecting garbage so that leaked streams which would only
+                // be released by their cleaners are still counted
+                long fds = getOpenFileDescriptorCount();
+                long heap = getRetainedHeap();
+
+                System.out.println(String.format("%10d %10d %14d", i, fds, heap));
+
+                if (baselineHeap < 0) {
+                    baselineFds = fds;
+                    baselineHeap = heap;
+                } else {
+                    maxFds = Math.max(maxFds, fds);
+                    maxHeap = Math.max(maxHeap, heap);
+                }
+            }
+        }
+
+        // Compare the peak usage with the baseline
+        boolean fdsFlat = baselineFds < 0 || maxFds <= baselineFds + FD_TOLERANCE;
+        boolean heapFlat = maxHeap <= baselineHeap + baselineHeap / 4 + HEAP_TOLERANCE;
+
+        System.out.println("open fds: baseline " + baselineFds + ", peak " + maxFds + (fdsFlat ? " ok" : " FAILED"));
+        System.out.println("retained heap: baseline " + baselineHeap + ", peak " + maxHeap +
+                (heapFlat ? " ok" : " FAILED"));
+
+        return fdsFlat && heapFlat;
+    }
+
+    /**
+     * Get the number of file descriptors opened by the JVM
+     *
+     * @return Number of open file descriptors or -1 if the platform does not report it
+     */
+    private static long getOpenFileDescriptorCount() {
+
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+
+        if (osBean instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) osBean).getOpenFileDescriptorCount();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the heap still in use after a garbage collection
+     *
+     * @return Number of bytes of heap in use
+     */
+    private static long getRetainedHeap() {
+
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+        // Collect garbage twice so that objects released by cleaners are reclaimed as well
+        System.gc();
+        System.gc();
+
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -1,16 +1,50 @@
 package org.smic.test;
 
 import com.itextpdf.text.DocumentException;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import org.smic.Smic;
+import org.smic.batch.SmicFolderBatch;
+import org.smic.batch.SmicLeaseManager;
+import org.smic.batch.SmicWorker;
+import org.smic.batch.SmicZipBatch;
 import org.smic.exceptions.*;
+import org.smic.index.SmicIndexEntry;
+import org.smic.index.SmicMissiveIndex;
+import org.smic.missive.SmicMissiveHeader;
+import org.smic.scheduling.SmicScheduler;
+import org.smic.storage.SmicMemoryStorage;
+import org.smic.storage.SmicZipStorage;
 import org.xml.sax.SAXException;
 
 /**
@@ -38,6 +72,182 @@ public class SmicTest {
         // SMIC module temporary folder
         String temp = getCurrentWorkingDirectory() + System.getProperty("file.separator") + "tmp";
 
+        // Allocation budget test
+        if (args.length > 0 && args[0].equals("alloc")) {
+
+            // Run the allocation tests and report failure through the exit status
+            if (!runAllocationTest(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Resource leak soak test
+        if (args.length > 0 && args[0].equals("soak")) {
+
+            // Run the soak test and report failure through the exit status
+            if (!runSoakTest(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Conversion cache test
+        if (args.length > 0 && args[0].equals("cache")) {
+
+            // Run the cache test and report failure through the exit status
+            if (!runCacheTest(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Output folder re-sharding
+        if (args.length > 0 && args[0].equals("reshard")) {
+
+            // Move the files of the output folder to the configured layout and report failure through the exit status
+            if (!runReshard(conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Storage backends test
+        if (args.length > 0 && args[0].equals("storage")) {
+
+            // Run the storage test and report failure through the exit status
+            if (!runStorageTest(conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // ZIP archive batch conversion
+        if (args.length > 0 && args[0].equals("batch")) {
+
+            // Convert the entries of the archive and report failure through the exit status
+            if (args.length != 3 || !runZipBatch(args[1], args[2], conf, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Resumable folder batch conversion
+        if (args.length > 0 && args[0].equals("folder")) {
+
+            // Convert the files of the folder not found in the journal and report failure through the exit status
+            if (args.length != 3 || !runFolderBatch(args[1], args[2], conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Worker sharing an input folder with other workers
+        if (args.length > 0 && args[0].equals("worker")) {
+
+            // Processes racing to take over the same expired leases
+            if (args.length > 1 && args[1].equals("race")) {
+
+                // Run the race and report a lease claimed twice or never through the exit status
+                if (args.length < 3 || !runLeaseRace(args)) {
+                    System.exit(1);
+                }
+
+                return;
+            }
+
+            // One of the processes of the race
+            if (args.length > 1 && args[1].equals("claim")) {
+
+                // Print the name of each lease taken over by the process
+                if (args.length != 6 || !runLeaseClaims(args)) {
+                    System.exit(1);
+                }
+
+                return;
+            }
+
+            // Convert the share of the folder claimed by the worker and report failure through the exit status
+            if (args.length < 2 || !runWorker(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Conversions ordered by the scheduler
+        if (args.length > 0 && args[0].equals("schedule")) {
+
+            // Convert the files of the folder in the order of the scheduler and report failure through the exit status
+            if (args.length < 2 || !runScheduler(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Headers of missives read without converting them
+        if (args.length > 0 && args[0].equals("peek")) {
+
+            // Print the header of each missive and report failure through the exit status
+            if (args.length < 2 || !runPeek(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Lookups in the index of converted missives
+        if (args.length > 0 && args[0].equals("index")) {
+
+            // Print the records found and report failure through the exit status
+            if (args.length != 4 || !runIndexQuery(args[1], args[2], args[3])) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Conversions whose direction is detected from the files
+        if (args.length > 0 && args[0].equals("auto")) {
+
+            // Convert each file in the direction detected from its content and report failure through the exit status
+            if (args.length < 2 || !runAuto(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Conversions of every Document object of missives
+        if (args.length > 0 && args[0].equals("pdfs")) {
+
+            // Convert each missive to one PDF document per Document object and report failure through the exit status
+            if (args.length < 2 || !runAllDocuments(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        // Conversions of several PDF documents into a single missive
+        if (args.length > 0 && args[0].equals("pack")) {
+
+            // Convert the PDF documents into the missive of the first one and report failure through the exit status
+            if (args.length < 3 || !runPack(args, conf, output, temp)) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
         // Check parameter count
         if (args.length == 2) {
 
@@ -61,7 +271,7 @@ public class SmicTest {
 
                     } catch (ParserConfigurationException | IOException | SAXException |
                             DocumentObjectNotFoundException | PdfDocumentNotGeneratedException | TransformerException |
-                            InvalidPdfPageNumberException | DocumentException ex) {
+                            InvalidPdfPageNumberException | DocumentException | ConversionRejectedException ex) {
 
                         System.out.println(ex.getMessage());
 
@@ -85,7 +295,8 @@ public class SmicTest {
                     } catch (ParserConfigurationException | IOException | SAXException | TransformerException |
                             MissiveXmlNotFoundException | InvalidDocumentObjectTemplateException |
                             XmlDocumentNotGeneratedException | XPathExpressionException |
-                            ContainerNodeNotFoundException | InvalidNamespaceDefinitionException ex) {
+                            ContainerNodeNotFoundException | InvalidNamespaceDefinitionException |
+                            ConversionRejectedException ex) {
 
                         System.out.println(ex.getMessage());
 
@@ -106,6 +317,877 @@ public class SmicTest {
 
     }
 
+    /**
+     * Run the allocation budget tests of the SMIC module
+     *
+     * @param args Command line arguments: alloc [maximum multiples of input size for xml2pdf,pdf2xml]
+     * [sizes in bytes, comma-delimited]
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether every conversion stayed within its allocation budget
+     */
+    private static boolean runAllocationTest(String[] args, String conf, String output, String temp) {
+
+        // Maximum number of bytes allocated per byte of input for each direction
+        String[] multipleValues = (args.length > 1 ? args[1] : "12,40").split(",");
+        double xml2PdfMaxMultiple = Double.parseDouble(multipleValues[0].trim());
+        double pdf2XmlMaxMultiple = multipleValues.length > 1 ? Double.parseDouble(multipleValues[1].trim()) :
+                xml2PdfMaxMultiple;
+
+        // Sizes of the attachments that are converted
+        String[] sizeValues = (args.length > 2 ? args[2] : "65536,1048576,4194304").split(",");
+        int[] sizes = new int[sizeValues.length];
+
+        for (int i = 0; i < sizeValues.length; i++) {
+            sizes[i] = Integer.parseInt(sizeValues[i].trim());
+        }
+
+        // Sample missive used as template for the synthetic inputs
+        File[] samples = new File(getCurrentWorkingDirectory() + System.getProperty("file.separator") + "xml")
+                .listFiles();
+
+        if (samples == null || samples.length == 0) {
+            System.out.println("No sample missive XML file was found in the xml folder.");
+            return false;
+        }
+
+        try {
+
+            // Smic class instance
+            Smic smic = new Smic(conf, output, temp);
+
+            // Allocation test runner with an allowance of 16 MB for the fixed cost of a conversion
+            SmicAllocationTest allocationTest = new SmicAllocationTest(smic, getCurrentWorkingDirectory() +
+                    System.getProperty("file.separator") + "alloc", xml2PdfMaxMultiple, pdf2XmlMaxMultiple,
+                    16L * 1024 * 1024);
+
+            return allocationTest.run(samples[0].getPath(), sizes);
+
+        } catch (Exception ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Run the resource leak soak test of the SMIC module over the sample files of the xml and pdf folders
+     *
+     * @param args Command line arguments: soak [number of conversions]
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether open file descriptors and retained heap stayed flat
+     */
+    private static boolean runSoakTest(String[] args, String conf, String output, String temp) {
+
+        // Number of conversions
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+        // Sample files of both directions
+        File[] xmlFiles = new File(getCurrentWorkingDirectory() + System.getProperty("file.separator") + "xml")
+                .listFiles();
+        File[] pdfFiles = new File(getCurrentWorkingDirectory() + System.getProperty("file.separator") + "pdf")
+                .listFiles();
+
+        if (xmlFiles == null || xmlFiles.length == 0 || pdfFiles == null || pdfFiles.length == 0) {
+            System.out.println("Sample files were not found in the xml and pdf folders.");
+            return false;
+        }
+
+        // Paths of the sample files
+        String[] xmlFilenames = new String[xmlFiles.length];
+        String[] pdfFilenames = new String[pdfFiles.length];
+
+        for (int i = 0; i < xmlFiles.length; i++) {
+            xmlFilenames[i] = xmlFiles[i].getPath();
+        }
+
+        for (int i = 0; i < pdfFiles.length; i++) {
+            pdfFilenames[i] = pdfFiles[i].getPath();
+        }
+
+        try {
+
+            // Smic class instance
+            Smic smic = new Smic(conf, output, temp);
+
+            return new SmicSoakTest(smic).run(xmlFilenames, pdfFilenames, iterations);
+
+        } catch (Exception ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Convert the sample files of the xml and pdf folders twice and check that the second conversions are served by
+     * the conversion cache
+     *
+     * @param args Command line arguments: cache
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether every second conversion was served by the cache
+     */
+    private static boolean runCacheTest(String[] args, String conf, String output, String temp) {
+
+        // Sample files of both directions
+        File[] xmlFiles = new File(getCurrentWorkingDirectory() + System.getProperty("file.separator") + "xml")
+                .listFiles();
+        File[] pdfFiles = new File(getCurrentWorkingDirectory() + System.getProperty("file.separator") + "pdf")
+                .listFiles();
+
+        if (xmlFiles == null || pdfFiles == null) {
+            System.out.println("Sample files were not found in the xml and pdf folders.");
+            return false;
+        }
+
+        try {
+
+            // Smic class instance
+            Smic smic = new Smic(conf, output, temp);
+
+            if (smic.getCache() == null) {
+                System.out.println("The conversion cache is not enabled in the configuration file.");
+                return false;
+            }
+
+            // Convert every sample twice
+            for (int pass = 1; pass <= 2; pass++) {
+
+                long start = System.nanoTime();
+
+                for (File xmlFile : xmlFiles) {
+                    smic.smicXml2Pdf(xmlFile.getPath());
+                }
+
+                for (File pdfFile : pdfFiles) {
+                    smic.smicPdf2Xml(pdfFile.getPath());
+                }
+
+                System.out.println(String.format("pass %d: %d ms, memory hits %d, disk hits %d, misses %d", pass,
+                        (System.nanoTime() - start) / 1000000, smic.getCache().getMemoryHits(),
+                        smic.getCache().getDiskHits(), smic.getCache().getMisses()));
+            }
+
+            // Every conversion of the second pass must have been a hit
+            long hits = smic.getCache().getMemoryHits() + smic.getCache().getDiskHits();
+
+            return hits >= xmlFiles.length + pdfFiles.length;
+
+        } catch (Exception ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Move the files found in the output folder itself to the folders of the layout set in the configuration file
+     *
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether the output folder was re-sharded
+     */
+    private static boolean runReshard(String conf, String output, String temp) {
+
+        try {
+
+            // Smic class instance
+            Smic smic = new Smic(conf, output, temp);
+
+            long start = System.nanoTime();
+            int moved = smic.reshardOutputFolder();
+
+            System.out.println(String.format("%d files moved in %d ms", moved,
+                    (System.nanoTime() - start) / 1000000));
+
+            return true;
+
+        } catch (InvalidConfigurationException | IOException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Convert the sample files of the xml and pdf folders read from memory and write the resulting files to a ZIP
+     * archive in the output folder, then check that the archive holds every resulting file
+     *
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether every resulting file was found in the archive
+     */
+    private static boolean runStorageTest(String conf, String output, String temp) {
+
+        // Sample files of both directions
+        File[] xmlFiles = new File(getCurrentWorkingDirectory() + System.getProperty("file.separator") + "xml")
+                .listFiles();
+        File[] pdfFiles = new File(getCurrentWorkingDirectory() + System.getProperty("file.separator") + "pdf")
+                .listFiles();
+
+        if (xmlFiles == null || pdfFiles == null) {
+            System.out.println("Sample files were not found in the xml and pdf folders.");
+            return false;
+        }
+
+        // ZIP archive receiving the resulting files, replaced at each run
+        String archiveFilename = output + System.getProperty("file.separator") + "storage.zip";
+
+        try {
+
+            // Load the samples in memory
+            SmicMemoryStorage inputStorage = new SmicMemoryStorage();
+
+            for (File xmlFile : xmlFiles) {
+                inputStorage.put("xml/" + xmlFile.getName(), Files.readAllBytes(xmlFile.toPath()));
+            }
+
+            for (File pdfFile : pdfFiles) {
+                inputStorage.put("pdf/" + pdfFile.getName(), Files.readAllBytes(pdfFile.toPath()));
+            }
+
+            new File(output).mkdirs();
+            new File(archiveFilename).delete();
+
+            // Convert every sample into the archive
+            ArrayList<String> resultFilenames = new ArrayList<>();
+            long start = System.nanoTime();
+
+            try (SmicZipStorage outputStorage = new SmicZipStorage(archiveFilename)) {
+
+                Smic smic = new Smic(conf, inputStorage, outputStorage, temp);
+
+                for (File xmlFile : xmlFiles) {
+                    resultFilenames.add(smic.smicXml2Pdf("xml/" + xmlFile.getName()));
+                }
+
+                for (File pdfFile : pdfFiles) {
+                    resultFilenames.add(smic.smicPdf2Xml("pdf/" + pdfFile.getName()));
+                }
+            }
+
+            System.out.println(String.format("%d files converted from memory to %s in %d ms", resultFilenames.size(),
+                    archiveFilename, (System.nanoTime() - start) / 1000000));
+
+            // Every resulting file must have been saved to the archive
+            boolean found = true;
+
+            try (SmicZipStorage archive = new SmicZipStorage(archiveFilename)) {
+
+                for (String resultFilename : resultFilenames) {
+
+                    if (resultFilename == null || !archive.exists(resultFilename) ||
+                            archive.size(resultFilename) == 0) {
+                        System.out.println("Missing from the archive: " + resultFilename);
+                        found = false;
+                    }
+                }
+            }
+
+            return found;
+
+        } catch (Exception ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Convert the missive XML documents and PDF documents of a ZIP archive into another ZIP archive
+     *
+     * @param inputArchive ZIP archive holding the files that need to be converted
+     * @param outputArchive ZIP archive receiving the resulting files
+     * @param conf SMIC module configuration file
+     * @param temp SMIC module temporary folder
+     * @return Whether every entry was converted
+     */
+    private static boolean runZipBatch(String inputArchive, String outputArchive, String conf, String temp) {
+
+        try {
+
+            // Convert the entries with one thread per processor
+            SmicZipBatch batch = new SmicZipBatch(conf, temp, Runtime.getRuntime().availableProcessors());
+
+            long start = System.nanoTime();
+
+            try (InputStream is = new FileInputStream(inputArchive);
+                    OutputStream os = new FileOutputStream(outputArchive)) {
+                batch.convert(is, os);
+            }
+
+            System.out.println(String.format("%d entries converted, %d skipped, %d failed in %d ms",
+                    batch.getConverted(), batch.getSkipped(), batch.getFailures().size(),
+                    (System.nanoTime() - start) / 1000000));
+
+            for (Map.Entry<String, String> failure : batch.getFailures().entrySet()) {
+                System.out.println(failure.getKey() + ": " + failure.getValue());
+            }
+
+            return batch.getFailures().isEmpty();
+
+        } catch (InvalidConfigurationException | IOException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Convert the missive XML documents and PDF documents of a folder which are not already recorded in the journal
+     *
+     * @param inputFolder Folder holding the files that need to be converted
+     * @param journalFilename Journal of the batch
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether every file was converted
+     */
+    private static boolean runFolderBatch(String inputFolder, String journalFilename, String conf, String output,
+            String temp) {
+
+        try {
+
+            // Convert the files with one thread per processor
+            SmicFolderBatch batch = new SmicFolderBatch(conf, output, temp, Runtime.getRuntime().availableProcessors());
+
+            long start = System.nanoTime();
+
+            batch.convert(inputFolder, journalFilename);
+
+            System.out.println(String.format("%d files converted, %d already converted, %d skipped, %d failed " +
+                    "(%d timed out) in %d ms", batch.getConverted(), batch.getResumed(), batch.getSkipped(),
+                    batch.getFailures().size(), batch.getTimeouts(), (System.nanoTime() - start) / 1000000));
+
+            for (Map.Entry<String, String> failure : batch.getFailures().entrySet()) {
+                System.out.println(failure.getKey() + ": " + failure.getValue());
+            }
+
+            return batch.getFailures().isEmpty();
+
+        } catch (InvalidConfigurationException | IOException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Convert the files of a folder shared with other workers until every file has been converted
+     *
+     * @param args Command line arguments: worker (input folder) [number of threads] [lease time to live in seconds]
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether every file claimed by the worker was converted
+     */
+    private static boolean runWorker(String[] args, String conf, String output, String temp) {
+
+        try {
+
+            // Number of threads and lease time to live
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            long leaseTtl = args.length > 3 ? Long.parseLong(args[3]) * 1000 : SmicWorker.DEFAULT_LEASE_TTL;
+
+            SmicWorker worker = new SmicWorker(conf, output, temp, threads, leaseTtl);
+
+            long start = System.nanoTime();
+
+            worker.run(args[1]);
+
+            System.out.println(String.format("%s: %d files converted, %d reclaimed, %d failed in %d ms",
+                    worker.getWorkerId(), worker.getConverted(), worker.getReclaimed(), worker.getFailures().size(),
+                    (System.nanoTime() - start) / 1000000));
+
+            for (Map.Entry<String, String> failure : worker.getFailures().entrySet()) {
+                System.out.println(failure.getKey() + ": " + failure.getValue());
+            }
+
+            return worker.getFailures().isEmpty();
+
+        } catch (InvalidConfigurationException | IOException | NumberFormatException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Start several processes which all try to take over the same expired leases at the same time, and check that
+     * each lease is taken over by exactly one of them
+     *
+     * @param args Command line arguments: worker, race, lease folder, [number of processes] [number of leases]
+     * @return Whether each lease was taken over by exactly one process
+     */
+    private static boolean runLeaseRace(String[] args) {
+
+        try {
+
+            int processes = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+            int leases = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+
+            // Expired leases of a worker which has died, in a folder of their own
+            Files.createDirectories(Paths.get(args[2]));
+
+            Path leaseFolder = Files.createTempDirectory(Paths.get(args[2]), "race");
+
+            for (int i = 0; i < leases; i++) {
+                Path lease = leaseFolder.resolve("file" + i + ".lease");
+                Files.write(lease, "dead\n".getBytes("UTF-8"));
+                Files.setLastModifiedTime(lease, FileTime.fromMillis(0));
+            }
+
+            // Processes starting to claim the leases together, once they have all been launched
+            long startAt = System.currentTimeMillis() + 3000;
+            List<Process> racers = new ArrayList<>();
+
+            for (int i = 0; i < processes; i++) {
+                racers.add(new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" +
+                        File.separator + "java", "-cp", System.getProperty("java.class.path"),
+                        SmicTest.class.getName(), "worker", "claim", leaseFolder.toString(), "racer" + i,
+                        String.valueOf(startAt), String.valueOf(leases)).redirectErrorStream(true).start());
+            }
+
+            // Processes which took over each lease
+            Map<String, List<String>> claims = new HashMap<>();
+            boolean success = true;
+
+            for (int i = 0; i < processes; i++) {
+
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(racers.get(i).getInputStream(),
+                        "UTF-8"))) {
+
+                    String line;
+
+                    while ((line = reader.readLine()) != null) {
+
+                        if (!claims.containsKey(line)) {
+                            claims.put(line, new ArrayList<String>());
+                        }
+
+                        claims.get(line).add("racer" + i);
+                    }
+                }
+
+                if (racers.get(i).waitFor() != 0) {
+                    System.out.println("racer" + i + " failed");
+                    success = false;
+                }
+            }
+
+            // Each lease must have been taken over once, and must now hold the process which took it over
+            int twice = 0;
+            int never = 0;
+
+            for (int i = 0; i < leases; i++) {
+
+                List<String> claimers = claims.get("file" + i);
+
+                if (claimers == null) {
+                    System.out.println("file" + i + ": never taken over");
+                    never++;
+                } else if (claimers.size() > 1) {
+                    System.out.println("file" + i + ": taken over by " + claimers);
+                    twice++;
+                } else if (!new String(Files.readAllBytes(leaseFolder.resolve("file" + i + ".lease")), "UTF-8")
+                        .equals(claimers.get(0) + "\n")) {
+                    System.out.println("file" + i + ": lease not held by " + claimers.get(0));
+                    twice++;
+                }
+            }
+
+            System.out.println(String.format("%d processes, %d expired leases: %d taken over twice, %d never",
+                    processes, leases, twice, never));
+
+            return success && twice == 0 && never == 0;
+
+        } catch (IOException | NumberFormatException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+
+        } catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    /**
+     * Take over the expired leases of a race started by another process, printing the name of each lease taken over
+     *
+     * @param args Command line arguments: worker, claim, lease folder, worker identifier, start time, number of leases
+     * @return Whether the leases could be claimed
+     */
+    private static boolean runLeaseClaims(String[] args) {
+
+        try {
+
+            SmicLeaseManager leaseManager = new SmicLeaseManager(args[2], args[3], SmicWorker.DEFAULT_LEASE_TTL);
+            int leases = Integer.parseInt(args[5]);
+
+            // Start together with the other processes
+            long wait = Long.parseLong(args[4]) - System.currentTimeMillis();
+
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+
+            for (int i = 0; i < leases; i++) {
+
+                if (leaseManager.claim("file" + i)) {
+                    System.out.println("file" + i);
+                }
+            }
+
+            return true;
+
+        } catch (IOException | NumberFormatException ex) {
+
+            System.err.println(ex.getMessage());
+
+            return false;
+
+        } catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    /**
+     * Convert the missive XML documents and PDF documents of a folder through the scheduler, printing the priority,
+     * sender and size of each file in the order in which the conversions complete
+     *
+     * @param args Command line arguments: schedule, input folder and optional number of threads
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether every file was converted
+     */
+    private static boolean runScheduler(String[] args, String conf, String output, String temp) {
+
+        try {
+
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+            Smic smic = new Smic(conf, output, temp);
+            SmicScheduler scheduler = new SmicScheduler(smic, threads);
+            final AtomicInteger failures = new AtomicInteger();
+
+            long start = System.nanoTime();
+
+            // Queue every file of the folder, described by the header the scheduler orders it by
+            ArrayList<Future<String>> results = new ArrayList<>();
+            ArrayList<String> descriptions = new ArrayList<>();
+
+            for (File file : new File(args[1]).listFiles()) {
+
+                String name = file.getName().toLowerCase();
+
+                if (file.isFile() && (name.endsWith(".xml") || name.endsWith(".pdf"))) {
+
+                    results.add(scheduler.submit(file.getPath()));
+
+                    try {
+                        SmicMissiveHeader header = smic.peekMissive(file.toPath());
+                        descriptions.add(String.format("%s %s %s %d", file.getName(), header.getPriority(),
+                                header.getSenderBic(), file.length()));
+                    } catch (XMLStreamException | SAXException | MissiveXmlNotFoundException |
+                            UnsupportedInputException ex) {
+                        descriptions.add(String.format("%s - - %d", file.getName(), file.length()));
+                    }
+                }
+            }
+
+            scheduler.shutdown();
+
+            // Report each conversion as it completes
+            ExecutorService waiters = Executors.newFixedThreadPool(Math.max(1, results.size()));
+            ExecutorCompletionService<String> reports = new ExecutorCompletionService<>(waiters);
+
+            for (int i = 0; i < results.size(); i++) {
+
+                final Future<String> result = results.get(i);
+                final String description = descriptions.get(i);
+
+                reports.submit(new Callable<String>() {
+
+                    @Override
+                    public String call() throws InterruptedException {
+
+                        try {
+                            result.get();
+                            return description;
+                        } catch (ExecutionException ex) {
+                            failures.incrementAndGet();
+                            return description + " " + ex.getCause().getMessage();
+                        }
+                    }
+                });
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                System.out.println(reports.take().get());
+            }
+
+            waiters.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+
+            System.out.println(String.format("%d files converted, %d failed in %d ms", results.size() -
+                    failures.get(), failures.get(), (System.nanoTime() - start) / 1000000));
+
+            return failures.get() == 0;
+
+        } catch (Exception ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Print the header of the missive of missive XML documents and PDF documents, with the average time taken to read
+     * it over repeated reads
+     *
+     * @param args Command line arguments: peek followed by the files whose missive is read
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether the missive of every file was read
+     */
+    private static boolean runPeek(String[] args, String conf, String output, String temp) {
+
+        final int repeats = 1000;
+        boolean success = true;
+
+        try {
+
+            Smic smic = new Smic(conf, output, temp);
+
+            for (int i = 1; i < args.length; i++) {
+
+                try {
+
+                    SmicMissiveHeader header = smic.peekMissive(Paths.get(args[i]));
+
+                    long start = System.nanoTime();
+
+                    for (int j = 0; j < repeats; j++) {
+                        smic.peekMissive(Paths.get(args[i]));
+                    }
+
+                    System.out.println(String.format("%s: MsvId=%s MsvTyp=%s MsvPri=%s Snd=%s/%s SndDtTm=%s " +
+                            "Rcv=%s/%s MsgId=%s MsgTyp=%s (%d us)", args[i], header.getMissiveId(),
+                            header.getMissiveType(), header.getPriority(), header.getSenderBic(),
+                            header.getSenderIban(), header.getSendDateTime(), header.getReceiverBic(),
+                            header.getReceiverIban(), header.getMessageId(), header.getMessageType(),
+                            (System.nanoTime() - start) / 1000 / repeats));
+
+                } catch (Exception ex) {
+                    System.out.println(args[i] + ": " + ex.getMessage());
+                    success = false;
+                }
+            }
+
+        } catch (InvalidConfigurationException | IOException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+
+        return success;
+    }
+
+    /**
+     * Print the records of the index of converted missives whose key has the given value, with the time taken to find
+     * them, the index being read while SMIC modules may be adding records to it
+     *
+     * @param indexFolder Folder of the index
+     * @param field Key looked up, such as MsvId, MsgId, SndBIC, SndIBAN, RcvBIC, RcvIBAN, Date or Digest
+     * @param value Value of the key
+     * @return Whether records were found
+     */
+    private static boolean runIndexQuery(String indexFolder, String field, String value) {
+
+        if (!SmicMissiveIndex.FIELDS.contains(field)) {
+            System.out.println("Champs de l'index : " + SmicMissiveIndex.FIELDS);
+            return false;
+        }
+
+        try (SmicMissiveIndex index = SmicMissiveIndex.openReadOnly(indexFolder)) {
+
+            long start = System.nanoTime();
+            List<SmicIndexEntry> entries = index.find(field, value);
+            long elapsed = System.nanoTime() - start;
+
+            for (SmicIndexEntry entry : entries) {
+                System.out.println(String.format("%s %s MsvId=%s MsgId=%s Snd=%s/%s Rcv=%s/%s %s -> %s (%s)",
+                        entry.getConvertedAt(), entry.getDate(), entry.getMissiveId(), entry.getMessageId(),
+                        entry.getSenderBic(), entry.getSenderIban(), entry.getReceiverBic(), entry.getReceiverIban(),
+                        entry.getInputName(), entry.getOutputName(), entry.getInputDigest()));
+            }
+
+            System.out.println(String.format("%d record(s) in %d segment(s) (%d us)", entries.size(),
+                    index.getSegmentCount(), elapsed / 1000));
+
+            return !entries.isEmpty();
+
+        } catch (IOException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+    }
+
+    /**
+     * Convert files in the direction detected from their first bytes, printing the resulting file or the reason for
+     * which each file was rejected, with the time taken
+     *
+     * @param args Command line arguments: auto followed by the files to convert
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether every file was converted
+     */
+    private static boolean runAuto(String[] args, String conf, String output, String temp) {
+
+        boolean success = true;
+
+        try {
+
+            Smic smic = new Smic(conf, output, temp);
+
+            for (int i = 1; i < args.length; i++) {
+
+                long start = System.nanoTime();
+
+                try {
+                    System.out.println(String.format("%s -> %s (%d us)", args[i], smic.convert(Paths.get(args[i])),
+                            (System.nanoTime() - start) / 1000));
+                } catch (Exception ex) {
+                    System.out.println(String.format("%s: %s (%d us)", args[i], ex.getMessage(),
+                            (System.nanoTime() - start) / 1000));
+                    success = false;
+                }
+            }
+
+        } catch (InvalidConfigurationException | IOException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+
+        return success;
+    }
+
+    /**
+     * Convert every Document object of missive XML documents, printing the resulting PDF documents or the reason for
+     * which each missive was rejected, with the time taken
+     *
+     * @param args Command line arguments: pdfs followed by the missives to convert
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether every missive was converted
+     */
+    private static boolean runAllDocuments(String[] args, String conf, String output, String temp) {
+
+        boolean success = true;
+
+        try {
+
+            Smic smic = new Smic(conf, output, temp);
+
+            for (int i = 1; i < args.length; i++) {
+
+                long start = System.nanoTime();
+
+                try {
+
+                    List<String> pdfFilenames = smic.smicXml2PdfAll(args[i]);
+
+                    System.out.println(String.format("%s -> %d PDF (%d us)", args[i], pdfFilenames.size(),
+                            (System.nanoTime() - start) / 1000));
+
+                    for (String pdfFilename : pdfFilenames) {
+                        System.out.println("  " + pdfFilename);
+                    }
+
+                } catch (Exception ex) {
+                    System.out.println(String.format("%s: %s (%d us)", args[i], ex.getMessage(),
+                            (System.nanoTime() - start) / 1000));
+                    success = false;
+                }
+            }
+
+        } catch (InvalidConfigurationException | IOException ex) {
+
+            System.out.println(ex.getMessage());
+
+            return false;
+        }
+
+        return success;
+    }
+
+    /**
+     * Convert several PDF documents into the missive carried by a PDF document, printing the resulting missive XML
+     * document or the reason for which the conversion failed, with the time taken
+     *
+     * @param args Command line arguments: pack followed by the PDF document carrying the missive and the PDF documents
+     * to add to the missive
+     * @param conf SMIC module configuration file
+     * @param output SMIC module output folder
+     * @param temp SMIC module temporary folder
+     * @return Whether the PDF documents were converted
+     */
+    private static boolean runPack(String[] args, String conf, String output, String temp) {
+
+        long start = System.nanoTime();
+
+        try {
+
+            Smic smic = new Smic(conf, output, temp);
+
+            String xmlFilename = smic.smicPdf2Xml(args[1], Arrays.asList(args).subList(2, args.length));
+
+            System.out.println(String.format("%s + %d PDF -> %s (%d us)", args[1], args.length - 2, xmlFilename,
+                    (System.nanoTime() - start) / 1000));
+
+            return true;
+
+        } catch (Exception ex) {
+
+            System.out.println(String.format("%s: %s (%d us)", args[1], ex.getMessage(),
+                    (System.nanoTime() - start) / 1000));
+
+            return false;
+        }
+    }
+
     /**
      * Get the current working directory of the application
      *
@@ -137,5 +1219,20 @@ public class SmicTest {
     private static void showUsage() {
 
         System.out.println("java -jar SMICTest.jar (Type de conversion: xml|pdf) (fichier à convertir)");
+        System.out.println("java -jar SMICTest.jar alloc [multiples maximaux xml2pdf,pdf2xml] [tailles en octets]");
+        System.out.println("java -jar SMICTest.jar soak [nombre de conversions]");
+        System.out.println("java -jar SMICTest.jar cache");
+        System.out.println("java -jar SMICTest.jar reshard");
+        System.out.println("java -jar SMICTest.jar storage");
+        System.out.println("java -jar SMICTest.jar batch (archive ZIP à convertir) (archive ZIP résultante)");
+        System.out.println("java -jar SMICTest.jar folder (dossier à convertir) (journal)");
+        System.out.println("java -jar SMICTest.jar worker (dossier partagé) [threads] [durée des baux en s]");
+        System.out.println("java -jar SMICTest.jar worker race (dossier des baux) [processus] [baux expirés]");
+        System.out.println("java -jar SMICTest.jar schedule (dossier à convertir) [threads]");
+        System.out.println("java -jar SMICTest.jar auto (fichiers à convertir)");
+        System.out.println("java -jar SMICTest.jar pdfs (missives à convertir en un PDF par document)");
+        System.out.println("java -jar SMICTest.jar pack (PDF portant la missive) (PDF à joindre à la missive)");
+        System.out.println("java -jar SMICTest.jar peek (missives à lire)");
+        System.out.println("java -jar SMICTest.jar index (dossier de l'index) (champ) (valeur)");
     }
 }